@@ -73,6 +73,12 @@ tasks {
         if (!unitFilter.isNullOrBlank()) {
             jvmArgs("-Dnl.akiar.pascal.log.unitFilter=$unitFilter")
         }
+        // Latency benchmarks depend on the machine; run them only on request (-Dpascal.completion.benchmark=true)
+        if (System.getProperty("pascal.completion.benchmark").toBoolean()) {
+            systemProperty("pascal.completion.benchmark", "true")
+        } else {
+            exclude("**/PascalCompletionBenchmarkTest*")
+        }
     }
 
     // Forward Pascal-related -D system properties from the Gradle JVM to the sandbox IDE JVM,
@@ -3,287 +3,282 @@ package nl.akiar.pascal;
 import com.intellij.lang.ASTNode;
 import com.intellij.lang.folding.FoldingBuilderEx;
 import com.intellij.lang.folding.FoldingDescriptor;
+import com.intellij.lexer.Lexer;
 import com.intellij.openapi.editor.Document;
-import com.intellij.openapi.editor.FoldingGroup;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.tree.TokenSet;
+import nl.akiar.pascal.psi.PascalElementTypes;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
-import java.util.Stack;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Folding builder for Pascal files.
- * Provides code folding for begin..end, class, record, try..except/finally, case, repeat..until,
- * interface/implementation sections, and block comments.
+ * Provides code folding for begin..end, class, record, interface types, try..except/finally, case,
+ * repeat..until, interface/implementation sections, uses clauses, and block comments.
+ * <p>
+ * Regions come from the PSI tree. In {@code quick} mode (first folding pass when a file is opened)
+ * they come from a single pass of the lexer over the document instead, so keywords in strings
+ * and comments are never mistaken for blocks in either mode.
  */
 public class PascalFoldingBuilder extends FoldingBuilderEx {
 
-    // Block types for tracking different fold regions
+    /** Composite nodes folded from the end of their first line to the start of their last line. */
+    private static final TokenSet BLOCKS = TokenSet.create(
+            PascalElementTypes.COMPOUND_STATEMENT,
+            PascalElementTypes.CASE_STATEMENT,
+            PascalElementTypes.REPEAT_STATEMENT,
+            PascalElementTypes.CLASS_TYPE,
+            PascalElementTypes.RECORD_TYPE,
+            PascalElementTypes.INTERFACE_TYPE
+    );
+
+    /** Composite nodes folded from the end of their first line to their end. */
+    private static final TokenSet SECTIONS = TokenSet.create(
+            PascalElementTypes.INTERFACE_SECTION,
+            PascalElementTypes.IMPLEMENTATION_SECTION,
+            PascalElementTypes.USES_SECTION
+    );
+
+    private static final TokenSet HANDLER_BLOCKS = TokenSet.create(
+            PascalElementTypes.EXCEPT_BLOCK,
+            PascalElementTypes.FINALLY_BLOCK
+    );
+
+    // Block types opened by the lexer pass
     private enum BlockType {
-        BEGIN, CLASS, RECORD, TRY, CASE, REPEAT, INTERFACE_SECTION, IMPLEMENTATION_SECTION, ASM
+        BEGIN, CLASS, RECORD, TRY, CASE, REPEAT, ASM, INTERFACE_SECTION, IMPLEMENTATION_SECTION
     }
 
-    private static class FoldBlock {
+    private static final class OpenBlock {
         final BlockType type;
         final int startOffset;
-        final int lineEndOffset;
 
-        FoldBlock(BlockType type, int startOffset, int lineEndOffset) {
+        OpenBlock(BlockType type, int startOffset) {
             this.type = type;
             this.startOffset = startOffset;
-            this.lineEndOffset = lineEndOffset;
         }
-    }
 
-    // Patterns for matching Pascal constructs (case insensitive)
-    private static final Pattern BEGIN_PATTERN = Pattern.compile("(?i)\\bbegin\\b");
-    private static final Pattern END_PATTERN = Pattern.compile("(?i)\\bend\\b");
-    private static final Pattern CLASS_PATTERN = Pattern.compile("(?i)=\\s*class\\b(?!\\s*;)(?!\\s*of\\b)");
-    private static final Pattern RECORD_PATTERN = Pattern.compile("(?i)=\\s*record\\b");
-    private static final Pattern TRY_PATTERN = Pattern.compile("(?i)\\btry\\b");
-    private static final Pattern EXCEPT_PATTERN = Pattern.compile("(?i)\\bexcept\\b");
-    private static final Pattern FINALLY_PATTERN = Pattern.compile("(?i)\\bfinally\\b");
-    private static final Pattern CASE_PATTERN = Pattern.compile("(?i)\\bcase\\b.*\\bof\\b");
-    private static final Pattern REPEAT_PATTERN = Pattern.compile("(?i)\\brepeat\\b");
-    private static final Pattern UNTIL_PATTERN = Pattern.compile("(?i)\\buntil\\b");
-    private static final Pattern INTERFACE_SECTION_PATTERN = Pattern.compile("(?i)^\\s*interface\\s*$");
-    private static final Pattern IMPLEMENTATION_PATTERN = Pattern.compile("(?i)^\\s*implementation\\s*$");
-    private static final Pattern INITIALIZATION_PATTERN = Pattern.compile("(?i)^\\s*initialization\\s*$");
-    private static final Pattern FINALIZATION_PATTERN = Pattern.compile("(?i)^\\s*finalization\\s*$");
-    private static final Pattern ASM_PATTERN = Pattern.compile("(?i)\\basm\\b");
-    private static final Pattern BLOCK_COMMENT_START = Pattern.compile("\\{|\\(\\*");
-    private static final Pattern USES_PATTERN = Pattern.compile("(?i)^\\s*uses\\b");
+        boolean isSection() {
+            return type == BlockType.INTERFACE_SECTION || type == BlockType.IMPLEMENTATION_SECTION;
+        }
+    }
 
     @NotNull
     @Override
     public FoldingDescriptor[] buildFoldRegions(@NotNull PsiElement root, @NotNull Document document, boolean quick) {
-        List<FoldingDescriptor> descriptors = new ArrayList<>();
-        String text = document.getText();
-        int documentLength = document.getTextLength();
+        ASTNode rootNode = root.getNode();
+        if (rootNode == null) return FoldingDescriptor.EMPTY_ARRAY;
 
-        findBlockFolds(text, documentLength, root, descriptors);
-        findCommentFolds(text, documentLength, root, descriptors);
-
-        return descriptors.toArray(new FoldingDescriptor[0]);
+        List<FoldingDescriptor> descriptors = new ArrayList<>();
+        if (quick) {
+            collectFromTokens(rootNode, document, descriptors);
+        } else {
+            collectFromTree(rootNode, document, descriptors);
+        }
+        return descriptors.toArray(FoldingDescriptor.EMPTY_ARRAY);
     }
 
-    private void findBlockFolds(String text, int documentLength, PsiElement root,
-                                List<FoldingDescriptor> descriptors) {
-        Stack<FoldBlock> blockStack = new Stack<>();
-        String[] lines = text.split("\n", -1);
-        int currentPos = 0;
-        int foldIndex = 0;
-
-        for (int lineNum = 0; lineNum < lines.length; lineNum++) {
-            String line = lines[lineNum];
-            int lineStart = currentPos;
-            int lineEnd = currentPos + line.length();
-
-            // Skip comment lines for block detection
-            String trimmedLine = line.trim();
-            if (trimmedLine.startsWith("//") || trimmedLine.startsWith("{") || trimmedLine.startsWith("(*")) {
-                currentPos = lineEnd + 1;
+    private void collectFromTree(ASTNode rootNode, Document document, List<FoldingDescriptor> descriptors) {
+        Deque<ASTNode> stack = new ArrayDeque<>();
+        stack.push(rootNode);
+        int visited = 0;
+        while (!stack.isEmpty()) {
+            if ((++visited & 0x3FF) == 0) ProgressManager.checkCanceled();
+            ASTNode node = stack.pop();
+            IElementType type = node.getElementType();
+            TextRange range = node.getTextRange();
+
+            if (type == PascalTokenTypes.BLOCK_COMMENT) {
+                addCommentFold(node, range.getStartOffset(), range.getEndOffset(), document, descriptors);
                 continue;
             }
-
-            // Check for interface section (unit structure)
-            if (INTERFACE_SECTION_PATTERN.matcher(line).find()) {
-                blockStack.push(new FoldBlock(BlockType.INTERFACE_SECTION, lineStart, lineEnd));
+            if (BLOCKS.contains(type)) {
+                addLineFold(node, range.getStartOffset(), range.getEndOffset() - 1, document, descriptors);
+            } else if (SECTIONS.contains(type)) {
+                addTailFold(node, range.getStartOffset(), range.getEndOffset(), document, descriptors);
+            } else if (type == PascalElementTypes.TRY_STATEMENT) {
+                addTryFolds(node, document, descriptors);
             }
 
-            // Check for implementation section
-            if (IMPLEMENTATION_PATTERN.matcher(line).find()) {
-                // Close interface section if open
-                if (!blockStack.isEmpty() && blockStack.peek().type == BlockType.INTERFACE_SECTION) {
-                    FoldBlock block = blockStack.pop();
-                    createFoldRegion(block, lineStart, documentLength, root, descriptors, foldIndex++);
-                }
-                blockStack.push(new FoldBlock(BlockType.IMPLEMENTATION_SECTION, lineStart, lineEnd));
-            }
-
-            // Check for initialization/finalization (closes implementation)
-            if (INITIALIZATION_PATTERN.matcher(line).find() || FINALIZATION_PATTERN.matcher(line).find()) {
-                if (!blockStack.isEmpty() && blockStack.peek().type == BlockType.IMPLEMENTATION_SECTION) {
-                    FoldBlock block = blockStack.pop();
-                    createFoldRegion(block, lineStart, documentLength, root, descriptors, foldIndex++);
-                }
+            for (ASTNode child = node.getLastChildNode(); child != null; child = child.getTreePrev()) {
+                stack.push(child);
             }
+        }
+    }
 
-            // Check for class definition
-            if (CLASS_PATTERN.matcher(line).find()) {
-                blockStack.push(new FoldBlock(BlockType.CLASS, lineStart, lineEnd));
+    /** try..except/finally folds the protected part and the handler part separately, as the lexer pass does. */
+    private void addTryFolds(ASTNode tryNode, Document document, List<FoldingDescriptor> descriptors) {
+        TextRange range = tryNode.getTextRange();
+        ASTNode handler = null;
+        for (ASTNode child = tryNode.getFirstChildNode(); child != null; child = child.getTreeNext()) {
+            if (HANDLER_BLOCKS.contains(child.getElementType())) {
+                handler = child;
+                break;
             }
+        }
+        if (handler == null) {
+            addLineFold(tryNode, range.getStartOffset(), range.getEndOffset() - 1, document, descriptors);
+            return;
+        }
+        int handlerStart = handler.getStartOffset();
+        addLineFold(tryNode, range.getStartOffset(), handlerStart, document, descriptors);
+        addLineFold(handler, handlerStart, range.getEndOffset() - 1, document, descriptors);
+    }
 
-            // Check for record definition
-            if (RECORD_PATTERN.matcher(line).find()) {
-                blockStack.push(new FoldBlock(BlockType.RECORD, lineStart, lineEnd));
+    private void collectFromTokens(ASTNode rootNode, Document document, List<FoldingDescriptor> descriptors) {
+        CharSequence text = document.getCharsSequence();
+        Lexer lexer = new PascalLexerAdapter();
+        lexer.start(text);
+
+        Deque<OpenBlock> stack = new ArrayDeque<>();
+        IElementType previous = null;
+        int previousEnd = 0;
+        // "= class" and "= interface" open a block unless followed, after any ancestor list,
+        // by ";" (forward or empty declaration) or "of"
+        BlockType pending = null;
+        int pendingOffset = 0;
+        int ancestorDepth = 0;
+        boolean afterAncestors = false;
+        int visited = 0;
+
+        for (IElementType type; (type = lexer.getTokenType()) != null; lexer.advance()) {
+            if ((++visited & 0x3FF) == 0) ProgressManager.checkCanceled();
+            int start = lexer.getTokenStart();
+            int end = lexer.getTokenEnd();
+
+            if (type == PascalTokenTypes.WHITE_SPACE || type == PascalTokenTypes.LINE_COMMENT
+                    || type == PascalTokenTypes.COMPILER_DIRECTIVE) {
+                continue;
             }
-
-            // Check for try block
-            if (TRY_PATTERN.matcher(line).find()) {
-                blockStack.push(new FoldBlock(BlockType.TRY, lineStart, lineEnd));
+            if (type == PascalTokenTypes.BLOCK_COMMENT) {
+                addCommentFold(rootNode, start, end, document, descriptors);
+                continue;
             }
 
-            // Check for except (closes try, opens except block)
-            if (EXCEPT_PATTERN.matcher(line).find()) {
-                if (!blockStack.isEmpty() && blockStack.peek().type == BlockType.TRY) {
-                    FoldBlock block = blockStack.pop();
-                    createFoldRegion(block, lineStart, documentLength, root, descriptors, foldIndex++);
+            if (pending != null) {
+                if (ancestorDepth > 0) {
+                    if (type == PascalTokenTypes.LPAREN) ancestorDepth++;
+                    else if (type == PascalTokenTypes.RPAREN) ancestorDepth--;
+                } else if (type == PascalTokenTypes.LPAREN && !afterAncestors) {
+                    ancestorDepth = 1;
+                    afterAncestors = true;
+                } else {
+                    if (type != PascalTokenTypes.SEMI && (afterAncestors || type != PascalTokenTypes.KW_OF)) {
+                        stack.push(new OpenBlock(pending, pendingOffset));
+                    }
+                    pending = null;
                 }
-                blockStack.push(new FoldBlock(BlockType.TRY, lineStart, lineEnd)); // reuse TRY for except block
             }
 
-            // Check for finally (closes try/except, opens finally block)
-            if (FINALLY_PATTERN.matcher(line).find()) {
-                if (!blockStack.isEmpty() && blockStack.peek().type == BlockType.TRY) {
-                    FoldBlock block = blockStack.pop();
-                    createFoldRegion(block, lineStart, documentLength, root, descriptors, foldIndex++);
+            OpenBlock top = stack.peek();
+            boolean afterEquals = previous == PascalTokenTypes.EQ;
+            if (type == PascalTokenTypes.KW_CLASS && afterEquals) {
+                pending = BlockType.CLASS;
+                pendingOffset = start;
+                afterAncestors = false;
+            } else if (type == PascalTokenTypes.KW_INTERFACE || type == PascalTokenTypes.KW_DISPINTERFACE) {
+                if (afterEquals) {
+                    pending = BlockType.CLASS;
+                    pendingOffset = start;
+                    afterAncestors = false;
+                } else if (top == null) {
+                    stack.push(new OpenBlock(BlockType.INTERFACE_SECTION, start));
                 }
-                blockStack.push(new FoldBlock(BlockType.TRY, lineStart, lineEnd)); // reuse TRY for finally block
-            }
-
-            // Check for case..of
-            if (CASE_PATTERN.matcher(line).find()) {
-                blockStack.push(new FoldBlock(BlockType.CASE, lineStart, lineEnd));
-            }
-
-            // Check for repeat
-            if (REPEAT_PATTERN.matcher(line).find()) {
-                blockStack.push(new FoldBlock(BlockType.REPEAT, lineStart, lineEnd));
-            }
-
-            // Check for asm
-            if (ASM_PATTERN.matcher(line).find()) {
-                blockStack.push(new FoldBlock(BlockType.ASM, lineStart, lineEnd));
-            }
-
-            // Check for begin
-            if (BEGIN_PATTERN.matcher(line).find()) {
-                blockStack.push(new FoldBlock(BlockType.BEGIN, lineStart, lineEnd));
-            }
-
-            // Check for until (closes repeat)
-            if (UNTIL_PATTERN.matcher(line).find()) {
-                if (!blockStack.isEmpty() && blockStack.peek().type == BlockType.REPEAT) {
-                    FoldBlock block = blockStack.pop();
-                    createFoldRegion(block, lineEnd, documentLength, root, descriptors, foldIndex++);
+            } else if ((type == PascalTokenTypes.KW_RECORD || type == PascalTokenTypes.KW_OBJECT)
+                    && (afterEquals || previous == PascalTokenTypes.KW_PACKED)) {
+                stack.push(new OpenBlock(BlockType.RECORD, start));
+            } else if (type == PascalTokenTypes.KW_IMPLEMENTATION) {
+                closeSections(rootNode, stack, previousEnd, document, descriptors);
+                stack.push(new OpenBlock(BlockType.IMPLEMENTATION_SECTION, start));
+            } else if (type == PascalTokenTypes.KW_INITIALIZATION || type == PascalTokenTypes.KW_FINALIZATION) {
+                closeSections(rootNode, stack, previousEnd, document, descriptors);
+            } else if (type == PascalTokenTypes.KW_BEGIN) {
+                stack.push(new OpenBlock(BlockType.BEGIN, start));
+            } else if (type == PascalTokenTypes.KW_TRY) {
+                stack.push(new OpenBlock(BlockType.TRY, start));
+            } else if (type == PascalTokenTypes.KW_REPEAT) {
+                stack.push(new OpenBlock(BlockType.REPEAT, start));
+            } else if (type == PascalTokenTypes.KW_CASE) {
+                // A case inside a record is a variant part, closed by the record's own end
+                if (top == null || (top.type != BlockType.RECORD && top.type != BlockType.CLASS)) {
+                    stack.push(new OpenBlock(BlockType.CASE, start));
                 }
-            }
-
-            // Check for end
-            if (END_PATTERN.matcher(line).find()) {
-                if (!blockStack.isEmpty()) {
-                    BlockType topType = blockStack.peek().type;
-                    // End closes most block types except interface/implementation sections
-                    if (topType != BlockType.INTERFACE_SECTION && topType != BlockType.IMPLEMENTATION_SECTION) {
-                        FoldBlock block = blockStack.pop();
-                        createFoldRegion(block, lineStart, documentLength, root, descriptors, foldIndex++);
-                    }
-                    // Check for "end." which closes implementation section
-                    if (trimmedLine.matches("(?i)end\\..*")) {
-                        while (!blockStack.isEmpty()) {
-                            FoldBlock block = blockStack.pop();
-                            createFoldRegion(block, lineStart, documentLength, root, descriptors, foldIndex++);
-                        }
-                    }
+            } else if (type == PascalTokenTypes.IDENTIFIER && end - start == 3
+                    && StringUtil.equalsIgnoreCase(text.subSequence(start, end), "asm")) {
+                stack.push(new OpenBlock(BlockType.ASM, start));
+            } else if (type == PascalTokenTypes.KW_EXCEPT || type == PascalTokenTypes.KW_FINALLY) {
+                if (top != null && top.type == BlockType.TRY) {
+                    stack.pop();
+                    addLineFold(rootNode, top.startOffset, start, document, descriptors);
+                    stack.push(new OpenBlock(BlockType.TRY, start));
+                }
+            } else if (type == PascalTokenTypes.KW_UNTIL) {
+                if (top != null && top.type == BlockType.REPEAT) {
+                    stack.pop();
+                    addLineFold(rootNode, top.startOffset, start, document, descriptors);
+                }
+            } else if (type == PascalTokenTypes.KW_END && top != null) {
+                if (top.isSection()) {
+                    // Only the final "end." can meet an open section
+                    closeSections(rootNode, stack, previousEnd, document, descriptors);
+                } else {
+                    stack.pop();
+                    addLineFold(rootNode, top.startOffset, start, document, descriptors);
                 }
             }
 
-            currentPos = lineEnd + 1;
+            previous = type;
+            previousEnd = end;
         }
+        closeSections(rootNode, stack, previousEnd, document, descriptors);
     }
 
-    private void findCommentFolds(String text, int documentLength, PsiElement root,
-                                  List<FoldingDescriptor> descriptors) {
-        int foldIndex = 1000; // Start with different index to avoid conflicts
-        int pos = 0;
-
-        while (pos < documentLength) {
-            char c = text.charAt(pos);
-
-            // Block comment {  }
-            if (c == '{') {
-                int start = pos;
-                pos++;
-                while (pos < documentLength && text.charAt(pos) != '}') {
-                    pos++;
-                }
-                if (pos < documentLength) {
-                    pos++; // include closing }
-                    // Only fold multi-line comments
-                    if (text.substring(start, pos).contains("\n")) {
-                        try {
-                            TextRange range = new TextRange(start, pos);
-                            PsiElement element = root.getContainingFile().findElementAt(start);
-                            ASTNode node = (element != null) ? element.getNode() : root.getNode();
-                            if (node == null) node = root.getNode();
-                            FoldingGroup group = FoldingGroup.newGroup("pascal-comment-" + foldIndex++);
-                            descriptors.add(new FoldingDescriptor(node, range, group));
-                        } catch (com.intellij.openapi.progress.ProcessCanceledException e) {
-                            throw e;
-                        } catch (Exception ignored) {
-                        }
-                    }
-                }
-                continue;
-            }
-
-            // Block comment (* *)
-            if (c == '(' && pos + 1 < documentLength && text.charAt(pos + 1) == '*') {
-                int start = pos;
-                pos += 2;
-                while (pos < documentLength - 1) {
-                    if (text.charAt(pos) == '*' && text.charAt(pos + 1) == ')') {
-                        pos += 2;
-                        break;
-                    }
-                    pos++;
-                }
-                // Only fold multi-line comments
-                if (text.substring(start, Math.min(pos, documentLength)).contains("\n")) {
-                    try {
-                        TextRange range = new TextRange(start, Math.min(pos, documentLength));
-                        PsiElement element = root.getContainingFile().findElementAt(start);
-                        ASTNode node = (element != null) ? element.getNode() : root.getNode();
-                        if (node == null) node = root.getNode();
-                        FoldingGroup group = FoldingGroup.newGroup("pascal-comment-" + foldIndex++);
-                        descriptors.add(new FoldingDescriptor(node, range, group));
-                    } catch (com.intellij.openapi.progress.ProcessCanceledException e) {
-                        throw e;
-                    } catch (Exception ignored) {
-                    }
-                }
-                continue;
+    private void closeSections(ASTNode node, Deque<OpenBlock> stack, int endOffset,
+                               Document document, List<FoldingDescriptor> descriptors) {
+        while (!stack.isEmpty()) {
+            OpenBlock block = stack.pop();
+            if (block.isSection()) {
+                addTailFold(node, block.startOffset, endOffset, document, descriptors);
             }
+        }
+    }
 
-            pos++;
+    /** Fold from the end of the line holding {@code startOffset} to the start of the line holding {@code lastOffset}. */
+    private static void addLineFold(ASTNode node, int startOffset, int lastOffset,
+                                    Document document, List<FoldingDescriptor> descriptors) {
+        int startLine = document.getLineNumber(startOffset);
+        int endLine = document.getLineNumber(lastOffset);
+        if (endLine <= startLine) return;
+        int foldStart = document.getLineEndOffset(startLine);
+        int foldEnd = document.getLineStartOffset(endLine);
+        if (foldEnd - foldStart > 1) {
+            descriptors.add(new FoldingDescriptor(node, new TextRange(foldStart, foldEnd)));
         }
     }
 
-    private void createFoldRegion(FoldBlock block, int endLineStart, int documentLength,
-                                  PsiElement root, List<FoldingDescriptor> descriptors, int foldIndex) {
-        int foldStart = block.lineEndOffset;
-        int foldEnd = endLineStart;
+    /** Fold from the end of the line holding {@code startOffset} to {@code endOffset}. */
+    private static void addTailFold(ASTNode node, int startOffset, int endOffset,
+                                    Document document, List<FoldingDescriptor> descriptors) {
+        int foldStart = document.getLineEndOffset(document.getLineNumber(startOffset));
+        if (endOffset - foldStart > 1) {
+            descriptors.add(new FoldingDescriptor(node, new TextRange(foldStart, endOffset)));
+        }
+    }
 
-        if (foldStart < foldEnd && foldStart < documentLength && foldEnd <= documentLength) {
-            if (foldEnd - foldStart > 1) {
-                try {
-                    TextRange range = new TextRange(foldStart, foldEnd);
-                    PsiElement element = root.getContainingFile().findElementAt(block.startOffset);
-                    ASTNode node = (element != null) ? element.getNode() : root.getNode();
-                    if (node == null) node = root.getNode();
-                    FoldingGroup group = FoldingGroup.newGroup("pascal-fold-" + foldIndex);
-                    descriptors.add(new FoldingDescriptor(node, range, group));
-                } catch (com.intellij.openapi.progress.ProcessCanceledException e) {
-                    throw e;
-                } catch (Exception ignored) {
-                }
-            }
+    /** Multi-line block comments fold as a whole. */
+    private static void addCommentFold(ASTNode node, int startOffset, int endOffset,
+                                       Document document, List<FoldingDescriptor> descriptors) {
+        if (endOffset > startOffset && document.getLineNumber(startOffset) != document.getLineNumber(endOffset)) {
+            descriptors.add(new FoldingDescriptor(node, new TextRange(startOffset, endOffset)));
         }
     }
 
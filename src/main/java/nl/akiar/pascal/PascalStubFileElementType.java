@@ -42,6 +42,14 @@ public class PascalStubFileElementType extends IStubFileElementType<PsiFileStub<
         // 18: store helpedTypeName on PascalTypeStub so class/record helpers
         //     can be indexed by their target type and Self / member-chain
         //     resolution can route to the helped type.
-        return super.getStubVersion() + 18;
+        // 19: store section on property and field stubs so member visibility
+        //     and section checks are answered from stubs alone.
+        // 20: store doc comment and declaration header on type, routine and
+        //     property stubs so hover/quick-navigate render without the AST.
+        // 21: store unit name on type stubs and index types by unit#type so
+        //     unit-qualified type lookups are index probes.
+        // 22: store section on type stubs so a unit's interface exports are
+        //     listed from stubs alone.
+        return super.getStubVersion() + 22;
     }
 }
@@ -62,6 +62,14 @@ public class PascalSemanticAnnotator implements Annotator {
 
     @Override
     public void annotate(@NotNull PsiElement element, @NotNull AnnotationHolder holder) {
+        // Once per file version: resolve the rest of the file in the background, visible range first
+        if (element instanceof PsiFile) {
+            if (PascalSemanticModel.of((PsiFile) element).markPrefetchRequested()) {
+                PascalHighlightPrefetcher.getInstance(element.getProject()).schedule((PsiFile) element);
+            }
+            return;
+        }
+
         // Fast path for TYPE_REFERENCE PSI elements created by parser
         if (element instanceof nl.akiar.pascal.psi.impl.PascalTypeReferenceElement) {
             annotateTypeReference((nl.akiar.pascal.psi.impl.PascalTypeReferenceElement) element, holder);
@@ -187,10 +195,13 @@ public class PascalSemanticAnnotator implements Annotator {
     }
 
     private void annotateUsageImpl(PsiElement element, AnnotationHolder holder) {
+        PsiFile containingFile = element.getContainingFile();
+        if (containingFile == null) return;
+        PascalSemanticModel model = PascalSemanticModel.of(containingFile);
+
         // Skip if it's inside a unit reference, unit declaration or uses section
-        if (PsiUtil.hasParent(element, PascalElementTypes.UNIT_REFERENCE) ||
-            PsiUtil.hasParent(element, PascalElementTypes.UNIT_DECL_SECTION) ||
-            PsiUtil.hasParent(element, PascalElementTypes.USES_SECTION)) {
+        if (model.isInUnitHeaderOrUses(element) ||
+            PsiUtil.hasParent(element, PascalElementTypes.UNIT_REFERENCE)) {
             return;
         }
 
@@ -238,70 +249,60 @@ public class PascalSemanticAnnotator implements Annotator {
             return;
         }
 
-        // Use references to resolve usage — per-reference try-catch to avoid a single
-        // failure dropping all highlighting for this token
-        com.intellij.psi.PsiReference[] refs = element.getReferences();
-        if (refs.length == 0) {
-            refs = com.intellij.psi.impl.source.resolve.reference.ReferenceProvidersRegistry.getReferencesFromProviders(element);
-        }
-        for (com.intellij.psi.PsiReference ref : refs) {
-            PsiElement resolved = null;
-            try {
-                resolved = ref.resolve();
-            } catch (com.intellij.openapi.progress.ProcessCanceledException e) {
-                throw e; // NEVER swallow cancellation
-            } catch (com.intellij.openapi.project.IndexNotReadyException e) {
-                if (ANNOTATOR_DEBUG) {
-                    ANNOTATOR_LOG.info("[PascalAnnotator] IndexNotReadyException for '" +
-                            element.getText() + "' — falling through to heuristic, scheduling restart");
-                }
-                // Stub access can throw transiently even outside dumb mode (during
-                // write actions, VFS refresh, reparse). Returning here would leave
-                // the token uncolored until the next edit. Instead: schedule a
-                // re-annotation once indices are ready, then fall through to the
-                // heuristic fallback below so we still apply *some* color.
-                com.intellij.openapi.project.DumbService.getInstance(element.getProject())
-                    .smartInvokeLater(() -> {
-                        PsiFile file = element.getContainingFile();
-                        if (file != null && file.isValid()) {
-                            com.intellij.codeInsight.daemon.DaemonCodeAnalyzer
-                                .getInstance(element.getProject())
-                                .restart(file);
-                        }
-                    });
-                break;
-            } catch (Exception e) {
-                com.intellij.openapi.diagnostic.Logger.getInstance(PascalSemanticAnnotator.class)
-                    .debug("Resolution failed for '" + element.getText() + "': " + e.getMessage());
-                continue; // Try next reference
+        // Resolve through the shared per-file model so other annotators and later passes
+        // reuse the result
+        PsiElement resolved = null;
+        try {
+            resolved = model.resolve(element);
+        } catch (com.intellij.openapi.progress.ProcessCanceledException e) {
+            throw e; // NEVER swallow cancellation
+        } catch (com.intellij.openapi.project.IndexNotReadyException e) {
+            if (ANNOTATOR_DEBUG) {
+                ANNOTATOR_LOG.info("[PascalAnnotator] IndexNotReadyException for '" +
+                        element.getText() + "' — falling through to heuristic, scheduling restart");
             }
-            if (resolved != null) {
-                if (resolved instanceof PsiFile) {
-                    applyHighlight(element, holder, PascalSyntaxHighlighter.UNIT_REFERENCE);
-                    return;
-                } else if (resolved instanceof PascalRoutine) {
-                    PascalRoutine routine = (PascalRoutine) resolved;
-                    TextAttributesKey key = routine.isMethod() ?
-                            PascalSyntaxHighlighter.METHOD_CALL :
-                            PascalSyntaxHighlighter.ROUTINE_CALL;
-                    applyHighlight(element, holder, key);
-                    return;
-                } else if (resolved instanceof PascalTypeDefinition) {
-                    PascalTypeDefinition typeDef = (PascalTypeDefinition) resolved;
-                    applyHighlight(element, holder, getColorForTypeKind(typeDef.getTypeKind()));
-                    return;
-                } else if (resolved instanceof PascalVariableDefinition) {
-                    PascalVariableDefinition varDef = (PascalVariableDefinition) resolved;
-                    applyHighlight(element, holder, getColorForVariableKind(varDef.getVariableKind()));
-                    return;
-                } else if (resolved instanceof PascalProperty) {
-                    applyHighlight(element, holder, PascalSyntaxHighlighter.METHOD_CALL);
-                    return;
-                } else if (resolved.getNode() != null &&
-                           resolved.getNode().getElementType() == PascalElementTypes.ENUM_ELEMENT) {
-                    applyHighlight(element, holder, PascalSyntaxHighlighter.ENUM_ELEMENT);
-                    return;
-                }
+            // Stub access can throw transiently even outside dumb mode (during
+            // write actions, VFS refresh, reparse). Returning here would leave
+            // the token uncolored until the next edit. Instead: schedule a
+            // re-annotation once indices are ready, then fall through to the
+            // heuristic fallback below so we still apply *some* color.
+            com.intellij.openapi.project.DumbService.getInstance(element.getProject())
+                .smartInvokeLater(() -> {
+                    PsiFile file = element.getContainingFile();
+                    if (file != null && file.isValid()) {
+                        com.intellij.codeInsight.daemon.DaemonCodeAnalyzer
+                            .getInstance(element.getProject())
+                            .restart(file);
+                    }
+                });
+        }
+
+        if (resolved != null) {
+            if (resolved instanceof PsiFile) {
+                applyHighlight(element, holder, PascalSyntaxHighlighter.UNIT_REFERENCE);
+                return;
+            } else if (resolved instanceof PascalRoutine) {
+                PascalRoutine routine = (PascalRoutine) resolved;
+                TextAttributesKey key = routine.isMethod() ?
+                        PascalSyntaxHighlighter.METHOD_CALL :
+                        PascalSyntaxHighlighter.ROUTINE_CALL;
+                applyHighlight(element, holder, key);
+                return;
+            } else if (resolved instanceof PascalTypeDefinition) {
+                PascalTypeDefinition typeDef = (PascalTypeDefinition) resolved;
+                applyHighlight(element, holder, getColorForTypeKind(typeDef.getTypeKind()));
+                return;
+            } else if (resolved instanceof PascalVariableDefinition) {
+                PascalVariableDefinition varDef = (PascalVariableDefinition) resolved;
+                applyHighlight(element, holder, getColorForVariableKind(varDef.getVariableKind()));
+                return;
+            } else if (resolved instanceof PascalProperty) {
+                applyHighlight(element, holder, PascalSyntaxHighlighter.METHOD_CALL);
+                return;
+            } else if (resolved.getNode() != null &&
+                       resolved.getNode().getElementType() == PascalElementTypes.ENUM_ELEMENT) {
+                applyHighlight(element, holder, PascalSyntaxHighlighter.ENUM_ELEMENT);
+                return;
             }
         }
 
@@ -661,10 +662,11 @@ public class PascalSemanticAnnotator implements Annotator {
      * Resolve a type reference and determine its color based on the resolved type kind.
      */
     private TextAttributesKey resolveAndGetTypeColor(nl.akiar.pascal.psi.impl.PascalTypeReferenceElement typeRef) {
-        PsiReference[] refs = typeRef.getReferences();
-        if (refs.length == 0) return null;
+        PsiFile file = typeRef.getContainingFile();
+        if (file == null) return null;
 
-        PsiElement resolved = refs[0].resolve();
+        // Through the model, so chunks resolved ahead of time by the prefetcher are reused
+        PsiElement resolved = PascalSemanticModel.of(file).resolve(typeRef);
         if (resolved instanceof PascalTypeDefinition) {
             TypeKind typeKind = ((PascalTypeDefinition) resolved).getTypeKind();
             return getColorForTypeKind(typeKind);
@@ -0,0 +1,46 @@
+package nl.akiar.pascal.completion;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latency histograms for the completion providers, one per provider phase, named
+ * {@code <provider>.<phase>} (e.g. {@code identifier.psiWalk}, {@code member.helpers}).
+ * Every provider also records {@code <provider>.total} for the whole invocation.
+ * <p>
+ * Providers take {@code System.nanoTime()} at the start of a phase and pass it to
+ * {@link #record}, which returns the end time so consecutive phases chain.
+ */
+public final class PascalCompletionMetrics {
+    private static final Map<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    private PascalCompletionMetrics() {
+    }
+
+    /** Record the time elapsed since {@code startNanos} under {@code phase}; returns the current time. */
+    public static long record(@NotNull String phase, long startNanos) {
+        long now = System.nanoTime();
+        histogram(phase).record(now - startNanos);
+        return now;
+    }
+
+    @NotNull
+    public static LatencyHistogram histogram(@NotNull String phase) {
+        return HISTOGRAMS.computeIfAbsent(phase, LatencyHistogram::new);
+    }
+
+    /** All histograms recorded so far, by phase name. */
+    @NotNull
+    public static Map<String, LatencyHistogram> snapshot() {
+        return new TreeMap<>(HISTOGRAMS);
+    }
+
+    public static void reset() {
+        for (LatencyHistogram histogram : HISTOGRAMS.values()) {
+            histogram.reset();
+        }
+    }
+}
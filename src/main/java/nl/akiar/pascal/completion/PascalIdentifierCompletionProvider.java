@@ -15,9 +15,6 @@ import nl.akiar.pascal.PascalTokenTypes;
 import nl.akiar.pascal.psi.*;
 import nl.akiar.pascal.stubs.PascalRoutineIndex;
 import nl.akiar.pascal.stubs.PascalTypeIndex;
-import nl.akiar.pascal.stubs.PascalVariableIndex;
-import nl.akiar.pascal.uses.PascalUsesClauseInfo;
-import nl.akiar.pascal.settings.PascalSourcePathsSettings;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
@@ -29,7 +26,8 @@ import java.util.*;
  *
  * Uses a two-tier approach:
  * - Tier 1 (always): PSI tree walk for locals/parameters, class members, built-ins, keywords
- * - Tier 2 (deferred): stub index queries for types, routines, global variables
+ * - Tier 2 (deferred): types, routines, global variables from the per-file
+ *   {@link PascalVisibleDeclarations} table (prefix lookups into cached unit exports).
  *   Only runs on explicit invocation (Ctrl+Space) or when prefix >= 2 chars
  */
 public class PascalIdentifierCompletionProvider extends CompletionProvider<CompletionParameters> {
@@ -65,44 +63,49 @@ public class PascalIdentifierCompletionProvider extends CompletionProvider<Compl
         boolean isAutopopup = invocationCount == 0;
         String prefix = result.getPrefixMatcher().getPrefix();
 
-        // === Tier 1: Always run (PSI-local, instant) ===
+        long start = System.nanoTime();
+        long phaseStart = start;
+        try {
+            // === Tier 1: Always run (PSI-local, instant) ===
 
-        // 1. Local variables and parameters via PSI tree walk (no index queries)
-        addLocalVariablesPsi(position, file, offset, addedNames, result);
+            // 1. Local variables and parameters via PSI tree walk (no index queries)
+            addLocalVariablesPsi(position, file, offset, addedNames, result);
 
-        // 2. Class members (if inside a method implementation)
-        addClassMembers(position, file, invocationCount, addedNames, result);
+            // 2. Class members (if inside a method implementation)
+            addClassMembers(position, file, invocationCount, addedNames, result);
+            phaseStart = PascalCompletionMetrics.record("identifier.psiWalk", phaseStart);
 
-        // 3. Built-in functions
-        addBuiltInFunctions(project, addedNames, result);
+            // 3. Built-in functions
+            addBuiltInFunctions(project, addedNames, result);
 
-        // 4. Built-in types
-        addBuiltInTypes(project, addedNames, result);
+            // 4. Built-in types
+            addBuiltInTypes(project, addedNames, result);
 
-        // 5. Keywords (context-dependent)
-        addKeywords(position, addedNames, result);
+            // 5. Keywords (context-dependent)
+            addKeywords(position, addedNames, result);
+            phaseStart = PascalCompletionMetrics.record("identifier.builtins", phaseStart);
 
-        // === Tier 2: Only when user has typed 2+ chars or explicitly invoked ===
-        if (isAutopopup && prefix.length() < 2) return;
+            // === Tier 2: Only when user has typed 2+ chars or explicitly invoked ===
+            if (isAutopopup && prefix.length() < 2) return;
 
-        String prefixLower = prefix.toLowerCase();
+            String prefixLower = prefix.toLowerCase();
 
-        PascalUsesClauseInfo usesInfo = PascalUsesClauseInfo.parse(file);
-        List<String> availableUnits = usesInfo.getAvailableUnits(offset);
-        Set<String> availableUnitsLower = new HashSet<>();
-        for (String unit : availableUnits) {
-            availableUnitsLower.add(unit.toLowerCase());
-        }
-        List<String> scopes = PascalSourcePathsSettings.getInstance(project).getUnitScopeNames();
+            // Declarations of the units visible at the caret, cached per file until its uses change
+            List<PascalUnitExports> visible = PascalVisibleDeclarations.visibleAt(file, offset);
+            phaseStart = PascalCompletionMetrics.record("identifier.usesFiltering", phaseStart);
 
-        // 6. Types in scope (prefix-filtered)
-        addTypesInScope(project, file, offset, availableUnitsLower, scopes, prefixLower, addedNames, result);
+            // 6. Types in scope (prefix-filtered)
+            addTypesInScope(file, visible, prefixLower, addedNames, result);
 
-        // 7. Routines in scope (prefix-filtered)
-        addRoutinesInScope(project, file, offset, availableUnitsLower, scopes, prefixLower, addedNames, result);
+            // 7. Routines in scope (prefix-filtered)
+            addRoutinesInScope(file, visible, prefixLower, addedNames, result);
 
-        // 8. Global variables/constants in scope (prefix-filtered)
-        addGlobalVariables(project, file, offset, availableUnitsLower, scopes, prefixLower, addedNames, result);
+            // 8. Global variables/constants in scope (prefix-filtered)
+            addGlobalVariables(file, visible, prefixLower, addedNames, result);
+            PascalCompletionMetrics.record("identifier.declarations", phaseStart);
+        } finally {
+            PascalCompletionMetrics.record("identifier.total", start);
+        }
     }
 
     /**
@@ -202,66 +205,30 @@ public class PascalIdentifierCompletionProvider extends CompletionProvider<Compl
         }
     }
 
-    private void addTypesInScope(Project project, PsiFile file, int offset,
-                                 Set<String> availableUnitsLower, List<String> scopes,
-                                 String prefixLower,
+    private void addTypesInScope(PsiFile file, List<PascalUnitExports> visible, String prefixLower,
                                  Set<String> addedNames, CompletionResultSet result) {
-        Collection<String> allKeys = StubIndex.getInstance().getAllKeys(PascalTypeIndex.KEY, project);
-        for (String key : allKeys) {
-            // Prefix filter: skip keys that don't match what the user typed
-            if (!prefixLower.isEmpty() && !key.toLowerCase().startsWith(prefixLower)) continue;
-
-            Collection<PascalTypeDefinition> types = StubIndex.getElements(
-                    PascalTypeIndex.KEY, key, project,
-                    GlobalSearchScope.allScope(project), PascalTypeDefinition.class);
-
-            for (PascalTypeDefinition typeDef : types) {
-                String name = typeDef.getName();
-                if (name == null || name.isEmpty()) continue;
-                if (typeDef.isForwardDeclaration()) continue;
-                if (addedNames.contains(name.toLowerCase())) continue;
-
-                if (!isInScope(typeDef.getContainingFile(), typeDef.getUnitName(),
-                        file, availableUnitsLower, scopes)) continue;
-
-                addedNames.add(name.toLowerCase());
-                LookupElementBuilder lookup = LookupElementBuilder.create(name)
+        PascalUnitExports own = PascalUnitExports.of(file);
+        for (PascalUnitExports exports : visible) {
+            // Other units only show their interface section
+            exports.processPrefix(prefixLower, PascalUnitExports.Kind.TYPE, exports == own, entry -> {
+                if (!addedNames.add(entry.lowerName)) return;
+                PascalTypeDefinition typeDef = (PascalTypeDefinition) entry.element;
+                LookupElementBuilder lookup = LookupElementBuilder.create(entry.name)
                         .withIcon(AllIcons.Nodes.Class)
                         .withTypeText(typeDef.getUnitName(), true);
                 result.addElement(PrioritizedLookupElement.withPriority(lookup, 80));
-            }
+            });
         }
     }
 
-    private void addRoutinesInScope(Project project, PsiFile file, int offset,
-                                    Set<String> availableUnitsLower, List<String> scopes,
-                                    String prefixLower,
+    private void addRoutinesInScope(PsiFile file, List<PascalUnitExports> visible, String prefixLower,
                                     Set<String> addedNames, CompletionResultSet result) {
-        Collection<String> allKeys = StubIndex.getInstance().getAllKeys(PascalRoutineIndex.KEY, project);
-        for (String key : allKeys) {
-            // Prefix filter: skip keys that don't match what the user typed
-            if (!prefixLower.isEmpty() && !key.toLowerCase().startsWith(prefixLower)) continue;
-
-            Collection<PascalRoutine> routines = StubIndex.getElements(
-                    PascalRoutineIndex.KEY, key, project,
-                    GlobalSearchScope.allScope(project), PascalRoutine.class);
-
-            for (PascalRoutine routine : routines) {
-                // Skip methods (they're accessed through member completion)
-                if (routine.isMethod()) continue;
-                // Skip implementations (prefer declarations)
-                if (routine.isImplementation() && routine.getDeclaration() != null) continue;
-
-                String name = routine.getName();
-                if (name == null || name.isEmpty()) continue;
-                if (addedNames.contains(name.toLowerCase())) continue;
-
-                if (!isInScope(routine.getContainingFile(), routine.getUnitName(),
-                        file, availableUnitsLower, scopes)) continue;
-
-                addedNames.add(name.toLowerCase());
-                String returnType = routine.getReturnTypeName();
-                LookupElementBuilder lookup = LookupElementBuilder.create(name)
+        PascalUnitExports own = PascalUnitExports.of(file);
+        for (PascalUnitExports exports : visible) {
+            exports.processPrefix(prefixLower, PascalUnitExports.Kind.ROUTINE, exports == own, entry -> {
+                if (!addedNames.add(entry.lowerName)) return;
+                String returnType = ((PascalRoutine) entry.element).getReturnTypeName();
+                LookupElementBuilder lookup = LookupElementBuilder.create(entry.name)
                         .withIcon(AllIcons.Nodes.Function)
                         .withTailText("()", true)
                         .withTypeText(returnType != null ? returnType : "", true)
@@ -270,43 +237,24 @@ public class PascalIdentifierCompletionProvider extends CompletionProvider<Compl
                             ctx.getEditor().getCaretModel().moveToOffset(ctx.getTailOffset() - 1);
                         });
                 result.addElement(PrioritizedLookupElement.withPriority(lookup, 80));
-            }
+            });
         }
     }
 
-    private void addGlobalVariables(Project project, PsiFile file, int offset,
-                                    Set<String> availableUnitsLower, List<String> scopes,
-                                    String prefixLower,
+    private void addGlobalVariables(PsiFile file, List<PascalUnitExports> visible, String prefixLower,
                                     Set<String> addedNames, CompletionResultSet result) {
-        Collection<String> allKeys = StubIndex.getInstance().getAllKeys(PascalVariableIndex.KEY, project);
-        for (String key : allKeys) {
-            // Prefix filter: skip keys that don't match what the user typed
-            if (!prefixLower.isEmpty() && !key.toLowerCase().startsWith(prefixLower)) continue;
-
-            Collection<PascalVariableDefinition> vars = StubIndex.getElements(
-                    PascalVariableIndex.KEY, key, project,
-                    GlobalSearchScope.allScope(project), PascalVariableDefinition.class);
-
-            for (PascalVariableDefinition varDef : vars) {
-                VariableKind kind = varDef.getVariableKind();
-                if (kind != VariableKind.GLOBAL && kind != VariableKind.CONSTANT && kind != VariableKind.THREADVAR) continue;
-
-                String name = varDef.getName();
-                if (name == null || name.isEmpty()) continue;
-                if (addedNames.contains(name.toLowerCase())) continue;
-
+        for (PascalUnitExports exports : visible) {
+            exports.processPrefix(prefixLower, PascalUnitExports.Kind.VARIABLE, entry -> {
+                PascalVariableDefinition varDef = (PascalVariableDefinition) entry.element;
                 // Same file already handled by local variables PSI walk
-                if (file.equals(varDef.getContainingFile())) continue;
-
-                if (!isInScope(varDef.getContainingFile(), varDef.getUnitName(),
-                        file, availableUnitsLower, scopes)) continue;
-
-                addedNames.add(name.toLowerCase());
-                LookupElementBuilder lookup = LookupElementBuilder.create(name)
+                if (file.equals(varDef.getContainingFile())) return;
+                if (!addedNames.add(entry.lowerName)) return;
+                VariableKind kind = varDef.getVariableKind();
+                LookupElementBuilder lookup = LookupElementBuilder.create(entry.name)
                         .withIcon(kind == VariableKind.CONSTANT ? AllIcons.Nodes.Constant : AllIcons.Nodes.Variable)
                         .withTypeText(varDef.getTypeName() != null ? varDef.getTypeName() : "", true);
                 result.addElement(PrioritizedLookupElement.withPriority(lookup, 60));
-            }
+            });
         }
     }
 
@@ -428,29 +376,6 @@ public class PascalIdentifierCompletionProvider extends CompletionProvider<Compl
         }
     }
 
-    private boolean isInScope(PsiFile memberFile, String unitName,
-                              PsiFile fromFile, Set<String> availableUnitsLower, List<String> scopes) {
-        if (fromFile.equals(memberFile)) return true;
-        if (unitName == null) return false;
-        String unitLower = unitName.toLowerCase();
-
-        // Implicit System availability
-        if (unitLower.equals("system") || unitLower.startsWith("system.")) return true;
-
-        if (availableUnitsLower.contains(unitLower)) return true;
-
-        for (String scope : scopes) {
-            String scopeLower = scope.toLowerCase();
-            if (unitLower.startsWith(scopeLower + ".")) {
-                String shortName = unitLower.substring(scopeLower.length() + 1);
-                if (availableUnitsLower.contains(shortName)) return true;
-            }
-            String scopedName = scopeLower + "." + unitLower;
-            if (availableUnitsLower.contains(scopedName)) return true;
-        }
-        return false;
-    }
-
     private static boolean isInsideElementType(PsiElement element, com.intellij.psi.tree.IElementType type) {
         PsiElement parent = element.getParent();
         while (parent != null) {
@@ -12,6 +12,7 @@ import com.intellij.util.ProcessingContext;
 import nl.akiar.pascal.PascalTokenTypes;
 import nl.akiar.pascal.psi.*;
 import nl.akiar.pascal.resolution.MemberChainResolver;
+import nl.akiar.pascal.resolution.PascalTypeTerm;
 import nl.akiar.pascal.stubs.PascalRoutineIndex;
 import nl.akiar.pascal.stubs.PascalTypeIndex;
 import nl.akiar.pascal.stubs.PascalVariableIndex;
@@ -54,72 +55,84 @@ public class PascalMemberCompletionProvider extends CompletionProvider<Completio
         qualifier = skipBackwardToIdentifier(qualifier);
         if (qualifier == null) return;
 
-        // Resolve the full qualifier chain (including generic substitution)
-        PsiElement lastResolved = null;
-        Map<String, String> typeArgMap = new HashMap<>();
+        long start = System.nanoTime();
+        long phaseStart = start;
         try {
-            MemberChainResolver.ChainResolutionResult chainResult = MemberChainResolver.resolveChain(qualifier);
-            lastResolved = chainResult.getLastResolved();
-            typeArgMap = chainResult.getTypeArgMap();
-        } catch (Exception e) {
-            // Log and fall through to resolveSimpleQualifier
-            com.intellij.openapi.diagnostic.Logger.getInstance(PascalMemberCompletionProvider.class)
-                .debug("Chain resolution failed for completion: " + e.getMessage());
-        }
+            // Resolve the full qualifier chain (including generic substitution)
+            PsiElement lastResolved = null;
+            Map<String, String> typeArgMap = new HashMap<>();
+            try {
+                MemberChainResolver.ChainResolutionResult chainResult = MemberChainResolver.resolveChain(qualifier);
+                lastResolved = chainResult.getLastResolved();
+                typeArgMap = chainResult.getTypeArgMap();
+            } catch (Exception e) {
+                // Log and fall through to resolveSimpleQualifier
+                com.intellij.openapi.diagnostic.Logger.getInstance(PascalMemberCompletionProvider.class)
+                    .debug("Chain resolution failed for completion: " + e.getMessage());
+            }
 
-        // Check if qualifier resolves to a unit (PsiFile) for unit-qualified completion
-        if (lastResolved instanceof PsiFile) {
-            addUnitGlobals((PsiFile) lastResolved, file, result);
-            result.stopHere();
-            return;
-        }
+            // Check if qualifier resolves to a unit (PsiFile) for unit-qualified completion
+            if (lastResolved instanceof PsiFile) {
+                phaseStart = PascalCompletionMetrics.record("member.chainResolution", phaseStart);
+                addUnitGlobals((PsiFile) lastResolved, file, result);
+                PascalCompletionMetrics.record("member.unitGlobals", phaseStart);
+                result.stopHere();
+                return;
+            }
 
-        // Resolve the qualifier to its type
-        PascalTypeDefinition typeDef = resolveQualifierType(lastResolved, qualifier, file, typeArgMap);
-        if (typeDef == null) return;
+            // Resolve the qualifier to its type
+            PascalTypeDefinition typeDef = resolveQualifierType(lastResolved, qualifier, file, typeArgMap);
+            phaseStart = PascalCompletionMetrics.record("member.chainResolution", phaseStart);
+            if (typeDef == null) return;
 
-        // Build the type arg map for this type context if not already set
-        if (typeArgMap.isEmpty() && lastResolved != null) {
-            String rawTypeName = getMemberTypeName(lastResolved);
-            if (rawTypeName != null) {
-                typeArgMap = buildTypeArgMap(typeDef, rawTypeName);
+            // Build the type arg map for this type context if not already set
+            if (typeArgMap.isEmpty() && lastResolved != null) {
+                String rawTypeName = getMemberTypeName(lastResolved);
+                if (rawTypeName != null) {
+                    typeArgMap = PascalTypeTerm.typeArgMap(typeDef, rawTypeName);
+                }
             }
-        }
 
-        // Track seen member names so helper members don't duplicate built-in ones.
-        java.util.Set<String> seenMembers = new java.util.HashSet<>();
-
-        // Get all members (including inherited)
-        List<PsiElement> members = typeDef.getMembers(true);
-        for (PsiElement member : members) {
-            String name;
-            if (member instanceof PsiNameIdentifierOwner named) {
-                name = named.getName();
-            } else if (member.getNode() != null &&
-                       member.getNode().getElementType() == nl.akiar.pascal.psi.PascalElementTypes.ENUM_ELEMENT) {
-                name = getEnumElementName(member);
-            } else {
-                continue;
-            }
-            if (name == null || name.isEmpty()) continue;
+            // Track seen member names so helper members don't duplicate built-in ones.
+            java.util.Set<String> seenMembers = new java.util.HashSet<>();
+
+            // Get all members (including inherited)
+            List<PsiElement> members = typeDef.getMembers(true);
+            phaseStart = PascalCompletionMetrics.record("member.memberList", phaseStart);
+            for (PsiElement member : members) {
+                String name;
+                if (member instanceof PsiNameIdentifierOwner named) {
+                    name = named.getName();
+                } else if (member.getNode() != null &&
+                           member.getNode().getElementType() == nl.akiar.pascal.psi.PascalElementTypes.ENUM_ELEMENT) {
+                    name = getEnumElementName(member);
+                } else {
+                    continue;
+                }
+                if (name == null || name.isEmpty()) continue;
 
-            // Visibility check (enum values are always public)
-            if (member instanceof PsiNameIdentifierOwner && !isAccessible(member, file)) continue;
+                // Visibility check (enum values are always public)
+                if (member instanceof PsiNameIdentifierOwner && !isAccessible(member, file)) continue;
 
-            LookupElementBuilder lookup = createMemberLookup(member, name, typeArgMap);
-            if (lookup != null) {
-                seenMembers.add(name.toLowerCase());
-                result.addElement(PrioritizedLookupElement.withPriority(lookup, getPriority(member)));
+                LookupElementBuilder lookup = createMemberLookup(member, name, typeArgMap);
+                if (lookup != null) {
+                    seenMembers.add(name.toLowerCase());
+                    result.addElement(PrioritizedLookupElement.withPriority(lookup, getPriority(member)));
+                }
             }
-        }
+            phaseStart = PascalCompletionMetrics.record("member.lookupBuilding", phaseStart);
 
-        // Append class/record helper members targeting this type or any of its ancestors.
-        // Helpers don't apply to themselves, so skip when typeDef is a helper.
-        if (!typeDef.isHelper()) {
-            addHelperMembers(typeDef, file, seenMembers, typeArgMap, result);
-        }
+            // Append class/record helper members targeting this type or any of its ancestors.
+            // Helpers don't apply to themselves, so skip when typeDef is a helper.
+            if (!typeDef.isHelper()) {
+                addHelperMembers(typeDef, file, seenMembers, typeArgMap, result);
+                PascalCompletionMetrics.record("member.helpers", phaseStart);
+            }
 
-        result.stopHere();
+            result.stopHere();
+        } finally {
+            PascalCompletionMetrics.record("member.total", start);
+        }
     }
 
     /**
@@ -134,7 +147,7 @@ public class PascalMemberCompletionProvider extends CompletionProvider<Completio
         List<String> targetNames = new ArrayList<>();
         if (typeDef.getName() != null) targetNames.add(typeDef.getName());
         for (PascalTypeDefinition ancestor :
-                nl.akiar.pascal.resolution.InheritanceChainCache.getAllAncestorTypes(typeDef)) {
+                nl.akiar.pascal.resolution.InheritanceChainCache.getInstance(typeDef.getProject()).getAllAncestorTypes(typeDef)) {
             if (ancestor.getName() != null) targetNames.add(ancestor.getName());
         }
 
@@ -184,9 +197,11 @@ public class PascalMemberCompletionProvider extends CompletionProvider<Completio
         String rawTypeName = getMemberTypeName(lastResolved);
 
         // Apply generic substitution if the type name is a type parameter
-        if (rawTypeName != null && typeArgMap.containsKey(rawTypeName)) {
-            String substituted = typeArgMap.get(rawTypeName);
-            return getTypeOf(lastResolved, originFile, substituted);
+        if (rawTypeName != null && !typeArgMap.isEmpty()) {
+            String substituted = PascalTypeTerm.substitute(rawTypeName, typeArgMap);
+            if (!substituted.equals(rawTypeName)) {
+                return getTypeOf(lastResolved, originFile, substituted);
+            }
         }
 
         return getTypeOf(lastResolved, originFile);
@@ -203,50 +218,6 @@ public class PascalMemberCompletionProvider extends CompletionProvider<Completio
         return null;
     }
 
-    /**
-     * Build a type argument substitution map from a type definition and the raw type name
-     * that references it (which may contain generic arguments).
-     * E.g., for TEntityList definition with type param T, and raw name "TEntityList<TRide>",
-     * returns {T → TRide}.
-     */
-    private Map<String, String> buildTypeArgMap(PascalTypeDefinition typeDef, String rawTypeName) {
-        Map<String, String> map = new HashMap<>();
-        if (rawTypeName == null || typeDef == null) return map;
-        int ltIdx = rawTypeName.indexOf('<');
-        if (ltIdx <= 0) return map;
-        int gtIdx = rawTypeName.lastIndexOf('>');
-        if (gtIdx <= ltIdx) return map;
-        String argsStr = rawTypeName.substring(ltIdx + 1, gtIdx);
-        List<String> typeArgs = splitGenericArgs(argsStr);
-        List<String> typeParams = typeDef.getTypeParameters();
-        for (int i = 0; i < typeArgs.size() && i < typeParams.size(); i++) {
-            map.put(typeParams.get(i), typeArgs.get(i));
-        }
-        return map;
-    }
-
-    /**
-     * Split generic arguments at depth-0 commas.
-     * "String, TList<Integer>" → ["String", "TList<Integer>"]
-     */
-    private List<String> splitGenericArgs(String argsStr) {
-        List<String> args = new ArrayList<>();
-        int depth = 0;
-        int start = 0;
-        for (int i = 0; i < argsStr.length(); i++) {
-            char c = argsStr.charAt(i);
-            if (c == '<') depth++;
-            else if (c == '>') depth--;
-            else if (c == ',' && depth == 0) {
-                args.add(argsStr.substring(start, i).trim());
-                start = i + 1;
-            }
-        }
-        String last = argsStr.substring(start).trim();
-        if (!last.isEmpty()) args.add(last);
-        return args;
-    }
-
     /**
      * Skip backward past bracket/paren expressions to find the actual identifier.
      * For "ItemsById[0]", if we start at "]", skip to "ItemsById".
@@ -339,47 +310,37 @@ public class PascalMemberCompletionProvider extends CompletionProvider<Completio
     }
 
     /**
-     * Add completion items for all public globals (types, variables, routines) in a unit.
-     * Uses PSI tree traversal on the unit file to find all top-level declarations.
+     * Add completion items for the interface declarations (types, variables, routines) of a unit.
+     * Reads the unit's stub-built {@link PascalUnitExports}, so the unit's AST is never loaded.
      */
     private void addUnitGlobals(PsiFile unitFile, PsiFile originFile, CompletionResultSet result) {
+        PascalUnitExports exports = PascalUnitExports.of(unitFile);
         java.util.Set<String> seen = new java.util.HashSet<>();
 
-        // Add types from the unit
-        for (PascalTypeDefinition typeDef : PsiTreeUtil.findChildrenOfType(unitFile, PascalTypeDefinition.class)) {
-            String name = typeDef.getName();
-            if (name == null || name.isEmpty() || !seen.add(name.toLowerCase())) continue;
-            LookupElementBuilder lookup = LookupElementBuilder.create(name)
+        exports.processExported(PascalUnitExports.Kind.TYPE, entry -> {
+            if (!seen.add(entry.lowerName)) return;
+            LookupElementBuilder lookup = LookupElementBuilder.create(entry.name)
                     .withIcon(com.intellij.icons.AllIcons.Nodes.Class)
-                    .withTypeText(typeDef.getTypeKind() != null ? typeDef.getTypeKind().name().toLowerCase() : "type");
+                    .withTypeText(entry.typeText);
             result.addElement(PrioritizedLookupElement.withPriority(lookup, 200));
-        }
+        });
 
-        // Add global variables from the unit (no containing class)
-        for (PascalVariableDefinition varDef : PsiTreeUtil.findChildrenOfType(unitFile, PascalVariableDefinition.class)) {
-            if (varDef.getContainingClassName() != null && !varDef.getContainingClassName().isEmpty()) continue;
-            String name = varDef.getName();
-            if (name == null || name.isEmpty() || !seen.add(name.toLowerCase())) continue;
-            LookupElementBuilder lookup = LookupElementBuilder.create(name)
+        exports.processExported(PascalUnitExports.Kind.VARIABLE, entry -> {
+            if (!seen.add(entry.lowerName)) return;
+            LookupElementBuilder lookup = LookupElementBuilder.create(entry.name)
                     .withIcon(com.intellij.icons.AllIcons.Nodes.Variable);
-            String typeName = varDef.getTypeName();
-            if (typeName != null) lookup = lookup.withTypeText(typeName);
+            if (entry.typeText != null) lookup = lookup.withTypeText(entry.typeText);
             result.addElement(PrioritizedLookupElement.withPriority(lookup, 150));
-        }
+        });
 
-        // Add global routines from the unit (no containing class)
-        for (PascalRoutine routine : PsiTreeUtil.findChildrenOfType(unitFile, PascalRoutine.class)) {
-            if (routine.getContainingClassName() != null && !routine.getContainingClassName().isEmpty()) continue;
-            if (routine.isImplementation()) continue;
-            String name = routine.getName();
-            if (name == null || name.isEmpty() || !seen.add(name.toLowerCase())) continue;
-            LookupElementBuilder lookup = LookupElementBuilder.create(name)
+        exports.processExported(PascalUnitExports.Kind.ROUTINE, entry -> {
+            if (!seen.add(entry.lowerName)) return;
+            LookupElementBuilder lookup = LookupElementBuilder.create(entry.name)
                     .withIcon(com.intellij.icons.AllIcons.Nodes.Function)
                     .withTailText("()", true);
-            String returnType = routine.getReturnTypeName();
-            if (returnType != null) lookup = lookup.withTypeText(returnType);
+            if (entry.typeText != null) lookup = lookup.withTypeText(entry.typeText);
             result.addElement(PrioritizedLookupElement.withPriority(lookup, 100));
-        }
+        });
     }
 
     private PascalTypeDefinition getTypeOf(PsiElement element, PsiFile originFile) {
@@ -453,8 +414,8 @@ public class PascalMemberCompletionProvider extends CompletionProvider<Completio
         if (member instanceof PascalRoutine routine) {
             String returnType = routine.getReturnTypeName();
             // Apply generic substitution to return type
-            if (returnType != null && typeArgMap.containsKey(returnType)) {
-                returnType = typeArgMap.get(returnType);
+            if (returnType != null) {
+                returnType = PascalTypeTerm.substitute(returnType, typeArgMap);
             }
             LookupElementBuilder builder = LookupElementBuilder.create(name)
                     .withIcon(getIcon(member))
@@ -472,8 +433,8 @@ public class PascalMemberCompletionProvider extends CompletionProvider<Completio
                     .withIcon(getIcon(member));
             String typeName = prop.getTypeName();
             // Apply generic substitution
-            if (typeName != null && typeArgMap.containsKey(typeName)) {
-                typeName = typeArgMap.get(typeName);
+            if (typeName != null) {
+                typeName = PascalTypeTerm.substitute(typeName, typeArgMap);
             }
             if (typeName != null) {
                 builder = builder.withTypeText(typeName);
@@ -484,8 +445,8 @@ public class PascalMemberCompletionProvider extends CompletionProvider<Completio
                     .withIcon(getIcon(member));
             String typeName = varDef.getTypeName();
             // Apply generic substitution
-            if (typeName != null && typeArgMap.containsKey(typeName)) {
-                typeName = typeArgMap.get(typeName);
+            if (typeName != null) {
+                typeName = PascalTypeTerm.substitute(typeName, typeArgMap);
             }
             if (typeName != null) {
                 builder = builder.withTypeText(typeName);
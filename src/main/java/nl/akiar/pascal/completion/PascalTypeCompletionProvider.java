@@ -67,75 +67,84 @@ public class PascalTypeCompletionProvider extends CompletionProvider<CompletionP
         String prefix = result.getPrefixMatcher().getPrefix();
         String prefixLower = prefix.toLowerCase();
 
-        // Built-in types are always fast — add them first (Tier 1)
-        // Skip entries that exist in the stub index (source-backed versions win in Tier 2)
-        for (String builtIn : BUILT_IN_TYPE_NAMES) {
-            if (addedNames.contains(builtIn.toLowerCase())) continue;
-            Collection<PascalTypeDefinition> indexed = StubIndex.getElements(
-                    PascalTypeIndex.KEY, builtIn.toLowerCase(), project,
-                    GlobalSearchScope.allScope(project), PascalTypeDefinition.class);
-            if (!indexed.isEmpty()) {
+        long start = System.nanoTime();
+        long phaseStart = start;
+        try {
+            // Built-in types are always fast — add them first (Tier 1)
+            // Skip entries that exist in the stub index (source-backed versions win in Tier 2)
+            for (String builtIn : BUILT_IN_TYPE_NAMES) {
+                if (addedNames.contains(builtIn.toLowerCase())) continue;
+                Collection<PascalTypeDefinition> indexed = StubIndex.getElements(
+                        PascalTypeIndex.KEY, builtIn.toLowerCase(), project,
+                        GlobalSearchScope.allScope(project), PascalTypeDefinition.class);
+                if (!indexed.isEmpty()) {
+                    addedNames.add(builtIn.toLowerCase());
+                    continue; // Will be picked up in Tier 2 with proper unit name
+                }
                 addedNames.add(builtIn.toLowerCase());
-                continue; // Will be picked up in Tier 2 with proper unit name
+                LookupElementBuilder lookup = LookupElementBuilder.create(builtIn)
+                        .withIcon(AllIcons.Nodes.Type)
+                        .withTypeText("built-in", true)
+                        .bold();
+                result.addElement(PrioritizedLookupElement.withPriority(lookup, 50));
             }
-            addedNames.add(builtIn.toLowerCase());
-            LookupElementBuilder lookup = LookupElementBuilder.create(builtIn)
-                    .withIcon(AllIcons.Nodes.Type)
-                    .withTypeText("built-in", true)
-                    .bold();
-            result.addElement(PrioritizedLookupElement.withPriority(lookup, 50));
-        }
-
-        // Keyword types are always fast
-        String[] keywordTypes = {"string", "array", "set", "file"};
-        for (String kw : keywordTypes) {
-            if (addedNames.contains(kw)) continue;
-            addedNames.add(kw);
-            LookupElementBuilder lookup = LookupElementBuilder.create(kw)
-                    .withIcon(AllIcons.Nodes.Type)
-                    .bold();
-            result.addElement(PrioritizedLookupElement.withPriority(lookup, 25));
-        }
-
-        // Tier 2: Stub index queries — only when user has typed 2+ chars or explicitly invoked
-        if (isAutopopup && prefixLower.length() < 2) return;
-
-        // Types from stub index that are in scope (prefix-filtered)
-        Collection<String> allKeys = StubIndex.getInstance().getAllKeys(PascalTypeIndex.KEY, project);
-        PascalUsesClauseInfo usesInfo = PascalUsesClauseInfo.parse(file);
-        List<String> availableUnits = usesInfo.getAvailableUnits(offset);
-        Set<String> availableUnitsLower = new HashSet<>();
-        for (String unit : availableUnits) {
-            availableUnitsLower.add(unit.toLowerCase());
-        }
-        List<String> scopes = PascalSourcePathsSettings.getInstance(project).getUnitScopeNames();
-
-        for (String key : allKeys) {
-            // Prefix filter: skip keys that don't match what the user typed
-            if (!prefixLower.isEmpty() && !key.toLowerCase().startsWith(prefixLower)) continue;
 
-            Collection<PascalTypeDefinition> types = StubIndex.getElements(
-                    PascalTypeIndex.KEY, key, project,
-                    GlobalSearchScope.allScope(project), PascalTypeDefinition.class);
-
-            for (PascalTypeDefinition typeDef : types) {
-                String name = typeDef.getName();
-                if (name == null || name.isEmpty()) continue;
-                if (typeDef.isForwardDeclaration()) continue;
-
-                String nameLower = name.toLowerCase();
-                if (addedNames.contains(nameLower)) continue;
-
-                // Check if type is in scope
-                if (!isTypeInScope(typeDef, file, availableUnitsLower, scopes)) continue;
-
-                addedNames.add(nameLower);
-                String unitName = typeDef.getUnitName();
-                LookupElementBuilder lookup = LookupElementBuilder.create(name)
-                        .withIcon(AllIcons.Nodes.Class)
-                        .withTypeText(unitName, true);
-                result.addElement(PrioritizedLookupElement.withPriority(lookup, 100));
+            // Keyword types are always fast
+            String[] keywordTypes = {"string", "array", "set", "file"};
+            for (String kw : keywordTypes) {
+                if (addedNames.contains(kw)) continue;
+                addedNames.add(kw);
+                LookupElementBuilder lookup = LookupElementBuilder.create(kw)
+                        .withIcon(AllIcons.Nodes.Type)
+                        .bold();
+                result.addElement(PrioritizedLookupElement.withPriority(lookup, 25));
+            }
+            phaseStart = PascalCompletionMetrics.record("type.builtins", phaseStart);
+
+            // Tier 2: Stub index queries — only when user has typed 2+ chars or explicitly invoked
+            if (isAutopopup && prefixLower.length() < 2) return;
+
+            // Types from stub index that are in scope (prefix-filtered)
+            Collection<String> allKeys = StubIndex.getInstance().getAllKeys(PascalTypeIndex.KEY, project);
+            PascalUsesClauseInfo usesInfo = PascalUsesClauseInfo.parse(file);
+            List<String> availableUnits = usesInfo.getAvailableUnits(offset);
+            Set<String> availableUnitsLower = new HashSet<>();
+            for (String unit : availableUnits) {
+                availableUnitsLower.add(unit.toLowerCase());
+            }
+            List<String> scopes = PascalSourcePathsSettings.getInstance(project).getUnitScopeNames();
+            phaseStart = PascalCompletionMetrics.record("type.usesFiltering", phaseStart);
+
+            for (String key : allKeys) {
+                // Prefix filter: skip keys that don't match what the user typed
+                if (!prefixLower.isEmpty() && !key.toLowerCase().startsWith(prefixLower)) continue;
+
+                Collection<PascalTypeDefinition> types = StubIndex.getElements(
+                        PascalTypeIndex.KEY, key, project,
+                        GlobalSearchScope.allScope(project), PascalTypeDefinition.class);
+
+                for (PascalTypeDefinition typeDef : types) {
+                    String name = typeDef.getName();
+                    if (name == null || name.isEmpty()) continue;
+                    if (typeDef.isForwardDeclaration()) continue;
+
+                    String nameLower = name.toLowerCase();
+                    if (addedNames.contains(nameLower)) continue;
+
+                    // Check if type is in scope
+                    if (!isTypeInScope(typeDef, file, availableUnitsLower, scopes)) continue;
+
+                    addedNames.add(nameLower);
+                    String unitName = typeDef.getUnitName();
+                    LookupElementBuilder lookup = LookupElementBuilder.create(name)
+                            .withIcon(AllIcons.Nodes.Class)
+                            .withTypeText(unitName, true);
+                    result.addElement(PrioritizedLookupElement.withPriority(lookup, 100));
+                }
             }
+            PascalCompletionMetrics.record("type.indexScan", phaseStart);
+        } finally {
+            PascalCompletionMetrics.record("type.total", start);
         }
     }
 
@@ -0,0 +1,271 @@
+package nl.akiar.pascal.completion;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.psi.codeStyle.MinusculeMatcher;
+import com.intellij.psi.codeStyle.NameUtil;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.Processor;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.messages.MessageBusConnection;
+import nl.akiar.pascal.PascalFileType;
+import nl.akiar.pascal.index.PascalUnitIndex;
+import nl.akiar.pascal.project.PascalProjectFiles;
+import nl.akiar.pascal.settings.PascalSourcePathsSettings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sorted catalogue of the unit names uses-clause completion offers: every unit in
+ * {@link PascalUnitIndex} under its declared spelling, plus a scope-stripped alias
+ * for units whose name starts with a configured unit scope ({@code Classes} for
+ * {@code System.Classes}).
+ * <p>
+ * The catalogue is built once and kept until units appear, disappear or are renamed,
+ * a saved file changes its {@code unit} header, the scope names change, or indexing
+ * finishes. Queries are a binary search into the sorted names, so completion never
+ * walks the whole index.
+ */
+@Service(Service.Level.PROJECT)
+public final class PascalUnitCatalogue implements Disposable {
+
+    public static final class Entry {
+        /** Name as offered: a unit name, or a unit name without its scope prefix. */
+        public final String name;
+        public final String lowerName;
+        /** Full unit name this entry stands for; equals {@link #name} unless an alias. */
+        public final String unitName;
+
+        Entry(@NotNull String name, @NotNull String unitName) {
+            this.name = name;
+            this.lowerName = name.toLowerCase();
+            this.unitName = unitName;
+        }
+
+        public boolean isAlias() {
+            return !name.equals(unitName);
+        }
+    }
+
+    /** Immutable sorted entries for one set of unit names and scopes. */
+    static final class Table {
+        private final Entry[] entries;
+
+        private Table(@NotNull Entry[] entries) {
+            this.entries = entries;
+        }
+
+        @NotNull
+        static Table build(@NotNull Collection<String> unitNames, @NotNull List<String> scopes) {
+            Map<String, Entry> byName = new HashMap<>();
+            for (String unit : unitNames) {
+                byName.put(unit.toLowerCase(), new Entry(unit, unit));
+            }
+            for (String unit : unitNames) {
+                String lower = unit.toLowerCase();
+                for (String scope : scopes) {
+                    String scopePrefix = scope.toLowerCase() + ".";
+                    if (lower.startsWith(scopePrefix) && lower.length() > scopePrefix.length()) {
+                        // A real unit of the same name wins over the alias
+                        byName.putIfAbsent(lower.substring(scopePrefix.length()),
+                                new Entry(unit.substring(scopePrefix.length()), unit));
+                    }
+                }
+            }
+            Entry[] entries = byName.values().toArray(new Entry[0]);
+            Arrays.sort(entries, Comparator.comparing(e -> e.lowerName));
+            return new Table(entries);
+        }
+
+        /**
+         * Feed {@code processor} the entries matching {@code prefix}, by plain prefix or
+         * camel humps ({@code SyCl} for {@code System.Classes}), in name order. Only the
+         * entries sharing the prefix's first letter are examined. Stops when the
+         * processor returns false.
+         */
+        boolean process(@NotNull String prefix, @NotNull Processor<? super Entry> processor) {
+            if (prefix.isEmpty()) {
+                for (Entry entry : entries) {
+                    if (!processor.process(entry)) return false;
+                }
+                return true;
+            }
+            String prefixLower = prefix.toLowerCase();
+            char first = prefixLower.charAt(0);
+            MinusculeMatcher matcher = NameUtil.buildMatcher(prefix, NameUtil.MatchingCaseSensitivity.NONE);
+            for (int i = lowerBound(String.valueOf(first)); i < entries.length; i++) {
+                Entry entry = entries[i];
+                if (entry.lowerName.charAt(0) != first) break;
+                if (entry.lowerName.startsWith(prefixLower) || matcher.matches(entry.name)) {
+                    if (!processor.process(entry)) return false;
+                }
+            }
+            return true;
+        }
+
+        private int lowerBound(@NotNull String key) {
+            int lo = 0;
+            int hi = entries.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (entries[mid].lowerName.compareTo(key) < 0) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        int size() {
+            return entries.length;
+        }
+    }
+
+    private final Project project;
+    private volatile Table table;
+    private volatile boolean stale = true;
+    private volatile List<String> scopes = List.of();
+    /** Unit name each indexed file declared when the table was built. */
+    private final Map<VirtualFile, String> unitByFile = new ConcurrentHashMap<>();
+    private final Set<VirtualFile> dirtyFiles = ConcurrentHashMap.newKeySet();
+    /** Set in {@code before} when the batch deletes units; applied with the rest of the batch in {@code after}. */
+    private volatile boolean unitsDeleted;
+
+    public PascalUnitCatalogue(@NotNull Project project) {
+        this.project = project;
+        MessageBusConnection connection = project.getMessageBus().connect(this);
+        connection.subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void before(@NotNull List<? extends VFileEvent> events) {
+                if (PascalProjectFiles.deletesUnits(project, events)) unitsDeleted = true;
+            }
+
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                // Only units appearing, disappearing, moving or being renamed force a rebuild
+                if (unitsDeleted || PascalProjectFiles.addsOrMovesUnits(project, events)) {
+                    unitsDeleted = false;
+                    stale = true;
+                    return;
+                }
+                for (VFileEvent event : events) {
+                    VirtualFile file = event.getFile();
+                    if (event instanceof VFileContentChangeEvent && file.getFileType() == PascalFileType.INSTANCE) {
+                        dirtyFiles.add(file);
+                    }
+                }
+            }
+        });
+        connection.subscribe(DumbService.DUMB_MODE, new DumbService.DumbModeListener() {
+            @Override
+            public void exitDumbMode() {
+                stale = true;
+            }
+        });
+    }
+
+    public static PascalUnitCatalogue getInstance(@NotNull Project project) {
+        return project.getService(PascalUnitCatalogue.class);
+    }
+
+    /**
+     * Feed {@code processor} the catalogue entries matching {@code prefix}; see
+     * {@link Table#process}. Does nothing during dumb mode.
+     */
+    public void process(@NotNull String prefix, @NotNull Processor<? super Entry> processor) {
+        Table current = getTable();
+        if (current != null) current.process(prefix, processor);
+    }
+
+    @Nullable
+    private Table getTable() {
+        if (DumbService.isDumb(project)) return null;
+        List<String> currentScopes = PascalSourcePathsSettings.getInstance(project).getUnitScopeNames();
+        if (!currentScopes.equals(scopes)) stale = true;
+        if (!stale && !dirtyFiles.isEmpty()) checkDirtyFiles();
+        Table current = table;
+        if (current == null || stale) {
+            stale = false;
+            scopes = currentScopes;
+            try {
+                current = Table.build(collectUnitNames(), currentScopes);
+            } catch (ProcessCanceledException e) {
+                stale = true;
+                throw e;
+            }
+            table = current;
+        }
+        return current;
+    }
+
+    /** Whether the next query rebuilds the table. */
+    boolean isStale() {
+        return stale;
+    }
+
+    /** A content change only matters if it changed the file's {@code unit} header. */
+    private void checkDirtyFiles() {
+        List<VirtualFile> drained = new ArrayList<>(dirtyFiles);
+        dirtyFiles.removeAll(drained);
+        FileBasedIndex index = FileBasedIndex.getInstance();
+        for (VirtualFile file : drained) {
+            if (!file.isValid()) {
+                stale = true;
+                return;
+            }
+            Set<String> keys = index.getFileData(PascalUnitIndex.INDEX_ID, file, project).keySet();
+            String recorded = unitByFile.get(file);
+            if (recorded == null ? !keys.isEmpty() : !keys.contains(recorded)) {
+                stale = true;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Index keys are lowercase; the offered spelling comes from the declaring file's
+     * name when it matches ({@code System.Classes.pas}). Keys with no files left are
+     * dropped.
+     */
+    @NotNull
+    private Collection<String> collectUnitNames() {
+        unitByFile.clear();
+        FileBasedIndex index = FileBasedIndex.getInstance();
+        GlobalSearchScope scope = GlobalSearchScope.allScope(project);
+        List<String> names = new ArrayList<>();
+        for (String key : index.getAllKeys(PascalUnitIndex.INDEX_ID, project)) {
+            ProgressManager.checkCanceled();
+            if (key == null || key.isEmpty()) continue;
+            Collection<VirtualFile> files = index.getContainingFiles(PascalUnitIndex.INDEX_ID, key, scope);
+            if (files.isEmpty()) continue;
+            String display = key;
+            for (VirtualFile file : files) {
+                unitByFile.put(file, key);
+                if (file.getNameWithoutExtension().equalsIgnoreCase(key)) display = file.getNameWithoutExtension();
+            }
+            names.add(display);
+        }
+        return names;
+    }
+
+    @Override
+    public void dispose() {
+    }
+}
@@ -0,0 +1,167 @@
+package nl.akiar.pascal.completion;
+
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.impl.source.PsiFileImpl;
+import com.intellij.psi.impl.source.StubbedSpine;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import nl.akiar.pascal.psi.PascalRoutine;
+import nl.akiar.pascal.psi.PascalTypeDefinition;
+import nl.akiar.pascal.psi.PascalVariableDefinition;
+import nl.akiar.pascal.psi.TypeKind;
+import nl.akiar.pascal.psi.VariableKind;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Declarations a unit offers to identifier completion, read from its stubs:
+ * types (no forward declarations), standalone routines (declarations preferred over
+ * implementations) and global variables, constants and threadvars.
+ * <p>
+ * Each entry carries what a lookup element shows (name, kind, type text) and whether
+ * it is declared in the interface section, so unit-qualified completion
+ * ({@code SysUtils.}) lists a unit's exports without touching its PSI tree.
+ * <p>
+ * Entries are sorted by lowercase name, so a prefix is a binary search. The table is
+ * cached on the unit's file until the file changes; building it never loads the AST.
+ */
+public final class PascalUnitExports {
+    public enum Kind { TYPE, ROUTINE, VARIABLE }
+
+    public static final class Entry {
+        public final String name;
+        public final String lowerName;
+        public final Kind kind;
+        /** Type kind for types, declared type for variables, return type for routines. */
+        @Nullable
+        public final String typeText;
+        /** Declared in the interface section (or in a file without sections). */
+        public final boolean exported;
+        /** Stub-backed declaration. */
+        public final PsiElement element;
+
+        Entry(@NotNull String name, @NotNull Kind kind, @Nullable String typeText, @Nullable String section,
+              @NotNull PsiElement element) {
+            this.name = name;
+            this.lowerName = name.toLowerCase();
+            this.kind = kind;
+            this.typeText = typeText;
+            this.exported = !"implementation".equals(section);
+            this.element = element;
+        }
+    }
+
+    private static final Key<CachedValue<PascalUnitExports>> KEY = Key.create("pascal.unit.exports");
+
+    private final Entry[] entries;
+
+    private PascalUnitExports(@NotNull List<Entry> entries) {
+        entries.sort(Comparator.comparing(e -> e.lowerName));
+        this.entries = entries.toArray(new Entry[0]);
+    }
+
+    @NotNull
+    public static PascalUnitExports of(@NotNull PsiFile unitFile) {
+        return CachedValuesManager.getCachedValue(unitFile, KEY, () ->
+                CachedValueProvider.Result.create(build(unitFile), unitFile));
+    }
+
+    @NotNull
+    private static PascalUnitExports build(@NotNull PsiFile unitFile) {
+        List<Entry> result = new ArrayList<>();
+        if (!(unitFile instanceof PsiFileImpl)) return new PascalUnitExports(result);
+        StubbedSpine spine = ((PsiFileImpl) unitFile).getStubbedSpine();
+        List<PascalRoutine> implementations = new ArrayList<>();
+        Set<String> declaredRoutines = new HashSet<>();
+        for (int i = 0; i < spine.getStubCount(); i++) {
+            PsiElement psi = spine.getStubPsi(i);
+            if (psi instanceof PascalTypeDefinition) {
+                PascalTypeDefinition typeDef = (PascalTypeDefinition) psi;
+                String name = typeDef.getName();
+                if (name == null || name.isEmpty() || typeDef.isForwardDeclaration()) continue;
+                TypeKind typeKind = typeDef.getTypeKind();
+                String typeText = typeKind != null ? typeKind.name().toLowerCase() : "type";
+                result.add(new Entry(name, Kind.TYPE, typeText, typeDef.getSection(), typeDef));
+            } else if (psi instanceof PascalRoutine) {
+                PascalRoutine routine = (PascalRoutine) psi;
+                String name = routine.getName();
+                // Methods are offered through member completion
+                if (name == null || name.isEmpty() || routine.isMethod()) continue;
+                if (routine.isImplementation()) {
+                    implementations.add(routine);
+                } else {
+                    declaredRoutines.add(name.toLowerCase());
+                    result.add(routineEntry(name, routine));
+                }
+            } else if (psi instanceof PascalVariableDefinition) {
+                PascalVariableDefinition varDef = (PascalVariableDefinition) psi;
+                VariableKind kind = varDef.getVariableKind();
+                if (kind != VariableKind.GLOBAL && kind != VariableKind.CONSTANT && kind != VariableKind.THREADVAR) continue;
+                String name = varDef.getName();
+                if (name == null || name.isEmpty()) continue;
+                result.add(new Entry(name, Kind.VARIABLE, varDef.getTypeName(), varDef.getSection(), varDef));
+            }
+        }
+        // Implementation-only routines (no interface declaration) are still offered
+        for (PascalRoutine routine : implementations) {
+            String name = routine.getName();
+            if (name != null && !declaredRoutines.contains(name.toLowerCase())) {
+                result.add(routineEntry(name, routine));
+            }
+        }
+        return new PascalUnitExports(result);
+    }
+
+    @NotNull
+    private static Entry routineEntry(@NotNull String name, @NotNull PascalRoutine routine) {
+        return new Entry(name, Kind.ROUTINE, routine.getReturnTypeName(), routine.getSection(), routine);
+    }
+
+    /**
+     * Feed every interface-section entry of {@code kind} whose lowercase name starts with
+     * {@code prefixLower} to {@code consumer}: what a unit using this one can see.
+     */
+    public void processPrefix(@NotNull String prefixLower, @NotNull Kind kind, @NotNull Consumer<Entry> consumer) {
+        processPrefix(prefixLower, kind, false, consumer);
+    }
+
+    /**
+     * Like {@link #processPrefix(String, Kind, Consumer)}; with {@code includeImplementation},
+     * implementation-section entries are fed too, for completion inside the unit itself.
+     */
+    public void processPrefix(@NotNull String prefixLower, @NotNull Kind kind, boolean includeImplementation,
+                              @NotNull Consumer<Entry> consumer) {
+        int lo = 0;
+        int hi = entries.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (entries[mid].lowerName.compareTo(prefixLower) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        for (int i = lo; i < entries.length && entries[i].lowerName.startsWith(prefixLower); i++) {
+            Entry entry = entries[i];
+            if (entry.kind == kind && (includeImplementation || entry.exported)) consumer.accept(entry);
+        }
+    }
+
+    /** Feed every interface-section entry of {@code kind} to {@code consumer}, in name order. */
+    public void processExported(@NotNull Kind kind, @NotNull Consumer<Entry> consumer) {
+        for (Entry entry : entries) {
+            if (entry.kind == kind && entry.exported) consumer.accept(entry);
+        }
+    }
+
+    public int size() {
+        return entries.length;
+    }
+}
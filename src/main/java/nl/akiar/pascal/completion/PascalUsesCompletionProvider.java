@@ -1,15 +1,15 @@
 package nl.akiar.pascal.completion;
 
 import com.intellij.codeInsight.completion.*;
+import com.intellij.codeInsight.lookup.LookupElement;
 import com.intellij.codeInsight.lookup.LookupElementBuilder;
 import com.intellij.icons.AllIcons;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.util.ProcessingContext;
-import com.intellij.util.indexing.FileBasedIndex;
-import nl.akiar.pascal.index.PascalUnitIndex;
 import nl.akiar.pascal.uses.PascalUsesClauseInfo;
 import org.jetbrains.annotations.NotNull;
 
@@ -17,9 +17,12 @@ import java.util.*;
 
 /**
  * Provides completion inside uses clauses.
- * Suggests unit names from the project that are not already in the uses clause.
+ * Suggests unit names from {@link PascalUnitCatalogue}, including scope-stripped
+ * aliases ({@code Classes} for {@code System.Classes}), that are not already in the
+ * uses clause. Matches are added in batches with a cancellation check between them.
  */
 public class PascalUsesCompletionProvider extends CompletionProvider<CompletionParameters> {
+    private static final int BATCH_SIZE = 100;
 
     @Override
     protected void addCompletions(@NotNull CompletionParameters parameters,
@@ -31,30 +34,61 @@ public class PascalUsesCompletionProvider extends CompletionProvider<CompletionP
 
         if (DumbService.isDumb(project)) return;
 
-        // Get already-used units to filter them out
-        PascalUsesClauseInfo usesInfo = PascalUsesClauseInfo.parse(file);
-        Set<String> alreadyUsed = new HashSet<>();
-        for (String unit : usesInfo.getAllUses()) {
-            alreadyUsed.add(unit.toLowerCase());
-        }
+        long start = System.nanoTime();
+        long phaseStart = start;
+        try {
+            // Get already-used units to filter them out
+            PascalUsesClauseInfo usesInfo = PascalUsesClauseInfo.parse(file);
+            Set<String> alreadyUsed = new HashSet<>();
+            for (String unit : usesInfo.getAllUses()) {
+                alreadyUsed.add(unit.toLowerCase());
+            }
+            phaseStart = PascalCompletionMetrics.record("uses.usesFiltering", phaseStart);
+
+            // Match the whole dotted name typed so far, not just its last segment
+            String prefix = dottedPrefix(parameters.getEditor().getDocument().getCharsSequence(), parameters.getOffset());
+            CompletionResultSet unitResult = result.withPrefixMatcher(prefix);
+
+            List<LookupElement> batch = new ArrayList<>(BATCH_SIZE);
+            // Time spent handing batches to the result, kept apart from the catalogue scan
+            long[] addingNanos = {0};
+            PascalUnitCatalogue.getInstance(project).process(prefix, entry -> {
+                if (alreadyUsed.contains(entry.lowerName) || alreadyUsed.contains(entry.unitName.toLowerCase())) {
+                    return true;
+                }
+                LookupElementBuilder lookup = LookupElementBuilder.create(entry.name)
+                        .withIcon(AllIcons.Nodes.Module);
+                if (entry.isAlias()) lookup = lookup.withTypeText(entry.unitName, true);
+                batch.add(lookup);
+                if (batch.size() >= BATCH_SIZE) {
+                    long addStart = System.nanoTime();
+                    unitResult.addAllElements(batch);
+                    batch.clear();
+                    addingNanos[0] += System.nanoTime() - addStart;
+                    ProgressManager.checkCanceled();
+                }
+                return true;
+            });
+            long addStart = System.nanoTime();
+            unitResult.addAllElements(batch);
+            addingNanos[0] += System.nanoTime() - addStart;
+            PascalCompletionMetrics.histogram("uses.catalogue").record(System.nanoTime() - phaseStart - addingNanos[0]);
+            PascalCompletionMetrics.histogram("uses.lookupBuilding").record(addingNanos[0]);
 
-        // Get all unit names from the index
-        Collection<String> allUnitNames = FileBasedIndex.getInstance()
-                .getAllKeys(PascalUnitIndex.INDEX_ID, project);
-
-        Set<String> addedNames = new HashSet<>();
-        for (String unitName : allUnitNames) {
-            if (unitName == null || unitName.isEmpty()) continue;
-            String unitLower = unitName.toLowerCase();
-            if (alreadyUsed.contains(unitLower)) continue;
-            if (addedNames.contains(unitLower)) continue;
-            addedNames.add(unitLower);
-
-            LookupElementBuilder lookup = LookupElementBuilder.create(unitName)
-                    .withIcon(AllIcons.Nodes.Module);
-            result.addElement(lookup);
+            result.stopHere();
+        } finally {
+            PascalCompletionMetrics.record("uses.total", start);
         }
+    }
 
-        result.stopHere();
+    @NotNull
+    private static String dottedPrefix(@NotNull CharSequence text, int offset) {
+        int start = offset;
+        while (start > 0) {
+            char c = text.charAt(start - 1);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '.') break;
+            start--;
+        }
+        return text.subSequence(start, offset).toString();
     }
 }
@@ -0,0 +1,136 @@
+package nl.akiar.pascal.completion;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.indexing.FileBasedIndex;
+import nl.akiar.pascal.index.PascalUnitIndex;
+import nl.akiar.pascal.project.PascalProjectService;
+import nl.akiar.pascal.resolution.PascalUnitGraph;
+import nl.akiar.pascal.settings.PascalSourcePathsSettings;
+import nl.akiar.pascal.uses.PascalUsesClauseInfo;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Units whose declarations identifier completion offers in a file, per section:
+ * the file itself, the implicit System units, and the units of the uses clauses
+ * visible there (interface uses only in the interface section), each with unit
+ * scope name variants.
+ * <p>
+ * The table only lists unit files; their declarations come from the cached
+ * {@link PascalUnitExports} of each unit. It is kept on the file and rebuilt only
+ * when the file's uses clauses or the scope names change, or when unit resolution
+ * changes ({@link PascalUnitGraph} moves on file creation, deletion and renames).
+ */
+public final class PascalVisibleDeclarations {
+    private static final Key<PascalVisibleDeclarations> KEY = Key.create("pascal.visible.declarations");
+
+    private final List<String> interfaceUses;
+    private final List<String> implementationUses;
+    private final List<String> scopes;
+    private final long unitGraphStamp;
+    private final List<VirtualFile> interfaceUnits;
+    private final List<VirtualFile> implementationUnits;
+
+    private PascalVisibleDeclarations(@NotNull PsiFile file, @NotNull PascalUsesClauseInfo usesInfo,
+                                      @NotNull List<String> scopes, long unitGraphStamp) {
+        this.interfaceUses = usesInfo.getInterfaceUses();
+        this.implementationUses = usesInfo.getImplementationUses();
+        this.scopes = scopes;
+        this.unitGraphStamp = unitGraphStamp;
+
+        Project project = file.getProject();
+        Set<VirtualFile> common = new LinkedHashSet<>();
+        if (file.getVirtualFile() != null) common.add(file.getVirtualFile());
+        addImplicitUnits(project, common);
+
+        Set<VirtualFile> inInterface = new LinkedHashSet<>(common);
+        addUnits(project, interfaceUses, inInterface);
+        Set<VirtualFile> inImplementation = new LinkedHashSet<>(inInterface);
+        addUnits(project, implementationUses, inImplementation);
+        this.interfaceUnits = new ArrayList<>(inInterface);
+        this.implementationUnits = new ArrayList<>(inImplementation);
+    }
+
+    /** Export tables of the units visible at {@code offset} in {@code file}, the file itself first. */
+    @NotNull
+    public static List<PascalUnitExports> visibleAt(@NotNull PsiFile file, int offset) {
+        PascalUsesClauseInfo usesInfo = PascalUsesClauseInfo.parse(file);
+        // The section boundary moves with every edit above it, so it is read fresh rather than cached
+        return of(file, usesInfo).exportsAt(file, offset, usesInfo.getImplementationSectionStart());
+    }
+
+    /** The table for {@code file}, rebuilt if its uses clauses or unit resolution changed. */
+    @NotNull
+    public static PascalVisibleDeclarations of(@NotNull PsiFile file) {
+        return of(file, PascalUsesClauseInfo.parse(file));
+    }
+
+    @NotNull
+    private static PascalVisibleDeclarations of(@NotNull PsiFile file, @NotNull PascalUsesClauseInfo usesInfo) {
+        List<String> scopes = PascalSourcePathsSettings.getInstance(file.getProject()).getUnitScopeNames();
+        long stamp = PascalUnitGraph.getInstance(file.getProject()).getModificationCount();
+        PascalVisibleDeclarations cached = file.getUserData(KEY);
+        if (cached != null && cached.unitGraphStamp == stamp && cached.scopes.equals(scopes)
+                && cached.interfaceUses.equals(usesInfo.getInterfaceUses())
+                && cached.implementationUses.equals(usesInfo.getImplementationUses())) {
+            return cached;
+        }
+        PascalVisibleDeclarations fresh = new PascalVisibleDeclarations(file, usesInfo, new ArrayList<>(scopes), stamp);
+        file.putUserData(KEY, fresh);
+        return fresh;
+    }
+
+    /**
+     * Export tables of the units visible at {@code offset}, the file itself first;
+     * {@code implementationSectionStart} comes from the current parse of {@code file}, -1 if it has none.
+     */
+    @NotNull
+    public List<PascalUnitExports> exportsAt(@NotNull PsiFile file, int offset, int implementationSectionStart) {
+        boolean inImplementation = implementationSectionStart >= 0 && offset >= implementationSectionStart;
+        List<VirtualFile> units = inImplementation ? implementationUnits : interfaceUnits;
+        PsiManager psiManager = PsiManager.getInstance(file.getProject());
+        List<PascalUnitExports> result = new ArrayList<>(units.size());
+        for (VirtualFile unit : units) {
+            if (!unit.isValid()) continue;
+            PsiFile unitFile = psiManager.findFile(unit);
+            if (unitFile != null) result.add(PascalUnitExports.of(unitFile));
+        }
+        return result;
+    }
+
+    /** System and every System.* unit are available without being listed. */
+    private static void addImplicitUnits(@NotNull Project project, @NotNull Set<VirtualFile> into) {
+        FileBasedIndex index = FileBasedIndex.getInstance();
+        GlobalSearchScope scope = GlobalSearchScope.allScope(project);
+        for (String unit : index.getAllKeys(PascalUnitIndex.INDEX_ID, project)) {
+            if (!unit.equals("system") && !unit.startsWith("system.")) continue;
+            into.addAll(index.getContainingFiles(PascalUnitIndex.INDEX_ID, unit, scope));
+        }
+    }
+
+    private void addUnits(@NotNull Project project, @NotNull List<String> uses, @NotNull Set<VirtualFile> into) {
+        PascalProjectService service = PascalProjectService.getInstance(project);
+        for (String unit : uses) {
+            VirtualFile resolved = service.resolveUnit(unit, true);
+            if (resolved != null) into.add(resolved);
+            // "uses System.Classes" also matches a unit declared as plain Classes
+            String lower = unit.toLowerCase();
+            for (String scope : scopes) {
+                String scopePrefix = scope.toLowerCase() + ".";
+                if (lower.startsWith(scopePrefix)) {
+                    VirtualFile stripped = service.resolveUnit(lower.substring(scopePrefix.length()));
+                    if (stripped != null) into.add(stripped);
+                }
+            }
+        }
+    }
+}
@@ -20,6 +20,10 @@ import com.intellij.psi.PsiNameIdentifierOwner;
 import com.intellij.psi.PsiReference;
 import com.intellij.psi.PsiWhiteSpace;
 import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import nl.akiar.pascal.PascalLanguage;
 import nl.akiar.pascal.PascalSyntaxHighlighter;
 import nl.akiar.pascal.PascalTokenType;
@@ -54,6 +58,9 @@ public class PascalDocumentationProvider extends AbstractDocumentationProvider {
             com.intellij.openapi.util.Key.create("pascal.doc.typeArgMap");
 
     // Link prefixes for different element types
+    private static final com.intellij.openapi.util.Key<CachedValue<String>> RENDERED_DOC_KEY =
+            com.intellij.openapi.util.Key.create("pascal.doc.rendered");
+
     private static final String LINK_TYPE = "type:";
     private static final String LINK_ROUTINE = "routine:";
     private static final String LINK_UNIT = "unit:";
@@ -428,7 +435,7 @@ public class PascalDocumentationProvider extends AbstractDocumentationProvider {
 
         // Type definition documentation
         if (element instanceof PascalTypeDefinition) {
-            return generateTypeDoc((PascalTypeDefinition) element);
+            return cachedDoc(element, () -> generateTypeDoc((PascalTypeDefinition) element));
         }
 
         // Retrieve generic type argument substitution map if set by chain resolution
@@ -440,16 +447,25 @@ public class PascalDocumentationProvider extends AbstractDocumentationProvider {
 
         // Variable definition documentation
         if (element instanceof PascalVariableDefinition) {
+            if (typeArgMap == null) {
+                return cachedDoc(element, () -> generateVariableDoc((PascalVariableDefinition) element));
+            }
             return generateVariableDoc((PascalVariableDefinition) element, typeArgMap);
         }
 
         // Property documentation
         if (element instanceof PascalProperty) {
+            if (typeArgMap == null) {
+                return cachedDoc(element, () -> generatePropertyDoc((PascalProperty) element));
+            }
             return generatePropertyDoc((PascalProperty) element, typeArgMap);
         }
 
         // Routine documentation
         if (element instanceof PascalRoutine) {
+            if (typeArgMap == null) {
+                return cachedDoc(element, () -> generateRoutineDoc((PascalRoutine) element));
+            }
             return generateRoutineDoc((PascalRoutine) element, typeArgMap);
         }
 
@@ -462,6 +478,15 @@ public class PascalDocumentationProvider extends AbstractDocumentationProvider {
         return null;
     }
 
+    /**
+     * Rendered HTML for a declaration, cached on the element until the next PSI change.
+     * Docs rendered with a generic substitution map depend on the call site and are not cached.
+     */
+    private static String cachedDoc(PsiElement element, java.util.function.Supplier<String> render) {
+        return CachedValuesManager.getCachedValue(element, RENDERED_DOC_KEY, () ->
+                CachedValueProvider.Result.create(render.get(), PsiModificationTracker.MODIFICATION_COUNT));
+    }
+
     // ==================== Document Generation Methods ====================
 
     private String generateEnumElementDoc(PsiElement enumElement) {
@@ -816,10 +841,9 @@ public class PascalDocumentationProvider extends AbstractDocumentationProvider {
             appendSection(sb, "Visibility:", visibility);
         }
 
-        // Containing class
-        PascalTypeDefinition containingClass = routine.getContainingClass();
-        if (containingClass != null) {
-            String className = containingClass.getName();
+        // Containing class (stub-backed name, no need to load the class PSI)
+        String className = routine.getContainingClassName();
+        if (className != null && !className.isEmpty()) {
             appendSectionWithLink(sb, "Class:", className, LINK_TYPE + className);
         }
 
@@ -996,32 +1020,7 @@ public class PascalDocumentationProvider extends AbstractDocumentationProvider {
     }
 
     private String buildRoutineSignature(PascalRoutine routine) {
-        StringBuilder sig = new StringBuilder();
-        ASTNode node = routine.getNode();
-        ASTNode child = node.getFirstChildNode();
-
-        while (child != null) {
-            IElementType type = child.getElementType();
-            String text = child.getText();
-
-            if (type == PascalTokenTypes.SEMI) {
-                sig.append(";");
-                break;
-            }
-
-            // Stop at body start keywords
-            if (type == PascalTokenTypes.KW_BEGIN ||
-                type == PascalTokenTypes.KW_VAR ||
-                type == PascalTokenTypes.KW_CONST ||
-                type == PascalTokenTypes.KW_TYPE) {
-                break;
-            }
-
-            sig.append(text);
-            child = child.getTreeNext();
-        }
-
-        return sig.toString().trim();
+        return routine.getDeclarationHeader();
     }
 
     private void appendManuallyHighlightedType(StringBuilder sb, PascalTypeDefinition typeDef) {
@@ -1166,6 +1165,21 @@ public class PascalDocumentationProvider extends AbstractDocumentationProvider {
     }
 
     private void appendPropertySignature(StringBuilder sb, PascalProperty prop, Project project, @Nullable Map<String, String> typeArgMap) {
+        // Highlight the stored header so the property's file need not be parsed
+        String signature = prop.getDeclarationHeader();
+        if (!signature.isEmpty()) {
+            if (typeArgMap != null && !typeArgMap.isEmpty()) {
+                signature = applyGenericSubstitutionToSignature(signature, typeArgMap);
+            }
+            try {
+                HtmlSyntaxInfoUtil.appendHighlightedByLexerAndEncodedAsHtmlCodeSnippet(
+                        sb, project, PascalLanguage.INSTANCE, signature, 1.0f);
+                return;
+            } catch (Exception e) {
+                // Fall through to manual highlighting
+            }
+        }
+
         EditorColorsScheme scheme = EditorColorsManager.getInstance().getGlobalScheme();
 
         appendStyled(sb, "property ", PascalSyntaxHighlighter.KEYWORD, scheme, true);
@@ -1625,8 +1639,7 @@ public class PascalDocumentationProvider extends AbstractDocumentationProvider {
             return "property " + prop.getName() + ": " + prop.getTypeName();
         }
         if (element instanceof PascalRoutine) {
-            PascalRoutine routine = (PascalRoutine) element;
-            return routine.getText().split("begin|var|const|type|\\{|\\/\\/|\\(\\*", 2)[0].trim();
+            return ((PascalRoutine) element).getDeclarationHeader();
         }
         return null;
     }
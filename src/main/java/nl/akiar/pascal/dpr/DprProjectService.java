@@ -5,8 +5,14 @@ import com.intellij.openapi.components.Service;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.project.ProjectUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import nl.akiar.pascal.project.PascalProjectFiles;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -17,10 +23,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Project-level service that manages Delphi project (.dpr) file references.
  * Scans for .dpr files and maintains a list of all referenced Pascal source files.
+ * <p>
+ * The VFS is walked once at startup; afterwards VFS events name the .dpr files to parse
+ * again, and library roots change only when the referenced directories differ.
  */
 @Service(Service.Level.PROJECT)
 public final class DprProjectService implements Disposable {
@@ -37,8 +47,28 @@ public final class DprProjectService implements Disposable {
     // Flag to track if we've done initial scan
     private volatile boolean initialized = false;
 
+    // .dpr paths named by VFS events since the last update
+    private final Set<String> pendingPaths = ConcurrentHashMap.newKeySet();
+    // Directories that appeared since the last update; their .dpr files arrive without events
+    private final Set<String> pendingDirectories = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean updateScheduled = new AtomicBoolean();
+
     public DprProjectService(@NotNull Project project) {
         this.project = project;
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                Set<String> changed = PascalProjectFiles.changedPaths(
+                        events, path -> PascalProjectFiles.hasExtension(path, ".dpr"), dprFileCache.keySet());
+                Set<String> directories = PascalProjectFiles.addedDirectories(events);
+                if (!changed.isEmpty() || !directories.isEmpty()) {
+                    // Before the first scan has finished, changes are kept for the pass that follows it
+                    pendingPaths.addAll(changed);
+                    pendingDirectories.addAll(directories);
+                    if (initialized) scheduleUpdate();
+                }
+            }
+        });
     }
 
     public static DprProjectService getInstance(@NotNull Project project) {
@@ -56,7 +86,7 @@ public final class DprProjectService implements Disposable {
 
     /**
      * Force rescan of all .dpr files.
-     * Call this after project structure changes.
+     * Runs once at startup; afterwards only the .dpr files named by VFS events are parsed again.
      */
     public void rescan() {
         if (project.isDisposed()) return;
@@ -66,22 +96,114 @@ public final class DprProjectService implements Disposable {
         }
         LOG.info("[DprProjectService] Starting .dpr rescan");
         com.intellij.openapi.application.ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            boolean changed;
             synchronized (this) {
+                long start = System.nanoTime();
+                // The scan reads the current state; only changes from here on need another pass
+                pendingPaths.clear();
+                pendingDirectories.clear();
+                Set<String> before = getReferencedDirectories();
                 scanDprFiles();
+                changed = logUpdate("full rescan", before, start);
                 initialized = true;
             }
-            // Notify platform that library roots might have changed
-            com.intellij.openapi.application.ApplicationManager.getApplication().invokeLater(() -> {
-                if (!project.isDisposed()) {
-                    com.intellij.openapi.application.WriteAction.run(() -> {
-                        com.intellij.openapi.roots.ex.ProjectRootManagerEx.getInstanceEx(project)
-                                .makeRootsChange(com.intellij.openapi.util.EmptyRunnable.INSTANCE, false, true);
-                    });
-                }
-            }, com.intellij.openapi.application.ModalityState.nonModal());
+            if (changed) PascalProjectFiles.fireRootsChanged(project);
+            if (!pendingPaths.isEmpty() || !pendingDirectories.isEmpty()) scheduleUpdate();
         });
     }
 
+    private void scheduleUpdate() {
+        if (!updateScheduled.compareAndSet(false, true)) return;
+        com.intellij.openapi.application.ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            // Reset first: events arriving while this runs schedule another pass
+            updateScheduled.set(false);
+            if (project.isDisposed()) return;
+            boolean changed;
+            synchronized (this) {
+                changed = applyPendingChanges();
+            }
+            if (changed) PascalProjectFiles.fireRootsChanged(project);
+        });
+    }
+
+    /** Re-parse, add or drop the .dpr files named by pending events or found in new directories. */
+    private boolean applyPendingChanges() {
+        List<String> paths = new ArrayList<>(pendingPaths);
+        pendingPaths.removeAll(paths);
+        List<String> directories = new ArrayList<>(pendingDirectories);
+        pendingDirectories.removeAll(directories);
+        VirtualFile baseDir = ProjectUtil.guessProjectDir(project);
+        for (String directory : directories) {
+            List<VirtualFile> found = new ArrayList<>();
+            findDprFilesRecursively(LocalFileSystem.getInstance().findFileByPath(directory), found, 10);
+            for (VirtualFile dprFile : found) {
+                if (isScannedLocation(dprFile.getPath(), baseDir) && !paths.contains(dprFile.getPath())) {
+                    paths.add(dprFile.getPath());
+                }
+            }
+        }
+        if (paths.isEmpty()) return false;
+        long start = System.nanoTime();
+        Set<String> before = getReferencedDirectories();
+
+        for (String path : paths) {
+            VirtualFile dprFile = LocalFileSystem.getInstance().findFileByPath(path);
+            if (dprFile != null && dprFile.isValid() && DprParser.isDprFile(dprFile) && isScannedLocation(path, baseDir)) {
+                LOG.info("[DprProjectService] Parsing: " + path);
+                dprFileCache.put(path, DprParser.parseReferencedFiles(dprFile));
+            } else {
+                dprFileCache.remove(path);
+            }
+        }
+        Set<String> newAllFiles = new HashSet<>();
+        for (List<String> referencedFiles : dprFileCache.values()) {
+            newAllFiles.addAll(referencedFiles);
+        }
+        allReferencedFiles = Collections.unmodifiableSet(newAllFiles);
+        return logUpdate("changed " + paths, before, start);
+    }
+
+    /** Log the update and report whether the referenced directories, and so the library roots, changed. */
+    private boolean logUpdate(@NotNull String reason, @NotNull Set<String> directoriesBefore, long startNanos) {
+        Set<String> directories = getReferencedDirectories();
+        boolean changed = !directories.equals(directoriesBefore);
+        long millis = (System.nanoTime() - startNanos) / 1_000_000;
+        LOG.info("[DprProjectService] Updated (" + reason + ") in " + millis + "ms: " + dprFileCache.size()
+                + " .dpr files, " + allReferencedFiles.size() + " referenced files in " + directories.size()
+                + " directories" + (changed ? ", roots changed" : ""));
+        return changed;
+    }
+
+    /**
+     * True if the startup scan would have found a .dpr at {@code path}: up to 10 levels below
+     * the project directory {@code baseDir} outside skipped directories, or directly in one of its 5 parents.
+     */
+    static boolean isScannedLocation(@NotNull String path, @Nullable VirtualFile baseDir) {
+        if (!PascalProjectFiles.hasExtension(path, ".dpr")) return false;
+        if (baseDir == null) return false;
+        String base = baseDir.getPath();
+        if (path.startsWith(base + "/")) {
+            // The last segment is the file itself, found by the walk at most 10 levels down
+            String[] segments = path.substring(base.length() + 1).split("/");
+            if (segments.length > 10) return false;
+            for (int i = 0; i < segments.length - 1; i++) {
+                if (isSkippedDirectory(segments[i])) return false;
+            }
+            return true;
+        }
+        String parent = path.substring(0, Math.max(path.lastIndexOf('/'), 0));
+        VirtualFile ancestor = baseDir.getParent();
+        for (int levels = 0; ancestor != null && levels < 5; levels++, ancestor = ancestor.getParent()) {
+            if (parent.equals(ancestor.getPath())) return true;
+        }
+        return false;
+    }
+
+    private static boolean isSkippedDirectory(@NotNull String name) {
+        // Skip common non-source directories
+        return name.startsWith(".") || name.equals("node_modules") || name.equals("build") || name.equals("out");
+    }
+
     /**
      * Check if a file path is referenced by any .dpr file.
      */
@@ -134,9 +256,7 @@ public final class DprProjectService implements Disposable {
 
         for (VirtualFile child : dir.getChildren()) {
             if (child.isDirectory()) {
-                // Skip common non-source directories
-                String name = child.getName();
-                if (!name.startsWith(".") && !name.equals("node_modules") && !name.equals("build") && !name.equals("out")) {
+                if (!isSkippedDirectory(child.getName())) {
                     findDprFilesRecursively(child, result, maxDepth - 1);
                 }
             } else if (DprParser.isDprFile(child)) {
@@ -0,0 +1,42 @@
+package nl.akiar.pascal.hierarchy;
+
+import com.intellij.ide.hierarchy.HierarchyNodeDescriptor;
+import com.intellij.ide.hierarchy.HierarchyTreeStructure;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.ArrayUtilRt;
+import nl.akiar.pascal.psi.PascalTypeDefinition;
+import nl.akiar.pascal.resolution.PascalTypeGraph;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Subtypes of a type, one level per expanded node, from the reverse hierarchy in
+ * {@link PascalTypeGraph}.
+ */
+public class PascalSubtypesHierarchyTreeStructure extends HierarchyTreeStructure {
+
+    public PascalSubtypesHierarchyTreeStructure(@NotNull Project project, @NotNull PascalTypeDefinition type) {
+        super(project, new PascalTypeHierarchyNodeDescriptor(project, null, type, true));
+    }
+
+    protected PascalSubtypesHierarchyTreeStructure(@NotNull Project project, @NotNull HierarchyNodeDescriptor baseDescriptor) {
+        super(project, baseDescriptor);
+    }
+
+    @Override
+    protected Object @NotNull [] buildChildren(@NotNull HierarchyNodeDescriptor descriptor) {
+        if (!(descriptor.getPsiElement() instanceof PascalTypeDefinition type) || type.getName() == null) {
+            return ArrayUtilRt.EMPTY_OBJECT_ARRAY;
+        }
+        List<PascalTypeHierarchyNodeDescriptor> children = new ArrayList<>();
+        for (PascalTypeGraph.Subtype subtype : PascalTypeGraph.getInstance(myProject).directSubtypes(type)) {
+            PascalTypeDefinition element = subtype.getElement();
+            if (element != null) {
+                children.add(new PascalTypeHierarchyNodeDescriptor(myProject, descriptor, element, false));
+            }
+        }
+        return children.toArray();
+    }
+}
@@ -0,0 +1,69 @@
+package nl.akiar.pascal.hierarchy;
+
+import com.intellij.ide.hierarchy.HierarchyNodeDescriptor;
+import com.intellij.ide.hierarchy.HierarchyTreeStructure;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.ArrayUtilRt;
+import nl.akiar.pascal.psi.PascalTypeDefinition;
+import nl.akiar.pascal.psi.TypeKind;
+import nl.akiar.pascal.resolution.PascalTypeGraph;
+import nl.akiar.pascal.resolution.PascalUnitQualifiedLookup;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Supertypes of a type: its superclass first, then the interfaces it lists.
+ */
+public class PascalSupertypesHierarchyTreeStructure extends HierarchyTreeStructure {
+
+    public PascalSupertypesHierarchyTreeStructure(@NotNull Project project, @NotNull PascalTypeDefinition type) {
+        super(project, new PascalTypeHierarchyNodeDescriptor(project, null, type, true));
+    }
+
+    @Override
+    protected Object @NotNull [] buildChildren(@NotNull HierarchyNodeDescriptor descriptor) {
+        if (!(descriptor.getPsiElement() instanceof PascalTypeDefinition type)) {
+            return ArrayUtilRt.EMPTY_OBJECT_ARRAY;
+        }
+        List<PascalTypeHierarchyNodeDescriptor> children = new ArrayList<>();
+        for (PascalTypeDefinition supertype : getSupertypes(type)) {
+            children.add(new PascalTypeHierarchyNodeDescriptor(myProject, descriptor, supertype, false));
+        }
+        return children.toArray();
+    }
+
+    /**
+     * The resolved superclass followed by each other listed ancestor, resolved from the
+     * type's declaration: its own unit, then the units its section uses. Ancestors that
+     * do not resolve are left out rather than matched by name in an unrelated unit.
+     */
+    @NotNull
+    static List<PascalTypeDefinition> getSupertypes(@NotNull PascalTypeDefinition type) {
+        Set<PascalTypeDefinition> result = new LinkedHashSet<>();
+        PascalTypeDefinition superClass = type.getSuperClass();
+        if (superClass != null && superClass != type) result.add(superClass);
+
+        for (String ancestor : type.getAllAncestorNames()) {
+            if (superClass != null && PascalTypeGraph.simpleName(ancestor).equalsIgnoreCase(superClass.getName())) continue;
+            PascalTypeDefinition resolved = PascalUnitQualifiedLookup.findAncestorType(type, ancestor);
+            if (resolved != null) result.add(resolved);
+        }
+        return new ArrayList<>(result);
+    }
+
+    /** The chain of superclasses of {@code type}, nearest first; stops at a cycle. */
+    @NotNull
+    static List<PascalTypeDefinition> getSuperClassChain(@NotNull PascalTypeDefinition type) {
+        Set<PascalTypeDefinition> chain = new LinkedHashSet<>();
+        if (type.getTypeKind() != TypeKind.CLASS) return new ArrayList<>(chain);
+        PascalTypeDefinition current = type.getSuperClass();
+        while (current != null && current != type && chain.add(current)) {
+            current = current.getSuperClass();
+        }
+        return new ArrayList<>(chain);
+    }
+}
@@ -0,0 +1,103 @@
+package nl.akiar.pascal.hierarchy;
+
+import com.intellij.ide.hierarchy.HierarchyBrowserManager;
+import com.intellij.ide.hierarchy.HierarchyNodeDescriptor;
+import com.intellij.ide.hierarchy.HierarchyTreeStructure;
+import com.intellij.ide.hierarchy.TypeHierarchyBrowserBase;
+import com.intellij.ide.util.treeView.AlphaComparator;
+import com.intellij.ide.util.treeView.NodeDescriptor;
+import com.intellij.ide.util.treeView.SourceComparator;
+import com.intellij.openapi.actionSystem.IdeActions;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiElement;
+import nl.akiar.pascal.psi.PascalTypeDefinition;
+import nl.akiar.pascal.psi.TypeKind;
+import org.jetbrains.annotations.Nls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.JPanel;
+import javax.swing.JTree;
+import java.util.Comparator;
+import java.util.Map;
+
+/**
+ * Type Hierarchy browser for Pascal classes, records and interfaces.
+ */
+public class PascalTypeHierarchyBrowser extends TypeHierarchyBrowserBase {
+
+    private final boolean interfaceBase;
+
+    public PascalTypeHierarchyBrowser(@NotNull Project project, @NotNull PascalTypeDefinition type) {
+        super(project, type);
+        interfaceBase = type.getTypeKind() == TypeKind.INTERFACE;
+    }
+
+    /** True if the hierarchy was opened on an interface, which has no superclass chain to show. */
+    public boolean isInterfaceBase() {
+        return interfaceBase;
+    }
+
+    @Override
+    protected boolean isInterface(@NotNull PsiElement psiElement) {
+        return psiElement instanceof PascalTypeDefinition type && type.getTypeKind() == TypeKind.INTERFACE;
+    }
+
+    @Override
+    protected boolean canBeDeleted(PsiElement psiElement) {
+        return psiElement instanceof PascalTypeDefinition;
+    }
+
+    @Override
+    protected String getQualifiedName(PsiElement psiElement) {
+        if (!(psiElement instanceof PascalTypeDefinition type)) return "";
+        String unitName = type.getUnitName();
+        return unitName.isEmpty() ? String.valueOf(type.getName()) : unitName + "." + type.getName();
+    }
+
+    @Override
+    protected void createTrees(@NotNull Map<? super @Nls String, ? super JTree> trees) {
+        createTreeAndSetupCommonActions(trees, IdeActions.GROUP_TYPE_HIERARCHY_POPUP);
+    }
+
+    @Override
+    @Nullable
+    protected PsiElement getElementFromDescriptor(@NotNull HierarchyNodeDescriptor descriptor) {
+        return descriptor.getPsiElement();
+    }
+
+    @Override
+    @Nullable
+    protected JPanel createLegendPanel() {
+        return null;
+    }
+
+    @Override
+    protected boolean isApplicableElement(@NotNull PsiElement element) {
+        return element instanceof PascalTypeDefinition;
+    }
+
+    @Override
+    @Nullable
+    protected HierarchyTreeStructure createHierarchyTreeStructure(@NotNull String typeName, @NotNull PsiElement psiElement) {
+        if (!(psiElement instanceof PascalTypeDefinition type)) return null;
+        if (getSupertypesHierarchyType().equals(typeName)) {
+            return new PascalSupertypesHierarchyTreeStructure(myProject, type);
+        }
+        if (getSubtypesHierarchyType().equals(typeName)) {
+            return new PascalSubtypesHierarchyTreeStructure(myProject, type);
+        }
+        if (getTypeHierarchyType().equals(typeName)) {
+            return new PascalTypeHierarchyTreeStructure(myProject, type);
+        }
+        return null;
+    }
+
+    @Override
+    @Nullable
+    protected Comparator<NodeDescriptor<?>> getComparator() {
+        return HierarchyBrowserManager.getSettings(myProject).SORT_ALPHABETICALLY
+                ? AlphaComparator.getInstance()
+                : SourceComparator.INSTANCE;
+    }
+}
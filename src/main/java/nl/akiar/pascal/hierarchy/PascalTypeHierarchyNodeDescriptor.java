@@ -0,0 +1,58 @@
+package nl.akiar.pascal.hierarchy;
+
+import com.intellij.ide.hierarchy.HierarchyNodeDescriptor;
+import com.intellij.openapi.editor.markup.TextAttributes;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ui.util.CompositeAppearance;
+import com.intellij.openapi.util.Comparing;
+import com.intellij.psi.PsiElement;
+import nl.akiar.pascal.psi.PascalTypeDefinition;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.Font;
+
+/**
+ * Node of the Pascal type hierarchy: the type name followed by its unit.
+ */
+public class PascalTypeHierarchyNodeDescriptor extends HierarchyNodeDescriptor {
+
+    public PascalTypeHierarchyNodeDescriptor(@NotNull Project project,
+                                             @Nullable HierarchyNodeDescriptor parentDescriptor,
+                                             @NotNull PascalTypeDefinition type,
+                                             boolean isBase) {
+        super(project, parentDescriptor, type, isBase);
+    }
+
+    @Nullable
+    public PascalTypeDefinition getType() {
+        PsiElement element = getPsiElement();
+        return element instanceof PascalTypeDefinition ? (PascalTypeDefinition) element : null;
+    }
+
+    @Override
+    public boolean update() {
+        boolean changes = super.update();
+        PascalTypeDefinition type = getType();
+        if (type == null) return changes;
+
+        if (changes && myIsBase) {
+            setIcon(getBaseMarkerIcon(getIcon()));
+        }
+
+        CompositeAppearance oldText = myHighlightedText;
+        myHighlightedText = new CompositeAppearance();
+        TextAttributes nameAttributes = myColor != null ? new TextAttributes(myColor, null, null, null, Font.PLAIN) : null;
+        myHighlightedText.getEnding().addText(String.valueOf(type.getName()), nameAttributes);
+        String unitName = type.getUnitName();
+        if (!unitName.isEmpty()) {
+            myHighlightedText.getEnding().addText(" (" + unitName + ")", getPackageNameAttributes());
+        }
+        myName = myHighlightedText.getText();
+
+        if (!Comparing.equal(myHighlightedText, oldText)) {
+            changes = true;
+        }
+        return changes;
+    }
+}
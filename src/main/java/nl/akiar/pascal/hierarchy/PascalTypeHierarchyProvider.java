@@ -0,0 +1,48 @@
+package nl.akiar.pascal.hierarchy;
+
+import com.intellij.ide.hierarchy.HierarchyBrowser;
+import com.intellij.ide.hierarchy.HierarchyProvider;
+import com.intellij.ide.hierarchy.TypeHierarchyBrowserBase;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.actionSystem.DataContext;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiTreeUtil;
+import nl.akiar.pascal.psi.PascalTypeDefinition;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Type Hierarchy (Ctrl+H) for ObjectPascal: the type under the caret, or the type
+ * declaration the caret is in.
+ */
+public class PascalTypeHierarchyProvider implements HierarchyProvider {
+
+    @Override
+    @Nullable
+    public PsiElement getTarget(@NotNull DataContext dataContext) {
+        PsiElement element = CommonDataKeys.PSI_ELEMENT.getData(dataContext);
+        if (element instanceof PascalTypeDefinition) return element;
+
+        Editor editor = CommonDataKeys.EDITOR.getData(dataContext);
+        PsiFile file = CommonDataKeys.PSI_FILE.getData(dataContext);
+        if (editor == null || file == null) return null;
+        PsiElement at = file.findElementAt(editor.getCaretModel().getOffset());
+        return PsiTreeUtil.getParentOfType(at, PascalTypeDefinition.class);
+    }
+
+    @Override
+    @NotNull
+    public HierarchyBrowser createHierarchyBrowser(@NotNull PsiElement target) {
+        return new PascalTypeHierarchyBrowser(target.getProject(), (PascalTypeDefinition) target);
+    }
+
+    @Override
+    public void browserActivated(@NotNull HierarchyBrowser hierarchyBrowser) {
+        PascalTypeHierarchyBrowser browser = (PascalTypeHierarchyBrowser) hierarchyBrowser;
+        browser.changeView(browser.isInterfaceBase()
+                ? TypeHierarchyBrowserBase.getSubtypesHierarchyType()
+                : TypeHierarchyBrowserBase.getTypeHierarchyType());
+    }
+}
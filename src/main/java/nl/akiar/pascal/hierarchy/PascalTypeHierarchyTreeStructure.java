@@ -0,0 +1,33 @@
+package nl.akiar.pascal.hierarchy;
+
+import com.intellij.ide.hierarchy.HierarchyNodeDescriptor;
+import com.intellij.openapi.project.Project;
+import nl.akiar.pascal.psi.PascalTypeDefinition;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Full type hierarchy: the superclass chain from the root class down to the type,
+ * with the type's subtypes expanded below it.
+ */
+public class PascalTypeHierarchyTreeStructure extends PascalSubtypesHierarchyTreeStructure {
+
+    public PascalTypeHierarchyTreeStructure(@NotNull Project project, @NotNull PascalTypeDefinition type) {
+        super(project, buildChain(project, type));
+        setBaseElement(myBaseDescriptor);
+    }
+
+    private static HierarchyNodeDescriptor buildChain(@NotNull Project project, @NotNull PascalTypeDefinition type) {
+        List<PascalTypeDefinition> chain = PascalSupertypesHierarchyTreeStructure.getSuperClassChain(type);
+        HierarchyNodeDescriptor descriptor = null;
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            HierarchyNodeDescriptor next = new PascalTypeHierarchyNodeDescriptor(project, descriptor, chain.get(i), false);
+            if (descriptor != null) descriptor.setCachedChildren(new HierarchyNodeDescriptor[]{next});
+            descriptor = next;
+        }
+        HierarchyNodeDescriptor base = new PascalTypeHierarchyNodeDescriptor(project, descriptor, type, true);
+        if (descriptor != null) descriptor.setCachedChildren(new HierarchyNodeDescriptor[]{base});
+        return base;
+    }
+}
@@ -0,0 +1,270 @@
+package nl.akiar.pascal.index;
+
+import com.intellij.lexer.Lexer;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.tree.TokenSet;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import nl.akiar.pascal.PascalFileType;
+import nl.akiar.pascal.PascalLexerAdapter;
+import nl.akiar.pascal.PascalTokenTypes;
+import nl.akiar.pascal.psi.PsiUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * File-based index of identifier occurrences.
+ * Maps each identifier (lowercase, without the {@code &} escape) to its {@link PascalIdentifierOccurrences}
+ * in a file, so Find Usages can drop occurrences that cannot refer to a class member before resolving them.
+ * <p>
+ * Built from one lexer pass per file, no PSI. A small state machine tracks type bodies
+ * ({@code TFoo = class ... end}) and routine bodies, so every occurrence knows the type it is written in:
+ * inside {@code procedure TFoo.Run} (and routines nested in it) the owner is {@code tfoo}.
+ */
+public class PascalIdentifierOccurrenceIndex extends FileBasedIndexExtension<String, PascalIdentifierOccurrences> {
+    public static final ID<String, PascalIdentifierOccurrences> INDEX_ID = ID.create("nl.akiar.pascal.identifier.occurrences");
+
+    private static final TokenSet IDENTIFIERS = TokenSet.create(PsiUtil.IDENTIFIER_LIKE_TYPES);
+
+    private static final TokenSet ROUTINE_KEYWORDS = TokenSet.create(
+            PascalTokenTypes.KW_PROCEDURE,
+            PascalTokenTypes.KW_FUNCTION,
+            PascalTokenTypes.KW_CONSTRUCTOR,
+            PascalTokenTypes.KW_DESTRUCTOR,
+            PascalTokenTypes.KW_OPERATOR
+    );
+
+    /** Keywords after {@code =} that may open a type body, depending on what follows. */
+    private static final TokenSet STRUCTURED_TYPE_KEYWORDS = TokenSet.create(
+            PascalTokenTypes.KW_CLASS,
+            PascalTokenTypes.KW_INTERFACE,
+            PascalTokenTypes.KW_DISPINTERFACE,
+            PascalTokenTypes.KW_OBJECT
+    );
+
+    @NotNull
+    @Override
+    public ID<String, PascalIdentifierOccurrences> getName() {
+        return INDEX_ID;
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<String, PascalIdentifierOccurrences, FileContent> getIndexer() {
+        return inputData -> scan(inputData.getContentAsText());
+    }
+
+    @NotNull
+    @Override
+    public KeyDescriptor<String> getKeyDescriptor() {
+        return EnumeratorStringDescriptor.INSTANCE;
+    }
+
+    @NotNull
+    @Override
+    public DataExternalizer<PascalIdentifierOccurrences> getValueExternalizer() {
+        return PascalIdentifierOccurrences.Externalizer.INSTANCE;
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return file -> file.getFileType() == PascalFileType.INSTANCE;
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    /** A routine with a body: its owner type, and whether its {@code begin} has been seen. */
+    private static final class Frame {
+        final String owner;
+        boolean started;
+        int depth;
+        boolean with;
+
+        Frame(@Nullable String owner) {
+            this.owner = owner;
+        }
+    }
+
+    // What follows "= class", "= interface" or "= object": a body, unless it is a forward or metaclass declaration
+    private enum Pending { NONE, KEYWORD, ANCESTORS, AFTER_ANCESTORS }
+
+    /** The occurrences of every identifier in {@code text}, keyed by {@link #normalize(String)}. */
+    @NotNull
+    static Map<String, PascalIdentifierOccurrences> scan(@NotNull CharSequence text) {
+        Map<String, PascalIdentifierOccurrences.Builder> builders = new HashMap<>();
+        Lexer lexer = new PascalLexerAdapter();
+        lexer.start(text);
+
+        Deque<Frame> frames = new ArrayDeque<>();
+        // Owners of the open type bodies; "" for an anonymous record
+        Deque<String> bodies = new ArrayDeque<>();
+        boolean inInterfaceSection = false;
+
+        IElementType previous = null;
+        IElementType beforePrevious = null;
+        String declaredName = null;
+        int angleDepth = 0;
+
+        Pending pending = Pending.NONE;
+        String pendingOwner = null;
+        int parenDepth = 0;
+
+        // Routine header being read: the names before the parameter list, at generic depth 0
+        List<String> headerNames = null;
+        boolean headerHasBody = false;
+        int headerAngleDepth = 0;
+
+        for (IElementType type; (type = lexer.getTokenType()) != null; lexer.advance()) {
+            if (type == PascalTokenTypes.WHITE_SPACE || type == PascalTokenTypes.LINE_COMMENT
+                    || type == PascalTokenTypes.BLOCK_COMMENT || type == PascalTokenTypes.COMPILER_DIRECTIVE) {
+                continue;
+            }
+            int start = lexer.getTokenStart();
+            boolean identifier = IDENTIFIERS.contains(type);
+
+            if (pending != Pending.NONE) {
+                if (pending == Pending.ANCESTORS) {
+                    if (type == PascalTokenTypes.LPAREN) parenDepth++;
+                    else if (type == PascalTokenTypes.RPAREN && --parenDepth == 0) pending = Pending.AFTER_ANCESTORS;
+                } else if (pending == Pending.KEYWORD && type == PascalTokenTypes.LPAREN) {
+                    pending = Pending.ANCESTORS;
+                    parenDepth = 1;
+                } else {
+                    if (type != PascalTokenTypes.SEMI && !(pending == Pending.KEYWORD && type == PascalTokenTypes.KW_OF)) {
+                        bodies.push(pendingOwner);
+                    }
+                    pending = Pending.NONE;
+                }
+            }
+
+            if (headerNames != null) {
+                if (identifier && headerAngleDepth == 0) {
+                    headerNames.add(text.subSequence(start, lexer.getTokenEnd()).toString());
+                } else if (type == PascalTokenTypes.LT) {
+                    headerAngleDepth++;
+                } else if (type == PascalTokenTypes.GT && headerAngleDepth > 0) {
+                    headerAngleDepth--;
+                } else if (!identifier && type != PascalTokenTypes.DOT && type != PascalTokenTypes.COMMA) {
+                    // Parameter list, result type or ";": the header is complete
+                    if (headerHasBody && !headerNames.isEmpty()) {
+                        String owner = headerNames.size() >= 2
+                                ? normalize(headerNames.get(headerNames.size() - 2))
+                                : frames.isEmpty() ? null : frames.peek().owner;
+                        frames.push(new Frame(owner));
+                    }
+                    headerNames = null;
+                }
+            }
+
+            Frame frame = frames.peek();
+            boolean inBody = frame != null && frame.started && bodies.isEmpty();
+
+            if (identifier) {
+                String name = normalize(text.subSequence(start, lexer.getTokenEnd()).toString());
+                byte kind;
+                if (previous == PascalTokenTypes.DOT) kind = PascalIdentifierOccurrences.QUALIFIED;
+                else if (previous == PascalTokenTypes.KW_INHERITED) kind = PascalIdentifierOccurrences.INHERITED;
+                else if (frame != null && frame.with) kind = PascalIdentifierOccurrences.WITH;
+                else kind = PascalIdentifierOccurrences.BARE;
+                builders.computeIfAbsent(name, k -> new PascalIdentifierOccurrences.Builder())
+                        .add(start, kind, currentOwner(bodies, frames));
+
+                if (frame != null && bodies.isEmpty() && type == PascalTokenTypes.IDENTIFIER && name.equals("asm")) {
+                    // An asm block is closed by "end" like begin; it may also be the whole routine body
+                    frame.depth = frame.started ? frame.depth + 1 : 1;
+                    frame.started = true;
+                } else if (!inBody && angleDepth == 0) {
+                    declaredName = name;
+                }
+            } else if (ROUTINE_KEYWORDS.contains(type) && !inBody && headerNames == null) {
+                // Procedural types ("= procedure(...)", "reference to procedure") have no name and end the header at once
+                headerNames = new ArrayList<>();
+                headerAngleDepth = 0;
+                headerHasBody = !inInterfaceSection && bodies.isEmpty();
+            } else if (type == PascalTokenTypes.KW_RECORD) {
+                String owner = previous == PascalTokenTypes.EQ
+                        || (previous == PascalTokenTypes.KW_PACKED && beforePrevious == PascalTokenTypes.EQ)
+                        ? declaredName : currentOwner(bodies, frames);
+                bodies.push(owner != null ? owner : "");
+            } else if (STRUCTURED_TYPE_KEYWORDS.contains(type)
+                    && (previous == PascalTokenTypes.EQ || previous == PascalTokenTypes.KW_PACKED)) {
+                pending = Pending.KEYWORD;
+                pendingOwner = declaredName != null ? declaredName : "";
+            } else if (type == PascalTokenTypes.KW_INTERFACE && bodies.isEmpty() && frames.isEmpty()) {
+                inInterfaceSection = true;
+            } else if (type == PascalTokenTypes.KW_IMPLEMENTATION) {
+                inInterfaceSection = false;
+                frames.clear();
+                bodies.clear();
+            } else if ((type == PascalTokenTypes.KW_FORWARD || type == PascalTokenTypes.KW_EXTERNAL)
+                    && frame != null && !frame.started && bodies.isEmpty()) {
+                frames.pop();
+            } else if (type == PascalTokenTypes.KW_BEGIN && frame != null && bodies.isEmpty()) {
+                if (frame.started) {
+                    frame.depth++;
+                } else {
+                    frame.started = true;
+                    frame.depth = 1;
+                }
+            } else if ((type == PascalTokenTypes.KW_TRY || type == PascalTokenTypes.KW_CASE) && inBody) {
+                frame.depth++;
+            } else if (type == PascalTokenTypes.KW_WITH && inBody) {
+                frame.with = true;
+            } else if (type == PascalTokenTypes.KW_END) {
+                if (!bodies.isEmpty()) {
+                    bodies.pop();
+                } else if (inBody && --frame.depth == 0) {
+                    frames.pop();
+                }
+            } else if (!inBody) {
+                if (type == PascalTokenTypes.LT) angleDepth++;
+                else if (type == PascalTokenTypes.GT && angleDepth > 0) angleDepth--;
+                else if (type == PascalTokenTypes.SEMI) angleDepth = 0;
+            }
+
+            beforePrevious = previous;
+            previous = type;
+        }
+
+        Map<String, PascalIdentifierOccurrences> result = new HashMap<>(builders.size());
+        for (Map.Entry<String, PascalIdentifierOccurrences.Builder> entry : builders.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().build());
+        }
+        return result;
+    }
+
+    @Nullable
+    private static String currentOwner(Deque<String> bodies, Deque<Frame> frames) {
+        if (!bodies.isEmpty()) {
+            String owner = bodies.peek();
+            return owner.isEmpty() ? null : owner;
+        }
+        Frame frame = frames.peek();
+        return frame != null ? frame.owner : null;
+    }
+
+    /** The index key for an identifier: lowercase, without the {@code &} escape. */
+    @NotNull
+    public static String normalize(@NotNull String identifier) {
+        String name = PsiUtil.stripEscapePrefix(identifier);
+        return name != null ? name.toLowerCase() : identifier.toLowerCase();
+    }
+}
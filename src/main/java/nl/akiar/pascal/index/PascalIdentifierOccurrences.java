@@ -0,0 +1,150 @@
+package nl.akiar.pascal.index;
+
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.IOUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The occurrences of one identifier in one file, as recorded by {@link PascalIdentifierOccurrenceIndex}.
+ * <p>
+ * Each occurrence has its start offset, how it is written ({@link #QUALIFIED} after a dot,
+ * {@link #INHERITED} after {@code inherited}, {@link #WITH} bare inside a routine that opened a
+ * {@code with} statement, otherwise {@link #BARE}) and the owner: the lowercase name of the type
+ * whose declaration or method body it appears in, or null outside any type.
+ */
+public final class PascalIdentifierOccurrences {
+    public static final byte BARE = 0;
+    public static final byte QUALIFIED = 1;
+    public static final byte INHERITED = 2;
+    public static final byte WITH = 3;
+
+    private final int[] offsets;
+    private final byte[] kinds;
+    private final String[] owners;
+
+    PascalIdentifierOccurrences(int @NotNull [] offsets, byte @NotNull [] kinds, String @NotNull [] owners) {
+        this.offsets = offsets;
+        this.kinds = kinds;
+        this.owners = owners;
+    }
+
+    public int size() {
+        return offsets.length;
+    }
+
+    public int getOffset(int index) {
+        return offsets[index];
+    }
+
+    public byte getKind(int index) {
+        return kinds[index];
+    }
+
+    /** Lowercase name of the enclosing type, or null. */
+    @Nullable
+    public String getOwner(int index) {
+        return owners[index];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PascalIdentifierOccurrences other)) return false;
+        return Arrays.equals(offsets, other.offsets)
+                && Arrays.equals(kinds, other.kinds)
+                && Arrays.equals(owners, other.owners);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(offsets) + Arrays.hashCode(kinds);
+    }
+
+    /** Collects occurrences of one identifier while the indexer walks a file. */
+    static final class Builder {
+        private int[] offsets = new int[4];
+        private byte[] kinds = new byte[4];
+        private String[] owners = new String[4];
+        private int size;
+
+        void add(int offset, byte kind, @Nullable String owner) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+                kinds = Arrays.copyOf(kinds, size * 2);
+                owners = Arrays.copyOf(owners, size * 2);
+            }
+            offsets[size] = offset;
+            kinds[size] = kind;
+            owners[size] = owner;
+            size++;
+        }
+
+        PascalIdentifierOccurrences build() {
+            return new PascalIdentifierOccurrences(
+                    Arrays.copyOf(offsets, size), Arrays.copyOf(kinds, size), Arrays.copyOf(owners, size));
+        }
+    }
+
+    /**
+     * Writes the distinct owners once, then each occurrence as a delta-encoded offset, its kind
+     * and an index into the owner table (0 for none).
+     */
+    static final class Externalizer implements DataExternalizer<PascalIdentifierOccurrences> {
+        static final Externalizer INSTANCE = new Externalizer();
+
+        @Override
+        public void save(@NotNull DataOutput out, PascalIdentifierOccurrences value) throws IOException {
+            Map<String, Integer> ownerIds = new HashMap<>();
+            List<String> ownerTable = new ArrayList<>();
+            for (String owner : value.owners) {
+                if (owner != null && ownerIds.putIfAbsent(owner, ownerTable.size() + 1) == null) {
+                    ownerTable.add(owner);
+                }
+            }
+            DataInputOutputUtil.writeINT(out, ownerTable.size());
+            for (String owner : ownerTable) {
+                IOUtil.writeUTF(out, owner);
+            }
+            DataInputOutputUtil.writeINT(out, value.offsets.length);
+            int previous = 0;
+            for (int i = 0; i < value.offsets.length; i++) {
+                DataInputOutputUtil.writeINT(out, value.offsets[i] - previous);
+                previous = value.offsets[i];
+                out.writeByte(value.kinds[i]);
+                String owner = value.owners[i];
+                DataInputOutputUtil.writeINT(out, owner == null ? 0 : ownerIds.get(owner));
+            }
+        }
+
+        @Override
+        public PascalIdentifierOccurrences read(@NotNull DataInput in) throws IOException {
+            String[] ownerTable = new String[DataInputOutputUtil.readINT(in) + 1];
+            for (int i = 1; i < ownerTable.length; i++) {
+                ownerTable[i] = IOUtil.readUTF(in);
+            }
+            int size = DataInputOutputUtil.readINT(in);
+            int[] offsets = new int[size];
+            byte[] kinds = new byte[size];
+            String[] owners = new String[size];
+            int previous = 0;
+            for (int i = 0; i < size; i++) {
+                previous += DataInputOutputUtil.readINT(in);
+                offsets[i] = previous;
+                kinds[i] = in.readByte();
+                owners[i] = ownerTable[DataInputOutputUtil.readINT(in)];
+            }
+            return new PascalIdentifierOccurrences(offsets, kinds, owners);
+        }
+    }
+}
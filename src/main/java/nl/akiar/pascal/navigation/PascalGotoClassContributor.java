@@ -0,0 +1,61 @@
+package nl.akiar.pascal.navigation;
+
+import com.intellij.navigation.ChooseByNameContributorEx;
+import com.intellij.navigation.GotoClassContributor;
+import com.intellij.navigation.NavigationItem;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.util.Processor;
+import com.intellij.util.indexing.FindSymbolParameters;
+import com.intellij.util.indexing.IdFilter;
+import nl.akiar.pascal.psi.PascalTypeDefinition;
+import nl.akiar.pascal.stubs.PascalTypeIndex;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Go to Class (Cmd+O) for Pascal classes, records, interfaces and the other named types.
+ * <p>
+ * Names and elements come straight from {@link PascalTypeIndex}: the popup streams keys through
+ * {@code processAllKeys} and stops as soon as it has enough matches, so no name list is ever
+ * materialized. Forward declarations are skipped; the full definition is listed instead.
+ */
+public class PascalGotoClassContributor implements ChooseByNameContributorEx, GotoClassContributor {
+
+    @Override
+    public void processNames(@NotNull Processor<? super String> processor,
+                             @NotNull GlobalSearchScope scope,
+                             @Nullable IdFilter filter) {
+        StubIndex.getInstance().processAllKeys(PascalTypeIndex.KEY, processor, scope, filter);
+    }
+
+    @Override
+    public void processElementsWithName(@NotNull String name,
+                                        @NotNull Processor<? super NavigationItem> processor,
+                                        @NotNull FindSymbolParameters parameters) {
+        StubIndex.getInstance().processElements(PascalTypeIndex.KEY, name.toLowerCase(), parameters.getProject(),
+                parameters.getSearchScope(), parameters.getIdFilter(), PascalTypeDefinition.class,
+                type -> type.isForwardDeclaration() || processor.process((NavigationItem) type));
+    }
+
+    @Nullable
+    @Override
+    public String getQualifiedName(@NotNull NavigationItem item) {
+        if (item instanceof PascalTypeDefinition type) {
+            return qualify(type.getUnitName(), type.getName());
+        }
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public String getQualifiedNameSeparator() {
+        return ".";
+    }
+
+    @Nullable
+    static String qualify(@Nullable String unitName, @Nullable String name) {
+        if (name == null) return null;
+        return unitName == null || unitName.isEmpty() ? name : unitName + "." + name;
+    }
+}
@@ -367,18 +367,8 @@ public class PascalGotoDeclarationHandler implements GotoDeclarationHandler {
      * Check if a resolved element is accessible from the call site based on visibility rules.
      */
     private boolean isAccessible(@NotNull PsiElement resolved, @NotNull PsiElement callSite) {
-        String visibility = PsiUtil.getVisibility(resolved);
-
-        // For implementation methods, visibility is only available on the declaration
-        if (visibility == null && resolved instanceof PascalRoutine) {
-            PascalRoutine routine = (PascalRoutine) resolved;
-            if (routine.isImplementation()) {
-                PascalRoutine declaration = routine.getDeclaration();
-                if (declaration != null) {
-                    visibility = PsiUtil.getVisibility(declaration);
-                }
-            }
-        }
+        // Stub-backed; implementation methods report their declaration's visibility
+        String visibility = PsiUtil.getMemberVisibility(resolved);
 
         if (visibility == null) {
             return true;
@@ -0,0 +1,102 @@
+package nl.akiar.pascal.navigation;
+
+import com.intellij.navigation.ChooseByNameContributorEx;
+import com.intellij.navigation.GotoClassContributor;
+import com.intellij.navigation.NavigationItem;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.util.Processor;
+import com.intellij.util.indexing.FindSymbolParameters;
+import com.intellij.util.indexing.IdFilter;
+import nl.akiar.pascal.psi.PascalProperty;
+import nl.akiar.pascal.psi.PascalRoutine;
+import nl.akiar.pascal.psi.PascalVariableDefinition;
+import nl.akiar.pascal.psi.VariableKind;
+import nl.akiar.pascal.stubs.PascalPropertyIndex;
+import nl.akiar.pascal.stubs.PascalRoutineIndex;
+import nl.akiar.pascal.stubs.PascalVariableIndex;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Go to Symbol (Cmd+Alt+O) for Pascal routines, properties and global constants.
+ * <p>
+ * Names are streamed from {@link PascalRoutineIndex}, {@link PascalPropertyIndex} and
+ * {@link PascalVariableIndex} in turn, stopping as soon as the popup has enough. Methods are
+ * qualified as {@code Unit.TClass.Method}, so typing {@code TFoo.Run} narrows to one class.
+ * <p>
+ * Each routine is listed once, at its declaration: method bodies in the implementation section
+ * and bodies of routines declared in the interface section are skipped. The variable index also
+ * holds locals, parameters and fields; only unit-level constants are offered.
+ */
+public class PascalGotoSymbolContributor implements ChooseByNameContributorEx, GotoClassContributor {
+
+    @Override
+    public void processNames(@NotNull Processor<? super String> processor,
+                             @NotNull GlobalSearchScope scope,
+                             @Nullable IdFilter filter) {
+        StubIndex index = StubIndex.getInstance();
+        if (!index.processAllKeys(PascalRoutineIndex.KEY, processor, scope, filter)) return;
+        if (!index.processAllKeys(PascalPropertyIndex.KEY, processor, scope, filter)) return;
+        index.processAllKeys(PascalVariableIndex.KEY, processor, scope, filter);
+    }
+
+    @Override
+    public void processElementsWithName(@NotNull String name,
+                                        @NotNull Processor<? super NavigationItem> processor,
+                                        @NotNull FindSymbolParameters parameters) {
+        StubIndex index = StubIndex.getInstance();
+        String key = name.toLowerCase();
+        boolean more = index.processElements(PascalRoutineIndex.KEY, key, parameters.getProject(),
+                parameters.getSearchScope(), parameters.getIdFilter(), PascalRoutine.class,
+                routine -> !isDeclaration(routine) || processor.process((NavigationItem) routine));
+        if (!more) return;
+        more = index.processElements(PascalPropertyIndex.KEY, key, parameters.getProject(),
+                parameters.getSearchScope(), parameters.getIdFilter(), PascalProperty.class,
+                property -> processor.process((NavigationItem) property));
+        if (!more) return;
+        index.processElements(PascalVariableIndex.KEY, key, parameters.getProject(),
+                parameters.getSearchScope(), parameters.getIdFilter(), PascalVariableDefinition.class,
+                variable -> !isGlobalConstant(variable) || processor.process((NavigationItem) variable));
+    }
+
+    private static boolean isDeclaration(@NotNull PascalRoutine routine) {
+        if (!routine.isImplementation()) return true;
+        // TClass.Method bodies always have a declaration in the class
+        if (routine.getContainingClassName() != null) return false;
+        // Standalone routines are listed at their interface declaration if they have one
+        PascalRoutine declaration = routine.getDeclaration();
+        return declaration == null || declaration == routine;
+    }
+
+    private static boolean isGlobalConstant(@NotNull PascalVariableDefinition variable) {
+        return variable.getVariableKind() == VariableKind.CONSTANT && variable.getContainingScopeName() == null;
+    }
+
+    @Nullable
+    @Override
+    public String getQualifiedName(@NotNull NavigationItem item) {
+        if (item instanceof PascalRoutine routine) {
+            return qualify(routine.getUnitName(), routine.getContainingClassName(), routine.getName());
+        }
+        if (item instanceof PascalProperty property) {
+            return qualify(property.getUnitName(), property.getContainingClassName(), property.getName());
+        }
+        if (item instanceof PascalVariableDefinition variable) {
+            return qualify(variable.getUnitName(), null, variable.getName());
+        }
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public String getQualifiedNameSeparator() {
+        return ".";
+    }
+
+    @Nullable
+    private static String qualify(@Nullable String unitName, @Nullable String className, @Nullable String name) {
+        if (name == null) return null;
+        return PascalGotoClassContributor.qualify(unitName, className != null ? className + "." + name : name);
+    }
+}
@@ -9,7 +9,9 @@ import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.Processor;
 import nl.akiar.pascal.psi.*;
 import nl.akiar.pascal.psi.impl.PascalRoutineImpl;
-import nl.akiar.pascal.stubs.PascalImplementorsIndex;
+import nl.akiar.pascal.resolution.PascalTypeGraph;
+import nl.akiar.pascal.stubs.PascalScopedMemberIndex;
+import nl.akiar.pascal.stubs.PascalScopedRoutineIndex;
 import nl.akiar.pascal.stubs.PascalTypeIndex;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -129,27 +131,20 @@ public class PascalImplementationSearcher
     }
 
     /**
-     * Find all classes that implement the given interface.
+     * Find all classes that implement the given interface, directly or through an
+     * ancestor, streaming them to the consumer nearest first.
      */
     private void processInterfaceType(
             @NotNull PascalTypeDefinition interfaceType,
             @NotNull Processor<? super PsiElement> consumer) {
 
-        String name = interfaceType.getName();
-        if (name == null) return;
+        if (interfaceType.getName() == null) return;
 
-        Project project = interfaceType.getProject();
-        Collection<PascalTypeDefinition> implementors = PascalImplementorsIndex.findImplementors(name, project);
-        LOG.debug("[GoToImpl] findImplementors('" + name + "') returned " + implementors.size() + " results");
-
-        int fed = 0;
-        for (PascalTypeDefinition impl : implementors) {
-            if (impl.getTypeKind() != TypeKind.CLASS) continue;
-            if (!ancestorListContains(impl, name)) continue;
-            fed++;
-            if (!consumer.process(impl)) return;
-        }
-        LOG.debug("[GoToImpl] Fed " + fed + " implementing classes to consumer");
+        PascalTypeGraph.getInstance(interfaceType.getProject()).processSubtypes(interfaceType, subtype -> {
+            if (subtype.getKind() != TypeKind.CLASS) return true;
+            PascalTypeDefinition element = subtype.getElement();
+            return element == null || consumer.process(element);
+        });
     }
 
     /**
@@ -157,6 +152,9 @@ public class PascalImplementationSearcher
      * Navigates to the implementation body (not the forward declaration).
      * When the interface method's signature can be determined, filters to
      * matching overloads; otherwise includes all overloads with the same name.
+     * <p>
+     * Implementing classes come from the reverse type hierarchy; their methods are
+     * looked up in the scoped routine index, so no implementor's tree is loaded.
      */
     private void processInterfaceMethod(
             @NotNull PascalRoutine interfaceMethod,
@@ -172,36 +170,33 @@ public class PascalImplementationSearcher
         if (interfaceMethod instanceof PascalRoutineImpl ri) {
             interfaceSig = ri.getSignatureHash();
         }
+        String expectedSig = interfaceSig;
 
         Project project = interfaceType.getProject();
-        Collection<PascalTypeDefinition> implementors = PascalImplementorsIndex.findImplementors(interfaceName, project);
-
         List<PascalRoutine> allMatches = new ArrayList<>();
         List<PascalRoutine> sigMatches = new ArrayList<>();
 
-        for (PascalTypeDefinition impl : implementors) {
-            if (impl.getTypeKind() != TypeKind.CLASS) continue;
-            if (!ancestorListContains(impl, interfaceName)) continue;
-
-            for (PascalRoutine method : impl.getMethods()) {
-                if (methodName.equalsIgnoreCase(method.getName())) {
-                    // Compare signature against the CLASS FORWARD DECLARATION (not
-                    // implementation body) — both have only their own parameters.
-                    boolean sigMatch = false;
-                    if (interfaceSig != null && method instanceof PascalRoutineImpl mi) {
-                        String classSig = mi.getSignatureHash();
-                        LOG.debug("[GoToImpl]   comparing sigs: interface='" + interfaceSig +
-                                "' class='" + classSig + "' for " + impl.getName() + "." + method.getName());
-                        sigMatch = interfaceSig.equalsIgnoreCase(classSig);
-                    }
-
-                    PascalRoutine target = method.getImplementation();
-                    if (target == null) target = method;
-                    allMatches.add(target);
-                    if (sigMatch) sigMatches.add(target);
+        PascalTypeGraph.getInstance(project).processSubtypes(interfaceType, subtype -> {
+            if (subtype.getKind() != TypeKind.CLASS) return true;
+            for (PascalRoutine method : findMethods(subtype, methodName, project)) {
+                // Compare signature against the CLASS FORWARD DECLARATION (not
+                // implementation body) — both have only their own parameters.
+                if (method.isImplementation()) continue;
+                boolean sigMatch = false;
+                if (expectedSig != null && method instanceof PascalRoutineImpl mi) {
+                    String classSig = mi.getSignatureHash();
+                    LOG.debug("[GoToImpl]   comparing sigs: interface='" + expectedSig +
+                            "' class='" + classSig + "' for " + subtype.getName() + "." + method.getName());
+                    sigMatch = expectedSig.equalsIgnoreCase(classSig);
                 }
+
+                PascalRoutine target = method.getImplementation();
+                if (target == null) target = method;
+                allMatches.add(target);
+                if (sigMatch) sigMatches.add(target);
             }
-        }
+            return true;
+        });
 
         // Prefer signature-matched overloads; fall back to all name matches
         List<PascalRoutine> results = sigMatches.isEmpty() ? allMatches : sigMatches;
@@ -225,18 +220,49 @@ public class PascalImplementationSearcher
         if (interfaceName == null || propertyName == null) return;
 
         Project project = interfaceType.getProject();
-        Collection<PascalTypeDefinition> implementors = PascalImplementorsIndex.findImplementors(interfaceName, project);
+        PascalTypeGraph.getInstance(project).processSubtypes(interfaceType, subtype -> {
+            if (subtype.getKind() != TypeKind.CLASS) return true;
+            for (PascalProperty prop : findProperties(subtype, propertyName, project)) {
+                if (!consumer.process(prop)) return false;
+            }
+            return true;
+        });
+    }
 
-        for (PascalTypeDefinition impl : implementors) {
-            if (impl.getTypeKind() != TypeKind.CLASS) continue;
-            if (!ancestorListContains(impl, interfaceName)) continue;
+    /**
+     * Methods named {@code name} declared in {@code subtype}. The scoped routine index only
+     * has entries for types with a known unit; the others are read from the declaration.
+     */
+    @NotNull
+    private static Collection<PascalRoutine> findMethods(@NotNull PascalTypeGraph.Subtype subtype,
+                                                         @NotNull String name, @NotNull Project project) {
+        if (!subtype.getUnitName().isEmpty()) {
+            return PascalScopedRoutineIndex.find(
+                    (subtype.getUnitName() + "#" + subtype.getName() + "#" + name).toLowerCase(), project);
+        }
+        PascalTypeDefinition element = subtype.getElement();
+        if (element == null) return List.of();
+        List<PascalRoutine> result = new ArrayList<>();
+        for (PascalRoutine method : element.getMethods()) {
+            if (name.equalsIgnoreCase(method.getName())) result.add(method);
+        }
+        return result;
+    }
 
-            for (PascalProperty prop : impl.getProperties()) {
-                if (propertyName.equalsIgnoreCase(prop.getName())) {
-                    if (!consumer.process(prop)) return;
-                }
-            }
+    /** Properties named {@code name} declared in {@code subtype}, found the same way as {@link #findMethods}. */
+    @NotNull
+    private static Collection<PascalProperty> findProperties(@NotNull PascalTypeGraph.Subtype subtype,
+                                                             @NotNull String name, @NotNull Project project) {
+        if (!subtype.getUnitName().isEmpty()) {
+            return PascalScopedMemberIndex.findProperties(subtype.getUnitName(), subtype.getName(), name, project);
+        }
+        PascalTypeDefinition element = subtype.getElement();
+        if (element == null) return List.of();
+        List<PascalProperty> result = new ArrayList<>();
+        for (PascalProperty property : element.getProperties()) {
+            if (name.equalsIgnoreCase(property.getName())) result.add(property);
         }
+        return result;
     }
 
     /**
@@ -301,15 +327,4 @@ public class PascalImplementationSearcher
         if (dotIdx >= 0) name = name.substring(dotIdx + 1);
         return name;
     }
-
-    /**
-     * Check if the type's ancestor list contains the given simple name (case-insensitive).
-     */
-    private boolean ancestorListContains(@NotNull PascalTypeDefinition type, @NotNull String simpleName) {
-        for (String ancestor : type.getAllAncestorNames()) {
-            String stripped = stripQualifiers(ancestor);
-            if (simpleName.equalsIgnoreCase(stripped)) return true;
-        }
-        return false;
-    }
 }
@@ -0,0 +1,669 @@
+package nl.akiar.pascal.project;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streaming evaluator for the MSBuild subset used by Delphi project files (.dproj, .optset).
+ * <p>
+ * Properties are evaluated in document order the way MSBuild does: a {@code PropertyGroup} or property
+ * counts only when its {@code Condition} holds, and {@code $(Name)} in values and conditions expands to the
+ * property's current value, so {@code <DCC_UnitSearchPath>lib;$(DCC_UnitSearchPath)</DCC_UnitSearchPath>}
+ * accumulates. Names from the environment (Config, Platform, BDS, ...) act as global properties the project
+ * cannot overwrite; anything else falls back to the process environment. {@code <Import>}s of option sets are
+ * evaluated inline, as are option sets named by the active {@code BuildConfiguration} chain in older projects.
+ * <p>
+ * Conditions support {@code ==}, {@code !=}, numeric comparisons, {@code and}, {@code or}, {@code !},
+ * {@code Exists()} and {@code HasTrailingSlash()}; one that cannot be parsed is treated as true. Property
+ * functions ({@code $([System.IO.Path]::...)}) are not evaluated and expand to nothing.
+ * <p>
+ * Results are memoized per project file and environment, and reused while the modification stamps of
+ * every file read (or probed by {@code Exists()}) are unchanged. Files are read with direct I/O to avoid
+ * VFS locks during indexing.
+ */
+public final class MsBuildEvaluator {
+    private static final Logger LOG = Logger.getInstance(MsBuildEvaluator.class);
+
+    /** Stands in for an undefined property, so paths built from one can be dropped instead of misread. */
+    private static final char UNDEFINED = '\uFFFF';
+    private static final int MAX_IMPORT_DEPTH = 8;
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+    private static final Map<MemoKey, Memo> MEMO = new ConcurrentHashMap<>();
+
+    private MsBuildEvaluator() {
+    }
+
+    /** The evaluated state of a project: its final properties, references and the files it was read from. */
+    public static final class Result {
+        private final Map<String, String> properties;
+        private final List<String> references;
+        private final List<Path> inputs;
+
+        Result(@NotNull Map<String, String> properties, @NotNull List<String> references, @NotNull List<Path> inputs) {
+            this.properties = properties;
+            this.references = references;
+            this.inputs = inputs;
+        }
+
+        /** Final value of a property (case-insensitive), with undefined macros expanded to nothing. */
+        @Nullable
+        public String getProperty(@NotNull String name) {
+            String value = properties.get(name);
+            return value != null ? value.replace(String.valueOf(UNDEFINED), "") : null;
+        }
+
+        /**
+         * A {@code ;}-separated property such as {@code DCC_UnitSearchPath}: trimmed, distinct entries,
+         * without the ones that referenced an undefined property.
+         */
+        @NotNull
+        public List<String> getList(@NotNull String name) {
+            return splitList(properties.get(name));
+        }
+
+        /** {@code Include}s of the active {@code DCCReference} items, expanded. */
+        @NotNull
+        public List<String> getReferences() {
+            return references;
+        }
+
+        /** Every file read or probed, whether or not it exists; a change to any of them invalidates the result. */
+        @NotNull
+        public List<Path> getInputs() {
+            return inputs;
+        }
+    }
+
+    /**
+     * Evaluate {@code projectFile} with the given global properties, or return the memoized result
+     * when neither the environment nor any input file changed since.
+     */
+    @NotNull
+    public static Result evaluate(@NotNull Path projectFile, @NotNull Map<String, String> environment) {
+        MemoKey key = new MemoKey(projectFile.toAbsolutePath().normalize(), new HashMap<>(environment));
+        Memo memo = MEMO.get(key);
+        if (memo != null && memo.isValid()) return memo.result;
+
+        Evaluation evaluation = new Evaluation(key.projectFile(), environment);
+        Result result = evaluation.run();
+        MEMO.put(key, new Memo(evaluation.stamps, result));
+        return result;
+    }
+
+    /** Drop memoized results; {@link PascalProjectService} does so when its project is closed. */
+    public static void clearCache() {
+        MEMO.clear();
+    }
+
+    @NotNull
+    static List<String> splitList(@Nullable String value) {
+        if (value == null || value.isEmpty()) return List.of();
+        Set<String> entries = new LinkedHashSet<>();
+        for (String entry : value.split(";")) {
+            String trimmed = entry.trim();
+            if (!trimmed.isEmpty() && trimmed.indexOf(UNDEFINED) < 0) entries.add(trimmed);
+        }
+        return List.copyOf(entries);
+    }
+
+    private record Stamp(long modified, long size) {
+        static final Stamp MISSING = new Stamp(-1, -1);
+
+        @NotNull
+        static Stamp of(@NotNull Path path) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                return new Stamp(attributes.lastModifiedTime().toMillis(), attributes.size());
+            } catch (IOException | SecurityException e) {
+                return MISSING;
+            }
+        }
+    }
+
+    /** A project file evaluated under one environment; switching Config or Platform back reuses the earlier result. */
+    private record MemoKey(Path projectFile, Map<String, String> environment) {
+    }
+
+    private record Memo(Map<Path, Stamp> stamps, Result result) {
+        boolean isValid() {
+            for (Map.Entry<Path, Stamp> entry : stamps.entrySet()) {
+                if (!entry.getValue().equals(Stamp.of(entry.getKey()))) return false;
+            }
+            return true;
+        }
+    }
+
+    /** A {@code BuildConfiguration} item: its parent configuration and the option sets it depends on. */
+    private static final class BuildConfiguration {
+        String parent;
+        final List<String> optsets = new ArrayList<>();
+    }
+
+    /** State of one evaluation: the property table, collected items and every file it looked at. */
+    private static final class Evaluation {
+        final Path projectFile;
+        final Path projectDir;
+        final Map<String, String> globals = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        final Map<String, String> properties = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        final List<String> references = new ArrayList<>();
+        final Map<String, BuildConfiguration> configurations = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        final Map<Path, Stamp> stamps = new LinkedHashMap<>();
+        final Set<Path> evaluated = new HashSet<>();
+
+        Evaluation(@NotNull Path projectFile, @NotNull Map<String, String> environment) {
+            this.projectFile = projectFile;
+            Path parent = projectFile.getParent();
+            this.projectDir = parent != null ? parent : projectFile;
+            globals.putAll(environment);
+        }
+
+        @NotNull
+        Result run() {
+            String fileName = projectFile.getFileName().toString();
+            int dot = fileName.lastIndexOf('.');
+            properties.put("MSBuildProjectDirectory", projectDir.toString());
+            properties.put("MSBuildProjectFullPath", projectFile.toString());
+            properties.put("MSBuildProjectName", dot > 0 ? fileName.substring(0, dot) : fileName);
+            properties.put("PROJECTDIR", projectDir.toString());
+
+            evaluateFile(projectFile, 0);
+
+            // Older projects name their option sets only in the BuildConfiguration items; apply the active
+            // configuration's chain from Base down, unless the project already imported them
+            for (String optset : activeConfigurationOptsets()) {
+                evaluateFile(resolve(projectDir, optset), 1);
+            }
+
+            Map<String, String> result = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            result.putAll(properties);
+            result.putAll(globals);
+            return new Result(Collections.unmodifiableMap(result), List.copyOf(references), List.copyOf(stamps.keySet()));
+        }
+
+        private void evaluateFile(@NotNull Path file, int depth) {
+            Path normalized = file.toAbsolutePath().normalize();
+            stamps.putIfAbsent(normalized, Stamp.of(normalized));
+            if (depth > MAX_IMPORT_DEPTH || !evaluated.add(normalized)) return;
+
+            byte[] bytes;
+            try {
+                bytes = Files.readAllBytes(normalized);
+            } catch (NoSuchFileException e) {
+                LOG.debug("[MsBuild] Missing project file: " + normalized);
+                return;
+            } catch (IOException e) {
+                LOG.warn("[MsBuild] Could not read " + normalized, e);
+                return;
+            }
+
+            Path directory = normalized.getParent();
+            String previousThisFile = properties.put("MSBuildThisFileDirectory",
+                    directory != null ? directory + File.separator : "");
+            XMLStreamReader reader = null;
+            try {
+                reader = XML_INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream(bytes));
+                readProject(reader, directory, depth);
+            } catch (XMLStreamException e) {
+                LOG.warn("[MsBuild] Failed to parse " + normalized + ": " + e.getMessage());
+            } finally {
+                if (reader != null) {
+                    try {
+                        reader.close();
+                    } catch (XMLStreamException ignored) {
+                    }
+                }
+                if (previousThisFile != null) properties.put("MSBuildThisFileDirectory", previousThisFile);
+                else properties.remove("MSBuildThisFileDirectory");
+            }
+        }
+
+        /** One pass over {@code <Project>}: groups at level 2, properties and items at level 3. */
+        private void readProject(@NotNull XMLStreamReader reader, @Nullable Path directory, int depth)
+                throws XMLStreamException {
+            int level = 0;
+            String group = null;
+            boolean groupActive = false;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    level--;
+                    continue;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT) continue;
+                level++;
+                String name = reader.getLocalName();
+
+                if (level == 2) {
+                    ProgressManager.checkCanceled();
+                    group = name;
+                    groupActive = false;
+                    switch (name) {
+                        case "PropertyGroup", "ItemGroup" -> groupActive = condition(reader);
+                        case "Import" -> {
+                            if (condition(reader)) importProject(reader.getAttributeValue(null, "Project"), directory, depth);
+                        }
+                        case "ProjectExtensions" -> {
+                            skipElement(reader);
+                            level--;
+                        }
+                        default -> {
+                        }
+                    }
+                } else if (level == 3 && groupActive) {
+                    if ("PropertyGroup".equals(group)) {
+                        boolean active = condition(reader);
+                        String value = readText(reader);
+                        level--;
+                        if (active) setProperty(name, expand(value.trim()));
+                    } else if ("ItemGroup".equals(group)) {
+                        if ("DCCReference".equals(name)) {
+                            String include = reader.getAttributeValue(null, "Include");
+                            if (include != null && condition(reader)) {
+                                String expanded = expand(include).trim();
+                                if (!expanded.isEmpty() && expanded.indexOf(UNDEFINED) < 0) references.add(expanded);
+                            }
+                        } else if ("BuildConfiguration".equals(name)) {
+                            String include = reader.getAttributeValue(null, "Include");
+                            readBuildConfiguration(reader, include);
+                            level--;
+                        }
+                    }
+                }
+            }
+        }
+
+        private void importProject(@Nullable String project, @Nullable Path directory, int depth) {
+            if (project == null || directory == null) return;
+            String expanded = expand(project).trim();
+            // Only option sets carry search paths; MSBuild targets ($(BDS)\Bin\CodeGear.Delphi.Targets) do not
+            if (expanded.isEmpty() || expanded.indexOf(UNDEFINED) >= 0
+                    || !PascalProjectFiles.hasExtension(expanded, ".optset")) {
+                return;
+            }
+            evaluateFile(resolve(directory, expanded), depth + 1);
+        }
+
+        private void readBuildConfiguration(@NotNull XMLStreamReader reader, @Nullable String include)
+                throws XMLStreamException {
+            BuildConfiguration configuration = new BuildConfiguration();
+            int level = 1;
+            while (level > 0 && reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String child = reader.getLocalName();
+                    String text = readText(reader).trim();
+                    if (text.isEmpty()) continue;
+                    switch (child) {
+                        case "CfgParent" -> configuration.parent = text;
+                        case "DependsOn", "DependentOn" -> configuration.optsets.add(text);
+                        default -> {
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    level--;
+                }
+            }
+            if (include != null && !include.isBlank()) configurations.put(include.trim(), configuration);
+        }
+
+        /** Option sets of the active configuration and its ancestors, the root (Base) first. */
+        @NotNull
+        private List<String> activeConfigurationOptsets() {
+            String config = lookup("Config");
+            List<BuildConfiguration> chain = new ArrayList<>();
+            Set<String> seen = new HashSet<>();
+            String name = config != null && config.indexOf(UNDEFINED) < 0 ? config : "Base";
+            while (name != null && seen.add(name.toLowerCase())) {
+                BuildConfiguration configuration = configurations.get(name);
+                if (configuration == null) break;
+                chain.add(configuration);
+                name = configuration.parent;
+            }
+            if (!seen.contains("base") && configurations.containsKey("Base")) chain.add(configurations.get("Base"));
+
+            List<String> optsets = new ArrayList<>();
+            for (int i = chain.size() - 1; i >= 0; i--) {
+                optsets.addAll(chain.get(i).optsets);
+            }
+            return optsets;
+        }
+
+        private void setProperty(@NotNull String name, @NotNull String value) {
+            if (!globals.containsKey(name)) properties.put(name, value);
+        }
+
+        @Nullable
+        String lookup(@NotNull String name) {
+            String value = globals.get(name);
+            if (value == null) value = properties.get(name);
+            if (value == null) {
+                try {
+                    value = System.getenv(name);
+                } catch (SecurityException ignored) {
+                }
+            }
+            return value;
+        }
+
+        /** Expand {@code $(Name)}; undefined names become {@link #UNDEFINED}, property functions nothing. */
+        @NotNull
+        String expand(@NotNull String text) {
+            int start = text.indexOf("$(");
+            if (start < 0) return text;
+            StringBuilder sb = new StringBuilder(text.length());
+            int pos = 0;
+            while (start >= 0) {
+                sb.append(text, pos, start);
+                int end = matchingParen(text, start + 1);
+                if (end < 0) {
+                    pos = start;
+                    break;
+                }
+                String name = text.substring(start + 2, end).trim();
+                if (!name.startsWith("[")) {
+                    String value = lookup(name);
+                    sb.append(value != null ? value : String.valueOf(UNDEFINED));
+                }
+                pos = end + 1;
+                start = text.indexOf("$(", pos);
+            }
+            sb.append(text, pos, text.length());
+            return sb.toString();
+        }
+
+        private boolean condition(@NotNull XMLStreamReader reader) {
+            String condition = reader.getAttributeValue(null, "Condition");
+            if (condition == null || condition.isBlank()) return true;
+            try {
+                return new ConditionParser(condition, this).parse();
+            } catch (IllegalArgumentException e) {
+                LOG.debug("[MsBuild] Unsupported condition, assuming true: " + condition);
+                return true;
+            }
+        }
+
+        boolean exists(@NotNull String path) {
+            if (path.isEmpty() || path.indexOf(UNDEFINED) >= 0) return false;
+            Path resolved;
+            try {
+                resolved = resolve(projectDir, path).toAbsolutePath().normalize();
+            } catch (RuntimeException e) {
+                return false;
+            }
+            Stamp stamp = Stamp.of(resolved);
+            stamps.putIfAbsent(resolved, stamp);
+            return stamp != Stamp.MISSING;
+        }
+    }
+
+    /**
+     * Recursive descent over an MSBuild condition. Operands are expanded when they are compared,
+     * and undefined properties compare as empty.
+     */
+    private static final class ConditionParser {
+        private final String text;
+        private final Evaluation evaluation;
+        private int pos;
+
+        private ConditionParser(@NotNull String text, @NotNull Evaluation evaluation) {
+            this.text = text;
+            this.evaluation = evaluation;
+        }
+
+        boolean parse() {
+            boolean value = parseOr();
+            skipWhitespace();
+            if (pos < text.length()) throw new IllegalArgumentException("Trailing input at " + pos);
+            return value;
+        }
+
+        private boolean parseOr() {
+            boolean value = parseAnd();
+            while (matchKeyword("or")) {
+                boolean right = parseAnd();
+                value = value || right;
+            }
+            return value;
+        }
+
+        private boolean parseAnd() {
+            boolean value = parseUnary();
+            while (matchKeyword("and")) {
+                boolean right = parseUnary();
+                value = value && right;
+            }
+            return value;
+        }
+
+        private boolean parseUnary() {
+            skipWhitespace();
+            if (peek() == '!' && peek(1) != '=') {
+                pos++;
+                return !parseUnary();
+            }
+            return parseComparison();
+        }
+
+        private boolean parseComparison() {
+            skipWhitespace();
+            if (peek() == '(') {
+                pos++;
+                boolean value = parseOr();
+                expect(')');
+                return value;
+            }
+            String function = matchFunction();
+            if (function != null) {
+                String argument = operand();
+                expect(')');
+                return switch (function) {
+                    case "exists" -> evaluation.exists(argument);
+                    case "hastrailingslash" -> argument.endsWith("/") || argument.endsWith("\\");
+                    default -> throw new IllegalArgumentException("Unknown function " + function);
+                };
+            }
+
+            String left = operand();
+            skipWhitespace();
+            String operator = matchOperator();
+            if (operator == null) return isTrue(left);
+            String right = operand();
+            return compare(left, operator, right);
+        }
+
+        @NotNull
+        private String operand() {
+            skipWhitespace();
+            if (pos >= text.length()) throw new IllegalArgumentException("Missing operand");
+            String raw;
+            if (peek() == '\'') {
+                int end = text.indexOf('\'', pos + 1);
+                if (end < 0) throw new IllegalArgumentException("Unterminated string");
+                raw = text.substring(pos + 1, end);
+                pos = end + 1;
+            } else {
+                int start = pos;
+                while (pos < text.length()) {
+                    char c = text.charAt(pos);
+                    if (c == '$' && peek(1) == '(') {
+                        int end = matchingParen(text, pos + 1);
+                        if (end < 0) throw new IllegalArgumentException("Unterminated property");
+                        pos = end + 1;
+                        continue;
+                    }
+                    if (Character.isWhitespace(c) || "()=!<>".indexOf(c) >= 0) break;
+                    pos++;
+                }
+                if (start == pos) throw new IllegalArgumentException("Missing operand at " + pos);
+                raw = text.substring(start, pos);
+            }
+            return evaluation.expand(raw).replace(String.valueOf(UNDEFINED), "");
+        }
+
+        @Nullable
+        private String matchOperator() {
+            for (String operator : new String[]{"==", "!=", "<=", ">=", "<", ">"}) {
+                if (text.startsWith(operator, pos)) {
+                    pos += operator.length();
+                    return operator;
+                }
+            }
+            return null;
+        }
+
+        /** {@code Exists(} or {@code HasTrailingSlash(}, consumed; the lowercase name, or null. */
+        @Nullable
+        private String matchFunction() {
+            int start = pos;
+            while (pos < text.length() && Character.isLetter(text.charAt(pos))) pos++;
+            int end = pos;
+            skipWhitespace();
+            if (end > start && peek() == '(') {
+                pos++;
+                return text.substring(start, end).toLowerCase();
+            }
+            pos = start;
+            return null;
+        }
+
+        private boolean matchKeyword(@NotNull String keyword) {
+            skipWhitespace();
+            int end = pos + keyword.length();
+            if (text.regionMatches(true, pos, keyword, 0, keyword.length())
+                    && (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)))) {
+                pos = end;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            skipWhitespace();
+            if (peek() != c) throw new IllegalArgumentException("Expected '" + c + "' at " + pos);
+            pos++;
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+        }
+
+        private char peek() {
+            return peek(0);
+        }
+
+        private char peek(int ahead) {
+            return pos + ahead < text.length() ? text.charAt(pos + ahead) : '\0';
+        }
+
+        private static boolean isTrue(@NotNull String value) {
+            return switch (value.toLowerCase()) {
+                case "true", "on", "yes", "!false", "!off", "!no" -> true;
+                case "false", "off", "no", "!true", "!on", "!yes", "" -> false;
+                default -> throw new IllegalArgumentException("Not a boolean: " + value);
+            };
+        }
+
+        private static boolean compare(@NotNull String left, @NotNull String operator, @NotNull String right) {
+            return switch (operator) {
+                case "==" -> left.equalsIgnoreCase(right);
+                case "!=" -> !left.equalsIgnoreCase(right);
+                default -> {
+                    double l = parseNumber(left);
+                    double r = parseNumber(right);
+                    yield switch (operator) {
+                        case "<" -> l < r;
+                        case ">" -> l > r;
+                        case "<=" -> l <= r;
+                        default -> l >= r;
+                    };
+                }
+            };
+        }
+
+        private static double parseNumber(@NotNull String value) {
+            try {
+                String trimmed = value.trim();
+                if (trimmed.startsWith("0x") || trimmed.startsWith("0X")) return Long.parseLong(trimmed.substring(2), 16);
+                return Double.parseDouble(trimmed);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not a number: " + value);
+            }
+        }
+    }
+
+    /** Index of the {@code )} closing the {@code (} at {@code open}, or -1. */
+    private static int matchingParen(@NotNull String text, int open) {
+        int depth = 0;
+        for (int i = open; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '(') depth++;
+            else if (c == ')' && --depth == 0) return i;
+        }
+        return -1;
+    }
+
+    /** A path from a project file, with either separator, against {@code base} unless it is absolute. */
+    @NotNull
+    static Path resolve(@NotNull Path base, @NotNull String path) {
+        String normalized = path.replace('\\', '/');
+        if (normalized.startsWith("/") || (normalized.length() > 1 && normalized.charAt(1) == ':')) {
+            return Path.of(normalized);
+        }
+        return base.resolve(normalized);
+    }
+
+    /** Text content of the current element, tolerating child elements; leaves the reader on its end tag. */
+    @NotNull
+    private static String readText(@NotNull XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder sb = new StringBuilder();
+        int level = 1;
+        while (level > 0 && reader.hasNext()) {
+            int event = reader.next();
+            switch (event) {
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> {
+                    if (level == 1) sb.append(reader.getText());
+                }
+                case XMLStreamConstants.START_ELEMENT -> level++;
+                case XMLStreamConstants.END_ELEMENT -> level--;
+                default -> {
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void skipElement(@NotNull XMLStreamReader reader) throws XMLStreamException {
+        int level = 1;
+        while (level > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) level++;
+            else if (event == XMLStreamConstants.END_ELEMENT) level--;
+        }
+    }
+
+    @NotNull
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+}
@@ -0,0 +1,188 @@
+package nl.akiar.pascal.project;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.fileTypes.FileTypeRegistry;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.roots.ex.ProjectRootManagerEx;
+import com.intellij.openapi.util.EmptyRunnable;
+import com.intellij.openapi.vfs.VFileProperty;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.newvfs.NewVirtualFile;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCopyEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCreateEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import nl.akiar.pascal.PascalFileType;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Shared plumbing for the services that derive library roots from Delphi project files
+ * (.dproj, .optset, .dpr): which paths a batch of VFS events touched, and the roots change
+ * they fire when the derived directories actually changed. Caches keyed by unit use
+ * {@link #deletesUnits} and {@link #addsOrMovesUnits} to ignore VFS traffic that cannot
+ * change which units exist, such as builds and VCS operations outside the source roots.
+ */
+public final class PascalProjectFiles {
+    private PascalProjectFiles() {
+    }
+
+    /**
+     * Paths touched by {@code events} that {@code tracked} accepts, both before and after a
+     * move or rename. A directory that is created, copied, deleted, moved or renamed also
+     * touches every {@code known} path below its old and new location, since no event is
+     * sent for its children.
+     */
+    @NotNull
+    public static Set<String> changedPaths(@NotNull List<? extends VFileEvent> events,
+                                           @NotNull Predicate<String> tracked,
+                                           @NotNull Collection<String> known) {
+        Set<String> changed = new LinkedHashSet<>();
+        for (VFileEvent event : events) {
+            String path = event.getPath();
+            String oldPath = null;
+            if (event instanceof VFileMoveEvent move) {
+                oldPath = move.getOldPath();
+            } else if (event instanceof VFilePropertyChangeEvent property && property.isRename()) {
+                oldPath = property.getOldPath();
+            } else if (event instanceof VFilePropertyChangeEvent) {
+                continue;
+            }
+            if (tracked.test(path)) changed.add(path);
+            if (oldPath != null && tracked.test(oldPath)) changed.add(oldPath);
+
+            if (!isDirectory(event)) continue;
+            if (oldPath != null) addBelow(oldPath, known, changed);
+            addBelow(path, known, changed);
+        }
+        return changed;
+    }
+
+    /**
+     * Directories that {@code events} create, copy, move or rename, at their new path. Their
+     * contents arrive without events of their own, so a caller looking for files anywhere
+     * below has to walk them.
+     */
+    @NotNull
+    public static Set<String> addedDirectories(@NotNull List<? extends VFileEvent> events) {
+        Set<String> added = new LinkedHashSet<>();
+        for (VFileEvent event : events) {
+            boolean arrives = event instanceof VFileCreateEvent || event instanceof VFileCopyEvent
+                    || event instanceof VFileMoveEvent
+                    || event instanceof VFilePropertyChangeEvent property && property.isRename();
+            if (arrives && isDirectory(event)) added.add(event.getPath());
+        }
+        return added;
+    }
+
+    private static boolean isDirectory(@NotNull VFileEvent event) {
+        if (event instanceof VFileCreateEvent create) return create.isDirectory();
+        return event.getFile() != null && event.getFile().isDirectory();
+    }
+
+    private static void addBelow(@NotNull String directory, @NotNull Collection<String> known, @NotNull Set<String> into) {
+        String prefix = directory + "/";
+        for (String knownPath : known) {
+            if (knownPath.startsWith(prefix)) into.add(knownPath);
+        }
+    }
+
+    /**
+     * For {@code BulkFileListener.before}: true if {@code events} delete a Pascal file, or a
+     * directory the VFS knows to hold one, from the project's content or libraries. Deleted
+     * files can no longer be inspected once the events are applied.
+     */
+    public static boolean deletesUnits(@NotNull Project project, @NotNull List<? extends VFileEvent> events) {
+        for (VFileEvent event : events) {
+            if (!(event instanceof VFileDeleteEvent)) continue;
+            VirtualFile file = event.getFile();
+            if (file.isValid() && isInProject(project, file) && holdsUnits(file, true)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * For {@code BulkFileListener.after}: true if {@code events} create, copy, move or rename a
+     * Pascal file, or a directory holding one, in the project's content or libraries, at its old
+     * or new location. Content changes and deletions are not included.
+     */
+    public static boolean addsOrMovesUnits(@NotNull Project project, @NotNull List<? extends VFileEvent> events) {
+        for (VFileEvent event : events) {
+            if (event instanceof VFileContentChangeEvent || event instanceof VFileDeleteEvent) continue;
+            boolean renamedUnit = false;
+            if (event instanceof VFilePropertyChangeEvent property) {
+                if (!property.isRename()) continue;
+                renamedUnit = property.getOldValue() instanceof String oldName && isUnitName(oldName);
+            }
+            VirtualFile file = event.getFile();
+            if (file == null || !file.isValid()) continue;
+            VirtualFile oldParent = event instanceof VFileMoveEvent move ? move.getOldParent() : null;
+            boolean inProject = isInProject(project, file) || oldParent != null && isInProject(project, oldParent);
+            if (inProject && (renamedUnit || holdsUnits(file, false))) return true;
+        }
+        return false;
+    }
+
+    private static boolean isInProject(@NotNull Project project, @NotNull VirtualFile file) {
+        ProjectFileIndex index = ProjectFileIndex.getInstance(project);
+        return index.isInContent(file) || index.isInLibrary(file);
+    }
+
+    private static boolean isUnitName(@NotNull CharSequence name) {
+        return FileTypeRegistry.getInstance().getFileTypeByFileName(name) == PascalFileType.INSTANCE;
+    }
+
+    /**
+     * True if {@code file} is a Pascal file or a directory with one below it, skipping ignored
+     * names and symlinked directories. With {@code cachedOnly} the walk stays within children
+     * the VFS has already loaded, which is where every indexed unit lives.
+     */
+    private static boolean holdsUnits(@NotNull VirtualFile file, boolean cachedOnly) {
+        if (!file.isDirectory()) return isUnitName(file.getNameSequence());
+        FileTypeRegistry registry = FileTypeRegistry.getInstance();
+        Deque<VirtualFile> queue = new ArrayDeque<>();
+        queue.add(file);
+        for (VirtualFile dir; (dir = queue.poll()) != null; ) {
+            Iterable<VirtualFile> children = cachedOnly && dir instanceof NewVirtualFile loaded
+                    ? loaded.getCachedChildren() : Arrays.asList(dir.getChildren());
+            for (VirtualFile child : children) {
+                if (registry.isFileIgnored(child)) continue;
+                if (!child.isDirectory()) {
+                    if (isUnitName(child.getNameSequence())) return true;
+                } else if (!child.is(VFileProperty.SYMLINK)) {
+                    queue.add(child);
+                }
+            }
+        }
+        return false;
+    }
+
+    /** True for a path whose file name ends with {@code extension} (".dproj"), ignoring case. */
+    public static boolean hasExtension(@NotNull String path, @NotNull String extension) {
+        return path.regionMatches(true, path.length() - extension.length(), extension, 0, extension.length());
+    }
+
+    /** Tell the platform that library roots changed; they are re-read from the roots providers. */
+    public static void fireRootsChanged(@NotNull Project project) {
+        ApplicationManager.getApplication().invokeLater(() -> {
+            if (!project.isDisposed()) {
+                WriteAction.run(() -> ProjectRootManagerEx.getInstanceEx(project)
+                        .makeRootsChange(EmptyRunnable.INSTANCE, false, true));
+            }
+        }, ModalityState.nonModal());
+    }
+}
@@ -1,13 +1,18 @@
 package nl.akiar.pascal.project;
 
 import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.Service;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.project.ProjectUtil;
+import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.util.indexing.FileBasedIndex;
 import nl.akiar.pascal.index.PascalUnitIndex;
@@ -15,12 +20,22 @@ import nl.akiar.pascal.settings.PascalSourcePathsSettings;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Project-level service that manages Pascal project structure.
  * Handles .dproj and .optset discovery and unit resolution.
+ * <p>
+ * After the startup scan the model is kept up to date from VFS events: only the .dproj that
+ * changed (or that depends on a changed .optset) is parsed again, and library roots change
+ * only when the union of discovered directories actually differs.
+ * <p>
+ * Project files are evaluated by {@link MsBuildEvaluator} for the Config/Platform and variables
+ * selected in {@link PascalSourcePathsSettings}, so only the search paths active in that build count.
  */
 @Service(Service.Level.PROJECT)
 public final class PascalProjectService implements Disposable {
@@ -28,12 +43,34 @@ public final class PascalProjectService implements Disposable {
     private static final boolean DEBUG = Boolean.getBoolean("pascal.units.debug");
     private final Project project;
 
-    // Discovered source directories
-    private final Set<String> discoveredDirectories = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    /** What one root .dproj contributes: its directories, and the option sets it was evaluated with. */
+    private static final class DprojEntry {
+        final Set<String> directories = new LinkedHashSet<>();
+        final Set<String> optsetPaths = new LinkedHashSet<>();
+    }
+
+    // Discovered source directories: the union of all entries' directories, replaced as a whole
+    private volatile Set<String> discoveredDirectories = Set.of();
+    private final Map<String, DprojEntry> dprojEntries = new ConcurrentHashMap<>();
+    private final Set<String> pendingPaths = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean updateScheduled = new AtomicBoolean();
     private volatile boolean initialized = false;
 
     public PascalProjectService(@NotNull Project project) {
         this.project = project;
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                Set<String> known = new HashSet<>(dprojEntries.keySet());
+                for (DprojEntry entry : dprojEntries.values()) known.addAll(entry.optsetPaths);
+                Set<String> changed = PascalProjectFiles.changedPaths(events, PascalProjectService.this::isTracked, known);
+                if (!changed.isEmpty()) {
+                    // Before the first scan has finished, changes are kept for the pass that follows it
+                    pendingPaths.addAll(changed);
+                    if (initialized) scheduleUpdate();
+                }
+            }
+        });
     }
 
     public static PascalProjectService getInstance(@NotNull Project project) {
@@ -119,9 +156,13 @@ public final class PascalProjectService implements Disposable {
      */
     @NotNull
     public Set<String> getDiscoveredDirectories() {
-        return Collections.unmodifiableSet(discoveredDirectories);
+        return discoveredDirectories;
     }
 
+    /**
+     * Evaluate every root .dproj and the option sets it imports. Runs at startup and when the
+     * build configuration changes; otherwise only the project files named by VFS events are parsed again.
+     */
     public void rescan() {
         if (project.isDisposed()) return;
         if (!com.intellij.diagnostic.LoadingState.COMPONENTS_LOADED.isOccurred()) {
@@ -129,98 +170,208 @@ public final class PascalProjectService implements Disposable {
             return;
         }
         LOG.info("[PascalProject] Starting project rescan");
-        com.intellij.openapi.application.ApplicationManager.getApplication().executeOnPooledThread(() -> {
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            boolean changed;
             synchronized (this) {
-                discoveredDirectories.clear();
-                discoverSourceFiles();
+                long start = System.nanoTime();
+                // The scan reads the current state; only changes from here on need another pass
+                pendingPaths.clear();
+                dprojEntries.clear();
+                for (VirtualFile dprojFile : findRootDprojFiles()) {
+                    dprojEntries.put(dprojFile.getPath(), parseDproj(dprojFile));
+                }
+                changed = updateDirectories("full rescan", start);
                 initialized = true;
             }
-            LOG.info("[PascalProject] Rescan complete. Discovered " + discoveredDirectories.size() + " directories.");
-            // Notify platform that library roots might have changed
-            com.intellij.openapi.application.ApplicationManager.getApplication().invokeLater(() -> {
-                if (!project.isDisposed()) {
-                    com.intellij.openapi.application.WriteAction.run(() -> {
-                        com.intellij.openapi.roots.ex.ProjectRootManagerEx.getInstanceEx(project)
-                                .makeRootsChange(com.intellij.openapi.util.EmptyRunnable.INSTANCE, false, true);
-                    });
-                }
-            }, com.intellij.openapi.application.ModalityState.nonModal());
+            if (changed) PascalProjectFiles.fireRootsChanged(project);
+            if (!pendingPaths.isEmpty()) scheduleUpdate();
         });
     }
 
-    private void discoverSourceFiles() {
+    @NotNull
+    private List<VirtualFile> findRootDprojFiles() {
         VirtualFile baseDir = ProjectUtil.guessProjectDir(project);
-        if (baseDir == null) return;
+        if (baseDir == null) return List.of();
 
-        // 1. Find .dproj files — only in the project root directory (not recursively)
-        //    to focus on the main Delphi project and avoid scanning subdirectories/extra content roots
+        // Only in the project root directory (not recursively) to focus on the main Delphi
+        // project and avoid scanning subdirectories/extra content roots
         List<VirtualFile> dprojFiles = new ArrayList<>();
         for (VirtualFile child : baseDir.getChildren()) {
-            if (!child.isDirectory() && child.getName().toLowerCase().endsWith(".dproj")) {
+            if (!child.isDirectory() && PascalProjectFiles.hasExtension(child.getName(), ".dproj")) {
                 dprojFiles.add(child);
             }
         }
         LOG.info("[PascalProject] Found " + dprojFiles.size() + " .dproj files in project root.");
+        return dprojFiles;
+    }
 
-        for (VirtualFile dprojFile : dprojFiles) {
-            LOG.info("[PascalProject] Parsing dproj: " + dprojFile.getPath());
-            DprojParser.DprojInfo info = DprojParser.parse(dprojFile);
-            VirtualFile dprojDir = dprojFile.getParent();
-
-            // DCCReference
-            for (String ref : info.references) {
-                com.intellij.openapi.progress.ProgressManager.checkCanceled();
-                // Handle both \ and /
-                String normalizedRef = ref.replace('\\', '/');
-                VirtualFile refFile = dprojDir.findFileByRelativePath(normalizedRef);
-                if (refFile != null && refFile.isValid()) {
-                    if (refFile.isDirectory()) {
-                        discoveredDirectories.add(refFile.getPath());
-                    } else {
-                        if (refFile.getParent() != null) {
-                            discoveredDirectories.add(refFile.getParent().getPath());
-                        }
-                    }
-                } else {
-                    LOG.debug("[PascalProject] Could not find DCCReference: " + ref + " relative to " + dprojFile.getPath());
-                }
+    /** A .dproj directly in the project directory, or an .optset anywhere (only referenced ones matter). */
+    private boolean isTracked(@NotNull String path) {
+        if (PascalProjectFiles.hasExtension(path, ".optset")) return true;
+        if (!PascalProjectFiles.hasExtension(path, ".dproj")) return false;
+        VirtualFile baseDir = ProjectUtil.guessProjectDir(project);
+        return baseDir != null && path.equals(baseDir.getPath() + "/" + path.substring(path.lastIndexOf('/') + 1));
+    }
+
+    private void scheduleUpdate() {
+        if (!updateScheduled.compareAndSet(false, true)) return;
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            // Reset first: events arriving while this runs schedule another pass
+            updateScheduled.set(false);
+            if (project.isDisposed()) return;
+            boolean changed;
+            synchronized (this) {
+                changed = applyPendingChanges();
+            }
+            if (changed) PascalProjectFiles.fireRootsChanged(project);
+        });
+    }
+
+    /** Re-parse the .dproj files named by pending events, or depending on a changed .optset. */
+    private boolean applyPendingChanges() {
+        List<String> paths = new ArrayList<>(pendingPaths);
+        pendingPaths.removeAll(paths);
+        long start = System.nanoTime();
+
+        Map<String, Set<String>> optsetsByDproj = new HashMap<>();
+        dprojEntries.forEach((dprojPath, entry) -> optsetsByDproj.put(dprojPath, entry.optsetPaths));
+        Set<String> dprojPaths = affectedDprojPaths(paths, optsetsByDproj);
+        if (dprojPaths.isEmpty()) return false;
+
+        for (String dprojPath : dprojPaths) {
+            VirtualFile dprojFile = LocalFileSystem.getInstance().findFileByPath(dprojPath);
+            if (dprojFile != null && dprojFile.isValid() && !dprojFile.isDirectory() && isTracked(dprojPath)) {
+                dprojEntries.put(dprojPath, parseDproj(dprojFile));
+            } else {
+                dprojEntries.remove(dprojPath);
+            }
+        }
+        return updateDirectories("changed " + paths, start);
+    }
+
+    /**
+     * The .dproj files to parse again for the changed {@code paths}: each changed .dproj, and
+     * each .dproj whose evaluation read a changed .optset.
+     */
+    @NotNull
+    static Set<String> affectedDprojPaths(@NotNull Collection<String> paths,
+                                          @NotNull Map<String, ? extends Collection<String>> optsetsByDproj) {
+        Set<String> dprojPaths = new LinkedHashSet<>();
+        for (String path : paths) {
+            if (PascalProjectFiles.hasExtension(path, ".optset")) {
+                optsetsByDproj.forEach((dprojPath, optsets) -> {
+                    if (optsets.contains(path)) dprojPaths.add(dprojPath);
+                });
+            } else {
+                dprojPaths.add(path);
             }
+        }
+        return dprojPaths;
+    }
 
-            // Optsets
-            LOG.info("[PascalProject] Processing " + info.optsets.size() + " optset references from dproj.");
-            for (String optset : info.optsets) {
-                com.intellij.openapi.progress.ProgressManager.checkCanceled();
-                // Handle both \ and /
-                String normalizedOptset = optset.replace('\\', '/');
-                VirtualFile optsetFile = dprojDir.findFileByRelativePath(normalizedOptset);
-                if (optsetFile != null && optsetFile.isValid()) {
-                    List<String> searchPaths = OptsetParser.parseSearchPaths(optsetFile);
-                    for (String sp : searchPaths) {
-                        // sp can contain macros like $(PROJECTDIR)
-                        String path = sp.replace("$(PROJECTDIR)", ".");
-                        // Handle both \ and /
-                        String normalizedPath = path.replace('\\', '/');
-                        
-                        VirtualFile searchDir;
-                        if (normalizedPath.startsWith("/") || (normalizedPath.length() > 1 && normalizedPath.charAt(1) == ':')) {
-                            // Absolute path (Unix-style or Windows-style)
-                            searchDir = LocalFileSystem.getInstance().findFileByPath(normalizedPath);
-                        } else {
-                            // Relative path - relative to dproj location as clarified by user
-                            searchDir = dprojDir.findFileByRelativePath(normalizedPath);
-                        }
-
-                        if (searchDir != null && searchDir.isDirectory()) {
-                            discoveredDirectories.add(searchDir.getPath());
-                        }
+    /**
+     * Recompute the union of all entries' directories and, if it differs from the current
+     * set, publish it; only then do the library roots need to change. Readers see either
+     * the old or the new set, never one in between.
+     */
+    private boolean updateDirectories(@NotNull String reason, long startNanos) {
+        Set<String> directories = new LinkedHashSet<>();
+        for (DprojEntry entry : dprojEntries.values()) {
+            directories.addAll(entry.directories);
+        }
+        Set<String> current = discoveredDirectories;
+        int added = 0;
+        for (String dir : directories) {
+            if (!current.contains(dir)) added++;
+        }
+        int removed = current.size() - (directories.size() - added);
+        boolean changed = added > 0 || removed > 0;
+        if (changed) discoveredDirectories = Collections.unmodifiableSet(directories);
+        long millis = (System.nanoTime() - startNanos) / 1_000_000;
+        LOG.info("[PascalProject] Project model updated (" + reason + ") in " + millis + "ms: "
+                + dprojEntries.size() + " .dproj, " + directories.size() + " directories (+"
+                + added + "/-" + removed + ")" + (changed ? ", roots changed" : ""));
+        return changed;
+    }
+
+    @NotNull
+    private DprojEntry parseDproj(@NotNull VirtualFile dprojFile) {
+        LOG.info("[PascalProject] Parsing dproj: " + dprojFile.getPath());
+        MsBuildEvaluator.Result result = MsBuildEvaluator.evaluate(Paths.get(dprojFile.getPath()), getBuildEnvironment());
+        VirtualFile dprojDir = dprojFile.getParent();
+        DprojEntry entry = new DprojEntry();
+
+        // Option sets (and anything else) the evaluation read; recorded even when missing,
+        // so creating the file later re-parses this .dproj
+        for (Path input : result.getInputs()) {
+            String path = FileUtil.toSystemIndependentName(input.toString());
+            if (!path.equals(dprojFile.getPath())) entry.optsetPaths.add(path);
+        }
+
+        // DCCReference
+        for (String ref : result.getReferences()) {
+            com.intellij.openapi.progress.ProgressManager.checkCanceled();
+            VirtualFile refFile = findRelative(dprojDir, ref);
+            if (refFile != null && refFile.isValid()) {
+                if (refFile.isDirectory()) {
+                    entry.directories.add(refFile.getPath());
+                } else {
+                    if (refFile.getParent() != null) {
+                        entry.directories.add(refFile.getParent().getPath());
                     }
                 }
+            } else {
+                LOG.debug("[PascalProject] Could not find DCCReference: " + ref + " relative to " + dprojFile.getPath());
             }
         }
+
+        // Search paths active for the selected Config/Platform, macros already expanded
+        List<String> searchPaths = result.getList("DCC_UnitSearchPath");
+        LOG.info("[PascalProject] " + searchPaths.size() + " active search paths in " + dprojFile.getName()
+                + " (" + result.getInputs().size() + " files evaluated)");
+        for (String sp : searchPaths) {
+            com.intellij.openapi.progress.ProgressManager.checkCanceled();
+            VirtualFile searchDir = findRelative(dprojDir, sp);
+            if (searchDir != null && searchDir.isDirectory()) {
+                entry.directories.add(searchDir.getPath());
+            }
+        }
+        return entry;
+    }
+
+    /** A path from a project file, with either separator, relative to the .dproj unless it is absolute. */
+    @Nullable
+    private static VirtualFile findRelative(@NotNull VirtualFile dprojDir, @NotNull String path) {
+        String normalizedPath = path.replace('\\', '/');
+        if (normalizedPath.startsWith("/") || (normalizedPath.length() > 1 && normalizedPath.charAt(1) == ':')) {
+            // Absolute path (Unix-style or Windows-style)
+            return LocalFileSystem.getInstance().findFileByPath(FileUtil.toCanonicalPath(normalizedPath));
+        }
+        return dprojDir.findFileByRelativePath(normalizedPath);
+    }
+
+    /**
+     * Global properties for evaluating project files: the configured MSBuild variables, then the
+     * selected Config and Platform. Blank values are left out so the project's defaults apply.
+     */
+    @NotNull
+    private Map<String, String> getBuildEnvironment() {
+        PascalSourcePathsSettings settings = PascalSourcePathsSettings.getInstance(project);
+        Map<String, String> environment = new LinkedHashMap<>();
+        settings.getMsBuildVariables().forEach((name, value) -> {
+            if (name != null && !name.isBlank() && value != null && !value.isBlank()) {
+                environment.put(name.trim(), value.trim());
+            }
+        });
+        if (!settings.getBuildConfig().isBlank()) environment.put("Config", settings.getBuildConfig().trim());
+        if (!settings.getBuildPlatform().isBlank()) environment.put("Platform", settings.getBuildPlatform().trim());
+        return environment;
     }
 
     @Override
     public void dispose() {
-        discoveredDirectories.clear();
+        MsBuildEvaluator.clearCache();
+        discoveredDirectories = Set.of();
+        dprojEntries.clear();
     }
 }
@@ -33,9 +33,22 @@ public interface PascalProperty extends PsiNameIdentifierOwner, StubBasedPsiElem
     @Nullable
     String getDocComment();
 
+    /**
+     * Get the property header without the trailing semicolon,
+     * e.g. "property Items[Index: Integer]: string read GetItem".
+     */
+    @NotNull
+    String getDeclarationHeader();
+
     @Nullable
     String getVisibility();
 
+    /**
+     * Unit section the property is declared in ("interface" or "implementation").
+     */
+    @Nullable
+    String getSection();
+
     /**
      * Returns the class that contains this property.
      */
@@ -54,12 +54,26 @@ public interface PascalRoutine extends PsiNameIdentifierOwner, StubBasedPsiEleme
     @Nullable
     String getVisibility();
 
+    /**
+     * Returns the unit section the routine is declared in ("interface" or "implementation").
+     * Answered from the stub when available.
+     */
+    @Nullable
+    String getSection();
+
     /**
      * Get the documentation comment preceding this routine definition.
      */
     @Nullable
     String getDocComment();
 
+    /**
+     * Get the routine header up to and including the first semicolon,
+     * e.g. "function Foo(A: Integer): string;". Answered from the stub when available.
+     */
+    @NotNull
+    String getDeclarationHeader();
+
     /**
      * Get the unit name for this routine's file.
      */
@@ -78,6 +78,13 @@ public interface PascalTypeDefinition extends PsiNameIdentifierOwner, StubBasedP
     @NotNull
     String getUnitName();
 
+    /**
+     * Unit section the type is declared in ("interface" or "implementation").
+     * Answered from the stub when available.
+     */
+    @Nullable
+    String getSection();
+
     /**
      * Get the GUID for an interface type.
      * In Delphi, interfaces can have a GUID attribute like:
@@ -57,6 +57,12 @@ public interface PascalVariableDefinition extends PsiNameIdentifierOwner, StubBa
     @Nullable
     String getVisibility();
 
+    /**
+     * Unit section the variable is declared in ("interface" or "implementation").
+     */
+    @Nullable
+    String getSection();
+
     /**
      * Get the containing class name for fields.
      * Null for non-field variables.
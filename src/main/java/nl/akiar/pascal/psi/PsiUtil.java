@@ -125,6 +125,32 @@ public class PsiUtil {
         return name;
     }
 
+    /**
+     * Visibility of a class member, answered from its stub when it has one.
+     * Falls back to {@link #getVisibility(PsiElement)} for other elements.
+     * Implementation bodies of methods report the visibility of their declaration.
+     */
+    @Nullable
+    public static String getMemberVisibility(@NotNull PsiElement element) {
+        if (element instanceof PascalRoutine routine) {
+            String visibility = routine.getVisibility();
+            if (visibility == null && routine.isImplementation()) {
+                PascalRoutine declaration = routine.getDeclaration();
+                if (declaration != null) {
+                    visibility = declaration.getVisibility();
+                }
+            }
+            return visibility;
+        }
+        if (element instanceof PascalProperty property) {
+            return property.getVisibility();
+        }
+        if (element instanceof PascalVariableDefinition variable) {
+            return variable.getVisibility();
+        }
+        return getVisibility(element);
+    }
+
     @Nullable
     public static String getVisibility(@NotNull PsiElement element) {
         // Find the containing TYPE_DEFINITION
@@ -265,6 +291,8 @@ public class PsiUtil {
 
     @Nullable
     public static String getSection(@NotNull PsiElement element) {
+        PascalSectionMap sections = PascalSectionMap.forElement(element);
+        if (sections != null) return sections.getSection(element);
         // Walk up the PSI tree to find containing interface or implementation section
         PsiElement current = element;
         while (current != null) {
@@ -352,6 +380,10 @@ public class PsiUtil {
     }
 
     public static boolean hasParent(@NotNull PsiElement element, @NotNull IElementType type) {
+        if (PascalSectionMap.TRACKED.contains(type)) {
+            PascalSectionMap sections = PascalSectionMap.forElement(element);
+            if (sections != null) return sections.enclosing(element, type) != null;
+        }
         PsiElement parent = element.getParent();
         while (parent != null) {
             if (parent.getNode() != null && parent.getNode().getElementType() == type) return true;
@@ -0,0 +1,67 @@
+package nl.akiar.pascal.psi.impl;
+
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.tree.IElementType;
+import nl.akiar.pascal.PascalTokenTypes;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Doc comments of declarations, read from the PSI when no stub has them.
+ * A doc comment is the run of comments directly preceding a declaration;
+ * an empty line ends it.
+ */
+public final class PascalDocComments {
+    private PascalDocComments() {
+    }
+
+    /** The comments immediately preceding {@code element}, markers stripped, or null if there are none. */
+    @Nullable
+    public static String collect(@NotNull PsiElement element) {
+        StringBuilder docBuilder = new StringBuilder();
+        PsiElement prev = element.getPrevSibling();
+
+        while (prev != null) {
+            IElementType type = prev.getNode().getElementType();
+            if (type == PascalTokenTypes.WHITE_SPACE) {
+                long newlines = prev.getText().chars().filter(c -> c == '\n').count();
+                if (newlines > 1) {
+                    break; // Empty line separates doc comment from declaration
+                }
+                prev = prev.getPrevSibling();
+                continue;
+            }
+            if (type == PascalTokenTypes.BLOCK_COMMENT || type == PascalTokenTypes.LINE_COMMENT) {
+                if (docBuilder.length() > 0) {
+                    docBuilder.insert(0, "\n");
+                }
+                docBuilder.insert(0, extractCommentContent(prev.getText(), type));
+                prev = prev.getPrevSibling();
+            } else {
+                break;
+            }
+        }
+
+        String result = docBuilder.toString().trim();
+        return result.isEmpty() ? null : result;
+    }
+
+    /** Text of one comment without its {@code //}, {@code ///}, {@code { }} or {@code (* *)} markers. */
+    @NotNull
+    public static String extractCommentContent(@NotNull String comment, @NotNull IElementType type) {
+        if (type == PascalTokenTypes.LINE_COMMENT) {
+            if (comment.startsWith("///")) {
+                return comment.substring(3).trim();
+            } else if (comment.startsWith("//")) {
+                return comment.substring(2).trim();
+            }
+        } else if (type == PascalTokenTypes.BLOCK_COMMENT) {
+            if (comment.startsWith("{") && comment.endsWith("}")) {
+                return comment.substring(1, comment.length() - 1).trim();
+            } else if (comment.startsWith("(*") && comment.endsWith("*)")) {
+                return comment.substring(2, comment.length() - 2).trim();
+            }
+        }
+        return comment.trim();
+    }
+}
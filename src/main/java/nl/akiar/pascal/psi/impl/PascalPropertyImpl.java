@@ -234,8 +234,30 @@ public class PascalPropertyImpl extends StubBasedPsiElementBase<PascalPropertySt
     @Override
     @Nullable
     public String getDocComment() {
-        // Simple implementation for now
-        return null;
+        PascalPropertyStub stub = getGreenStub();
+        if (stub != null) {
+            return stub.getDocComment();
+        }
+
+        return PascalDocComments.collect(this);
+    }
+
+    @Override
+    @NotNull
+    public String getDeclarationHeader() {
+        PascalPropertyStub stub = getGreenStub();
+        if (stub != null && stub.getDeclarationHeader() != null) {
+            return stub.getDeclarationHeader();
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (ASTNode child = getNode().getFirstChildNode(); child != null; child = child.getTreeNext()) {
+            IElementType type = child.getElementType();
+            if (type == PascalTokenTypes.SEMI) break;
+            if (type == PascalTokenTypes.LINE_COMMENT || type == PascalTokenTypes.BLOCK_COMMENT) continue;
+            sb.append(child.getText());
+        }
+        return nl.akiar.pascal.stubs.PascalStubText.normalizeHeader(sb.toString());
     }
 
     @Override
@@ -247,9 +269,23 @@ public class PascalPropertyImpl extends StubBasedPsiElementBase<PascalPropertySt
     @Override
     @Nullable
     public String getVisibility() {
+        PascalPropertyStub stub = getGreenStub();
+        if (stub != null) {
+            return stub.getVisibility();
+        }
         return nl.akiar.pascal.psi.PsiUtil.getVisibility(this);
     }
 
+    @Override
+    @Nullable
+    public String getSection() {
+        PascalPropertyStub stub = getGreenStub();
+        if (stub != null) {
+            return stub.getSection();
+        }
+        return nl.akiar.pascal.psi.PsiUtil.getSection(this);
+    }
+
     @Override
     public String toString() {
         return "PascalProperty(" + getName() + ")";
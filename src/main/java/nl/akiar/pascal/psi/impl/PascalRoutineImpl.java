@@ -503,59 +503,60 @@ public class PascalRoutineImpl extends StubBasedPsiElementBase<PascalRoutineStub
     @Override
     @Nullable
     public String getVisibility() {
+        PascalRoutineStub stub = getGreenStub();
+        if (stub != null) {
+            return stub.getVisibility();
+        }
         if (!isMethod()) return null;
         return nl.akiar.pascal.psi.PsiUtil.getVisibility(this);
     }
 
     @Override
     @Nullable
-    public String getDocComment() {
-        // Look for comments immediately preceding this routine
-        StringBuilder docBuilder = new StringBuilder();
-        PsiElement prev = getPrevSibling();
+    public String getSection() {
+        PascalRoutineStub stub = getGreenStub();
+        if (stub != null) {
+            return stub.getSection();
+        }
+        return nl.akiar.pascal.psi.PsiUtil.getSection(this);
+    }
 
-        while (prev != null) {
-            IElementType type = prev.getNode().getElementType();
-            if (type == nl.akiar.pascal.PascalTokenTypes.WHITE_SPACE) {
-                String text = prev.getText();
-                long newlines = text.chars().filter(c -> c == '\n').count();
-                if (newlines > 1) {
-                    break;
-                }
-                prev = prev.getPrevSibling();
-                continue;
-            }
-            if (type == nl.akiar.pascal.PascalTokenTypes.BLOCK_COMMENT || type == nl.akiar.pascal.PascalTokenTypes.LINE_COMMENT) {
-                String commentText = extractCommentContent(prev.getText(), type);
-                if (docBuilder.length() > 0) {
-                    docBuilder.insert(0, "\n");
-                }
-                docBuilder.insert(0, commentText);
-                prev = prev.getPrevSibling();
-            } else {
-                break;
-            }
+    @Override
+    @Nullable
+    public String getDocComment() {
+        PascalRoutineStub stub = getGreenStub();
+        if (stub != null) {
+            return stub.getDocComment();
         }
 
-        String result = docBuilder.toString().trim();
-        return result.isEmpty() ? null : result;
+        return PascalDocComments.collect(this);
     }
 
-    private String extractCommentContent(String comment, IElementType type) {
-        if (type == nl.akiar.pascal.PascalTokenTypes.LINE_COMMENT) {
-            if (comment.startsWith("///")) {
-                return comment.substring(3).trim();
-            } else if (comment.startsWith("//")) {
-                return comment.substring(2).trim();
+    @Override
+    @NotNull
+    public String getDeclarationHeader() {
+        PascalRoutineStub stub = getGreenStub();
+        if (stub != null && stub.getDeclarationHeader() != null) {
+            return stub.getDeclarationHeader();
+        }
+
+        StringBuilder sig = new StringBuilder();
+        for (ASTNode child = getNode().getFirstChildNode(); child != null; child = child.getTreeNext()) {
+            IElementType type = child.getElementType();
+            if (type == PascalTokenTypes.SEMI) {
+                sig.append(";");
+                break;
             }
-        } else if (type == nl.akiar.pascal.PascalTokenTypes.BLOCK_COMMENT) {
-            if (comment.startsWith("{") && comment.endsWith("}")) {
-                return comment.substring(1, comment.length() - 1).trim();
-            } else if (comment.startsWith("(*") && comment.endsWith("*)")) {
-                return comment.substring(2, comment.length() - 2).trim();
+            // Stop at body start keywords
+            if (type == PascalTokenTypes.KW_BEGIN ||
+                type == PascalTokenTypes.KW_VAR ||
+                type == PascalTokenTypes.KW_CONST ||
+                type == PascalTokenTypes.KW_TYPE) {
+                break;
             }
+            sig.append(child.getText());
         }
-        return comment.trim();
+        return nl.akiar.pascal.stubs.PascalStubText.normalizeHeader(sig.toString());
     }
 
 
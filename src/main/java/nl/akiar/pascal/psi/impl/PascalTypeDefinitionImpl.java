@@ -234,63 +234,22 @@ public class PascalTypeDefinitionImpl extends StubBasedPsiElementBase<PascalType
     @Override
     @Nullable
     public String getDocComment() {
-        // Look for comments immediately preceding this type definition
-        // Pascal doc comments can be: { comment }, (* comment *), or // comment
-        StringBuilder docBuilder = new StringBuilder();
-        PsiElement prev = getPrevSibling();
-
-        // Collect consecutive comments (skipping whitespace)
-        while (prev != null) {
-            IElementType type = prev.getNode().getElementType();
-            if (type == PascalTokenTypes.WHITE_SPACE) {
-                // Check if it's more than one newline (empty line) - stop collecting
-                String text = prev.getText();
-                long newlines = text.chars().filter(c -> c == '\n').count();
-                if (newlines > 1) {
-                    break; // Empty line separates doc comment from type
-                }
-                prev = prev.getPrevSibling();
-                continue;
-            }
-            if (type == PascalTokenTypes.BLOCK_COMMENT || type == PascalTokenTypes.LINE_COMMENT) {
-                String commentText = extractCommentContent(prev.getText(), type);
-                if (docBuilder.length() > 0) {
-                    docBuilder.insert(0, "\n");
-                }
-                docBuilder.insert(0, commentText);
-                prev = prev.getPrevSibling();
-            } else {
-                // Hit something other than a comment or whitespace
-                break;
-            }
+        PascalTypeStub stub = getGreenStub();
+        if (stub != null) {
+            return stub.getDocComment();
         }
 
-        String result = docBuilder.toString().trim();
-        return result.isEmpty() ? null : result;
-    }
-
-    private String extractCommentContent(String comment, IElementType type) {
-        if (type == PascalTokenTypes.LINE_COMMENT) {
-            // Remove leading /// or //
-            if (comment.startsWith("///")) {
-                return comment.substring(3).trim();
-            } else if (comment.startsWith("//")) {
-                return comment.substring(2).trim();
-            }
-        } else if (type == PascalTokenTypes.BLOCK_COMMENT) {
-            // Remove { } or (* *)
-            if (comment.startsWith("{") && comment.endsWith("}")) {
-                return comment.substring(1, comment.length() - 1).trim();
-            } else if (comment.startsWith("(*") && comment.endsWith("*)")) {
-                return comment.substring(2, comment.length() - 2).trim();
-            }
-        }
-        return comment.trim();
+        return PascalDocComments.collect(this);
     }
 
     @Override
     @NotNull
     public String getDeclarationHeader() {
+        PascalTypeStub stub = getGreenStub();
+        if (stub != null && stub.getDeclarationHeader() != null) {
+            return stub.getDeclarationHeader();
+        }
+
         StringBuilder sb = new StringBuilder();
         int[] state = {0, 0, 0}; // [foundKindKeyword (0/1), stop (0/1), angleBracketDepth]
         buildSignatureRec(getNode(), sb, getTypeKind(), state);
@@ -643,7 +602,7 @@ public class PascalTypeDefinitionImpl extends StubBasedPsiElementBase<PascalType
     @NotNull
     public List<PsiElement> getMembers(boolean includeAncestors) {
         // Use cached member list when possible
-        return nl.akiar.pascal.resolution.MemberResolutionCache.INSTANCE.getOrComputeMembers(
+        return nl.akiar.pascal.resolution.MemberResolutionCache.getInstance(getProject()).getOrComputeMembers(
             this,
             includeAncestors,
             () -> {
@@ -702,6 +661,16 @@ public class PascalTypeDefinitionImpl extends StubBasedPsiElementBase<PascalType
         return nl.akiar.pascal.psi.PsiUtil.getUnitName(this);
     }
 
+    @Override
+    @Nullable
+    public String getSection() {
+        PascalTypeStub stub = getGreenStub();
+        if (stub != null) {
+            return stub.getSection();
+        }
+        return nl.akiar.pascal.psi.PsiUtil.getSection(this);
+    }
+
     @Override
     @NotNull
     public List<PascalAttribute> getAttributes() {
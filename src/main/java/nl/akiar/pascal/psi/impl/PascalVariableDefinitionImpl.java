@@ -380,10 +380,24 @@ public class PascalVariableDefinitionImpl extends StubBasedPsiElementBase<Pascal
 
     @Nullable
     public String getVisibility() {
+        PascalVariableStub stub = getGreenStub();
+        if (stub != null) {
+            return stub.getVariableKind() == VariableKind.FIELD ? stub.getVisibility() : null;
+        }
         if (getVariableKind() != VariableKind.FIELD) return null;
         return nl.akiar.pascal.psi.PsiUtil.getVisibility(this);
     }
 
+    @Override
+    @Nullable
+    public String getSection() {
+        PascalVariableStub stub = getGreenStub();
+        if (stub != null) {
+            return stub.getSection();
+        }
+        return nl.akiar.pascal.psi.PsiUtil.getSection(this);
+    }
+
     @Override
     @Nullable
     public String getContainingScopeName() {
@@ -442,6 +456,10 @@ public class PascalVariableDefinitionImpl extends StubBasedPsiElementBase<Pascal
 
     @Nullable
     public String getContainingClassName() {
+        PascalVariableStub stub = getGreenStub();
+        if (stub != null) {
+            return stub.getVariableKind() == VariableKind.FIELD ? stub.getOwnerTypeName() : null;
+        }
         if (getVariableKind() == VariableKind.FIELD) {
             return findContainingClassName();
         }
@@ -490,52 +508,7 @@ public class PascalVariableDefinitionImpl extends StubBasedPsiElementBase<Pascal
     @Override
     @Nullable
     public String getDocComment() {
-        // Look for comments immediately preceding this variable definition
-        StringBuilder docBuilder = new StringBuilder();
-        PsiElement prev = getPrevSibling();
-
-        while (prev != null) {
-            IElementType type = prev.getNode().getElementType();
-            if (type == PascalTokenTypes.WHITE_SPACE) {
-                String text = prev.getText();
-                long newlines = text.chars().filter(c -> c == '\n').count();
-                if (newlines > 1) {
-                    break;
-                }
-                prev = prev.getPrevSibling();
-                continue;
-            }
-            if (type == PascalTokenTypes.BLOCK_COMMENT || type == PascalTokenTypes.LINE_COMMENT) {
-                String commentText = extractCommentContent(prev.getText(), type);
-                if (docBuilder.length() > 0) {
-                    docBuilder.insert(0, "\n");
-                }
-                docBuilder.insert(0, commentText);
-                prev = prev.getPrevSibling();
-            } else {
-                break;
-            }
-        }
-
-        String result = docBuilder.toString().trim();
-        return result.isEmpty() ? null : result;
-    }
-
-    private String extractCommentContent(String comment, IElementType type) {
-        if (type == PascalTokenTypes.LINE_COMMENT) {
-            if (comment.startsWith("///")) {
-                return comment.substring(3).trim();
-            } else if (comment.startsWith("//")) {
-                return comment.substring(2).trim();
-            }
-        } else if (type == PascalTokenTypes.BLOCK_COMMENT) {
-            if (comment.startsWith("{") && comment.endsWith("}")) {
-                return comment.substring(1, comment.length() - 1).trim();
-            } else if (comment.startsWith("(*") && comment.endsWith("*)")) {
-                return comment.substring(2, comment.length() - 2).trim();
-            }
-        }
-        return comment.trim();
+        return PascalDocComments.collect(this);
     }
 
     @Override
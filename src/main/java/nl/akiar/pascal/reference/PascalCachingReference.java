@@ -0,0 +1,95 @@
+package nl.akiar.pascal.reference;
+
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.*;
+import com.intellij.psi.impl.source.resolve.ResolveCache;
+import nl.akiar.pascal.resolution.CacheHitCounter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Base for Pascal references that resolve through {@link ResolveCache}.
+ * <p>
+ * The daemon, navigation, Find Usages and documentation each ask the same reference
+ * to resolve; going through the cache means the actual lookup in {@link #resolveInner}
+ * runs once per reference per PSI modification. References are recreated by the
+ * contributor on every {@code getReferences()} call, so equality is defined by
+ * class, element and range to let fresh instances share the cached result.
+ */
+public abstract class PascalCachingReference extends PsiReferenceBase<PsiElement> implements PsiPolyVariantReference {
+    private static final CacheHitCounter STATS = new CacheHitCounter("resolve");
+
+    protected PascalCachingReference(@NotNull PsiElement element, TextRange rangeInElement) {
+        super(element, rangeInElement);
+    }
+
+    /**
+     * Resolve without consulting the cache. Only called by {@link ResolveCache}.
+     */
+    @NotNull
+    protected abstract ResolveResult[] resolveInner(boolean incompleteCode);
+
+    @NotNull
+    @Override
+    public final ResolveResult[] multiResolve(boolean incompleteCode) {
+        boolean[] computed = new boolean[1];
+        ResolveResult[] results = ResolveCache.getInstance(myElement.getProject()).resolveWithCaching(
+                this,
+                (ResolveCache.PolyVariantResolver<PascalCachingReference>) (ref, incomplete) -> {
+                    computed[0] = true;
+                    return ref.resolveInner(incomplete);
+                },
+                true, incompleteCode);
+        if (computed[0]) {
+            STATS.miss();
+        } else {
+            STATS.hit();
+        }
+        return results;
+    }
+
+    @Nullable
+    @Override
+    public PsiElement resolve() {
+        ResolveResult[] results = multiResolve(false);
+        return results.length > 0 ? results[0].getElement() : null;
+    }
+
+    @Override
+    public boolean isReferenceTo(@NotNull PsiElement element) {
+        return PascalReferenceUtil.isEquivalentTarget(resolve(), element);
+    }
+
+    @Override
+    public PsiElement handleElementRename(@NotNull String newElementName) {
+        return nl.akiar.pascal.psi.PascalPsiFactory.INSTANCE.replaceIdentifier(myElement, newElementName);
+    }
+
+    @NotNull
+    @Override
+    public Object[] getVariants() {
+        return new Object[0];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PascalCachingReference other = (PascalCachingReference) o;
+        return myElement.equals(other.myElement) && getRangeInElement().equals(other.getRangeInElement());
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * myElement.hashCode() + getRangeInElement().hashCode();
+    }
+
+    /**
+     * Resolve requests answered from {@link ResolveCache} (hits) versus actually
+     * computed (misses). Hits are redundant resolves that were avoided.
+     */
+    @NotNull
+    public static CacheHitCounter getStats() {
+        return STATS;
+    }
+}
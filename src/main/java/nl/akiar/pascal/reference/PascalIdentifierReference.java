@@ -23,7 +23,7 @@ import java.util.concurrent.ConcurrentHashMap;
  * Reference for Pascal identifiers that can be either types or variables/constants.
  * Routine calls are handled by {@link PascalRoutineCallReference}.
  */
-public class PascalIdentifierReference extends PsiReferenceBase<PsiElement> implements PsiPolyVariantReference {
+public class PascalIdentifierReference extends PascalCachingReference {
     private static final Logger LOG = Logger.getInstance(PascalIdentifierReference.class);
     private final String name;
 
@@ -34,7 +34,7 @@ public class PascalIdentifierReference extends PsiReferenceBase<PsiElement> impl
 
     @NotNull
     @Override
-    public ResolveResult[] multiResolve(boolean incompleteCode) {
+    protected ResolveResult[] resolveInner(boolean incompleteCode) {
         long t0 = System.nanoTime();
         long tVar = t0, tType = t0, tRoutine = t0, tEnum = t0, tBeforeReturn = 0L;
         try {
@@ -99,34 +99,10 @@ public class PascalIdentifierReference extends PsiReferenceBase<PsiElement> impl
                 long enumMs = (tEnum - tRoutine) / 1_000_000L;
                 long toArrayMs = tBeforeReturn > 0 ? (tBeforeReturn - tEnum) / 1_000_000L : -1L;
                 long postReturnMs = tBeforeReturn > 0 ? (tFinally - tBeforeReturn) / 1_000_000L : -1L;
-                LOG.warn("[PascalIdentRef] SLOW multiResolve name='" + name + "' total=" + total + "ms"
+                LOG.warn("[PascalIdentRef] SLOW resolve name='" + name + "' total=" + total + "ms"
                         + " var=" + varMs + "ms type=" + typeMs + "ms routine=" + routineMs + "ms enum=" + enumMs + "ms"
                         + " toArray=" + toArrayMs + "ms postReturn=" + postReturnMs + "ms");
             }
         }
     }
-
-    @Nullable
-    @Override
-    public PsiElement resolve() {
-        ResolveResult[] resolveResults = multiResolve(false);
-        return resolveResults.length > 0 ? resolveResults[0].getElement() : null;
-    }
-
-    @Override
-    public boolean isReferenceTo(@NotNull PsiElement element) {
-        PsiElement resolved = resolve();
-        return PascalReferenceUtil.isEquivalentTarget(resolved, element);
-    }
-
-    @Override
-    public PsiElement handleElementRename(@NotNull String newElementName) {
-        return nl.akiar.pascal.psi.PascalPsiFactory.INSTANCE.replaceIdentifier(myElement, newElementName);
-    }
-
-    @NotNull
-    @Override
-    public Object[] getVariants() {
-        return new Object[0];
-    }
 }
@@ -17,7 +17,7 @@ import java.util.List;
 /**
  * Reference for member access (e.g., Obj.Member).
  */
-public class PascalMemberReference extends PsiReferenceBase<PsiElement> {
+public class PascalMemberReference extends PascalCachingReference {
     private static final Logger LOG = Logger.getInstance(PascalMemberReference.class);
     private final String memberName;
 
@@ -26,9 +26,14 @@ public class PascalMemberReference extends PsiReferenceBase<PsiElement> {
         this.memberName = element.getText().substring(range.getStartOffset(), range.getEndOffset());
     }
 
-    @Nullable
+    @NotNull
     @Override
-    public PsiElement resolve() {
+    protected ResolveResult[] resolveInner(boolean incompleteCode) {
+        return PsiElementResolveResult.createResults(resolveTarget());
+    }
+
+    @Nullable
+    private PsiElement resolveTarget() {
         LOG.debug("[MemberTraversal] PascalMemberReference.resolve element='" + myElement.getText() + "' file='" + myElement.getContainingFile().getName() + "'");
         // Use unified chain resolver so this reference benefits from full member-chain context
         PsiElement resolved = null;
@@ -294,22 +299,4 @@ public class PascalMemberReference extends PsiReferenceBase<PsiElement> {
         }
         return false;
     }
-
-    @Override
-    public boolean isReferenceTo(@NotNull PsiElement element) {
-        PsiElement resolved = resolve();
-        return PascalReferenceUtil.isEquivalentTarget(resolved, element);
-    }
-
-    @Override
-    public PsiElement handleElementRename(@NotNull String newElementName) {
-        return nl.akiar.pascal.psi.PascalPsiFactory.INSTANCE.replaceIdentifier(myElement, newElementName);
-    }
-
-    @NotNull
-    @Override
-    public Object[] getVariants() {
-        // Code completion would go here
-        return new Object[0];
-    }
 }
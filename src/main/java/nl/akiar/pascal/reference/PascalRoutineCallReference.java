@@ -17,7 +17,7 @@ import org.jetbrains.annotations.Nullable;
  * 2. Uses-clause-validated routine lookup
  * Prefers declarations over implementations.
  */
-public class PascalRoutineCallReference extends PsiReferenceBase<PsiElement> {
+public class PascalRoutineCallReference extends PascalCachingReference {
     private final String name;
 
     public PascalRoutineCallReference(@NotNull PsiElement element) {
@@ -25,9 +25,14 @@ public class PascalRoutineCallReference extends PsiReferenceBase<PsiElement> {
         this.name = element.getText();
     }
 
-    @Nullable
+    @NotNull
     @Override
-    public PsiElement resolve() {
+    protected ResolveResult[] resolveInner(boolean incompleteCode) {
+        return PsiElementResolveResult.createResults(resolveTarget());
+    }
+
+    @Nullable
+    private PsiElement resolveTarget() {
         PsiFile file = myElement.getContainingFile();
         int offset = myElement.getTextOffset();
         boolean isInherited = isPrecededByInherited(myElement);
@@ -89,20 +94,4 @@ public class PascalRoutineCallReference extends PsiReferenceBase<PsiElement> {
         }
         return PsiTreeUtil.getParentOfType(element, PascalTypeDefinition.class);
     }
-
-    @Override
-    public boolean isReferenceTo(@NotNull PsiElement element) {
-        return PascalReferenceUtil.isEquivalentTarget(resolve(), element);
-    }
-
-    @Override
-    public PsiElement handleElementRename(@NotNull String newElementName) {
-        return nl.akiar.pascal.psi.PascalPsiFactory.INSTANCE.replaceIdentifier(myElement, newElementName);
-    }
-
-    @NotNull
-    @Override
-    public Object[] getVariants() {
-        return new Object[0];
-    }
 }
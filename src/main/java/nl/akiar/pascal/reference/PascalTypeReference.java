@@ -6,7 +6,6 @@ import com.intellij.psi.*;
 import nl.akiar.pascal.psi.PascalTypeDefinition;
 import nl.akiar.pascal.stubs.PascalTypeIndex;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -14,7 +13,7 @@ import java.util.List;
 /**
  * Reference to a Pascal type definition.
  */
-public class PascalTypeReference extends PsiReferenceBase<PsiElement> implements PsiPolyVariantReference {
+public class PascalTypeReference extends PascalCachingReference {
     private static final Logger LOG = Logger.getInstance(PascalTypeReference.class);
     private final String name;
 
@@ -25,7 +24,7 @@ public class PascalTypeReference extends PsiReferenceBase<PsiElement> implements
 
     @NotNull
     @Override
-    public ResolveResult[] multiResolve(boolean incompleteCode) {
+    protected ResolveResult[] resolveInner(boolean incompleteCode) {
         PascalTypeIndex.TypeLookupResult result = PascalTypeIndex.findTypesWithUsesValidation(
             name, myElement.getContainingFile(), myElement.getTextOffset());
         List<ResolveResult> results = new ArrayList<>();
@@ -52,31 +51,4 @@ public class PascalTypeReference extends PsiReferenceBase<PsiElement> implements
             results.add(new PsiElementResolveResult(type));
         }
     }
-
-    @Nullable
-    @Override
-    public PsiElement resolve() {
-        ResolveResult[] resolveResults = multiResolve(false);
-        if (resolveResults.length > 0) {
-            return resolveResults[0].getElement();
-        }
-        return null;
-    }
-
-    @Override
-    public boolean isReferenceTo(@NotNull PsiElement element) {
-        PsiElement resolved = resolve();
-        return PascalReferenceUtil.isEquivalentTarget(resolved, element);
-    }
-
-    @Override
-    public PsiElement handleElementRename(@NotNull String newElementName) {
-        return nl.akiar.pascal.psi.PascalPsiFactory.INSTANCE.replaceIdentifier(myElement, newElementName);
-    }
-
-    @NotNull
-    @Override
-    public Object[] getVariants() {
-        return new Object[0];
-    }
 }
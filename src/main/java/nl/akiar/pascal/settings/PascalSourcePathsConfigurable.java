@@ -16,7 +16,9 @@ import org.jetbrains.annotations.Nullable;
 import javax.swing.*;
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Settings page for configuring Pascal source paths.
@@ -31,6 +33,10 @@ public class PascalSourcePathsConfigurable implements Configurable {
     private DefaultListModel<String> pathListModel;
     private JBList<String> scopeList;
     private DefaultListModel<String> scopeListModel;
+    private JTextField configField;
+    private JTextField platformField;
+    private JBList<String> variableList;
+    private DefaultListModel<String> variableListModel;
 
     public PascalSourcePathsConfigurable(Project project) {
         this.project = project;
@@ -97,6 +103,41 @@ public class PascalSourcePathsConfigurable implements Configurable {
                 .createPanel();
         mainPanel.add(scopePanel, gbc);
 
+        // --- Build Configuration Section ---
+        gbc.gridy = 4;
+        gbc.weighty = 0.0;
+        gbc.insets = new Insets(10, 0, 0, 0);
+        JLabel buildLabel = new JLabel("<html><b>Build Configuration</b><br>" +
+                "Config and Platform used to evaluate .dproj/.optset files; leave empty for the project's defaults.<br>" +
+                "Variables (e.g. BDS=C:\\Program Files (x86)\\Embarcadero\\Studio\\23.0) expand $(...) in search paths.</html>");
+        buildLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 5, 0));
+        mainPanel.add(buildLabel, gbc);
+
+        gbc.gridy = 5;
+        gbc.insets = new Insets(0, 0, 5, 0);
+        JPanel buildPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        configField = new JTextField(12);
+        platformField = new JTextField(12);
+        buildPanel.add(new JLabel("Config:"));
+        buildPanel.add(configField);
+        buildPanel.add(new JLabel("Platform:"));
+        buildPanel.add(platformField);
+        mainPanel.add(buildPanel, gbc);
+
+        gbc.gridy = 6;
+        gbc.weighty = 0.3;
+        gbc.insets = new Insets(0, 0, 0, 0);
+        variableListModel = new DefaultListModel<>();
+        variableList = new JBList<>(variableListModel);
+        variableList.setEmptyText("No MSBuild variables configured. Click + to add NAME=value.");
+
+        JPanel variablePanel = ToolbarDecorator.createDecorator(variableList)
+                .setAddAction(button -> addVariable())
+                .setRemoveAction(button -> removeVariable())
+                .disableUpDownActions()
+                .createPanel();
+        mainPanel.add(variablePanel, gbc);
+
         reset();
         return mainPanel;
     }
@@ -127,6 +168,23 @@ public class PascalSourcePathsConfigurable implements Configurable {
         return false;
     }
 
+    private void addVariable() {
+        String variable = JOptionPane.showInputDialog(mainPanel, "Enter MSBuild variable (e.g. BDS=C:\\Embarcadero\\Studio\\23.0):", "Add MSBuild Variable", JOptionPane.PLAIN_MESSAGE);
+        if (variable != null) {
+            int eq = variable.indexOf('=');
+            if (eq > 0 && !variable.substring(0, eq).trim().isEmpty()) {
+                variableListModel.addElement(variable.substring(0, eq).trim() + "=" + variable.substring(eq + 1).trim());
+            }
+        }
+    }
+
+    private void removeVariable() {
+        int selectedIndex = variableList.getSelectedIndex();
+        if (selectedIndex >= 0) {
+            variableListModel.remove(selectedIndex);
+        }
+    }
+
     private void addPath() {
         FileChooserDescriptor descriptor = new FileChooserDescriptor(
                 false,  // chooseFiles
@@ -168,7 +226,10 @@ public class PascalSourcePathsConfigurable implements Configurable {
     public boolean isModified() {
         PascalSourcePathsSettings settings = PascalSourcePathsSettings.getInstance(project);
         return !settings.getSourcePaths().equals(getPathsFromUI()) ||
-               !settings.getUnitScopeNames().equals(getScopesFromUI());
+               !settings.getUnitScopeNames().equals(getScopesFromUI()) ||
+               !settings.getBuildConfig().equals(configField.getText().trim()) ||
+               !settings.getBuildPlatform().equals(platformField.getText().trim()) ||
+               !settings.getMsBuildVariables().equals(getVariablesFromUI());
     }
 
     @Override
@@ -185,6 +246,16 @@ public class PascalSourcePathsConfigurable implements Configurable {
         settings.setSourcePaths(newPaths);
         settings.setUnitScopeNames(newScopes);
 
+        String newConfig = configField.getText().trim();
+        String newPlatform = platformField.getText().trim();
+        Map<String, String> newVariables = getVariablesFromUI();
+        boolean buildChanged = !settings.getBuildConfig().equals(newConfig) ||
+                !settings.getBuildPlatform().equals(newPlatform) ||
+                !settings.getMsBuildVariables().equals(newVariables);
+        settings.setBuildConfig(newConfig);
+        settings.setBuildPlatform(newPlatform);
+        settings.setMsBuildVariables(newVariables);
+
         if (pathsChanged) {
             // Notify IntelliJ that library roots changed so DprLibraryRootsProvider
             // is re-evaluated and new/removed paths get indexed/de-indexed.
@@ -198,6 +269,11 @@ public class PascalSourcePathsConfigurable implements Configurable {
             }, com.intellij.openapi.application.ModalityState.nonModal());
         }
 
+        if (buildChanged) {
+            // Re-evaluate the .dproj files; roots change only if the active search paths differ
+            nl.akiar.pascal.project.PascalProjectService.getInstance(project).rescan();
+        }
+
         if (scopesChanged) {
             // Unit scope names affect type resolution (short name → full name mapping).
             // Clear resolution caches and restart the daemon to re-analyze.
@@ -216,6 +292,10 @@ public class PascalSourcePathsConfigurable implements Configurable {
         for (String scope : settings.getUnitScopeNames()) {
             scopeListModel.addElement(scope);
         }
+        configField.setText(settings.getBuildConfig());
+        platformField.setText(settings.getBuildPlatform());
+        variableListModel.clear();
+        settings.getMsBuildVariables().forEach((name, value) -> variableListModel.addElement(name + "=" + value));
     }
 
     private List<String> getPathsFromUI() {
@@ -234,6 +314,18 @@ public class PascalSourcePathsConfigurable implements Configurable {
         return scopes;
     }
 
+    private Map<String, String> getVariablesFromUI() {
+        Map<String, String> variables = new LinkedHashMap<>();
+        for (int i = 0; i < variableListModel.size(); i++) {
+            String variable = variableListModel.get(i);
+            int eq = variable.indexOf('=');
+            if (eq > 0) {
+                variables.put(variable.substring(0, eq), variable.substring(eq + 1));
+            }
+        }
+        return variables;
+    }
+
     @Override
     public void disposeUIResources() {
         mainPanel = null;
@@ -241,5 +333,9 @@ public class PascalSourcePathsConfigurable implements Configurable {
         pathListModel = null;
         scopeList = null;
         scopeListModel = null;
+        configField = null;
+        platformField = null;
+        variableList = null;
+        variableListModel = null;
     }
 }
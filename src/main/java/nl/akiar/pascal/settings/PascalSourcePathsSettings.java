@@ -9,7 +9,9 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Project-level settings for Pascal source paths.
@@ -28,6 +30,12 @@ public final class PascalSourcePathsSettings implements PersistentStateComponent
     public static class State {
         public List<String> sourcePaths = new ArrayList<>();
         public List<String> unitScopeNames = new ArrayList<>();
+        /** Build configuration (Config) .dproj files are evaluated for; empty for the project's default. */
+        public String buildConfig = "";
+        /** Target platform (Platform) .dproj files are evaluated for; empty for the project's default. */
+        public String buildPlatform = "";
+        /** Extra MSBuild properties such as BDS, used to expand $(...) in search paths. */
+        public Map<String, String> msBuildVariables = new LinkedHashMap<>();
     }
 
     private State state = new State();
@@ -69,6 +77,51 @@ public final class PascalSourcePathsSettings implements PersistentStateComponent
         state.unitScopeNames = new ArrayList<>(scopes);
     }
 
+    /**
+     * Get the build configuration project files are evaluated for, or "" for the project's default.
+     */
+    @NotNull
+    public String getBuildConfig() {
+        return state.buildConfig != null ? state.buildConfig : "";
+    }
+
+    /**
+     * Set the build configuration (e.g. Debug, Release).
+     */
+    public void setBuildConfig(@NotNull String config) {
+        state.buildConfig = config;
+    }
+
+    /**
+     * Get the target platform project files are evaluated for, or "" for the project's default.
+     */
+    @NotNull
+    public String getBuildPlatform() {
+        return state.buildPlatform != null ? state.buildPlatform : "";
+    }
+
+    /**
+     * Set the target platform (e.g. Win32, Win64).
+     */
+    public void setBuildPlatform(@NotNull String platform) {
+        state.buildPlatform = platform;
+    }
+
+    /**
+     * Get the MSBuild variables used to expand macros in project files.
+     */
+    @NotNull
+    public Map<String, String> getMsBuildVariables() {
+        return state.msBuildVariables != null ? new LinkedHashMap<>(state.msBuildVariables) : new LinkedHashMap<>();
+    }
+
+    /**
+     * Set the MSBuild variables.
+     */
+    public void setMsBuildVariables(@NotNull Map<String, String> variables) {
+        state.msBuildVariables = new LinkedHashMap<>(variables);
+    }
+
     /**
      * Add a source path to the list.
      */
@@ -21,6 +21,24 @@ public interface PascalPropertyStub extends StubElement<PascalProperty> {
     @Nullable
     String getUnitName();
 
+    /**
+     * Visibility inside the owning type, including the strict variants
+     * ("strict private", "strict protected").
+     */
     @Nullable
     String getVisibility();
+
+    /**
+     * Unit section the property is declared in ("interface" or "implementation").
+     */
+    @Nullable
+    String getSection();
+
+    /** Doc comment preceding the property, capped at {@link PascalStubText#MAX_DOC_COMMENT_LENGTH}; null if none. */
+    @Nullable
+    String getDocComment();
+
+    /** Normalized header (e.g. "property Items[Index: Integer]: string read GetItem"). */
+    @Nullable
+    String getDeclarationHeader();
 }
@@ -48,7 +48,17 @@ public class PascalPropertyStubElementType extends IStubElementType<PascalProper
             // Guard against any exceptions during stub creation
         }
 
-        return new PascalPropertyStubImpl(parentStub, name, typeName, owner, unitName, visibility);
+        String section = null;
+        try {
+            section = nl.akiar.pascal.psi.PsiUtil.getSection(psi);
+        } catch (Exception ignored) {
+            // Guard against any exceptions during stub creation
+        }
+
+        String docComment = PascalStubText.cap(psi.getDocComment(), PascalStubText.MAX_DOC_COMMENT_LENGTH);
+        String header = PascalStubText.cap(psi.getDeclarationHeader(), PascalStubText.MAX_DECLARATION_HEADER_LENGTH);
+
+        return new PascalPropertyStubImpl(parentStub, name, typeName, owner, unitName, visibility, section, docComment, header);
     }
 
     @NotNull
@@ -64,6 +74,9 @@ public class PascalPropertyStubElementType extends IStubElementType<PascalProper
         dataStream.writeName(stub.getContainingClassName());
         dataStream.writeName(stub.getUnitName() == null ? "" : stub.getUnitName());
         dataStream.writeName(stub.getVisibility() == null ? "" : stub.getVisibility());
+        dataStream.writeName(stub.getSection() == null ? "" : stub.getSection());
+        PascalStubText.write(dataStream, stub.getDocComment());
+        PascalStubText.write(dataStream, stub.getDeclarationHeader());
     }
 
     @NotNull
@@ -73,8 +86,15 @@ public class PascalPropertyStubElementType extends IStubElementType<PascalProper
         String typeName = dataStream.readNameString();
         String owner = dataStream.readNameString();
         String unitName = dataStream.readNameString();
-        String visibility = dataStream.readNameString();
-        return new PascalPropertyStubImpl(parentStub, name, typeName, owner, unitName, visibility);
+        String visibility = emptyToNull(dataStream.readNameString());
+        String section = emptyToNull(dataStream.readNameString());
+        String docComment = PascalStubText.read(dataStream);
+        String declarationHeader = PascalStubText.read(dataStream);
+        return new PascalPropertyStubImpl(parentStub, name, typeName, owner, unitName, visibility, section, docComment, declarationHeader);
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
     }
 
     @Override
@@ -16,6 +16,9 @@ public class PascalPropertyStubImpl extends StubBase<PascalProperty> implements
     private final String containingClassName;
     private final String unitName;
     private final String visibility;
+    private final String section;
+    private final String docComment;
+    private final String declarationHeader;
 
     public PascalPropertyStubImpl(
             @Nullable StubElement<?> parent,
@@ -23,13 +26,19 @@ public class PascalPropertyStubImpl extends StubBase<PascalProperty> implements
             @Nullable String typeName,
             @Nullable String containingClassName,
             @Nullable String unitName,
-            @Nullable String visibility) {
+            @Nullable String visibility,
+            @Nullable String section,
+            @Nullable String docComment,
+            @Nullable String declarationHeader) {
         super(parent, PascalElementTypes.PROPERTY_DEFINITION);
         this.name = name;
         this.typeName = typeName;
         this.containingClassName = containingClassName;
         this.unitName = unitName;
         this.visibility = visibility;
+        this.section = section;
+        this.docComment = docComment;
+        this.declarationHeader = declarationHeader;
     }
 
     @Override
@@ -61,4 +70,22 @@ public class PascalPropertyStubImpl extends StubBase<PascalProperty> implements
     public String getVisibility() {
         return visibility;
     }
+
+    @Override
+    @Nullable
+    public String getSection() {
+        return section;
+    }
+
+    @Override
+    @Nullable
+    public String getDocComment() {
+        return docComment;
+    }
+
+    @Override
+    @Nullable
+    public String getDeclarationHeader() {
+        return declarationHeader;
+    }
 }
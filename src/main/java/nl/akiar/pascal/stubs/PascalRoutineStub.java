@@ -33,4 +33,12 @@ public interface PascalRoutineStub extends StubElement<PascalRoutine> {
     /** Section (interface, implementation) where the routine is declared; null if not determined. */
     @Nullable
     String getSection();
+
+    /** Doc comment preceding the routine, capped at {@link PascalStubText#MAX_DOC_COMMENT_LENGTH}; null if none. */
+    @Nullable
+    String getDocComment();
+
+    /** Normalized header up to the first semicolon (e.g. "function Foo(A: Integer): string;"). */
+    @Nullable
+    String getDeclarationHeader();
 }
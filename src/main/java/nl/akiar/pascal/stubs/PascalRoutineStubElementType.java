@@ -98,7 +98,10 @@ public class PascalRoutineStubElementType extends IStubElementType<PascalRoutine
             // Guard null-safety during stub creation
         }
 
-        return new PascalRoutineStubImpl(parentStub, psi.getName(), psi.isImplementation(), ownerName, returnTypeName, unitName, signatureHash, visibility, section);
+        String docComment = PascalStubText.cap(psi.getDocComment(), PascalStubText.MAX_DOC_COMMENT_LENGTH);
+        String header = PascalStubText.cap(psi.getDeclarationHeader(), PascalStubText.MAX_DECLARATION_HEADER_LENGTH);
+
+        return new PascalRoutineStubImpl(parentStub, psi.getName(), psi.isImplementation(), ownerName, returnTypeName, unitName, signatureHash, visibility, section, docComment, header);
     }
 
     @org.jetbrains.annotations.Nullable
@@ -214,6 +217,8 @@ public class PascalRoutineStubElementType extends IStubElementType<PascalRoutine
         dataStream.writeName(stub.getSignatureHash() == null ? "" : stub.getSignatureHash());
         dataStream.writeName(stub.getVisibility() == null ? "" : stub.getVisibility());
         dataStream.writeName(stub.getSection() == null ? "" : stub.getSection());
+        PascalStubText.write(dataStream, stub.getDocComment());
+        PascalStubText.write(dataStream, stub.getDeclarationHeader());
     }
 
     @NotNull
@@ -227,12 +232,14 @@ public class PascalRoutineStubElementType extends IStubElementType<PascalRoutine
         String signatureHash = dataStream.readNameString();
         String visibility = dataStream.readNameString();
         String section = dataStream.readNameString();
+        String docComment = PascalStubText.read(dataStream);
+        String declarationHeader = PascalStubText.read(dataStream);
         if (unitName == null) unitName = "";
         else unitName = unitName.toLowerCase(); // Normalize to lowercase
         if (signatureHash == null) signatureHash = "";
         if (visibility == null || visibility.isEmpty()) visibility = null;
         if (section == null || section.isEmpty()) section = null;
-        return new PascalRoutineStubImpl(parentStub, name, isImplementation, ownerName, returnTypeName, unitName, signatureHash, visibility, section);
+        return new PascalRoutineStubImpl(parentStub, name, isImplementation, ownerName, returnTypeName, unitName, signatureHash, visibility, section, docComment, declarationHeader);
     }
 
     @Override
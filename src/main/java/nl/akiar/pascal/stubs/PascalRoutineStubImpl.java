@@ -15,11 +15,14 @@ public class PascalRoutineStubImpl extends StubBase<PascalRoutine> implements Pa
     private final @Nullable String signatureHash;
     private final @Nullable String visibility;
     private final @Nullable String section;
+    private final @Nullable String docComment;
+    private final @Nullable String declarationHeader;
 
     public PascalRoutineStubImpl(StubElement parent, String name, boolean isImplementation,
                                   @Nullable String containingClassName, @Nullable String returnTypeName,
                                   @Nullable String unitName, @Nullable String signatureHash,
-                                  @Nullable String visibility, @Nullable String section) {
+                                  @Nullable String visibility, @Nullable String section,
+                                  @Nullable String docComment, @Nullable String declarationHeader) {
         super(parent, PascalElementTypes.ROUTINE_DECLARATION);
         this.name = name;
         this.isImplementation = isImplementation;
@@ -29,6 +32,8 @@ public class PascalRoutineStubImpl extends StubBase<PascalRoutine> implements Pa
         this.signatureHash = signatureHash;
         this.visibility = visibility;
         this.section = section;
+        this.docComment = docComment;
+        this.declarationHeader = declarationHeader;
     }
 
     @Override
@@ -54,4 +59,10 @@ public class PascalRoutineStubImpl extends StubBase<PascalRoutine> implements Pa
 
     @Override
     public @Nullable String getSection() { return section; }
+
+    @Override
+    public @Nullable String getDocComment() { return docComment; }
+
+    @Override
+    public @Nullable String getDeclarationHeader() { return declarationHeader; }
 }
@@ -0,0 +1,43 @@
+package nl.akiar.pascal.stubs;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StringStubIndexExtension;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.psi.stubs.StubIndexKey;
+import nl.akiar.pascal.psi.PascalTypeDefinition;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+
+/**
+ * Scoped type index keyed by declaring unit + type name.
+ * Key format: (unit + "#" + name).toLowerCase(), e.g. {@code "system.classes#tstrings"}.
+ * <p>
+ * Together with {@link PascalScopedRoutineIndex} and {@link PascalScopedMemberIndex}
+ * this answers "type X of unit U" and "member M of X in U" without loading U's PSI.
+ */
+public class PascalScopedTypeIndex extends StringStubIndexExtension<PascalTypeDefinition> {
+    public static final StubIndexKey<String, PascalTypeDefinition> KEY =
+            StubIndexKey.createIndexKey("pascal.scoped.type.index");
+
+    @Override
+    public @NotNull StubIndexKey<String, PascalTypeDefinition> getKey() {
+        return KEY;
+    }
+
+    @NotNull
+    public static String key(@NotNull String unitName, @NotNull String typeName) {
+        return (unitName + "#" + typeName).toLowerCase();
+    }
+
+    public static Collection<PascalTypeDefinition> find(@NotNull String unitName, @NotNull String typeName, @NotNull Project project) {
+        return StubIndex.getElements(
+                KEY,
+                key(unitName, typeName),
+                project,
+                GlobalSearchScope.allScope(project),
+                PascalTypeDefinition.class
+        );
+    }
+}
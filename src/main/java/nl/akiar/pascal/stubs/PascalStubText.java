@@ -0,0 +1,51 @@
+package nl.akiar.pascal.stubs;
+
+import com.intellij.psi.stubs.StubInputStream;
+import com.intellij.psi.stubs.StubOutputStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+
+/**
+ * Free-form text stored on stubs for documentation: doc comments and declaration headers.
+ * Both are capped so a huge comment block in an RTL unit cannot bloat the stub index.
+ */
+public final class PascalStubText {
+    /** Doc comments longer than this are truncated when stored on a stub. */
+    public static final int MAX_DOC_COMMENT_LENGTH = 4096;
+
+    /** Declaration headers longer than this are truncated when stored on a stub. */
+    public static final int MAX_DECLARATION_HEADER_LENGTH = 1024;
+
+    private PascalStubText() {
+    }
+
+    @Nullable
+    public static String cap(@Nullable String text, int maxLength) {
+        if (text == null || text.isEmpty()) return null;
+        return text.length() <= maxLength ? text : text.substring(0, maxLength);
+    }
+
+    /**
+     * Normalized form of a declaration header: trimmed, trailing whitespace removed
+     * from each line and blank lines collapsed.
+     */
+    @NotNull
+    public static String normalizeHeader(@NotNull String header) {
+        return header.trim().replaceAll("[ \\t]+\\n", "\n").replaceAll("\\n\\s*\\n+", "\n");
+    }
+
+    /**
+     * Long texts go through writeUTFFast rather than writeName, which interns its argument.
+     */
+    public static void write(@NotNull StubOutputStream dataStream, @Nullable String text) throws IOException {
+        dataStream.writeUTFFast(text == null ? "" : text);
+    }
+
+    @Nullable
+    public static String read(@NotNull StubInputStream dataStream) throws IOException {
+        String text = dataStream.readUTFFast();
+        return text.isEmpty() ? null : text;
+    }
+}
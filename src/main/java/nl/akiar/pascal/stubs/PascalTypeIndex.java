@@ -11,6 +11,7 @@ import com.intellij.psi.stubs.StubIndex;
 import com.intellij.psi.stubs.StubIndexKey;
 import nl.akiar.pascal.dpr.DprProjectService;
 import nl.akiar.pascal.psi.PascalTypeDefinition;
+import nl.akiar.pascal.resolution.PascalNameTable;
 import nl.akiar.pascal.resolution.TransitiveDependencyResolver;
 import nl.akiar.pascal.settings.PascalSourcePathsSettings;
 import nl.akiar.pascal.uses.PascalUsesClauseInfo;
@@ -44,10 +45,13 @@ public class PascalTypeIndex extends StringStubIndexExtension<PascalTypeDefiniti
      * Searches both the project scope and files referenced by .dpr files.
      */
     public static Collection<PascalTypeDefinition> findTypes(@NotNull String name, @NotNull Project project) {
+        // Canonical lowercase key from the project name table (no per-call allocation)
+        String key = PascalNameTable.getInstance(project).canonical(name);
+
         // First, search in project scope
         Collection<PascalTypeDefinition> results = StubIndex.getElements(
                 KEY,
-                name.toLowerCase(),
+                key,
                 project,
                 GlobalSearchScope.allScope(project),
                 PascalTypeDefinition.class
@@ -63,7 +67,7 @@ public class PascalTypeIndex extends StringStubIndexExtension<PascalTypeDefiniti
         if (dprScope != null) {
             return StubIndex.getElements(
                     KEY,
-                    name.toLowerCase(),
+                    key,
                     project,
                     dprScope,
                     PascalTypeDefinition.class
@@ -161,7 +165,9 @@ public class PascalTypeIndex extends StringStubIndexExtension<PascalTypeDefiniti
             int offset) {
 
         Collection<PascalTypeDefinition> allTypes = findTypes(name, originFile.getProject());
-        Set<String> availableUnits = TransitiveDependencyResolver.getAvailableUnits(originFile);
+        TransitiveDependencyResolver.TransitiveDependencyResult deps =
+                TransitiveDependencyResolver.getTransitiveDependencies(originFile);
+        PascalNameTable names = PascalNameTable.getInstance(originFile.getProject());
         PascalUsesClauseUtil.UsesClauseInfo usesInfo = PascalUsesClauseUtil.parseUsesClause(originFile);
         List<String> scopes = PascalSourcePathsSettings.getInstance(originFile.getProject()).getUnitScopeNames();
 
@@ -180,12 +186,13 @@ public class PascalTypeIndex extends StringStubIndexExtension<PascalTypeDefiniti
                 continue;
             }
 
-            String lowerUnit = targetUnit != null ? targetUnit.toLowerCase() : "";
+            int unitId = names.idOf(targetUnit != null ? targetUnit : "");
+            String lowerUnit = names.nameOf(unitId);
 
             // Implicit System availability: System and System.* are considered available
             boolean implicitSystem = lowerUnit.equals("system") || lowerUnit.startsWith("system.");
 
-            if (implicitSystem || availableUnits.contains(lowerUnit)) {
+            if (implicitSystem || deps.isUnitAvailable(unitId)) {
                 inScope.add(typeDef);
                 if (!implicitSystem) {
                     // no via-scope mark for implicit System
@@ -193,8 +200,7 @@ public class PascalTypeIndex extends StringStubIndexExtension<PascalTypeDefiniti
             } else {
                 boolean foundViaScope = false;
                 for (String scope : scopes) {
-                    String scopedName = (scope + "." + targetUnit).toLowerCase();
-                    if (availableUnits.contains(scopedName)) {
+                    if (deps.isUnitAvailable(names.idOf(scope + "." + targetUnit))) {
                         inScope.add(typeDef);
                         viaScopeNames.add(typeDef);
                         foundViaScope = true;
@@ -203,7 +209,7 @@ public class PascalTypeIndex extends StringStubIndexExtension<PascalTypeDefiniti
                     String lowerScope = scope.toLowerCase();
                     if (lowerUnit.startsWith(lowerScope + ".")) {
                         String shortName = lowerUnit.substring(lowerScope.length() + 1);
-                        if (availableUnits.contains(shortName)) {
+                        if (deps.isUnitAvailable(names.idOf(shortName))) {
                             inScope.add(typeDef);
                             viaScopeNames.add(typeDef);
                             foundViaScope = true;
@@ -69,4 +69,32 @@ public interface PascalTypeStub extends StubElement<PascalTypeDefinition> {
      */
     @Nullable
     String getHelpedTypeName();
+
+    /**
+     * Doc comment preceding the declaration, capped at
+     * {@link PascalStubText#MAX_DOC_COMMENT_LENGTH}. Null when there is none.
+     */
+    @Nullable
+    String getDocComment();
+
+    /**
+     * Normalized declaration header (e.g. "TMyClass = class(TObject)"), capped at
+     * {@link PascalStubText#MAX_DECLARATION_HEADER_LENGTH}.
+     */
+    @Nullable
+    String getDeclarationHeader();
+
+    /**
+     * Lowercase name of the declaring unit (file name without extension), as
+     * {@code PsiUtil.getUnitName} returns it. Keys {@link PascalScopedTypeIndex}.
+     */
+    @Nullable
+    String getUnitName();
+
+    /**
+     * Unit section the type is declared in ("interface" or "implementation").
+     * Null for types in programs and libraries.
+     */
+    @Nullable
+    String getSection();
 }
@@ -38,8 +38,11 @@ public class PascalTypeStubElementType extends IStubElementType<PascalTypeStub,
         List<String> allAncestors = extractAllAncestorNames(psi);
         List<String> enumValueNames = extractEnumValueNames(psi);
         String helpedTypeName = extractHelperTargetName(psi);
+        String docComment = PascalStubText.cap(psi.getDocComment(), PascalStubText.MAX_DOC_COMMENT_LENGTH);
+        String header = PascalStubText.cap(psi.getDeclarationHeader(), PascalStubText.MAX_DECLARATION_HEADER_LENGTH);
         return new PascalTypeStubImpl(parentStub, psi.getName(), psi.getTypeKind(),
-                psi.getTypeParameters(), allAncestors, enumValueNames, helpedTypeName);
+                psi.getTypeParameters(), allAncestors, enumValueNames, helpedTypeName, docComment, header,
+                nl.akiar.pascal.psi.PsiUtil.getUnitName(psi), nl.akiar.pascal.psi.PsiUtil.getSection(psi));
     }
 
     /**
@@ -396,6 +399,10 @@ public class PascalTypeStubElementType extends IStubElementType<PascalTypeStub,
             dataStream.writeName(v);
         }
         dataStream.writeName(stub.getHelpedTypeName());
+        PascalStubText.write(dataStream, stub.getDocComment());
+        PascalStubText.write(dataStream, stub.getDeclarationHeader());
+        dataStream.writeName(stub.getUnitName());
+        dataStream.writeName(stub.getSection());
     }
 
     @Override
@@ -420,7 +427,12 @@ public class PascalTypeStubElementType extends IStubElementType<PascalTypeStub,
             enumValueNames.add(dataStream.readNameString());
         }
         String helpedTypeName = dataStream.readNameString();
-        return new PascalTypeStubImpl(parentStub, name, kind, typeParameters, allAncestorNames, enumValueNames, helpedTypeName);
+        String docComment = PascalStubText.read(dataStream);
+        String declarationHeader = PascalStubText.read(dataStream);
+        String unitName = dataStream.readNameString();
+        String section = dataStream.readNameString();
+        return new PascalTypeStubImpl(parentStub, name, kind, typeParameters, allAncestorNames, enumValueNames,
+                helpedTypeName, docComment, declarationHeader, unitName, section);
     }
 
     @Override
@@ -428,6 +440,10 @@ public class PascalTypeStubElementType extends IStubElementType<PascalTypeStub,
         String name = stub.getName();
         if (name != null) {
             sink.occurrence(PascalTypeIndex.KEY, name.toLowerCase());
+            String unitName = stub.getUnitName();
+            if (unitName != null && !unitName.isEmpty()) {
+                sink.occurrence(PascalScopedTypeIndex.KEY, PascalScopedTypeIndex.key(unitName, name));
+            }
         }
 
         // Index each ancestor name for the implementors reverse index
@@ -21,10 +21,16 @@ public class PascalTypeStubImpl extends StubBase<PascalTypeDefinition> implement
     private final List<String> allAncestorNames;
     private final List<String> enumValueNames;
     private final String helpedTypeName;
+    private final String docComment;
+    private final String declarationHeader;
+    private final String unitName;
+    private final String section;
 
     public PascalTypeStubImpl(StubElement<?> parent, @Nullable String name, @NotNull TypeKind typeKind,
                               @NotNull List<String> typeParameters, @NotNull List<String> allAncestorNames,
-                              @NotNull List<String> enumValueNames, @Nullable String helpedTypeName) {
+                              @NotNull List<String> enumValueNames, @Nullable String helpedTypeName,
+                              @Nullable String docComment, @Nullable String declarationHeader,
+                              @Nullable String unitName, @Nullable String section) {
         super(parent, PascalElementTypes.TYPE_DEFINITION);
         this.name = name;
         this.typeKind = typeKind;
@@ -32,6 +38,36 @@ public class PascalTypeStubImpl extends StubBase<PascalTypeDefinition> implement
         this.allAncestorNames = allAncestorNames;
         this.enumValueNames = enumValueNames;
         this.helpedTypeName = helpedTypeName;
+        this.docComment = docComment;
+        this.declarationHeader = declarationHeader;
+        this.unitName = unitName;
+        this.section = section;
+    }
+
+    /** Constructor without section. */
+    public PascalTypeStubImpl(StubElement<?> parent, @Nullable String name, @NotNull TypeKind typeKind,
+                              @NotNull List<String> typeParameters, @NotNull List<String> allAncestorNames,
+                              @NotNull List<String> enumValueNames, @Nullable String helpedTypeName,
+                              @Nullable String docComment, @Nullable String declarationHeader,
+                              @Nullable String unitName) {
+        this(parent, name, typeKind, typeParameters, allAncestorNames, enumValueNames, helpedTypeName,
+                docComment, declarationHeader, unitName, null);
+    }
+
+    /** Constructor without unit name. */
+    public PascalTypeStubImpl(StubElement<?> parent, @Nullable String name, @NotNull TypeKind typeKind,
+                              @NotNull List<String> typeParameters, @NotNull List<String> allAncestorNames,
+                              @NotNull List<String> enumValueNames, @Nullable String helpedTypeName,
+                              @Nullable String docComment, @Nullable String declarationHeader) {
+        this(parent, name, typeKind, typeParameters, allAncestorNames, enumValueNames, helpedTypeName,
+                docComment, declarationHeader, null);
+    }
+
+    /** Constructor without documentation text. */
+    public PascalTypeStubImpl(StubElement<?> parent, @Nullable String name, @NotNull TypeKind typeKind,
+                              @NotNull List<String> typeParameters, @NotNull List<String> allAncestorNames,
+                              @NotNull List<String> enumValueNames, @Nullable String helpedTypeName) {
+        this(parent, name, typeKind, typeParameters, allAncestorNames, enumValueNames, helpedTypeName, null, null);
     }
 
     /** Backwards-compatible constructor for non-helper types. */
@@ -88,4 +124,27 @@ public class PascalTypeStubImpl extends StubBase<PascalTypeDefinition> implement
     public String getHelpedTypeName() {
         return helpedTypeName;
     }
+
+    @Override
+    @Nullable
+    public String getDocComment() {
+        return docComment;
+    }
+
+    @Override
+    @Nullable
+    public String getDeclarationHeader() {
+        return declarationHeader;
+    }
+    @Override
+    @Nullable
+    public String getUnitName() {
+        return unitName;
+    }
+
+    @Override
+    @Nullable
+    public String getSection() {
+        return section;
+    }
 }
@@ -311,7 +311,7 @@ public class PascalVariableIndex extends StringStubIndexExtension<PascalVariable
                 if (!isMatch && containingClass != null && varClass != null) {
                     if (ancestorKeys == null) {
                         ancestorKeys = new HashSet<>();
-                        for (PascalTypeDefinition a : InheritanceChainCache.getAllAncestorTypes(containingClass)) {
+                        for (PascalTypeDefinition a : InheritanceChainCache.getInstance(containingClass.getProject()).getAllAncestorTypes(containingClass)) {
                             ancestorKeys.add((a.getUnitName() + "#" + a.getName()).toLowerCase());
                         }
                     }
@@ -40,6 +40,16 @@ public interface PascalVariableStub extends StubElement<PascalVariableDefinition
     @Nullable
     String getOwnerTypeName();
 
+    /**
+     * Visibility of a field inside its owning type, including the strict variants.
+     * Null for non-field variables.
+     */
     @Nullable
     String getVisibility();
+
+    /**
+     * Unit section the variable is declared in ("interface" or "implementation").
+     */
+    @Nullable
+    String getSection();
 }
@@ -58,7 +58,14 @@ public class PascalVariableStubElementType extends IStubElementType<PascalVariab
             // Guard against any exceptions during stub creation
         }
 
-        return new PascalVariableStubImpl(parentStub, name, typeName, kind, containingScopeName, ownerTypeName, visibility);
+        String section = null;
+        try {
+            section = nl.akiar.pascal.psi.PsiUtil.getSection(psi);
+        } catch (Exception ignored) {
+            // Guard against any exceptions during stub creation
+        }
+
+        return new PascalVariableStubImpl(parentStub, name, typeName, kind, containingScopeName, ownerTypeName, visibility, section);
     }
 
     @Override
@@ -75,6 +82,7 @@ public class PascalVariableStubElementType extends IStubElementType<PascalVariab
         dataStream.writeName(stub.getContainingScopeName());
         dataStream.writeName(stub.getOwnerTypeName());
         dataStream.writeName(stub.getVisibility());
+        dataStream.writeName(stub.getSection());
     }
 
     @Override
@@ -87,7 +95,8 @@ public class PascalVariableStubElementType extends IStubElementType<PascalVariab
         String containingScopeName = dataStream.readNameString();
         String ownerTypeName = dataStream.readNameString();
         String visibility = dataStream.readNameString();
-        return new PascalVariableStubImpl(parentStub, name, typeName, kind, containingScopeName, ownerTypeName, visibility);
+        String section = dataStream.readNameString();
+        return new PascalVariableStubImpl(parentStub, name, typeName, kind, containingScopeName, ownerTypeName, visibility, section);
     }
 
     @Override
@@ -19,6 +19,7 @@ public class PascalVariableStubImpl extends StubBase<PascalVariableDefinition> i
     private final String containingScopeName;
     private final String ownerTypeName;
     private final String visibility;
+    private final String section;
 
     public PascalVariableStubImpl(
             @Nullable StubElement<?> parent,
@@ -27,7 +28,8 @@ public class PascalVariableStubImpl extends StubBase<PascalVariableDefinition> i
             @NotNull VariableKind variableKind,
             @Nullable String containingScopeName,
             @Nullable String ownerTypeName,
-            @Nullable String visibility) {
+            @Nullable String visibility,
+            @Nullable String section) {
         super(parent, PascalElementTypes.VARIABLE_DEFINITION);
         this.name = name;
         this.typeName = typeName;
@@ -35,6 +37,7 @@ public class PascalVariableStubImpl extends StubBase<PascalVariableDefinition> i
         this.containingScopeName = containingScopeName;
         this.ownerTypeName = ownerTypeName;
         this.visibility = visibility;
+        this.section = section;
     }
 
     @Override
@@ -60,4 +63,8 @@ public class PascalVariableStubImpl extends StubBase<PascalVariableDefinition> i
     @Override
     @Nullable
     public String getVisibility() { return visibility; }
+
+    @Override
+    @Nullable
+    public String getSection() { return section; }
 }
@@ -0,0 +1,113 @@
+package nl.akiar.pascal.annotator
+
+import com.intellij.openapi.Disposable
+import com.intellij.openapi.application.ApplicationManager
+import com.intellij.openapi.application.ReadAction
+import com.intellij.openapi.components.Service
+import com.intellij.openapi.diagnostic.Logger
+import com.intellij.openapi.editor.Editor
+import com.intellij.openapi.editor.EditorFactory
+import com.intellij.openapi.editor.event.VisibleAreaListener
+import com.intellij.openapi.progress.ProcessCanceledException
+import com.intellij.openapi.project.IndexNotReadyException
+import com.intellij.openapi.project.Project
+import com.intellij.psi.PsiDocumentManager
+import com.intellij.psi.PsiFile
+import com.intellij.util.concurrency.AppExecutorUtil
+import nl.akiar.pascal.PascalFile
+import java.awt.Point
+
+/**
+ * Resolves the identifiers of open Pascal files in the background so the semantic
+ * annotators find their targets already in the file's [PascalSemanticModel].
+ *
+ * Work starts with the chunks covering the editor's visible range and then moves
+ * outwards one chunk above and one below at a time. Each chunk runs in a cancellable
+ * non-blocking read action step: typing cancels the pass, and a later request for the
+ * same document replaces a pending one. Chunks already resolved for the current PSI are
+ * skipped, so scrolling only resolves regions that have not been seen yet.
+ */
+@Service(Service.Level.PROJECT)
+class PascalHighlightPrefetcher(private val project: Project) : Disposable {
+
+    init {
+        EditorFactory.getInstance().eventMulticaster.addVisibleAreaListener(VisibleAreaListener { event ->
+            schedule(event.editor)
+        }, this)
+    }
+
+    /** Prefetch for every editor showing [file]; safe to call from any thread. */
+    fun schedule(file: PsiFile) {
+        val document = PsiDocumentManager.getInstance(project).getCachedDocument(file) ?: return
+        ApplicationManager.getApplication().invokeLater({
+            for (editor in EditorFactory.getInstance().getEditors(document, project)) {
+                schedule(editor)
+            }
+        }, project.disposed)
+    }
+
+    /** Prefetch for [editor]'s file, starting from its visible range. Must be called on the EDT. */
+    fun schedule(editor: Editor) {
+        if (editor.isDisposed || editor.project != project) return
+        val document = editor.document
+        val area = editor.scrollingModel.visibleArea
+        if (area.height <= 0) return
+        val visibleStart = editor.logicalPositionToOffset(editor.xyToLogicalPosition(Point(0, area.y)))
+        val visibleEnd = editor.logicalPositionToOffset(editor.xyToLogicalPosition(Point(0, area.y + area.height)))
+
+        ReadAction.nonBlocking<Unit> {
+            val file = PsiDocumentManager.getInstance(project).getPsiFile(document) as? PascalFile
+                ?: return@nonBlocking
+            prefetch(file, visibleStart, visibleEnd)
+        }
+            .coalesceBy(this, document)
+            .withDocumentsCommitted(project)
+            .inSmartMode(project)
+            .expireWith(this)
+            .submit(AppExecutorUtil.getAppExecutorService())
+    }
+
+    private fun prefetch(file: PsiFile, visibleStart: Int, visibleEnd: Int) {
+        val model = PascalSemanticModel.of(file)
+        val order = chunkOrder(model.chunkOf(visibleStart), model.chunkOf(visibleEnd), model.chunkCount)
+        try {
+            for (chunk in order) {
+                model.resolveChunk(chunk)
+            }
+        } catch (e: ProcessCanceledException) {
+            throw e
+        } catch (e: IndexNotReadyException) {
+            // Indexing started meanwhile; the annotators resolve on demand until the next request
+        } catch (e: Exception) {
+            LOG.debug("Error prefetching highlighting for ${file.name}", e)
+        }
+    }
+
+    override fun dispose() {
+    }
+
+    companion object {
+        private val LOG = Logger.getInstance(PascalHighlightPrefetcher::class.java)
+
+        @JvmStatic
+        fun getInstance(project: Project): PascalHighlightPrefetcher = project.getService(PascalHighlightPrefetcher::class.java)
+
+        /**
+         * Chunks [first]..[last] in order, then alternately the next chunk below and the
+         * next chunk above until all [count] chunks are listed.
+         */
+        @JvmStatic
+        fun chunkOrder(first: Int, last: Int, count: Int): IntArray {
+            val order = IntArray(count)
+            var n = 0
+            for (chunk in first..last) order[n++] = chunk
+            var below = last + 1
+            var above = first - 1
+            while (below < count || above >= 0) {
+                if (below < count) order[n++] = below++
+                if (above >= 0) order[n++] = above--
+            }
+            return order
+        }
+    }
+}
@@ -44,11 +44,11 @@ class PascalScopeAnnotator : Annotator {
         if (DumbService.isDumb(element.project)) return
 
         val elementType = element.node?.elementType ?: return
+        if (elementType != PascalElementTypes.UNIT_REFERENCE && elementType != PascalTokenTypes.IDENTIFIER) return
+        val model = PascalSemanticModel.of(element.containingFile ?: return)
 
         // Skip elements inside unit declaration or uses section (except UNIT_REFERENCE)
-        if ((PsiUtil.hasParent(element, PascalElementTypes.UNIT_DECL_SECTION) ||
-             PsiUtil.hasParent(element, PascalElementTypes.USES_SECTION)) &&
-            elementType != PascalElementTypes.UNIT_REFERENCE) {
+        if (model.isInUnitHeaderOrUses(element) && elementType != PascalElementTypes.UNIT_REFERENCE) {
             return
         }
 
@@ -71,7 +71,7 @@ class PascalScopeAnnotator : Annotator {
 
         // --- Section-based strategy ---
         // Skip everything inside routine bodies (method implementations, begin..end blocks)
-        if (isInsideRoutineBody(element)) return
+        if (model.isInsideRoutineBody(element)) return
 
         // In interface section: check type-like identifiers in declarations
         // In implementation section (outside routine bodies): check type references only
@@ -184,16 +184,6 @@ class PascalScopeAnnotator : Annotator {
         return prev.node?.elementType == PascalTokenTypes.DOT
     }
 
-    private fun isInsideRoutineBody(element: PsiElement): Boolean {
-        var parent = element.parent
-        while (parent != null && parent !is PsiFile) {
-            val parentType = parent.node?.elementType
-            if (parentType == PascalElementTypes.ROUTINE_BODY) return true
-            parent = parent.parent
-        }
-        return false
-    }
-
     private fun looksLikeTypeReference(text: String, element: PsiElement): Boolean {
         // Must follow Delphi type naming convention: T*, I*, E* + uppercase second char
         if (text.length < 2) return false
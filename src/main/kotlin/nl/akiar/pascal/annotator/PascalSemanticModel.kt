@@ -0,0 +1,159 @@
+package nl.akiar.pascal.annotator
+
+import com.intellij.openapi.progress.ProcessCanceledException
+import com.intellij.openapi.progress.ProgressManager
+import com.intellij.openapi.project.DumbService
+import com.intellij.openapi.project.IndexNotReadyException
+import com.intellij.openapi.util.Key
+import com.intellij.psi.PsiElement
+import com.intellij.psi.PsiFile
+import com.intellij.psi.PsiNameIdentifierOwner
+import com.intellij.psi.impl.source.resolve.reference.ReferenceProvidersRegistry
+import com.intellij.psi.util.CachedValue
+import com.intellij.psi.util.CachedValueProvider
+import com.intellij.psi.util.CachedValuesManager
+import com.intellij.psi.util.PsiModificationTracker
+import com.intellij.psi.util.PsiTreeUtil
+import nl.akiar.pascal.PascalTokenTypes
+import nl.akiar.pascal.psi.PascalElementTypes
+import nl.akiar.pascal.psi.PascalSectionMap
+import nl.akiar.pascal.psi.impl.PascalTypeReferenceElement
+import java.util.BitSet
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Per-file facts shared by the Pascal annotators.
+ *
+ * The structural part (section ranges, routine bodies, uses/unit header ranges and
+ * which header kinds are present) comes from the file's [PascalSectionMap], so
+ * annotators no longer walk up the tree for every identifier. Resolution targets are
+ * filled in lazily as annotators ask for them and are then shared: identifier offset
+ * to target, with unresolved offsets kept as a set.
+ *
+ * Resolution can also be done ahead of the annotators one chunk of [CHUNK_SIZE]
+ * characters at a time (see [PascalHighlightPrefetcher]); a resolved chunk stays
+ * resolved for the model's lifetime, so scrolling back over it costs nothing.
+ *
+ * Cached on the file and dropped on any PSI change, since resolution depends on
+ * other files as well.
+ */
+class PascalSemanticModel private constructor(private val file: PsiFile) {
+
+    private val sections = PascalSectionMap.of(file)
+
+    val hasUnitDecl: Boolean = !sections.intervals(PascalElementTypes.UNIT_DECL_SECTION).isEmpty()
+    val hasProgramDecl: Boolean = !sections.intervals(PascalElementTypes.PROGRAM_DECL_SECTION).isEmpty()
+    val hasLibraryDecl: Boolean = !sections.intervals(PascalElementTypes.LIBRARY_DECL_SECTION).isEmpty()
+    val hasInterface: Boolean = !sections.intervals(PascalElementTypes.INTERFACE_SECTION).isEmpty()
+    val hasImplementation: Boolean = !sections.intervals(PascalElementTypes.IMPLEMENTATION_SECTION).isEmpty()
+    /** First UNIT_DECL_SECTION of the file, if any. */
+    val unitDecl: PsiElement? = sections.intervals(PascalElementTypes.UNIT_DECL_SECTION).first()?.psi
+
+    private val targets = ConcurrentHashMap<Int, PsiElement>()
+    private val unresolved: MutableSet<Int> = ConcurrentHashMap.newKeySet()
+    private val resolvedChunks = BitSet()
+    private val prefetchRequested = AtomicBoolean()
+
+    /** Number of [CHUNK_SIZE] chunks the file is split into for ahead-of-time resolution. */
+    val chunkCount: Int = maxOf(1, (file.textLength + CHUNK_SIZE - 1) / CHUNK_SIZE)
+
+    /** "interface", "implementation", or null, as [nl.akiar.pascal.psi.PsiUtil.getSection]. */
+    fun getSection(element: PsiElement): String? = sections.getSection(element)
+
+    /** True if [element] lies inside a routine body (including nested anonymous routines). */
+    fun isInsideRoutineBody(element: PsiElement): Boolean = sections.isInsideRoutineBody(element.textRange.startOffset)
+
+    /** True if [element] lies inside the unit declaration or a uses clause. */
+    fun isInUnitHeaderOrUses(element: PsiElement): Boolean = sections.isInUnitHeaderOrUses(element.textRange.startOffset)
+
+    /**
+     * Target of the first of [element]'s references that resolves, computed once per model.
+     * [IndexNotReadyException] is propagated and nothing is recorded, so the caller can
+     * retry once indices are ready; other per-reference failures try the next reference.
+     */
+    fun resolve(element: PsiElement): PsiElement? {
+        val offset = element.textRange.startOffset
+        targets[offset]?.let { if (it.isValid) return it }
+        if (offset in unresolved) return null
+
+        var refs = element.references
+        if (refs.isEmpty()) refs = ReferenceProvidersRegistry.getReferencesFromProviders(element)
+        var resolved: PsiElement? = null
+        for (ref in refs) {
+            resolved = try {
+                ref.resolve()
+            } catch (e: ProcessCanceledException) {
+                throw e
+            } catch (e: IndexNotReadyException) {
+                throw e
+            } catch (e: Exception) {
+                null
+            }
+            if (resolved != null) break
+        }
+        // Results computed while indexing may be incomplete; don't let them stick
+        if (!DumbService.isDumb(element.project)) {
+            if (resolved != null) targets[offset] = resolved else unresolved.add(offset)
+        }
+        return resolved
+    }
+
+    /** True if [element] was looked up through [resolve] and nothing was found. */
+    fun isUnresolved(element: PsiElement): Boolean = element.textRange.startOffset in unresolved
+
+    /** Offsets of identifiers looked up so far that did not resolve. */
+    fun unresolvedOffsets(): Set<Int> = unresolved
+
+    fun chunkOf(offset: Int): Int = (offset / CHUNK_SIZE).coerceIn(0, chunkCount - 1)
+
+    fun isChunkResolved(chunk: Int): Boolean = synchronized(resolvedChunks) { resolvedChunks[chunk] }
+
+    /**
+     * Resolve every identifier the annotators will ask about in [chunk], checking for
+     * cancellation between identifiers. The chunk is only marked resolved once all of it
+     * went through outside dumb mode; a cancelled chunk is picked up again later, with
+     * whatever it got through kept.
+     */
+    fun resolveChunk(chunk: Int) {
+        if (isChunkResolved(chunk)) return
+        val start = chunk * CHUNK_SIZE
+        val end = minOf(file.textLength, start + CHUNK_SIZE)
+        var leaf = file.findElementAt(start)
+        while (leaf != null && leaf.textRange.startOffset < end) {
+            ProgressManager.checkCanceled()
+            resolutionTarget(leaf)?.let { resolve(it) }
+            leaf = PsiTreeUtil.nextLeaf(leaf)
+        }
+        if (!DumbService.isDumb(file.project)) {
+            synchronized(resolvedChunks) { resolvedChunks.set(chunk) }
+        }
+    }
+
+    /** True the first time it is called on this model; the prefetcher is asked once per file version. */
+    fun markPrefetchRequested(): Boolean = prefetchRequested.compareAndSet(false, true)
+
+    /** The element an annotator resolves for [leaf]: the leaf itself, its type reference, or nothing. */
+    private fun resolutionTarget(leaf: PsiElement): PsiElement? {
+        if (leaf.node?.elementType != PascalTokenTypes.IDENTIFIER) return null
+        val offset = leaf.textRange.startOffset
+        if (sections.isInUnitHeaderOrUses(offset)) return null
+        return when (val parent = leaf.parent) {
+            is PascalTypeReferenceElement -> if (parent.nameIdentifier == leaf) parent else null
+            is PsiNameIdentifierOwner -> if (parent.nameIdentifier == leaf) null else leaf
+            else -> leaf
+        }
+    }
+
+    companion object {
+        const val CHUNK_SIZE = 16 * 1024
+
+        private val MODEL_KEY: Key<CachedValue<PascalSemanticModel>> = Key.create("pascal.semantic.model")
+
+        @JvmStatic
+        fun of(file: PsiFile): PascalSemanticModel =
+            CachedValuesManager.getCachedValue(file, MODEL_KEY) {
+                CachedValueProvider.Result.create(PascalSemanticModel(file), PsiModificationTracker.MODIFICATION_COUNT)
+            }
+    }
+}
@@ -8,8 +8,6 @@ import com.intellij.openapi.progress.ProcessCanceledException
 import com.intellij.psi.PsiElement
 import com.intellij.psi.PsiFile
 import nl.akiar.pascal.PascalLanguage
-import nl.akiar.pascal.psi.PascalElementTypes
-import nl.akiar.pascal.psi.PsiUtil
 
 /**
  * Annotator that detects structural syntax errors by examining the PSI tree.
@@ -39,13 +37,14 @@ class PascalSyntaxErrorAnnotator : Annotator {
     }
 
     private fun checkFileStructure(file: PsiFile, holder: AnnotationHolder) {
-        val fileNode = file.node ?: return
+        if (file.node == null) return
         val text = file.text
         if (text.isNullOrBlank()) return
 
-        val hasUnitDecl = PsiUtil.findFirstRecursive(fileNode, PascalElementTypes.UNIT_DECL_SECTION) != null
-        val hasProgramDecl = PsiUtil.findFirstRecursive(fileNode, PascalElementTypes.PROGRAM_DECL_SECTION) != null
-        val hasLibraryDecl = PsiUtil.findFirstRecursive(fileNode, PascalElementTypes.LIBRARY_DECL_SECTION) != null
+        val model = PascalSemanticModel.of(file)
+        val hasUnitDecl = model.hasUnitDecl
+        val hasProgramDecl = model.hasProgramDecl
+        val hasLibraryDecl = model.hasLibraryDecl
 
         // Check for missing header
         if (!hasUnitDecl && !hasProgramDecl && !hasLibraryDecl) {
@@ -71,11 +70,10 @@ class PascalSyntaxErrorAnnotator : Annotator {
 
         // For unit files, check for missing interface/implementation sections
         if (hasUnitDecl) {
-            val hasInterface = PsiUtil.findFirstRecursive(fileNode, PascalElementTypes.INTERFACE_SECTION) != null
-            val hasImplementation = PsiUtil.findFirstRecursive(fileNode, PascalElementTypes.IMPLEMENTATION_SECTION) != null
+            val hasInterface = model.hasInterface
+            val hasImplementation = model.hasImplementation
 
-            val unitDeclNode = PsiUtil.findFirstRecursive(fileNode, PascalElementTypes.UNIT_DECL_SECTION)
-            val warningTarget = unitDeclNode?.psi ?: file.firstChild ?: return
+            val warningTarget = model.unitDecl ?: file.firstChild ?: return
 
             if (!hasInterface && !hasImplementation) {
                 holder.newAnnotation(
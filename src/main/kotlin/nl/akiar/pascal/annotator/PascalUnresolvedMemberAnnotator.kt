@@ -40,8 +40,7 @@ class PascalUnresolvedMemberAnnotator : Annotator {
         if (prev.node?.elementType != PascalTokenTypes.DOT) return
 
         // Skip identifiers in uses/unit declaration sections
-        if (PsiUtil.hasParent(element, PascalElementTypes.USES_SECTION) ||
-            PsiUtil.hasParent(element, PascalElementTypes.UNIT_DECL_SECTION)) return
+        if (PascalSemanticModel.of(element.containingFile ?: return).isInUnitHeaderOrUses(element)) return
 
         val text = element.text
         if (text.isNullOrEmpty()) return
@@ -0,0 +1,64 @@
+package nl.akiar.pascal.completion
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Latency histogram with power-of-two microsecond buckets (bucket `i` holds samples
+ * below 2^i µs). Always on; recording is a few atomic adds, so it is cheap enough to
+ * leave in place outside of diagnostics. Percentiles are bucket upper bounds, capped
+ * at the largest sample seen.
+ */
+class LatencyHistogram(val name: String) {
+    private val buckets = AtomicLongArray(BUCKETS)
+    private val samples = AtomicLong()
+    private val totalNanos = AtomicLong()
+    private val maxNanos = AtomicLong()
+
+    fun record(nanos: Long) {
+        val micros = nanos / 1_000
+        val bucket = if (micros <= 0) 0 else minOf(BUCKETS - 1, 64 - java.lang.Long.numberOfLeadingZeros(micros))
+        buckets.incrementAndGet(bucket)
+        samples.incrementAndGet()
+        totalNanos.addAndGet(nanos)
+        maxNanos.accumulateAndGet(nanos, ::maxOf)
+    }
+
+    val count: Long get() = samples.get()
+
+    fun meanMillis(): Double {
+        val n = samples.get()
+        return if (n == 0L) 0.0 else totalNanos.get() / n / 1_000_000.0
+    }
+
+    fun maxMillis(): Double = maxNanos.get() / 1_000_000.0
+
+    /** Upper bound in milliseconds of the bucket holding the [fraction] quantile, or 0 before the first sample. */
+    fun percentileMillis(fraction: Double): Double {
+        val n = samples.get()
+        if (n == 0L) return 0.0
+        val rank = maxOf(1L, Math.ceil(fraction * n).toLong())
+        var seen = 0L
+        for (i in 0 until BUCKETS) {
+            seen += buckets.get(i)
+            if (seen >= rank) return minOf((1L shl i) / 1_000.0, maxMillis())
+        }
+        return maxMillis()
+    }
+
+    fun reset() {
+        for (i in 0 until BUCKETS) buckets.set(i, 0)
+        samples.set(0)
+        totalNanos.set(0)
+        maxNanos.set(0)
+    }
+
+    override fun toString(): String =
+        "$name: n=$count mean=${"%.2f".format(meanMillis())}ms p50=${"%.2f".format(percentileMillis(0.5))}ms " +
+            "p95=${"%.2f".format(percentileMillis(0.95))}ms max=${"%.2f".format(maxMillis())}ms"
+
+    companion object {
+        /** 2^31 µs is about 36 minutes; anything slower lands in the last bucket. */
+        private const val BUCKETS = 32
+    }
+}
@@ -0,0 +1,221 @@
+package nl.akiar.pascal.psi
+
+import com.intellij.lang.ASTNode
+import com.intellij.openapi.progress.ProgressManager
+import com.intellij.openapi.util.Key
+import com.intellij.psi.PsiElement
+import com.intellij.psi.PsiFile
+import com.intellij.psi.tree.IElementType
+import com.intellij.psi.util.CachedValue
+import com.intellij.psi.util.CachedValueProvider
+import com.intellij.psi.util.CachedValuesManager
+import nl.akiar.pascal.PascalFile
+
+/**
+ * Interval map of the structural regions of one file: sections, unit header and uses
+ * clauses, routines and their bodies, type definitions and their bodies, visibility
+ * sections, and the declaration kinds annotators ask "am I inside one?" about.
+ *
+ * Built in a single walk over the AST and cached on the file until it changes. Each
+ * tracked element type keeps its nodes sorted by start offset with a link to the
+ * nearest enclosing node of the same type, so "which X encloses this offset" is a
+ * binary search plus a short walk outwards instead of a parent walk per identifier.
+ */
+class PascalSectionMap private constructor(file: PsiFile) {
+
+    /** Nodes of one element type in document order; nested nodes link to their enclosing one. */
+    class Intervals internal constructor(nodes: List<ASTNode>) {
+        private val starts = IntArray(nodes.size)
+        private val ends = IntArray(nodes.size)
+        private val parents = IntArray(nodes.size)
+        private val nodes: Array<ASTNode> = nodes.toTypedArray()
+
+        init {
+            // Pre-order collection: an enclosing node always precedes the nodes inside it
+            val open = ArrayDeque<Int>()
+            for (i in nodes.indices) {
+                val range = nodes[i].textRange
+                starts[i] = range.startOffset
+                ends[i] = range.endOffset
+                while (open.isNotEmpty() && ends[open.last()] < ends[i]) open.removeLast()
+                parents[i] = open.lastOrNull() ?: -1
+                open.addLast(i)
+            }
+        }
+
+        /** Index of the innermost node whose range covers [start, end), or -1. */
+        fun innermost(start: Int, end: Int): Int {
+            var lo = 0
+            var hi = starts.size - 1
+            var found = -1
+            while (lo <= hi) {
+                val mid = (lo + hi) ushr 1
+                if (starts[mid] <= start) {
+                    found = mid
+                    lo = mid + 1
+                } else {
+                    hi = mid - 1
+                }
+            }
+            while (found >= 0 && ends[found] < end) found = parents[found]
+            return found
+        }
+
+        fun contains(offset: Int): Boolean = innermost(offset, offset + 1) >= 0
+
+        fun node(index: Int): ASTNode = nodes[index]
+
+        fun enclosing(index: Int): Int = parents[index]
+
+        fun isEmpty(): Boolean = nodes.isEmpty()
+
+        fun first(): ASTNode? = nodes.firstOrNull()
+
+        val size: Int get() = nodes.size
+    }
+
+    private val intervals: Map<IElementType, Intervals>
+
+    init {
+        val collected = HashMap<IElementType, MutableList<ASTNode>>()
+        val root = file.node
+        if (root != null) {
+            // Iterative pre-order walk; a 10k-line unit has hundreds of thousands of nodes
+            val stack = ArrayDeque<ASTNode>()
+            stack.addLast(root)
+            var visited = 0
+            while (stack.isNotEmpty()) {
+                if (++visited and 0x3FF == 0) ProgressManager.checkCanceled()
+                val node = stack.removeLast()
+                val type = node.elementType
+                if (type in TRACKED) collected.getOrPut(type) { ArrayList() }.add(node)
+                var child = node.lastChildNode
+                while (child != null) {
+                    stack.addLast(child)
+                    child = child.treePrev
+                }
+            }
+        }
+        intervals = TRACKED.associateWith { Intervals(collected[it].orEmpty()) }
+    }
+
+    /** Nodes of [type], which must be one of the tracked types. */
+    fun intervals(type: IElementType): Intervals =
+        intervals[type] ?: throw IllegalArgumentException("Element type not tracked: $type")
+
+    /**
+     * The innermost node of [type] that is a proper ancestor of [element], or null.
+     * Only when a candidate has exactly [element]'s range does this look at the tree,
+     * since such a node may be the element itself, an ancestor or a descendant.
+     */
+    fun enclosing(element: PsiElement, type: IElementType): ASTNode? {
+        val ranges = intervals(type)
+        val index = enclosingIndex(element, ranges, type)
+        return if (index >= 0) ranges.node(index) else null
+    }
+
+    private fun enclosingIndex(element: PsiElement, ranges: Intervals, type: IElementType): Int {
+        val range = element.textRange
+        val elementNode = element.node
+        if (range.isEmpty) {
+            // An empty range touches its neighbours as well; find the ancestor in the tree instead
+            var parent = elementNode?.treeParent
+            while (parent != null && parent.elementType != type) parent = parent.treeParent
+            if (parent == null) return -1
+            var index = ranges.innermost(parent.startOffset, parent.startOffset + parent.textLength)
+            while (index >= 0 && ranges.node(index) !== parent) index = ranges.enclosing(index)
+            return index
+        }
+        var index = ranges.innermost(range.startOffset, range.endOffset)
+        while (index >= 0) {
+            val candidate = ranges.node(index)
+            if (candidate.textLength != range.length || candidate.startOffset != range.startOffset) return index
+            if (candidate !== elementNode && isAncestor(candidate, elementNode)) return index
+            index = ranges.enclosing(index)
+        }
+        return -1
+    }
+
+    /** "interface", "implementation", or null, as [PsiUtil.getSection]. */
+    fun getSection(element: PsiElement): String? {
+        val range = element.textRange
+        return when {
+            intervals(PascalElementTypes.INTERFACE_SECTION).innermost(range.startOffset, range.endOffset) >= 0 -> "interface"
+            intervals(PascalElementTypes.IMPLEMENTATION_SECTION).innermost(range.startOffset, range.endOffset) >= 0 -> "implementation"
+            else -> null
+        }
+    }
+
+    /** True if [offset] lies inside a routine body (including nested anonymous routines). */
+    fun isInsideRoutineBody(offset: Int): Boolean = intervals(PascalElementTypes.ROUTINE_BODY).contains(offset)
+
+    /** True if [offset] lies inside the unit declaration or a uses clause. */
+    fun isInUnitHeaderOrUses(offset: Int): Boolean =
+        intervals(PascalElementTypes.UNIT_DECL_SECTION).contains(offset) ||
+            intervals(PascalElementTypes.USES_SECTION).contains(offset)
+
+    /**
+     * The class a member reference at [element] is written in: the first enclosing routine
+     * that belongs to a class, otherwise the innermost enclosing type definition.
+     */
+    fun findContainingClass(element: PsiElement): PascalTypeDefinition? {
+        val routines = intervals(PascalElementTypes.ROUTINE_DECLARATION)
+        var index = enclosingIndex(element, routines, PascalElementTypes.ROUTINE_DECLARATION)
+        while (index >= 0) {
+            (routines.node(index).psi as? PascalRoutine)?.containingClass?.let { return it }
+            index = routines.enclosing(index)
+        }
+        return enclosing(element, PascalElementTypes.TYPE_DEFINITION)?.psi as? PascalTypeDefinition
+    }
+
+    companion object {
+        /** Element types whose ranges are kept; [PsiUtil.hasParent] answers these from the map. */
+        @JvmField
+        val TRACKED: Set<IElementType> = setOf(
+            PascalElementTypes.INTERFACE_SECTION,
+            PascalElementTypes.IMPLEMENTATION_SECTION,
+            PascalElementTypes.UNIT_DECL_SECTION,
+            PascalElementTypes.PROGRAM_DECL_SECTION,
+            PascalElementTypes.LIBRARY_DECL_SECTION,
+            PascalElementTypes.USES_SECTION,
+            PascalElementTypes.UNIT_REFERENCE,
+            PascalElementTypes.ROUTINE_DECLARATION,
+            PascalElementTypes.ROUTINE_BODY,
+            PascalElementTypes.FORMAL_PARAMETER,
+            PascalElementTypes.RETURN_TYPE,
+            PascalElementTypes.TYPE_DEFINITION,
+            PascalElementTypes.CLASS_BODY,
+            PascalElementTypes.RECORD_BODY,
+            PascalElementTypes.INTERFACE_BODY,
+            PascalElementTypes.VISIBILITY_SECTION,
+            PascalElementTypes.PROPERTY_DEFINITION,
+            PascalElementTypes.VARIABLE_DEFINITION,
+            PascalElementTypes.ENUM_ELEMENT,
+            PascalElementTypes.GENERIC_PARAMETER
+        )
+
+        private val KEY: Key<CachedValue<PascalSectionMap>> = Key.create("pascal.section.map")
+
+        @JvmStatic
+        fun of(file: PsiFile): PascalSectionMap =
+            CachedValuesManager.getCachedValue(file, KEY) {
+                CachedValueProvider.Result.create(PascalSectionMap(file), file)
+            }
+
+        /** The map for [element]'s file, or null outside a Pascal file. */
+        @JvmStatic
+        fun forElement(element: PsiElement): PascalSectionMap? {
+            val file = element.containingFile as? PascalFile ?: return null
+            return of(file)
+        }
+
+        private fun isAncestor(ancestor: ASTNode, node: ASTNode?): Boolean {
+            var current = node?.treeParent
+            while (current != null) {
+                if (current === ancestor) return true
+                current = current.treeParent
+            }
+            return false
+        }
+    }
+}
@@ -1,23 +1,36 @@
 package nl.akiar.pascal.reference
 
+import com.intellij.concurrency.JobLauncher
+import com.intellij.openapi.application.ApplicationManager
 import com.intellij.openapi.application.QueryExecutorBase
+import com.intellij.openapi.application.ReadAction
 import com.intellij.openapi.diagnostic.Logger
 import com.intellij.openapi.progress.ProcessCanceledException
+import com.intellij.openapi.progress.ProgressManager
+import com.intellij.openapi.project.DumbService
+import com.intellij.openapi.project.Project
+import com.intellij.openapi.vfs.VirtualFile
 import com.intellij.psi.*
 import com.intellij.psi.impl.source.resolve.reference.ReferenceProvidersRegistry
 import com.intellij.psi.search.GlobalSearchScope
 import com.intellij.psi.search.LocalSearchScope
 import com.intellij.psi.search.PsiSearchHelper
+import com.intellij.psi.search.SearchScope
 import com.intellij.psi.search.UsageSearchContext
 import com.intellij.psi.search.searches.ReferencesSearch
 import com.intellij.psi.util.PsiTreeUtil
 import com.intellij.util.Processor
+import com.intellij.util.indexing.FileBasedIndex
 import nl.akiar.pascal.PascalTokenTypes
+import nl.akiar.pascal.index.PascalIdentifierOccurrenceIndex
+import nl.akiar.pascal.index.PascalIdentifierOccurrences
 import nl.akiar.pascal.psi.PascalProperty
 import nl.akiar.pascal.psi.PascalRoutine
 import nl.akiar.pascal.psi.PascalVariableDefinition
 import nl.akiar.pascal.psi.PsiUtil
 import nl.akiar.pascal.psi.VariableKind
+import nl.akiar.pascal.resolution.PascalTypeGraph
+import nl.akiar.pascal.stubs.PascalHelperIndex
 
 /**
  * Custom references searcher for Pascal that explicitly checks
@@ -25,20 +38,70 @@ import nl.akiar.pascal.psi.VariableKind
  * (IDENTIFIER tokens) are LeafPsiElement which doesn't include contributor
  * references in getReferences().
  *
- * For class methods (e.g., TMyClass.Create), pre-filters occurrences to avoid
- * resolving every "Create" across 10k+ files — only checks member access
- * contexts (after DOT) and implicit self calls within the same class.
+ * Candidates come from [PascalIdentifierOccurrenceIndex]. For class members
+ * (e.g., TMyClass.Create) occurrences are pre-filtered before anything is resolved:
+ * member access after DOT and inside `with` is kept, but a bare or `inherited`
+ * occurrence only when it is written inside the class itself, a descendant, or a
+ * helper for one of them. The remaining files are then resolved in parallel.
+ *
+ * Restricted scopes (e.g., "Current File") and dumb mode fall back to a word search.
  */
-class PascalReferencesSearcher : QueryExecutorBase<PsiReference, ReferencesSearch.SearchParameters>(true) {
+class PascalReferencesSearcher : QueryExecutorBase<PsiReference, ReferencesSearch.SearchParameters>() {
+
+    /** What to look for, computed once under a read action. */
+    private class SearchTarget(
+        val target: PsiElement,
+        val project: Project,
+        val name: String,
+        val key: String,
+        val isClassMember: Boolean,
+        /** Lowercase names of the types a bare occurrence may be written in; null when any may be. */
+        val owners: Set<String>?,
+        val scope: SearchScope
+    )
 
     override fun processQuery(
         queryParameters: ReferencesSearch.SearchParameters,
         consumer: Processor<in PsiReference>
     ) {
+        val search = ReadAction.compute<SearchTarget?, RuntimeException> { prepare(queryParameters) } ?: return
+        val scope = search.scope
+
+        if (scope is LocalSearchScope || DumbService.isDumb(search.project)) {
+            ReadAction.run<RuntimeException> { searchWords(search, scope, consumer) }
+            return
+        }
+
+        val candidates = ReadAction.compute<Map<VirtualFile, IntArray>, RuntimeException> {
+            collectCandidates(search, scope as GlobalSearchScope)
+        }
+        if (candidates.isEmpty()) return
+
+        val lock = Any()
+        val synchronizedConsumer = Processor<PsiReference> { ref -> synchronized(lock) { consumer.process(ref) } }
+        val processFile = Processor<Map.Entry<VirtualFile, IntArray>> { (file, offsets) ->
+            ReadAction.compute<Boolean, RuntimeException> { processCandidates(search, file, offsets, synchronizedConsumer) }
+        }
+
+        // Workers take their own read actions; from inside one they could wait on a pending write forever
+        if (candidates.size == 1 || ApplicationManager.getApplication().isReadAccessAllowed) {
+            for (entry in candidates.entries) {
+                if (!processFile.process(entry)) return
+            }
+        } else {
+            JobLauncher.getInstance().invokeConcurrentlyUnderProgress(
+                candidates.entries.toList(),
+                ProgressManager.getGlobalProgressIndicator(),
+                processFile
+            )
+        }
+    }
+
+    private fun prepare(queryParameters: ReferencesSearch.SearchParameters): SearchTarget? {
         val target = queryParameters.elementToSearch
-        if (target !is PsiNamedElement) return
+        if (target !is PsiNamedElement || !target.isValid) return null
 
-        val name = target.name ?: return
+        val name = target.name ?: return null
         val project = target.project
         val isClassMember = target is PascalRoutine && target.isMethod ||
             target is PascalVariableDefinition && target.variableKind == VariableKind.FIELD ||
@@ -50,13 +113,104 @@ class PascalReferencesSearcher : QueryExecutorBase<PsiReference, ReferencesSearc
         val userScope = queryParameters.effectiveSearchScope
         val searchScope = if (userScope is LocalSearchScope) userScope else GlobalSearchScope.allScope(project)
 
-        PsiSearchHelper.getInstance(project).processElementsWithWord(
+        val owners = if (isClassMember) memberOwners(target, project) else null
+        return SearchTarget(target, project, name, PascalIdentifierOccurrenceIndex.normalize(name),
+            isClassMember, owners, searchScope)
+    }
+
+    /**
+     * The types whose bodies can mention [target] without a qualifier: its class, every
+     * descendant (or implementor, for an interface), and helpers for any of those.
+     * Null when the class is unknown or the set grows too large to be a useful filter.
+     */
+    private fun memberOwners(target: PsiElement, project: Project): Set<String>? {
+        val className = when (target) {
+            is PascalRoutine -> target.containingClassName
+            is PascalVariableDefinition -> target.containingClassName
+            is PascalProperty -> target.containingClassName
+            else -> null
+        } ?: return null
+
+        val types = LinkedHashSet<String>()
+        types.add(PascalTypeGraph.simpleName(className).lowercase())
+        val complete = PascalTypeGraph.getInstance(project).processSubtypes(className) { subtype ->
+            types.add(PascalTypeGraph.simpleName(subtype.name).lowercase())
+            types.size < MAX_OWNERS
+        }
+        if (!complete) return null
+
+        val owners = HashSet(types)
+        for (type in types) {
+            for (helper in PascalHelperIndex.findAllHelpersFor(type, project)) {
+                helper.name?.let { owners.add(it.lowercase()) }
+            }
+        }
+        return owners
+    }
+
+    private fun collectCandidates(search: SearchTarget, scope: GlobalSearchScope): Map<VirtualFile, IntArray> {
+        val candidates = HashMap<VirtualFile, IntArray>()
+        FileBasedIndex.getInstance().processValues(
+            PascalIdentifierOccurrenceIndex.INDEX_ID, search.key, null,
+            { file, occurrences ->
+                ProgressManager.checkCanceled()
+                val offsets = IntArray(occurrences.size())
+                var count = 0
+                for (i in 0 until occurrences.size()) {
+                    if (isCandidate(search, occurrences.getKind(i), occurrences.getOwner(i))) {
+                        offsets[count++] = occurrences.getOffset(i)
+                    }
+                }
+                if (count > 0) candidates[file] = offsets.copyOf(count)
+                true
+            },
+            scope
+        )
+        return candidates
+    }
+
+    private fun isCandidate(search: SearchTarget, kind: Byte, owner: String?): Boolean {
+        if (!search.isClassMember) return true
+        if (kind == PascalIdentifierOccurrences.QUALIFIED || kind == PascalIdentifierOccurrences.WITH) return true
+        // Bare or inherited: implicit Self, so only inside a type that has the member
+        if (owner == null) return false
+        return search.owners == null || owner in search.owners
+    }
+
+    private fun processCandidates(
+        search: SearchTarget,
+        file: VirtualFile,
+        offsets: IntArray,
+        consumer: Processor<in PsiReference>
+    ): Boolean {
+        if (!search.target.isValid) return false
+        val psiFile = PsiManager.getInstance(search.project).findFile(file) ?: return true
+        // Check every offset before reporting any, so a fallback never reports an occurrence twice
+        val leaves = ArrayList<PsiElement>(offsets.size)
+        for (offset in offsets) {
+            ProgressManager.checkCanceled()
+            val leaf = psiFile.findElementAt(offset)
+            if (leaf == null || leaf.textRange.startOffset != offset ||
+                PascalIdentifierOccurrenceIndex.normalize(leaf.text) != search.key) {
+                // Index built from a different text than the PSI (e.g. uncommitted edits): search the file itself
+                return searchWords(search, LocalSearchScope(psiFile), consumer)
+            }
+            leaves.add(leaf)
+        }
+        for (leaf in leaves) {
+            if (!processLeaf(leaf, search.target, consumer)) return false
+        }
+        return true
+    }
+
+    private fun searchWords(search: SearchTarget, scope: SearchScope, consumer: Processor<in PsiReference>): Boolean {
+        return PsiSearchHelper.getInstance(search.project).processElementsWithWord(
             { element, offsetInElement ->
                 if (!element.isValid) return@processElementsWithWord true
-                processElement(element, offsetInElement, target, isClassMember, consumer)
+                processElement(element, offsetInElement, search.target, search.isClassMember, consumer)
             },
-            searchScope,
-            name,
+            scope,
+            search.name,
             UsageSearchContext.IN_CODE.toShort(),
             false // case INSENSITIVE for Pascal
         )
@@ -89,7 +243,11 @@ class PascalReferencesSearcher : QueryExecutorBase<PsiReference, ReferencesSearc
             return true
         }
 
-        // Check contributor references
+        return processLeaf(leaf, target, consumer)
+    }
+
+    /** Check contributor references of an identifier leaf against [target]. */
+    private fun processLeaf(leaf: PsiElement, target: PsiElement, consumer: Processor<in PsiReference>): Boolean {
         val refs = ReferenceProvidersRegistry.getReferencesFromProviders(leaf)
         for (ref in refs) {
             try {
@@ -102,7 +260,6 @@ class PascalReferencesSearcher : QueryExecutorBase<PsiReference, ReferencesSearc
                 LOG.debug("isReferenceTo failed for '${leaf.text}'", e)
             }
         }
-
         return true
     }
 
@@ -133,5 +290,8 @@ class PascalReferencesSearcher : QueryExecutorBase<PsiReference, ReferencesSearc
 
     companion object {
         private val LOG = Logger.getInstance(PascalReferencesSearcher::class.java)
+
+        /** Beyond this many descendants (e.g. members of TObject) the owner filter is dropped. */
+        private const val MAX_OWNERS = 5_000
     }
 }
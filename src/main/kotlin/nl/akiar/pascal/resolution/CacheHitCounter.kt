@@ -0,0 +1,38 @@
+package nl.akiar.pascal.resolution
+
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Hit/miss counter for the resolution caches. Always on; incrementing is a single
+ * atomic add, so it is cheap enough to leave in place outside of diagnostics.
+ */
+class CacheHitCounter(val name: String) {
+    private val hits = AtomicLong()
+    private val misses = AtomicLong()
+
+    fun hit() {
+        hits.incrementAndGet()
+    }
+
+    fun miss() {
+        misses.incrementAndGet()
+    }
+
+    val hitCount: Long get() = hits.get()
+    val missCount: Long get() = misses.get()
+
+    /** Fraction of lookups answered from the cache, or 0 before the first lookup. */
+    fun hitRate(): Double {
+        val h = hits.get()
+        val total = h + misses.get()
+        return if (total == 0L) 0.0 else h.toDouble() / total
+    }
+
+    fun reset() {
+        hits.set(0)
+        misses.set(0)
+    }
+
+    override fun toString(): String =
+        "$name: hits=$hitCount misses=$missCount rate=${"%.1f".format(hitRate() * 100)}%"
+}
@@ -1,10 +1,10 @@
 package nl.akiar.pascal.resolution
 
+import com.intellij.openapi.components.Service
 import com.intellij.openapi.diagnostic.Logger
 import com.intellij.openapi.project.Project
 import com.intellij.psi.SmartPointerManager
 import com.intellij.psi.SmartPsiElementPointer
-import com.intellij.psi.util.PsiModificationTracker
 import nl.akiar.pascal.psi.PascalTypeDefinition
 import nl.akiar.pascal.psi.TypeKind
 import java.util.concurrent.ConcurrentHashMap
@@ -13,10 +13,11 @@ import java.util.concurrent.ConcurrentHashMap
  * Caches inheritance chain information for Pascal types.
  * Provides fast access to superclasses and ancestor lists without repeated resolution.
  *
- * Cache is invalidated on any PSI modification (global mod count change).
+ * One cache per project. Entries depend only on type declarations and are invalidated
+ * by [PascalStructureModificationTracker], so edits inside routine bodies keep them.
  */
-object InheritanceChainCache {
-    private val LOG = Logger.getInstance(InheritanceChainCache::class.java)
+@Service(Service.Level.PROJECT)
+class InheritanceChainCache(private val project: Project) {
 
     /**
      * Information about a type's inheritance chain.
@@ -30,11 +31,17 @@ object InheritanceChainCache {
         val hasCycle: Boolean
     )
 
+    /** Keyed on [PascalNameTable] ids so lookups don't allocate lowercase strings. */
     private data class CacheKey(
-        val typeName: String,
-        val unitName: String?
+        val typeId: Int,
+        val unitId: Int
     )
 
+    private fun cacheKeyOf(typeDef: PascalTypeDefinition): CacheKey {
+        val names = PascalNameTable.getInstance(project)
+        return CacheKey(names.idOf(typeDef.name ?: ""), names.idOfNullable(typeDef.unitName))
+    }
+
     private data class CacheValue(
         val info: InheritanceInfo,
         /** Pointers to resolved ancestor types (may contain nulls for unresolved ancestors) */
@@ -44,10 +51,12 @@ object InheritanceChainCache {
     private val cache = ConcurrentHashMap<CacheKey, CacheValue>()
     @Volatile private var lastModCount: Long = -1L
 
-    private fun ensureFresh(project: Project) {
-        val mod = PsiModificationTracker.getInstance(project).modificationCount
+    val stats = CacheHitCounter("inheritanceChain")
+
+    private fun ensureFresh() {
+        val mod = PascalStructureModificationTracker.getInstance(project).modificationCount
         if (mod != lastModCount) {
-            synchronized(this) {
+            synchronized(cache) {
                 if (mod != lastModCount) {
                     cache.clear()
                     lastModCount = mod
@@ -62,17 +71,17 @@ object InheritanceChainCache {
      * @param typeDef The type definition to get inheritance info for
      * @return InheritanceInfo containing superclass name, all ancestors, and cycle detection
      */
-    @JvmStatic
     fun getInheritanceInfo(typeDef: PascalTypeDefinition): InheritanceInfo {
-        val project = typeDef.project
-        ensureFresh(project)
+        ensureFresh()
 
-        val key = CacheKey(typeDef.name ?: "", typeDef.unitName)
+        val key = cacheKeyOf(typeDef)
 
         val cached = cache[key]
         if (cached != null) {
+            stats.hit()
             return cached.info
         }
+        stats.miss()
 
         // Compute inheritance chain
         val spm = SmartPointerManager.getInstance(project)
@@ -92,17 +101,17 @@ object InheritanceChainCache {
      * @return List of resolved ancestor types, in order from nearest to farthest.
      *         Unresolvable ancestors are skipped.
      */
-    @JvmStatic
     fun getAllAncestorTypes(typeDef: PascalTypeDefinition): List<PascalTypeDefinition> {
-        val project = typeDef.project
-        ensureFresh(project)
+        ensureFresh()
 
-        val key = CacheKey(typeDef.name ?: "", typeDef.unitName)
+        val key = cacheKeyOf(typeDef)
 
         val cached = cache[key]
         if (cached != null) {
+            stats.hit()
             return cached.ancestorPtrs.mapNotNull { it?.element?.takeIf { el -> el.isValid } }
         }
+        stats.miss()
 
         // Compute and cache
         val spm = SmartPointerManager.getInstance(project)
@@ -116,12 +125,21 @@ object InheritanceChainCache {
     /**
      * Check if a type is a descendant of another type.
      *
+     * Follows the resolved superclass chain, so only classes count and a same-named type in
+     * an unrelated unit does not; this is what `protected` visibility needs. [PascalTypeGraph]
+     * answers by name over superclasses and interfaces alike, a superset of this chain, so
+     * it only serves as a cheap negative pre-check.
+     *
      * @param subType The potential descendant type
      * @param superTypeName The name of the potential ancestor type (case-insensitive)
-     * @return true if subType descends from a type with the given name
+     * @return true if a superclass of subType has the given name
      */
-    @JvmStatic
     fun isDescendantOf(subType: PascalTypeDefinition, superTypeName: String): Boolean {
+        val subName = subType.name
+        if (subName != null && !com.intellij.openapi.project.DumbService.isDumb(project)
+            && !PascalTypeGraph.getInstance(project).isSubtypeOf(subName, superTypeName)) {
+            return false
+        }
         val info = getInheritanceInfo(subType)
         return info.ancestorNames.any { it.equals(superTypeName, ignoreCase = true) }
     }
@@ -137,12 +155,12 @@ object InheritanceChainCache {
     ): Pair<InheritanceInfo, List<SmartPsiElementPointer<PascalTypeDefinition>?>> {
         val ancestorNames = mutableListOf<String>()
         val ancestorPtrs = mutableListOf<SmartPsiElementPointer<PascalTypeDefinition>?>()
-        val visited = mutableSetOf<String>()
+        val names = PascalNameTable.getInstance(project)
+        val visited = mutableSetOf<Long>()
         var hasCycle = false
 
         // Add the starting type to visited set (using qualified key)
-        val startKey = "${typeDef.unitName}.${typeDef.name}".lowercase()
-        visited.add(startKey)
+        visited.add(names.qualifiedKey(typeDef.unitName, typeDef.name))
 
         var current: PascalTypeDefinition? = typeDef
         var superClassName: String? = null
@@ -161,9 +179,9 @@ object InheritanceChainCache {
             // Resolve the superclass
             val superClass = current.superClass
             if (superClass != null) {
-                val superKey = "${superClass.unitName}.${superClass.name}".lowercase()
+                val superKey = names.qualifiedKey(superClass.unitName, superClass.name)
                 if (visited.contains(superKey)) {
-                    LOG.warn("Cycle detected in inheritance chain for ${typeDef.name}: $superKey already visited")
+                    LOG.warn("Cycle detected in inheritance chain for ${typeDef.name}: ${superClass.unitName}.${superClass.name} already visited")
                     hasCycle = true
                     break
                 }
@@ -207,16 +225,18 @@ object InheritanceChainCache {
 
     /**
      * Clear all cached inheritance data.
-     *
-     * @param project Optional project to sync modification counter with
      */
-    @JvmStatic
-    fun clearAll(project: Project? = null) {
+    fun clearAll() {
         cache.clear()
-        if (project != null) {
-            lastModCount = PsiModificationTracker.getInstance(project).modificationCount
-        } else {
-            lastModCount = -1L
+        lastModCount = -1L
+    }
+
+    companion object {
+        private val LOG = Logger.getInstance(InheritanceChainCache::class.java)
+
+        @JvmStatic
+        fun getInstance(project: Project): InheritanceChainCache {
+            return project.getService(InheritanceChainCache::class.java)
         }
     }
 }
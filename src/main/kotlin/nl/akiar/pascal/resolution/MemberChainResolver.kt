@@ -5,14 +5,19 @@ import com.intellij.openapi.project.DumbService
 import com.intellij.openapi.project.Project
 import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer
 import com.intellij.openapi.util.Key
+import com.intellij.openapi.util.RecursionManager
 import com.intellij.psi.PsiElement
 import com.intellij.psi.PsiFile
+import com.intellij.psi.util.CachedValue
+import com.intellij.psi.util.CachedValueProvider
+import com.intellij.psi.util.CachedValuesManager
 import com.intellij.psi.util.PsiTreeUtil
 import nl.akiar.pascal.PascalTokenTypes
 import com.intellij.psi.PsiManager
 import nl.akiar.pascal.psi.PascalForStatement
 import nl.akiar.pascal.psi.PascalProperty
 import nl.akiar.pascal.psi.PascalRoutine
+import nl.akiar.pascal.psi.PascalSectionMap
 import nl.akiar.pascal.psi.PascalTypeDefinition
 import nl.akiar.pascal.psi.PascalVariableDefinition
 import nl.akiar.pascal.psi.TypeKind
@@ -38,13 +43,53 @@ object MemberChainResolver {
         }
     }
 
-    private val FILE_RESOLUTION_CACHE: Key<LruCache<String, Any?>> = Key.create("pascal.file.resolution.cache")
+    /**
+     * Chain results for one file. Lives in a [CachedValue] on the file that depends on the
+     * file itself and on [PascalStructureModificationTracker]: edits in this file drop it,
+     * edits inside routine bodies of other files do not. Bounded with LRU eviction.
+     */
+    private class FileChainCache {
+        private val entries = java.util.Collections.synchronizedMap(LruCache<ChainKey, ChainResolutionInternal>(MAX_CHAINS_PER_FILE))
+        // Offset of every identifier in a resolved chain -> the shared result for that chain
+        private val results = java.util.Collections.synchronizedMap(LruCache<Int, ChainResolutionResult>(MAX_CHAINS_PER_FILE * 4))
+        operator fun get(key: ChainKey): ChainResolutionInternal? = entries[key]
+        operator fun set(key: ChainKey, value: ChainResolutionInternal) { entries[key] = value }
+
+        fun resultAt(offset: Int): ChainResolutionResult? = results[offset]
+
+        fun putResult(result: ChainResolutionResult) {
+            for (part in result.chainElements) results[part.textOffset] = result
+        }
+    }
+
+    private const val MAX_CHAINS_PER_FILE = 4000
+
+    /** Hit/miss counts of the per-file chain cache. A miss is one actual chain resolution. */
+    @JvmStatic
+    val chainCacheStats = CacheHitCounter("chain")
+
+    /** Hit/miss counts of the per-chain result shared by all elements of a chain. */
+    @JvmStatic
+    val chainResultStats = CacheHitCounter("chainResult")
+    private val FILE_CHAIN_CACHE: Key<CachedValue<FileChainCache>> = Key.create("pascal.file.chain.cache")
+
+    private fun chainCacheOf(file: PsiFile): FileChainCache =
+        CachedValuesManager.getCachedValue(file, FILE_CHAIN_CACHE) {
+            CachedValueProvider.Result.create(FileChainCache(), file, PascalStructureModificationTracker.getInstance(file.project))
+        }
+
+    /** Chain parts as [PascalNameTable] ids, so keys are built without joining the chain text. */
+    private fun chainNameIds(chain: List<PsiElement>, project: Project): IntArray {
+        val names = PascalNameTable.getInstance(project)
+        return IntArray(chain.size) { names.idOf(chain[it].text) }
+    }
 
-    // Short-lived memo for chains to avoid repeated resolves during daemon passes
-    private data class ChainKey(val filePath: String?, val startOffset: Int, val chainText: String)
-    private val chainMemo = java.util.concurrent.ConcurrentHashMap<ChainKey, PsiElement?>()
-    @Volatile private var lastMemoClearTs: Long = System.currentTimeMillis()
-    private const val MEMO_TTL_MS = 2000L
+    // Per-file chain cache key: where the chain starts and what it spells
+    private class ChainKey(val startOffset: Int, val nameIds: IntArray) {
+        override fun equals(other: Any?): Boolean =
+            other is ChainKey && startOffset == other.startOffset && nameIds.contentEquals(other.nameIds)
+        override fun hashCode(): Int = 31 * startOffset + nameIds.contentHashCode()
+    }
 
     private object ResolverConfig {
         @JvmField val enablePerformanceMetrics: Boolean = java.lang.Boolean.getBoolean("pascal.resolver.metrics")
@@ -67,31 +112,23 @@ object MemberChainResolver {
         if (LOG_ENABLED && (file == null || nl.akiar.pascal.log.UnitLogFilter.shouldLog(file))) LOG.info(msg)
     }
 
-    private fun clearExpiredMemo() {
-        val now = System.currentTimeMillis()
-        if (now - lastMemoClearTs > MEMO_TTL_MS || chainMemo.size > 500) {
-            chainMemo.clear()
-            lastMemoClearTs = now
-        }
-    }
-
     /**
      * Clear in-memory caches for chain resolution and member type memoization.
      * Optionally restarts the daemon analyzer for immediate refresh.
      */
     @JvmStatic
     fun clearCaches(project: Project? = null) {
-        chainMemo.clear()
-        lastMemoClearTs = System.currentTimeMillis()
-        try {
-            MemberResolutionCache.clearAll(project)
-        } catch (_: Exception) {
-            // best effort
-        }
-        try {
-            InheritanceChainCache.clearAll(project)
-        } catch (_: Exception) {
-            // best effort
+        if (project != null) {
+            try {
+                // Drops the per-file chain caches as well
+                PascalStructureModificationTracker.getInstance(project).incModificationCount()
+                MemberResolutionCache.getInstance(project).clearAll()
+                InheritanceChainCache.getInstance(project).clearAll()
+                // Unit scope names change the edges of every unprefixed uses entry
+                PascalUnitGraph.getInstance(project).clearAll()
+            } catch (_: Exception) {
+                // best effort
+            }
         }
         if (project != null) {
             try {
@@ -105,8 +142,18 @@ object MemberChainResolver {
     // Reentrancy guard to avoid infinite resolution loops across handlers
     private val RESOLVE_IN_PROGRESS: Key<Boolean> = Key.create("pascal.member.resolve.in.progress")
 
-    // Reentrancy guard for inline var type inference (prevents cycles when var A := B and B := A)
-    private val inferenceInProgress: ThreadLocal<MutableSet<Int>> = ThreadLocal.withInitial { mutableSetOf() }
+    // Reentrancy guard for inline var type inference (prevents cycles when var A := B and B := A).
+    // Results computed while the guard cut a cycle are not memoized by CachedValue.
+    private val inferenceGuard = RecursionManager.createGuard<PascalVariableDefinition>("pascal.inline.var.inference")
+
+    private val INFERRED_TYPE: Key<CachedValue<String?>> = Key.create("pascal.inline.var.inferred.type")
+
+    /**
+     * Hit/miss counts of inferred inline variable types. A miss is one actual inference;
+     * reset before and read after a highlighting pass to get the count for that pass.
+     */
+    @JvmStatic
+    val inferenceStats = CacheHitCounter("inlineVarInference")
 
     /**
      * Result of resolving a member chain.
@@ -163,18 +210,32 @@ object MemberChainResolver {
     @JvmStatic
     fun resolveChain(startElement: PsiElement): ChainResolutionResult {
         val originFile = startElement.containingFile
+        // Every element of a chain maps to the same result, so A.B.C.D.E is collected
+        // and resolved once rather than once per identifier.
+        val cache = chainCacheOf(originFile)
+        cache.resultAt(startElement.textOffset)?.let { cached ->
+            if (cached.chainElements.any { it === startElement } && cached.resolvedElements.all { it == null || it.isValid }) {
+                chainResultStats.hit()
+                return cached
+            }
+        }
+        chainResultStats.miss()
         maybeLog("[MemberTraversal] resolveChain start element='${startElement.text}' file='${originFile?.name}'", originFile)
         val chain = collectChain(startElement)
         maybeLog("[MemberTraversal] collected chain size=${chain.size} parts=${chain.map { it.text }}", originFile)
         val internal = resolveChainElements(chain, originFile)
         maybeLog("[MemberTraversal] resolved chain parts=${internal.resolvedElements.map { it?.javaClass?.simpleName ?: "<unresolved>" }}", originFile)
-        return ChainResolutionResult(
+        val result = ChainResolutionResult(
             resolvedElements = internal.resolvedElements,
             chainElements = chain,
             originFile = originFile,
             typeArgMap = internal.finalTypeArgMap,
             typeArgMaps = internal.perElementTypeArgMaps
         )
+        if (chain.isNotEmpty() && !DumbService.isDumb(originFile.project)) {
+            cache.putResult(result)
+        }
+        return result
     }
 
     /**
@@ -205,32 +266,13 @@ object MemberChainResolver {
             }
             element.putUserData(RESOLVE_IN_PROGRESS, true)
             try {
-                val chain = collectChain(element)
+                val result = resolveChain(element)
+                val chain = result.chainElements
                 if (chain.isEmpty()) return null
-                val filePath = element.containingFile?.virtualFile?.path
-                val chainText = chain.joinToString(".") { it.text }
-                val key = ChainKey(filePath, chain.first().textOffset, chainText)
-                clearExpiredMemo()
-                chainMemo[key]?.let {
-                    if (it.isValid) return it
-                    chainMemo.remove(key)
-                }
 
-                maybeLog("[MemberTraversal] resolveChain start element='${element.text}' file='${element.containingFile.name}'", element.containingFile)
-                maybeLog("[MemberTraversal] collected chain size=${chain.size} parts=${chain.map { it.text }}", element.containingFile)
-                val internal = resolveChainElements(chain, element.containingFile)
                 val myIndex = chain.indexOf(element)
                 val targetIndex = if (myIndex >= 0) myIndex else chain.lastIndex
-                val target = internal.resolvedElements.getOrNull(targetIndex)
-                if (target != null) {
-                    maybeLog("[MemberTraversal] resolved chain parts=${internal.resolvedElements.filterNotNull().map { it.javaClass.simpleName }}", element.containingFile)
-                    // Only cache non-null targets to avoid NPE in ConcurrentHashMap
-                    // Avoid caching partial results in dumb mode to prevent sticky under-resolution
-                    if (!DumbService.isDumb(element.project)) {
-                        chainMemo[key] = target
-                    }
-                }
-                return target
+                return result.resolvedElements.getOrNull(targetIndex)
             } finally {
                 element.putUserData(RESOLVE_IN_PROGRESS, null)
             }
@@ -495,18 +537,21 @@ object MemberChainResolver {
             val results = MutableList<PsiElement?>(chain.size) { null }
             if (chain.isEmpty()) return ChainResolutionInternal(results, emptyMap())
 
-            val cache = originFile.getUserData(FILE_RESOLUTION_CACHE) ?: LruCache<String, Any?>(100).also {
-                originFile.putUserData(FILE_RESOLUTION_CACHE, it)
-            }
-            val chainText = chain.joinToString(".") { it.text }
-            val modCount = originFile.manager.modificationTracker.modificationCount
-            val cacheKey = "$chainText@$modCount"
+            // Offsets only identify a chain within its own file; chains resolved on behalf
+            // of another file (e.g. during inference) bypass the cache.
+            val cache = if (chain.first().containingFile == originFile) chainCacheOf(originFile) else null
+            val cacheKey = ChainKey(chain.first().textOffset, chainNameIds(chain, originFile.project))
 
-            val cached = cache[cacheKey] as? ChainResolutionInternal
-            if (cached != null && cached.resolvedElements.size == chain.size) {
-                LOG.debug("[GenericChain] CACHE HIT for key='$cacheKey' resolved=[${cached.resolvedElements.joinToString(", ") { it?.javaClass?.simpleName ?: "<null>" }}]")
+            val cached = cache?.get(cacheKey)
+            if (cached != null && cached.resolvedElements.size == chain.size &&
+                cached.resolvedElements.all { it == null || it.isValid }) {
+                chainCacheStats.hit()
+                if (LOG.isDebugEnabled) {
+                    LOG.debug("[GenericChain] CACHE HIT for chain='${chain.joinToString(".") { it.text }}@${cacheKey.startOffset}' resolved=[${cached.resolvedElements.joinToString(", ") { it?.javaClass?.simpleName ?: "<null>" }}]")
+                }
                 return cached
             }
+            if (cache != null) chainCacheStats.miss()
             tAfterCache = System.nanoTime()
 
             val first = chain.first()
@@ -740,9 +785,9 @@ object MemberChainResolver {
                         member = routineResult.inScopeRoutines.firstOrNull { r -> r.containingClassName != null && r.containingClassName.equals(currentOwnerName, ignoreCase = true) }
                     }
                     if (member == null) {
-                        member = resolveMemberByOwnerScan(currentOwnerName!!, name, originFile)
+                        member = PascalUnitQualifiedLookup.findMemberOfOwner(currentOwnerName!!, name, originFile.project)
                         if (nl.akiar.pascal.log.UnitLogFilter.shouldLog(originFile)) {
-                            LOG.info("[MemberTraversal][Diag] resolveMemberByOwnerScan(owner=${currentOwnerName}, name=${name}) -> ${member?.javaClass?.simpleName ?: "<none>"}")
+                            LOG.info("[MemberTraversal][Diag] findMemberOfOwner(owner=${currentOwnerName}, name=${name}) -> ${member?.javaClass?.simpleName ?: "<none>"}")
                         }
                     }
                     if (member != null) {
@@ -813,9 +858,11 @@ object MemberChainResolver {
                     }
                 }
 
-                val substitutedTypeName = if (memberRawTypeName != null && effectiveTypeArgMap.containsKey(memberRawTypeName)) {
-                    val sub = effectiveTypeArgMap[memberRawTypeName]!!
-                    LOG.debug("[GenericChain] step[$i] '$name' SUBSTITUTION: '$memberRawTypeName' -> '$sub'")
+                val substitutedTypeName = if (memberRawTypeName != null && effectiveTypeArgMap.isNotEmpty()) {
+                    val sub = PascalTypeTerm.substitute(memberRawTypeName, effectiveTypeArgMap)
+                    if (sub != memberRawTypeName) {
+                        LOG.debug("[GenericChain] step[$i] '$name' SUBSTITUTION: '$memberRawTypeName' -> '$sub'")
+                    }
                     sub
                 } else {
                     memberRawTypeName
@@ -876,7 +923,7 @@ object MemberChainResolver {
             val internalResult = ChainResolutionInternal(results, currentTypeArgMap, perElementMaps)
             // Cache deterministic results, but skip caching during dumb mode to avoid
             // persisting under-resolved nulls from empty stub index returns.
-            if (!DumbService.isDumb(originFile.project)) {
+            if (cache != null && !DumbService.isDumb(originFile.project)) {
                 cache[cacheKey] = internalResult
             }
             return internalResult
@@ -896,85 +943,6 @@ object MemberChainResolver {
         }
     }
 
-    private fun resolveTypeByUnitScan(typeName: String, originFile: PsiFile): PascalTypeDefinition? {
-        // Skip expensive scanning during dumb mode
-        if (DumbService.isDumb(originFile.project)) return null
-        val project = originFile.project
-        val unitCandidates = when (typeName.lowercase()) {
-            "tstrings", "tstringlist" -> listOf("System.Classes", "Classes")
-            "tobject" -> listOf("System")
-            else -> emptyList()
-        }
-        // ...existing code...
-        for (unit in unitCandidates) {
-            val svc = nl.akiar.pascal.project.PascalProjectService.getInstance(project)
-            val vf = svc.resolveUnit(unit, true)
-            if (vf == null) {
-                if (nl.akiar.pascal.log.UnitLogFilter.shouldLog(originFile)) {
-                    LOG.info("[MemberTraversal][Diag] resolveTypeByUnitScan: unit '${unit}' not resolved")
-                }
-                continue
-            }
-            val psi = com.intellij.psi.PsiManager.getInstance(project).findFile(vf)
-            if (psi == null) {
-                if (nl.akiar.pascal.log.UnitLogFilter.shouldLog(originFile)) {
-                    LOG.info("[MemberTraversal][Diag] resolveTypeByUnitScan: PSI null for unit '${unit}' path=${vf.path}")
-                }
-                continue
-            }
-            val types = PsiTreeUtil.findChildrenOfType(psi, PascalTypeDefinition::class.java)
-            if (nl.akiar.pascal.log.UnitLogFilter.shouldLog(originFile)) {
-                LOG.info("[MemberTraversal][Diag] resolveTypeByUnitScan: scanning unit='${unit}' typesFound=${types.size}")
-            }
-            val hit = types.firstOrNull { it.name.equals(typeName, true) }
-            if (hit != null) return hit
-        }
-        return null
-    }
-
-    private fun resolveMemberByOwnerScan(ownerName: String, memberName: String, originFile: PsiFile): PsiElement? {
-        // Skip expensive scanning during dumb mode
-        if (DumbService.isDumb(originFile.project)) return null
-        val ownerLower = ownerName.lowercase()
-        // ...existing code...
-        val candidateUnits = when (ownerLower) {
-            "tstrings", "tstringlist" -> listOf("System.Classes", "Classes")
-            "tobject" -> listOf("System")
-            else -> emptyList()
-        }
-        val project = originFile.project
-        for (unit in candidateUnits) {
-            val svc = nl.akiar.pascal.project.PascalProjectService.getInstance(project)
-            val vf = svc.resolveUnit(unit, true)
-            if (vf == null) {
-                if (nl.akiar.pascal.log.UnitLogFilter.shouldLog(originFile)) {
-                    LOG.info("[MemberTraversal][Diag] resolveMemberByOwnerScan: unit '${unit}' not resolved for owner='${ownerName}'")
-                }
-                continue
-            }
-            val psi = com.intellij.psi.PsiManager.getInstance(project).findFile(vf)
-            if (psi == null) {
-                if (nl.akiar.pascal.log.UnitLogFilter.shouldLog(originFile)) {
-                    LOG.info("[MemberTraversal][Diag] resolveMemberByOwnerScan: PSI null for unit='${unit}'")
-                }
-                continue
-            }
-            val routines = PsiTreeUtil.findChildrenOfType(psi, PascalRoutine::class.java)
-            if (nl.akiar.pascal.log.UnitLogFilter.shouldLog(originFile)) {
-                LOG.info("[MemberTraversal][Diag] resolveMemberByOwnerScan: unit='${unit}' routinesFound=${routines.size}")
-            }
-            val rHit = routines.firstOrNull { r -> r.name.equals(memberName, true) && (r.containingClassName?.equals(ownerName, true) == true || r.containingClass?.name?.equals(ownerName, true) == true) }
-            if (rHit != null) return rHit
-            val props = PsiTreeUtil.findChildrenOfType(psi, PascalProperty::class.java)
-            if (nl.akiar.pascal.log.UnitLogFilter.shouldLog(originFile)) {
-                LOG.info("[MemberTraversal][Diag] resolveMemberByOwnerScan: unit='${unit}' propertiesFound=${props.size}")
-            }
-            val pHit = props.firstOrNull { p -> p.name.equals(memberName, true) && p.containingClass?.name?.equals(ownerName, true) == true }
-            if (pHit != null) return pHit
-        }
-        return null
-    }
-
     /**
      * Get the type definition for a resolved element.
      * @param typeNameOverride If provided, use this type name instead of the element's own type name.
@@ -1043,10 +1011,10 @@ object MemberChainResolver {
                                     maybeLog("[MemberTraversal] typeOf(global) '$typeName' -> ${builtin.name} (unit=${builtin.unitName}) [ctx=${contextFile.name}]", contextFile)
                                     builtin
                                 } else {
-                                    val scanned = resolveTypeByUnitScan(typeName, originFile)
-                                    if (scanned != null) {
-                                        maybeLog("[MemberTraversal] typeOf(scan) '$typeName' -> ${scanned.name} (unit=${scanned.unitName}) [ctx=${contextFile.name}]", contextFile)
-                                        scanned
+                                    val qualified = PascalUnitQualifiedLookup.findTypeInAvailableUnits(typeName, originFile, element.textOffset)
+                                    if (qualified != null) {
+                                        maybeLog("[MemberTraversal] typeOf(unit-qualified) '$typeName' -> ${qualified.name} (unit=${qualified.unitName}) [ctx=${contextFile.name}]", contextFile)
+                                        qualified
                                     } else {
                                         if (nl.akiar.pascal.log.UnitLogFilter.shouldLog(contextFile)) {
                                             // when disableBuiltins is false and no candidates were found
@@ -1072,7 +1040,8 @@ object MemberChainResolver {
             // Bypass cache: type name override changes the meaning of the lookup
             computeType()
         } else {
-            MemberResolutionCache.getOrComputeTypeOf(element, originFile, contextFile, computeType)
+            // Inferred inline var types are keyed by the inferred name, which is itself cached
+            MemberResolutionCache.getInstance(originFile.project).getOrComputeTypeOf(element, originFile, contextFile, computeType, rawTypeName)
         }
 
         // Unwrap PROCEDURAL types (function references) to their return type.
@@ -1177,15 +1146,26 @@ object MemberChainResolver {
      * For `var X := 'hello'`, returns "string".
      */
     private fun inferTypeFromInitializer(varDef: PascalVariableDefinition, originFile: PsiFile): String? {
-        // Reentrancy guard: prevent cycles (var A := B; var B := A)
-        val guard = inferenceInProgress.get()
-        val offset = varDef.textOffset
-        if (!guard.add(offset)) return null
-        try {
-            return inferTypeFromInitializerImpl(varDef, originFile)
-        } finally {
-            guard.remove(offset)
-        }
+        // Cached per variable until its routine's statements or any declaration change.
+        // Inline vars are only referenced from their own file, so other origins compute directly.
+        val routine = PsiTreeUtil.getParentOfType(varDef, PascalRoutine::class.java)
+        if (routine == null || varDef.containingFile != originFile || DumbService.isDumb(originFile.project)) {
+            inferenceStats.miss()
+            return inferenceGuard.doPreventingRecursion(varDef, false) { inferTypeFromInitializerImpl(varDef, originFile) }
+        }
+        var cached = varDef.getUserData(INFERRED_TYPE)
+        if (cached == null) {
+            cached = CachedValuesManager.getManager(originFile.project).createCachedValue({
+                inferenceStats.miss()
+                val inferred = inferenceGuard.doPreventingRecursion(varDef, false) {
+                    inferTypeFromInitializerImpl(varDef, varDef.containingFile)
+                }
+                CachedValueProvider.Result.create(inferred, PascalStructureModificationTracker.forRoutine(routine))
+            }, false)
+            varDef.putUserData(INFERRED_TYPE, cached)
+        }
+        if (cached.hasUpToDateValue()) inferenceStats.hit()
+        return cached.value
     }
 
     private fun inferTypeFromInitializerImpl(varDef: PascalVariableDefinition, originFile: PsiFile): String? {
@@ -1278,10 +1258,12 @@ object MemberChainResolver {
                                 resolved.perElementTypeArgMaps[lastResolvedIndex]
                             else
                                 resolved.finalTypeArgMap
-                            if (typeName != null && activeTypeArgMap.containsKey(typeName)) {
-                                val substituted = activeTypeArgMap[typeName]
-                                maybeLog("[MemberTraversal] inferType: substituting generic '$typeName' -> '$substituted'", originFile)
-                                typeName = substituted
+                            if (typeName != null && activeTypeArgMap.isNotEmpty()) {
+                                val substituted = PascalTypeTerm.substitute(typeName, activeTypeArgMap)
+                                if (substituted != typeName) {
+                                    maybeLog("[MemberTraversal] inferType: substituting generic '$typeName' -> '$substituted'", originFile)
+                                    typeName = substituted
+                                }
                             }
                             if (!typeName.isNullOrBlank()) {
                                 maybeLog("[MemberTraversal] inferType: chain resolved to '${lastResolved.javaClass.simpleName}', typeName='$typeName'", originFile)
@@ -1424,18 +1406,22 @@ object MemberChainResolver {
         val owners = mutableListOf<PascalTypeDefinition>()
         owners.add(typeDef)
         if (includeAncestors) {
-            owners.addAll(InheritanceChainCache.getAllAncestorTypes(typeDef))
+            owners.addAll(InheritanceChainCache.getInstance(typeDef.project).getAllAncestorTypes(typeDef))
         }
 
         LOG.debug("[GenericChain] findMemberInType: looking for '$name' in type='${typeDef.name}' unit='${typeDef.unitName}' owners=[${owners.joinToString(", ") { "${it.name}(${it.unitName})" }}]")
 
+        // Canonical lowercase parts: compositeKey's lowercasing is then a no-op
+        val names = PascalNameTable.getInstance(project)
+        val memberKeyName = names.canonical(name)
+
         for (ownerType in owners) {
-            val ownerName = ownerType.name ?: continue
-            val ownerUnit = ownerType.unitName ?: continue
+            val ownerName = names.canonical(ownerType.name ?: continue)
+            val ownerUnit = names.canonical(ownerType.unitName ?: continue)
 
             // 1. Try Scoped Indexes (Deterministic)
             // Fields
-            val fieldKey = nl.akiar.pascal.stubs.PascalScopedMemberIndex.compositeKey(ownerUnit, ownerName, name, "field")
+            val fieldKey = nl.akiar.pascal.stubs.PascalScopedMemberIndex.compositeKey(ownerUnit, ownerName, memberKeyName, "field")
             val fields = com.intellij.psi.stubs.StubIndex.getElements(
                 nl.akiar.pascal.stubs.PascalScopedMemberIndex.FIELD_KEY,
                 fieldKey, project, com.intellij.psi.search.GlobalSearchScope.allScope(project),
@@ -1445,7 +1431,7 @@ object MemberChainResolver {
             if (field != null) return field
 
             // Properties
-            val propKey = nl.akiar.pascal.stubs.PascalScopedMemberIndex.compositeKey(ownerUnit, ownerName, name, "property")
+            val propKey = nl.akiar.pascal.stubs.PascalScopedMemberIndex.compositeKey(ownerUnit, ownerName, memberKeyName, "property")
             val props = com.intellij.psi.stubs.StubIndex.getElements(
                 nl.akiar.pascal.stubs.PascalScopedMemberIndex.PROPERTY_KEY,
                 propKey, project, com.intellij.psi.search.GlobalSearchScope.allScope(project),
@@ -1455,7 +1441,7 @@ object MemberChainResolver {
             if (prop != null) return prop
 
             // Routines
-            val routineKey = "${ownerUnit}#${ownerName}#${name}".lowercase()
+            val routineKey = "${ownerUnit}#${ownerName}#${memberKeyName}"
             val routines = nl.akiar.pascal.stubs.PascalScopedRoutineIndex.find(routineKey, project)
             val routine = routines.firstOrNull { isVisible(it, callSiteFile, typeDef) }
             if (routine != null) return routine
@@ -1652,7 +1638,7 @@ object MemberChainResolver {
         } ?: return null
 
         // Apply generic substitution
-        val substituted = typeArgMap[rawTypeName] ?: rawTypeName
+        val substituted = PascalTypeTerm.substitute(rawTypeName, typeArgMap)
 
         val newType = getTypeOf(itemsMember, originFile, substituted)
         val (_, typeArgs) = parseTypeArguments(substituted)
@@ -1694,7 +1680,7 @@ object MemberChainResolver {
         if (visibility.contains("protected", ignoreCase = true)) {
             if (searchContextType != null) {
                 val memberClassName = getContainingClassName(member)
-                if (memberClassName != null && InheritanceChainCache.isDescendantOf(searchContextType, memberClassName)) {
+                if (memberClassName != null && InheritanceChainCache.getInstance(searchContextType.project).isDescendantOf(searchContextType, memberClassName)) {
                     return true
                 }
             }
@@ -1707,8 +1693,8 @@ object MemberChainResolver {
     private fun getContainingClassName(element: PsiElement): String? {
         return when (element) {
             is PascalRoutine -> element.containingClassName
-            is PascalProperty -> element.containingClass?.name
-            is PascalVariableDefinition -> element.containingClass?.name
+            is PascalProperty -> element.containingClassName
+            is PascalVariableDefinition -> element.containingClassName
             else -> null
         }
     }
@@ -1870,57 +1856,22 @@ object MemberChainResolver {
      * Parses "TEntityList<TRide>" → Pair("TEntityList", listOf("TRide"))
      * Parses "TEntityList" → Pair("TEntityList", emptyList())
      * Handles nested: "TDict<String, TList<Integer>>" → Pair("TDict", listOf("String", "TList<Integer>"))
+     * Backed by the memoized [PascalTypeTerm] parser.
      */
     private fun parseTypeArguments(typeName: String): Pair<String, List<String>> {
-        val ltIdx = typeName.indexOf('<')
-        if (ltIdx < 0) return typeName to emptyList()
-        val baseName = typeName.substring(0, ltIdx)
-        val gtIdx = typeName.lastIndexOf('>')
-        if (gtIdx <= ltIdx) return typeName to emptyList()
-        val argsStr = typeName.substring(ltIdx + 1, gtIdx)
-        return baseName to splitGenericArgs(argsStr)
-    }
-
-    /**
-     * Splits generic arguments at depth-0 commas.
-     * "String, TList<Integer>" → ["String", "TList<Integer>"]
-     */
-    private fun splitGenericArgs(argsStr: String): List<String> {
-        val args = mutableListOf<String>()
-        var depth = 0
-        var start = 0
-        for (i in argsStr.indices) {
-            when (argsStr[i]) {
-                '<' -> depth++
-                '>' -> depth--
-                ',' -> if (depth == 0) {
-                    args.add(argsStr.substring(start, i).trim())
-                    start = i + 1
-                }
-            }
-        }
-        val last = argsStr.substring(start).trim()
-        if (last.isNotEmpty()) args.add(last)
-        return args
+        val term = PascalTypeTerm.parse(typeName)
+        return term.name to term.argTexts
     }
 
     /**
      * Build a generic substitution map from a type's formal type parameters and actual type arguments.
      * E.g., for TEntityList<T: class, IEntity> with actual args <TRide>, returns {T → TRide}.
      * Note: constraint identifiers like IEntity are type parameters too, but we only map
-     * the first N params to the N args provided.
+     * the first N params to the N args provided. Memoized per (type, argument tuple).
      */
     private fun buildTypeArgMap(typeDef: PascalTypeDefinition?, typeArgs: List<String>): Map<String, String> {
         if (typeDef == null || typeArgs.isEmpty()) return emptyMap()
-        val typeParams = typeDef.typeParameters
-        if (typeParams.isEmpty()) return emptyMap()
-        val map = mutableMapOf<String, String>()
-        for (i in typeArgs.indices) {
-            if (i < typeParams.size) {
-                map[typeParams[i]] = typeArgs[i]
-            }
-        }
-        return map
+        return PascalTypeTerm.typeArgMap(typeDef, typeArgs.map { PascalTypeTerm.parse(it) })
     }
 
     /**
@@ -1950,7 +1901,7 @@ object MemberChainResolver {
                 if (typeArgs.isEmpty()) continue
                 if (!baseName.equals(ancestorBaseName, ignoreCase = true)) continue
 
-                val ancestorType = InheritanceChainCache.getAllAncestorTypes(typeDef)
+                val ancestorType = InheritanceChainCache.getInstance(typeDef.project).getAllAncestorTypes(typeDef)
                     .firstOrNull { it.name.equals(ancestorBaseName, ignoreCase = true) }
                     ?: return emptyMap()
                 return buildTypeArgMap(ancestorType, typeArgs)
@@ -2231,9 +2182,11 @@ object MemberChainResolver {
 
     /**
      * Find the containing class for an element by walking up through nested routines.
+     * Answered from the file's [PascalSectionMap] when the element is in a Pascal file.
      */
     @JvmStatic
     fun findContainingClass(element: PsiElement): PascalTypeDefinition? {
+        PascalSectionMap.forElement(element)?.let { return it.findContainingClass(element) }
         var routine = PsiTreeUtil.getParentOfType(element, PascalRoutine::class.java)
         while (routine != null) {
             val cls = routine.containingClass
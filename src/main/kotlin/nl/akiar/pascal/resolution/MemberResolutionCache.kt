@@ -1,6 +1,8 @@
 package nl.akiar.pascal.resolution
 
+import com.intellij.openapi.components.Service
 import com.intellij.openapi.project.Project
+import com.intellij.openapi.vfs.VirtualFile
 import com.intellij.psi.PsiElement
 import com.intellij.psi.PsiFile
 import com.intellij.psi.SmartPointerManager
@@ -13,13 +15,18 @@ import nl.akiar.pascal.psi.PascalVariableDefinition
 import java.util.concurrent.ConcurrentHashMap
 
 /**
- * Lightweight caches for member traversal to avoid repeated expensive lookups.
- * Caches are invalidated on any PSI modification (global mod count change).
+ * Per-project caches for member traversal to avoid repeated expensive lookups.
+ *
+ * Member lists depend only on declarations and are invalidated by
+ * [PascalStructureModificationTracker], so edits inside routine bodies keep them.
+ * The type-of cache is keyed by call-site offset and is invalidated on any PSI change.
  */
-object MemberResolutionCache {
+@Service(Service.Level.PROJECT)
+class MemberResolutionCache(private val project: Project) {
+    // Keys use PascalNameTable ids rather than name strings to keep probes allocation-free
     private data class TypeOfKey(
-        val originPath: String?,
-        val typeName: String,
+        val originFile: VirtualFile?,
+        val typeNameId: Int,
         val offset: Int,
     )
 
@@ -29,8 +36,8 @@ object MemberResolutionCache {
 
     // Cache for member lists (fields, properties, methods) of a type
     private data class MemberListKey(
-        val typeName: String,
-        val unitName: String?,
+        val typeNameId: Int,
+        val unitNameId: Int,
         val includeAncestors: Boolean
     )
 
@@ -38,18 +45,43 @@ object MemberResolutionCache {
         val memberPtrs: List<SmartPsiElementPointer<PsiElement>>
     )
 
+    // Generic substitution maps per (generic type, argument tuple); terms compare structurally
+    private data class TypeArgKey(
+        val typeNameId: Int,
+        val unitNameId: Int,
+        val args: List<PascalTypeTerm>
+    )
+
     private val typeOfCache = ConcurrentHashMap<TypeOfKey, TypeOfVal>()
     private val memberListCache = ConcurrentHashMap<MemberListKey, MemberListValue>()
-    @Volatile private var lastModCount: Long = -1L
+    private val typeArgMapCache = ConcurrentHashMap<TypeArgKey, Map<String, String>>()
+    @Volatile private var typeOfModCount: Long = -1L
+    @Volatile private var membersModCount: Long = -1L
+
+    val typeOfStats = CacheHitCounter("typeOf")
+    val memberListStats = CacheHitCounter("memberList")
+    val typeArgMapStats = CacheHitCounter("typeArgMap")
 
-    private fun ensureFresh(project: Project) {
+    private fun ensureTypeOfFresh() {
         val mod = PsiModificationTracker.getInstance(project).modificationCount
-        if (mod != lastModCount) {
-            synchronized(this) {
-                if (mod != lastModCount) {
+        if (mod != typeOfModCount) {
+            synchronized(typeOfCache) {
+                if (mod != typeOfModCount) {
                     typeOfCache.clear()
+                    typeOfModCount = mod
+                }
+            }
+        }
+    }
+
+    private fun ensureMembersFresh() {
+        val mod = PascalStructureModificationTracker.getInstance(project).modificationCount
+        if (mod != membersModCount) {
+            synchronized(memberListCache) {
+                if (mod != membersModCount) {
                     memberListCache.clear()
-                    lastModCount = mod
+                    typeArgMapCache.clear()
+                    membersModCount = mod
                 }
             }
         }
@@ -62,27 +94,39 @@ object MemberResolutionCache {
         else -> null
     }
 
-    fun getOrComputeTypeOf(element: PsiElement?, originFile: PsiFile, contextFile: PsiFile, compute: () -> PascalTypeDefinition?): PascalTypeDefinition? {
+    /**
+     * @param typeName The element's type name when it is not declared, e.g. the inferred type of
+     *                 an inline variable; without it, such elements bypass the cache.
+     */
+    fun getOrComputeTypeOf(
+        element: PsiElement?,
+        originFile: PsiFile,
+        contextFile: PsiFile,
+        compute: () -> PascalTypeDefinition?,
+        typeName: String? = null
+    ): PascalTypeDefinition? {
         if (element == null) return null
-        // If element has no explicit type name (e.g. inferred-type variable), bypass cache and compute directly.
-        // The compute lambda handles inference via inferTypeFromInitializer().
-        val tn = typeNameOf(element) ?: return compute()
-        ensureFresh(originFile.project)
+        val tn = typeNameOf(element) ?: typeName ?: return compute()
+        ensureTypeOfFresh()
         val key = TypeOfKey(
-            originPath = originFile.virtualFile?.path, // use origin (call-site) path for cache scoping
-            typeName = tn,
+            originFile = originFile.virtualFile, // use origin (call-site) file for cache scoping
+            typeNameId = PascalNameTable.getInstance(project).idOf(tn),
             offset = element.textOffset
         )
         val cached = typeOfCache[key]
         if (cached != null) {
             val cachedEl = cached.typePtr?.element
-            if (cachedEl != null && cachedEl.isValid) return cachedEl
+            if (cachedEl != null && cachedEl.isValid) {
+                typeOfStats.hit()
+                return cachedEl
+            }
         }
+        typeOfStats.miss()
         val computed = compute()
         // Don't cache null results during dumb mode — stub indices return empty
         // during indexing, and caching that null would persist after smart mode resumes.
-        if (computed != null || !com.intellij.openapi.project.DumbService.isDumb(originFile.project)) {
-            val valPtr = computed?.let { SmartPointerManager.getInstance(originFile.project).createSmartPsiElementPointer(it) }
+        if (computed != null || !com.intellij.openapi.project.DumbService.isDumb(project)) {
+            val valPtr = computed?.let { SmartPointerManager.getInstance(project).createSmartPsiElementPointer(it) }
             typeOfCache[key] = TypeOfVal(valPtr)
         }
         return computed
@@ -101,11 +145,11 @@ object MemberResolutionCache {
         includeAncestors: Boolean,
         compute: () -> List<PsiElement>
     ): List<PsiElement> {
-        val project = typeDef.project
-        ensureFresh(project)
+        ensureMembersFresh()
+        val names = PascalNameTable.getInstance(project)
         val key = MemberListKey(
-            typeName = typeDef.name ?: "",
-            unitName = typeDef.unitName,
+            typeNameId = names.idOf(typeDef.name ?: ""),
+            unitNameId = names.idOfNullable(typeDef.unitName),
             includeAncestors = includeAncestors
         )
 
@@ -116,11 +160,13 @@ object MemberResolutionCache {
             }
             // If all pointers are still valid, return cached
             if (members.size == cached.memberPtrs.size) {
+                memberListStats.hit()
                 return members
             }
             // Some pointers became invalid, recompute
         }
 
+        memberListStats.miss()
         val computed = compute()
         // Don't cache empty member lists during dumb mode — ancestor resolution may
         // fail because stub indices return empty during indexing.
@@ -133,16 +179,44 @@ object MemberResolutionCache {
     }
 
     /**
-     * Clear all caches explicitly. Optionally align internal modification counter with the provided project.
+     * Get the generic substitution map for [typeDef] applied to [args], or compute and cache it.
+     * Depends only on the type's formal parameters, so it follows the member-list invalidation.
      */
-    @JvmStatic
-    fun clearAll(project: Project? = null) {
+    fun getOrComputeTypeArgMap(
+        typeDef: PascalTypeDefinition,
+        args: List<PascalTypeTerm>,
+        compute: () -> Map<String, String>
+    ): Map<String, String> {
+        ensureMembersFresh()
+        val names = PascalNameTable.getInstance(project)
+        val key = TypeArgKey(names.idOf(typeDef.name ?: ""), names.idOfNullable(typeDef.unitName), args)
+        typeArgMapCache[key]?.let {
+            typeArgMapStats.hit()
+            return it
+        }
+        typeArgMapStats.miss()
+        val computed = compute()
+        if (!com.intellij.openapi.project.DumbService.isDumb(project)) {
+            typeArgMapCache[key] = computed
+        }
+        return computed
+    }
+
+    /**
+     * Clear all caches explicitly.
+     */
+    fun clearAll() {
         typeOfCache.clear()
         memberListCache.clear()
-        if (project != null) {
-            lastModCount = PsiModificationTracker.getInstance(project).modificationCount
-        } else {
-            lastModCount = -1L
+        typeArgMapCache.clear()
+        typeOfModCount = -1L
+        membersModCount = -1L
+    }
+
+    companion object {
+        @JvmStatic
+        fun getInstance(project: Project): MemberResolutionCache {
+            return project.getService(MemberResolutionCache::class.java)
         }
     }
 }
@@ -0,0 +1,100 @@
+package nl.akiar.pascal.resolution
+
+import com.intellij.openapi.components.Service
+import com.intellij.openapi.project.Project
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Project-level table of interned, case-insensitive Pascal names.
+ *
+ * Unit, type and member names are compared case-insensitively throughout resolution,
+ * which used to mean a fresh `lowercase()` string for every cache key and index probe.
+ * This table hands out a stable int id per name — two names get the same id iff they
+ * are equal ignoring case — together with one canonical lowercase instance, so hot
+ * paths can key caches on ints and reuse a single lowercase string for index keys.
+ *
+ * Lookups of an already-seen spelling are allocation-free: each exact spelling is
+ * remembered next to its case-folded form. Ids are never recycled for the lifetime
+ * of the project.
+ */
+@Service(Service.Level.PROJECT)
+class PascalNameTable {
+    private val bySpelling = ConcurrentHashMap<String, Int>()
+    private val byLowerName = ConcurrentHashMap<String, Int>()
+
+    @Volatile private var canonicalNames = arrayOfNulls<String>(1024)
+    @Volatile private var size = 0
+
+    /**
+     * Id of [name], ignoring case. Registers the name on first use.
+     */
+    fun idOf(name: String): Int {
+        bySpelling[name]?.let { return it }
+        val lower = name.lowercase()
+        val id = byLowerName[lower] ?: register(lower)
+        if (bySpelling.size < MAX_SPELLINGS) {
+            bySpelling.putIfAbsent(name, id)
+        }
+        return id
+    }
+
+    /**
+     * Id of [name], or [NO_ID] for null.
+     */
+    fun idOfNullable(name: String?): Int = if (name == null) NO_ID else idOf(name)
+
+    /**
+     * Canonical lowercase spelling for an id handed out by [idOf].
+     */
+    fun nameOf(id: Int): String {
+        return canonicalNames[id] ?: throw IllegalArgumentException("Unknown name id $id")
+    }
+
+    /**
+     * Shared lowercase instance of [name]; equivalent to `name.lowercase()` without the
+     * per-call allocation once the spelling has been seen.
+     */
+    fun canonical(name: String): String = nameOf(idOf(name))
+
+    /**
+     * Pack a (unit, name) pair into a single key, e.g. for visited-sets over
+     * unit-qualified type names. Null parts map to [NO_ID].
+     */
+    fun qualifiedKey(unitName: String?, name: String?): Long {
+        val unitId = idOfNullable(unitName)
+        val nameId = idOfNullable(name)
+        return (unitId.toLong() shl 32) or (nameId.toLong() and 0xFFFFFFFFL)
+    }
+
+    /** Number of distinct names registered so far. */
+    fun size(): Int = size
+
+    @Synchronized
+    private fun register(lower: String): Int {
+        byLowerName[lower]?.let { return it }
+        val id = size
+        var names = canonicalNames
+        if (id == names.size) {
+            names = names.copyOf(id * 2)
+        }
+        names[id] = lower
+        canonicalNames = names
+        // Publish the name before the id becomes reachable through byLowerName
+        size = id + 1
+        byLowerName[lower] = id
+        return id
+    }
+
+    companion object {
+        /** Id used for absent (null) names. */
+        const val NO_ID = -1
+
+        /** Upper bound on remembered spellings; beyond it lookups fall back to case folding. */
+        private const val MAX_SPELLINGS = 1 shl 20
+
+        @JvmStatic
+        fun getInstance(project: Project): PascalNameTable {
+            return project.getService(PascalNameTable::class.java)
+        }
+    }
+}
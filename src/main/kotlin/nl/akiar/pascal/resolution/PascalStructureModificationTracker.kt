@@ -0,0 +1,115 @@
+package nl.akiar.pascal.resolution
+
+import com.intellij.openapi.Disposable
+import com.intellij.openapi.components.Service
+import com.intellij.openapi.project.Project
+import com.intellij.openapi.util.Key
+import com.intellij.openapi.util.ModificationTracker
+import com.intellij.openapi.util.UserDataHolderEx
+import com.intellij.psi.PsiElement
+import com.intellij.psi.PsiFile
+import com.intellij.psi.PsiManager
+import com.intellij.psi.PsiTreeChangeAdapter
+import com.intellij.psi.PsiTreeChangeEvent
+import nl.akiar.pascal.PascalFile
+import nl.akiar.pascal.psi.PascalElementTypes
+import nl.akiar.pascal.psi.PascalRoutine
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Modification tracker for Pascal declarations.
+ *
+ * Counts PSI changes in Pascal files except those that happen inside the statement
+ * block of a routine body, which cannot change a type, its members or its ancestors.
+ * Caches that only depend on declarations (inheritance chains, member lists) use this
+ * instead of [com.intellij.psi.util.PsiModificationTracker.MODIFICATION_COUNT] so that
+ * typing inside a method body does not throw them away.
+ *
+ * Changes whose location is unknown (no file, non-physical events) are counted
+ * conservatively.
+ *
+ * Statement-block changes are counted per enclosing routine instead, see [forRoutine],
+ * for caches that depend on a routine's statements (inferred inline variable types).
+ */
+@Service(Service.Level.PROJECT)
+class PascalStructureModificationTracker(project: Project) : ModificationTracker, Disposable {
+    private val count = AtomicLong()
+
+    init {
+        PsiManager.getInstance(project).addPsiTreeChangeListener(object : PsiTreeChangeAdapter() {
+            override fun childAdded(event: PsiTreeChangeEvent) = onChange(event)
+            override fun childRemoved(event: PsiTreeChangeEvent) = onChange(event)
+            override fun childReplaced(event: PsiTreeChangeEvent) = onChange(event)
+            override fun childMoved(event: PsiTreeChangeEvent) = onChange(event)
+            override fun childrenChanged(event: PsiTreeChangeEvent) = onChange(event)
+            override fun propertyChanged(event: PsiTreeChangeEvent) = onChange(event)
+        }, this)
+    }
+
+    override fun getModificationCount(): Long = count.get()
+
+    /** Force invalidation of everything depending on this tracker. */
+    fun incModificationCount() {
+        count.incrementAndGet()
+    }
+
+    private fun onChange(event: PsiTreeChangeEvent) {
+        val file = event.file
+        if (file != null && file !is PascalFile) return
+        if (file != null && isInsideStatementBlock(event.parent)) {
+            bumpEnclosingRoutines(event.parent)
+            return
+        }
+        count.incrementAndGet()
+    }
+
+    private fun bumpEnclosingRoutines(element: PsiElement?) {
+        var current = element
+        while (current != null && current !is PsiFile) {
+            // Only routines someone asked a tracker for carry a counter
+            if (current is PascalRoutine) current.getUserData(ROUTINE_BODY_COUNT)?.incrementAndGet()
+            current = current.parent
+        }
+    }
+
+    override fun dispose() {}
+
+    companion object {
+        private val ROUTINE_BODY_COUNT: Key<AtomicLong> = Key.create("pascal.routine.body.modification.count")
+
+        @JvmStatic
+        fun getInstance(project: Project): PascalStructureModificationTracker {
+            return project.getService(PascalStructureModificationTracker::class.java)
+        }
+
+        /**
+         * True if [element] lies within a begin..end block. Statements cannot declare
+         * types or members; inline `var` declarations there are local to the routine.
+         */
+        @JvmStatic
+        fun isInsideStatementBlock(element: PsiElement?): Boolean {
+            var current = element
+            while (current != null && current !is PsiFile) {
+                val type = current.node?.elementType
+                if (type == PascalElementTypes.COMPOUND_STATEMENT) return true
+                if (type == PascalElementTypes.TYPE_DEFINITION || type == PascalElementTypes.ROUTINE_DECLARATION) {
+                    // A routine header or type declaration encloses the change before any statement block
+                    return false
+                }
+                current = current.parent
+            }
+            return false
+        }
+
+        /**
+         * Tracker for [routine]: moves on every change inside its statement blocks,
+         * including those of nested routines, and on every structural change.
+         */
+        @JvmStatic
+        fun forRoutine(routine: PascalRoutine): ModificationTracker {
+            val structure = getInstance(routine.project)
+            val body = (routine as UserDataHolderEx).putUserDataIfAbsent(ROUTINE_BODY_COUNT, AtomicLong())
+            return ModificationTracker { structure.modificationCount + body.get() }
+        }
+    }
+}
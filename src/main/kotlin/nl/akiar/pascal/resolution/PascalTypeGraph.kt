@@ -0,0 +1,416 @@
+package nl.akiar.pascal.resolution
+
+import com.intellij.openapi.Disposable
+import com.intellij.openapi.components.Service
+import com.intellij.openapi.progress.ProgressManager
+import com.intellij.openapi.project.DumbService
+import com.intellij.openapi.project.Project
+import com.intellij.openapi.vfs.VirtualFile
+import com.intellij.openapi.vfs.VirtualFileManager
+import com.intellij.openapi.vfs.newvfs.BulkFileListener
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent
+import com.intellij.psi.PsiManager
+import com.intellij.psi.PsiTreeChangeAdapter
+import com.intellij.psi.PsiTreeChangeEvent
+import com.intellij.psi.SmartPointerManager
+import com.intellij.psi.SmartPsiElementPointer
+import com.intellij.psi.impl.source.PsiFileImpl
+import com.intellij.util.Processor
+import nl.akiar.pascal.PascalFile
+import nl.akiar.pascal.PascalFileType
+import nl.akiar.pascal.project.PascalProjectFiles
+import nl.akiar.pascal.psi.PascalTypeDefinition
+import nl.akiar.pascal.psi.TypeKind
+import nl.akiar.pascal.stubs.PascalImplementorsIndex
+import nl.akiar.pascal.stubs.PascalTypeIndex
+import nl.akiar.pascal.stubs.PascalTypeStub
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Project-wide type hierarchy built from type stubs, at two levels of precision.
+ *
+ * By name: each node is a simple type name (a [PascalNameTable] id). Its parents are
+ * the ancestor names listed by every type of that name (superclass and implemented
+ * interfaces, unit prefix and generic arguments stripped), plus the implicit `TObject`
+ * for classes; its children are the names listed under it in [PascalImplementorsIndex].
+ * Ancestor and descendant closures are derived from them as sorted id arrays, so a
+ * subtype check is a binary search over a handful of ids. Types with the same name in
+ * different units share a node, so these answers over-approximate.
+ *
+ * By declaration: [Subtype] records, the reverse hierarchy behind Go to Implementation
+ * and the Type Hierarchy view, are keyed by unit and name. A type is a direct subtype
+ * of `U.T` only if the ancestor entry naming `T` resolves to `U` as seen from the
+ * subtype's own declaration ([PascalUnitQualifiedLookup.findAncestorType]), so
+ * same-named types in unrelated units are not merged.
+ *
+ * Everything is read lazily per node and kept. Updates are per file: when a file's
+ * declarations or uses change, only the names it contributed to (before and after the
+ * change) are dropped, together with the derived closures. The implicit `TObject`
+ * parent is followed upwards only; it is not part of `TObject`'s descendants.
+ */
+@Service(Service.Level.PROJECT)
+class PascalTypeGraph(private val project: Project) : Disposable {
+    private val names get() = PascalNameTable.getInstance(project)
+
+    /**
+     * A type that lists another type as a direct ancestor. [unitName] is empty when the
+     * unit is unknown. The declaration is held through a smart pointer, so records kept
+     * in the graph neither pin PSI nor outlive a reparse.
+     */
+    class Subtype(
+        val name: String,
+        val unitName: String,
+        val kind: TypeKind?,
+        private val pointer: SmartPsiElementPointer<PascalTypeDefinition>
+    ) {
+        /** The declaration, or null if it no longer exists. */
+        val element: PascalTypeDefinition? get() = pointer.element
+
+        /** `Unit.Name`, or just the name when the unit is unknown. */
+        val qualifiedName: String get() = if (unitName.isEmpty()) name else "$unitName.$name"
+    }
+
+    /** A declared type: lowercase unit name ("" if unknown) and [PascalNameTable] id of its name. */
+    private data class TypeKey(val unit: String, val nameId: Int)
+
+    private val parents = ConcurrentHashMap<Int, IntArray>()
+    /** Direct subtypes per name id, then per lowercase declaring unit of the ancestor. */
+    private val subtypes = ConcurrentHashMap<Int, ConcurrentHashMap<String, List<Subtype>>>()
+    private val children = ConcurrentHashMap<Int, IntArray>()
+    private val ancestors = ConcurrentHashMap<Int, IntArray>()
+    private val descendants = ConcurrentHashMap<Int, IntArray>()
+
+    /** Node ids each file contributed to the adjacency computed so far. */
+    private val contributions = ConcurrentHashMap<VirtualFile, MutableSet<Int>>()
+    private val dirtyFiles: MutableSet<VirtualFile> = ConcurrentHashMap.newKeySet()
+    @Volatile private var dropAll = false
+    /** Set in `before` when the batch deletes units; applied with the rest of the batch in `after`. */
+    @Volatile private var unitsDeleted = false
+
+    val stats = CacheHitCounter("typeGraph")
+
+    init {
+        PsiManager.getInstance(project).addPsiTreeChangeListener(object : PsiTreeChangeAdapter() {
+            override fun childAdded(event: PsiTreeChangeEvent) = onPsiChange(event)
+            override fun childRemoved(event: PsiTreeChangeEvent) = onPsiChange(event)
+            override fun childReplaced(event: PsiTreeChangeEvent) = onPsiChange(event)
+            override fun childMoved(event: PsiTreeChangeEvent) = onPsiChange(event)
+            override fun childrenChanged(event: PsiTreeChangeEvent) = onPsiChange(event)
+        }, this)
+        val connection = project.messageBus.connect(this)
+        connection.subscribe(VirtualFileManager.VFS_CHANGES, object : BulkFileListener {
+            override fun before(events: List<VFileEvent>) {
+                if (PascalProjectFiles.deletesUnits(project, events)) unitsDeleted = true
+            }
+
+            override fun after(events: List<VFileEvent>) {
+                // Only units appearing, disappearing or moving can change the graph wholesale
+                if (unitsDeleted || PascalProjectFiles.addsOrMovesUnits(project, events)) {
+                    unitsDeleted = false
+                    dropAll = true
+                    return
+                }
+                for (event in events) {
+                    val file = event.file
+                    if (file != null && !file.isDirectory && file.fileType == PascalFileType.INSTANCE) {
+                        dirtyFiles.add(file)
+                    }
+                }
+            }
+        })
+        connection.subscribe(DumbService.DUMB_MODE, object : DumbService.DumbModeListener {
+            override fun exitDumbMode() {
+                // Indices may have changed wholesale while indexing
+                dropAll = true
+            }
+        })
+    }
+
+    private fun onPsiChange(event: PsiTreeChangeEvent) {
+        val file = event.file
+        if (file == null) {
+            // Directories are handled by the VFS listener; only added or removed Pascal files matter here
+            val child = event.child ?: event.oldChild ?: event.newChild
+            if (child is PascalFile) child.virtualFile?.let { dirtyFiles.add(it) }
+            return
+        }
+        if (file !is PascalFile) return
+        if (PascalStructureModificationTracker.isInsideStatementBlock(event.parent)) return
+        file.virtualFile?.let { dirtyFiles.add(it) }
+    }
+
+    /** Apply pending file changes. Returns false while indices are unavailable. */
+    private fun refresh(): Boolean {
+        if (DumbService.isDumb(project)) return false
+        if (dropAll) {
+            dropAll = false
+            dirtyFiles.clear()
+            clearAll()
+            return true
+        }
+        if (dirtyFiles.isEmpty()) return true
+        val drained = ArrayList(dirtyFiles)
+        dirtyFiles.removeAll(drained.toSet())
+        val affected = HashSet<Int>()
+        for (file in drained) {
+            contributions.remove(file)?.let { affected.addAll(it) }
+            affected.addAll(namesDeclaredIn(file))
+        }
+        for (id in affected) {
+            parents.remove(id)
+            subtypes.remove(id)
+            children.remove(id)
+        }
+        if (affected.isNotEmpty()) {
+            ancestors.clear()
+            descendants.clear()
+        }
+        return true
+    }
+
+    /** Type names and ancestor names currently declared in [file], from its stubs. */
+    private fun namesDeclaredIn(file: VirtualFile): Set<Int> {
+        if (!file.isValid) return emptySet()
+        val psiFile = PsiManager.getInstance(project).findFile(file) as? PsiFileImpl ?: return emptySet()
+        val stubTree = psiFile.stubTree ?: psiFile.calcStubTree()
+        val result = HashSet<Int>()
+        for (stub in stubTree.plainList) {
+            if (stub !is PascalTypeStub) continue
+            val name = stub.name ?: continue
+            result.add(names.idOf(name))
+            for (ancestor in stub.allAncestorNames) {
+                result.add(names.idOf(simpleName(ancestor)))
+            }
+        }
+        return result
+    }
+
+    private fun contribute(typeDef: PascalTypeDefinition, vararg ids: Int) {
+        val file = typeDef.containingFile?.virtualFile ?: return
+        val set = contributions.computeIfAbsent(file) { ConcurrentHashMap.newKeySet() }
+        for (id in ids) set.add(id)
+    }
+
+    private fun parentsOf(id: Int): IntArray {
+        parents[id]?.let { return it }
+        val name = names.nameOf(id)
+        val result = sortedSetOf<Int>()
+        for (typeDef in PascalTypeIndex.findTypes(name, project)) {
+            ProgressManager.checkCanceled()
+            contribute(typeDef, id)
+            val ancestorNames = typeDef.allAncestorNames
+            for (ancestor in ancestorNames) {
+                val parentId = names.idOf(simpleName(ancestor))
+                if (parentId != id) result.add(parentId)
+                contribute(typeDef, parentId)
+            }
+            // Implicit TObject ancestor for classes without an explicit parent
+            if (ancestorNames.isEmpty() && typeDef.typeKind == TypeKind.CLASS && !name.equals("tobject", ignoreCase = true)) {
+                result.add(names.idOf("TObject"))
+            }
+        }
+        return result.toIntArray().also { parents[id] = it }
+    }
+
+    private fun subtypesOf(key: TypeKey): List<Subtype> {
+        val byUnit = subtypes.computeIfAbsent(key.nameId) { ConcurrentHashMap() }
+        byUnit[key.unit]?.let { return it }
+        val pointers = SmartPointerManager.getInstance(project)
+        val result = ArrayList<Subtype>()
+        for (typeDef in PascalImplementorsIndex.findImplementors(names.nameOf(key.nameId), project)) {
+            ProgressManager.checkCanceled()
+            val childName = typeDef.name ?: continue
+            val childId = names.idOf(childName)
+            // The ancestor resolves through the child's uses clauses, so the child's file matters too
+            contribute(typeDef, key.nameId, childId)
+            if (!listsAncestorIn(typeDef, key)) continue
+            result.add(Subtype(childName, typeDef.unitName, typeDef.typeKind, pointers.createSmartPsiElementPointer(typeDef)))
+        }
+        result.sortWith(SUBTYPE_ORDER)
+        return result.also { byUnit[key.unit] = it }
+    }
+
+    /** True if an ancestor entry of [typeDef] resolves to the type [key]. */
+    private fun listsAncestorIn(typeDef: PascalTypeDefinition, key: TypeKey): Boolean {
+        for (ancestor in typeDef.allAncestorNames) {
+            if (names.idOf(simpleName(ancestor)) != key.nameId) continue
+            val resolved = PascalUnitQualifiedLookup.findAncestorType(typeDef, ancestor) ?: continue
+            // Removing the resolved declaration must drop this entry as well
+            contribute(resolved, key.nameId)
+            if (resolved.unitName.lowercase() == key.unit) return true
+        }
+        return false
+    }
+
+    private fun childrenOf(id: Int): IntArray {
+        children[id]?.let { return it }
+        val result = sortedSetOf<Int>()
+        for (typeDef in PascalImplementorsIndex.findImplementors(names.nameOf(id), project)) {
+            ProgressManager.checkCanceled()
+            val childId = typeDef.name?.let { names.idOf(it) } ?: continue
+            contribute(typeDef, id, childId)
+            if (childId != id) result.add(childId)
+        }
+        return result.toIntArray().also { children[id] = it }
+    }
+
+    /**
+     * The declared types [typeName] denotes: the one in the given unit for `Unit.Name`,
+     * otherwise every type of that name.
+     */
+    private fun keysOf(typeName: String): List<TypeKey> {
+        val stripped = typeName.substringBefore('<').trim()
+        val dot = stripped.lastIndexOf('.')
+        val nameId = names.idOf(stripped.substring(dot + 1))
+        if (dot > 0) return listOf(TypeKey(stripped.substring(0, dot).lowercase(), nameId))
+        return PascalTypeIndex.findTypes(names.nameOf(nameId), project)
+            .mapTo(LinkedHashSet()) { TypeKey(it.unitName.lowercase(), nameId) }
+            .toList()
+    }
+
+    private fun keyOf(type: PascalTypeDefinition): TypeKey? {
+        val name = type.name ?: return null
+        return TypeKey(type.unitName.lowercase(), names.idOf(name))
+    }
+
+    private fun closure(id: Int, memo: MutableMap<Int, IntArray>, step: (Int) -> IntArray): IntArray {
+        memo[id]?.let {
+            stats.hit()
+            return it
+        }
+        stats.miss()
+        val seen = HashSet<Int>()
+        val queue = ArrayDeque<Int>()
+        queue.addAll(step(id).toList())
+        while (queue.isNotEmpty()) {
+            ProgressManager.checkCanceled()
+            val next = queue.removeFirst()
+            // Cycles in broken code terminate here
+            if (next == id || !seen.add(next)) continue
+            for (n in step(next)) queue.addLast(n)
+        }
+        return seen.toIntArray().also {
+            it.sort()
+            memo[id] = it
+        }
+    }
+
+    /**
+     * Names of all ancestors of [typeName] (classes and interfaces), as sorted
+     * [PascalNameTable] ids. Empty while indices are unavailable.
+     */
+    fun ancestorIds(typeName: String): IntArray {
+        if (!refresh()) return IntArray(0)
+        return closure(names.idOf(typeName), ancestors, ::parentsOf)
+    }
+
+    /**
+     * Names of all types that directly or indirectly list [typeName] as an ancestor,
+     * as sorted [PascalNameTable] ids. Empty while indices are unavailable.
+     */
+    fun descendantIds(typeName: String): IntArray {
+        if (!refresh()) return IntArray(0)
+        return closure(names.idOf(typeName), descendants, ::childrenOf)
+    }
+
+    /** Lowercase names of all descendants of [typeName]. */
+    fun descendantNames(typeName: String): List<String> = descendantIds(typeName).map { names.nameOf(it) }
+
+    /**
+     * Types whose ancestor list names [type] itself, ordered by name and then unit.
+     * Empty while indices are unavailable.
+     */
+    fun directSubtypes(type: PascalTypeDefinition): List<Subtype> {
+        if (!refresh()) return emptyList()
+        return keyOf(type)?.let { subtypesOf(it) } ?: emptyList()
+    }
+
+    /**
+     * Direct subtypes of the type `Unit.Name` names, or of every type named [typeName]
+     * when it is unqualified; generic arguments are ignored. Ordered by name and then
+     * unit. Empty while indices are unavailable.
+     */
+    fun directSubtypes(typeName: String): List<Subtype> {
+        if (!refresh()) return emptyList()
+        val keys = keysOf(typeName)
+        if (keys.size == 1) return subtypesOf(keys[0])
+        return keys.flatMap { subtypesOf(it) }.sortedWith(SUBTYPE_ORDER)
+    }
+
+    /**
+     * Feed the direct and indirect subtypes of [type] to [processor], nearest first.
+     * Each type is expanded only when the walk reaches it, so a processor that stops early
+     * never pays for the rest of a large hierarchy. Returns false if the processor stopped.
+     */
+    fun processSubtypes(type: PascalTypeDefinition, processor: Processor<in Subtype>): Boolean {
+        if (!refresh()) return true
+        val key = keyOf(type) ?: return true
+        return processSubtypes(listOf(key), processor)
+    }
+
+    /**
+     * [processSubtypes] starting from the types [typeName] denotes, see [directSubtypes].
+     */
+    fun processSubtypes(typeName: String, processor: Processor<in Subtype>): Boolean {
+        if (!refresh()) return true
+        return processSubtypes(keysOf(typeName), processor)
+    }
+
+    private fun processSubtypes(start: List<TypeKey>, processor: Processor<in Subtype>): Boolean {
+        val expanded = HashSet(start)
+        val queue = ArrayDeque(start)
+        while (queue.isNotEmpty()) {
+            for (subtype in subtypesOf(queue.removeFirst())) {
+                ProgressManager.checkCanceled()
+                val childKey = TypeKey(subtype.unitName.lowercase(), names.idOf(subtype.name))
+                // A type reached through several of its ancestors is reported once
+                if (!expanded.add(childKey)) continue
+                if (!processor.process(subtype)) return false
+                queue.addLast(childKey)
+            }
+        }
+        return true
+    }
+
+    /**
+     * True if a type named [subTypeName] has a type named [superTypeName] among its
+     * ancestors, ignoring case. This is a name-level over-approximation: it follows
+     * interfaces too, and every type of either name counts, whatever its unit. A false
+     * answer is exact, so it suits a negative pre-check. False while indices are unavailable.
+     */
+    fun isSubtypeOf(subTypeName: String, superTypeName: String): Boolean {
+        val ancestorIds = ancestorIds(subTypeName)
+        return ancestorIds.binarySearch(names.idOf(simpleName(superTypeName))) >= 0
+    }
+
+    fun clearAll() {
+        parents.clear()
+        subtypes.clear()
+        children.clear()
+        ancestors.clear()
+        descendants.clear()
+        contributions.clear()
+    }
+
+    override fun dispose() {}
+
+    companion object {
+        private val SUBTYPE_ORDER = compareBy<Subtype>({ it.name.lowercase() }, { it.unitName.lowercase() })
+
+        @JvmStatic
+        fun getInstance(project: Project): PascalTypeGraph {
+            return project.getService(PascalTypeGraph::class.java)
+        }
+
+        /** Strip generic arguments and unit prefix, as [PascalImplementorsIndex] keys do. */
+        @JvmStatic
+        fun simpleName(ancestorName: String): String {
+            var name = ancestorName
+            val ltIdx = name.indexOf('<')
+            if (ltIdx > 0) name = name.substring(0, ltIdx)
+            val dotIdx = name.lastIndexOf('.')
+            if (dotIdx >= 0) name = name.substring(dotIdx + 1)
+            return name.trim()
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package nl.akiar.pascal.resolution
+
+import nl.akiar.pascal.psi.PascalTypeDefinition
+import org.jetbrains.annotations.TestOnly
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Parsed type name: a constructor name plus argument terms.
+ * "TDictionary<string, TList<TRide>>" is `TDictionary(string, TList(TRide))`.
+ *
+ * Terms are hash-consed, so equal terms are usually the same instance. Equality and hash
+ * codes are structural all the same, so keys built from terms stay valid when the intern
+ * tables are trimmed and the same text parses to a new instance. Parsing is memoized by text,
+ * and substitution per term and by the bindings of the names it actually contains. Walking a
+ * generic chain therefore splits each type name once, not at every step.
+ */
+class PascalTypeTerm private constructor(
+    /** Constructor name as written, e.g. "TList" or "System.Generics.Collections.TList". */
+    val name: String,
+    val args: List<PascalTypeTerm>
+) {
+    /** Canonical rendering, e.g. "TDictionary<string, TList<TRide>>". */
+    val text: String = if (args.isEmpty()) name else args.joinToString(", ", "$name<", ">") { it.text }
+
+    /** Argument renderings, e.g. ["string", "TList<TRide>"]. */
+    val argTexts: List<String> = args.map { it.text }
+
+    val isGeneric: Boolean get() = args.isNotEmpty()
+
+    private val hash: Int = 31 * name.hashCode() + args.hashCode()
+
+    /** Distinct names of the argument-less terms inside this one: all a substitution can replace. */
+    private val leafNames: List<String> by lazy {
+        if (args.isEmpty()) listOf(name) else args.flatMapTo(LinkedHashSet()) { it.leafNames }.toList()
+    }
+
+    /** Results keyed by the bound values of [leafNames], in order (null where unbound). */
+    private val substitutions = ConcurrentHashMap<List<String?>, PascalTypeTerm>()
+
+    /**
+     * Replace type parameters bound in [bindings] (formal name to actual type text)
+     * anywhere in this term. `TList<T>` with {T → TRide} becomes `TList<TRide>`.
+     */
+    fun substitute(bindings: Map<String, String>): PascalTypeTerm {
+        if (bindings.isEmpty()) return this
+        var bound: Array<String?>? = null
+        for (i in leafNames.indices) {
+            val value = bindings[leafNames[i]] ?: continue
+            if (bound == null) bound = arrayOfNulls(leafNames.size)
+            bound[i] = value
+        }
+        // Nothing in this term is bound: no lookup, no memo entry
+        if (bound == null) return this
+        val key = bound.asList()
+        substitutions[key]?.let { return it }
+        val result = if (args.isEmpty()) {
+            parse(bound[0]!!)
+        } else {
+            of(name, args.map { it.substitute(bindings) })
+        }
+        // Bindings vary per call site; keep the per-term memo small
+        if (substitutions.size >= MAX_SUBSTITUTIONS_PER_TERM) substitutions.clear()
+        substitutions[key] = result
+        return result
+    }
+
+    override fun equals(other: Any?): Boolean {
+        if (this === other) return true
+        if (other !is PascalTypeTerm || hash != other.hash) return false
+        return name == other.name && args == other.args
+    }
+
+    override fun hashCode(): Int = hash
+
+    override fun toString(): String = text
+
+    private data class InternKey(val name: String, val args: List<PascalTypeTerm>)
+
+    companion object {
+        private const val MAX_TERMS = 20_000
+        private const val MAX_SUBSTITUTIONS_PER_TERM = 16
+
+        private val interned = ConcurrentHashMap<InternKey, PascalTypeTerm>()
+        private val parsed = ConcurrentHashMap<String, PascalTypeTerm>()
+
+        /** Drop the intern and parse tables, as happens when they reach [MAX_TERMS]. */
+        @TestOnly
+        internal fun clearTables() {
+            interned.clear()
+            parsed.clear()
+        }
+
+        /** The interned term for [name] applied to [args]. */
+        @JvmStatic
+        fun of(name: String, args: List<PascalTypeTerm>): PascalTypeTerm {
+            val key = InternKey(name, args)
+            interned[key]?.let { return it }
+            if (interned.size >= MAX_TERMS) interned.clear()
+            return interned.computeIfAbsent(key) { PascalTypeTerm(name, args) }
+        }
+
+        /**
+         * Parse a type name such as "TDict<String, TList<Integer>>".
+         * Text without well-formed angle brackets is a single term with no arguments.
+         */
+        @JvmStatic
+        fun parse(typeName: String): PascalTypeTerm {
+            parsed[typeName]?.let { return it }
+            val term = doParse(typeName)
+            if (parsed.size >= MAX_TERMS) parsed.clear()
+            parsed[typeName] = term
+            return term
+        }
+
+        private fun doParse(typeName: String): PascalTypeTerm {
+            val ltIdx = typeName.indexOf('<')
+            if (ltIdx < 0) return of(typeName, emptyList())
+            val gtIdx = typeName.lastIndexOf('>')
+            if (gtIdx <= ltIdx) return of(typeName, emptyList())
+            val argsStr = typeName.substring(ltIdx + 1, gtIdx)
+            return of(typeName.substring(0, ltIdx), splitArgs(argsStr).map { parse(it) })
+        }
+
+        /** Split generic arguments at depth-0 commas. */
+        private fun splitArgs(argsStr: String): List<String> {
+            val args = mutableListOf<String>()
+            var depth = 0
+            var start = 0
+            for (i in argsStr.indices) {
+                when (argsStr[i]) {
+                    '<' -> depth++
+                    '>' -> depth--
+                    ',' -> if (depth == 0) {
+                        args.add(argsStr.substring(start, i).trim())
+                        start = i + 1
+                    }
+                }
+            }
+            val last = argsStr.substring(start).trim()
+            if (last.isNotEmpty()) args.add(last)
+            return args
+        }
+
+        /**
+         * Substitution map from [typeDef]'s formal type parameters to [args], memoized per
+         * (generic type, argument tuple). For TEntityList<T> and args (TRide), returns {T → TRide}.
+         */
+        @JvmStatic
+        fun typeArgMap(typeDef: PascalTypeDefinition?, args: List<PascalTypeTerm>): Map<String, String> {
+            if (typeDef == null || args.isEmpty()) return emptyMap()
+            return MemberResolutionCache.getInstance(typeDef.project).getOrComputeTypeArgMap(typeDef, args) {
+                val typeParams = typeDef.typeParameters
+                if (typeParams.isEmpty()) {
+                    emptyMap()
+                } else {
+                    val map = HashMap<String, String>()
+                    for (i in args.indices) {
+                        if (i < typeParams.size) map[typeParams[i]] = args[i].text
+                    }
+                    map
+                }
+            }
+        }
+
+        /** [typeArgMap] for the arguments written in [rawTypeName], e.g. "TEntityList<TRide>". */
+        @JvmStatic
+        fun typeArgMap(typeDef: PascalTypeDefinition?, rawTypeName: String?): Map<String, String> {
+            if (rawTypeName == null) return emptyMap()
+            return typeArgMap(typeDef, parse(rawTypeName).args)
+        }
+
+        /**
+         * Apply [bindings] to [rawTypeName]: a bare type parameter is replaced by its binding,
+         * and parameters nested in generic arguments are substituted in place.
+         */
+        @JvmStatic
+        fun substitute(rawTypeName: String, bindings: Map<String, String>): String {
+            if (bindings.isEmpty()) return rawTypeName
+            bindings[rawTypeName]?.let { return it }
+            val term = parse(rawTypeName)
+            if (!term.isGeneric) return rawTypeName
+            return term.substitute(bindings).text
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package nl.akiar.pascal.resolution
+
+import com.intellij.openapi.Disposable
+import com.intellij.openapi.application.ReadAction
+import com.intellij.openapi.components.Service
+import com.intellij.openapi.progress.ProgressManager
+import com.intellij.openapi.project.DumbService
+import com.intellij.openapi.project.Project
+import com.intellij.openapi.util.ModificationTracker
+import com.intellij.openapi.vfs.VirtualFile
+import com.intellij.openapi.vfs.VirtualFileManager
+import com.intellij.openapi.vfs.newvfs.BulkFileListener
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent
+import com.intellij.psi.PsiFile
+import com.intellij.psi.PsiManager
+import com.intellij.psi.PsiTreeChangeAdapter
+import com.intellij.psi.PsiTreeChangeEvent
+import nl.akiar.pascal.PascalFile
+import nl.akiar.pascal.project.PascalProjectFiles
+import nl.akiar.pascal.project.PascalProjectService
+import nl.akiar.pascal.settings.PascalSourcePathsSettings
+import nl.akiar.pascal.uses.PascalUsesClauseInfo
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Project-wide unit dependency graph with memoized transitive closures.
+ *
+ * Each node is a lowercase unit name (a [PascalNameTable] id); its edges are the
+ * units in both uses clauses of the file the name resolves to, plus their
+ * unit-scope-prefixed variants for unscoped names. Edges are read lazily per node.
+ *
+ * Closures are computed by condensing the reachable graph into strongly connected
+ * components (Tarjan): every unit in a component shares one sorted array of name ids,
+ * which is its members plus the closures of the components it uses, so a closure costs
+ * memory in proportion to the units it holds. Once the RTL has been walked for one file,
+ * every other file using `System.Classes` gets its closure from the memo.
+ *
+ * Updates are per unit: when a file changes, its uses clauses are re-read and, only if
+ * they differ, the closures of the units that can reach it are dropped. Editor changes
+ * are re-read from the PSI listener; files changed outside the editor are marked and
+ * re-read on the next walk. Creating, deleting, moving or renaming a Pascal file, or a
+ * directory holding one, in the project changes how names resolve, so it drops
+ * everything; other VFS traffic is ignored. The graph is also a [ModificationTracker]
+ * that moves whenever a closure is dropped or a unit is marked, for callers that cache
+ * results derived from closures; reading it costs no more than reading a counter.
+ */
+@Service(Service.Level.PROJECT)
+class PascalUnitGraph(private val project: Project) : ModificationTracker, Disposable {
+    private val names get() = PascalNameTable.getInstance(project)
+
+    /** Uses of one unit as read from [file]; [file] is null for units that do not resolve. */
+    private class Node(val file: VirtualFile?, val uses: List<String>, val edges: IntArray)
+
+    private val nodes = ConcurrentHashMap<Int, Node>()
+    private val dependents = ConcurrentHashMap<Int, MutableSet<Int>>()
+    private val closures = ConcurrentHashMap<Int, IntArray>()
+    private val nodesByFile = ConcurrentHashMap<VirtualFile, MutableSet<Int>>()
+    /** Units whose file changed outside the editor, to be re-read before the next walk. */
+    private val dirtyNodes: MutableSet<Int> = ConcurrentHashMap.newKeySet()
+    /** Set in `before` when the batch deletes units; the graph is dropped once it is applied. */
+    @Volatile private var unitsDeleted = false
+    @Volatile private var scopes: List<String> = emptyList()
+    private val modificationCount = AtomicLong()
+
+    val stats = CacheHitCounter("unitClosure")
+
+    init {
+        PsiManager.getInstance(project).addPsiTreeChangeListener(object : PsiTreeChangeAdapter() {
+            override fun childAdded(event: PsiTreeChangeEvent) = onPsiChange(event)
+            override fun childRemoved(event: PsiTreeChangeEvent) = onPsiChange(event)
+            override fun childReplaced(event: PsiTreeChangeEvent) = onPsiChange(event)
+            override fun childMoved(event: PsiTreeChangeEvent) = onPsiChange(event)
+            override fun childrenChanged(event: PsiTreeChangeEvent) = onPsiChange(event)
+        }, this)
+        val connection = project.messageBus.connect(this)
+        connection.subscribe(VirtualFileManager.VFS_CHANGES, object : BulkFileListener {
+            override fun before(events: List<VFileEvent>) {
+                if (PascalProjectFiles.deletesUnits(project, events)) unitsDeleted = true
+            }
+
+            override fun after(events: List<VFileEvent>) {
+                if (unitsDeleted || PascalProjectFiles.addsOrMovesUnits(project, events)) {
+                    unitsDeleted = false
+                    clearAll()
+                    return
+                }
+                // Edits made outside the editor produce no PSI events; their uses are read lazily
+                var marked = false
+                for (event in events) {
+                    if (event !is VFileContentChangeEvent) continue
+                    val ids = nodesByFile[event.file] ?: continue
+                    if (dirtyNodes.addAll(ids)) marked = true
+                }
+                if (marked) modificationCount.incrementAndGet()
+            }
+        })
+        connection.subscribe(DumbService.DUMB_MODE, object : DumbService.DumbModeListener {
+            override fun exitDumbMode() {
+                // Unit resolution may have changed wholesale while indexing
+                clearAll()
+            }
+        })
+    }
+
+    private fun onPsiChange(event: PsiTreeChangeEvent) {
+        val file = event.file
+        if (file == null) {
+            // A Pascal file was added or removed: names may now resolve differently
+            if (event.child is PascalFile || event.oldChild is PascalFile || event.newChild is PascalFile) clearAll()
+            return
+        }
+        if (file !is PascalFile) return
+        if (PascalStructureModificationTracker.isInsideStatementBlock(event.parent)) return
+        val ids = file.virtualFile?.let { nodesByFile[it] } ?: return
+        if (ids.isEmpty()) return
+        val uses = PascalUsesClauseInfo.parse(file).allUses
+        for (id in ids.toList()) reread(id, uses)
+    }
+
+    /**
+     * Compare the uses clauses of unit [id] with [uses]. If they differ the unit is unlinked,
+     * to be read again on the next walk, and the closures reaching it are dropped; edits
+     * that leave the uses clauses alone keep every closure.
+     */
+    private fun reread(id: Int, uses: List<String>) {
+        val old = nodes[id] ?: return
+        if (old.uses == uses) return
+        unlink(id, old)
+        invalidateReaching(id)
+    }
+
+    /** Re-read the units marked by external changes. */
+    private fun rereadDirty() {
+        if (dirtyNodes.isEmpty()) return
+        for (id in dirtyNodes.toList()) {
+            dirtyNodes.remove(id)
+            val file = nodes[id]?.file ?: continue
+            val psiFile = getPsiFile(file) ?: continue
+            reread(id, PascalUsesClauseInfo.parse(psiFile).allUses)
+        }
+    }
+
+    /** Pick up changed unit scope names. Returns false while indices are unavailable. */
+    private fun refresh(): Boolean {
+        if (DumbService.isDumb(project)) return false
+        val currentScopes = PascalSourcePathsSettings.getInstance(project).unitScopeNames.map { it.lowercase() }
+        if (currentScopes != scopes) {
+            scopes = currentScopes
+            clearAll()
+        }
+        return true
+    }
+
+    /** Drop the closures of [id] and of every unit that uses it directly or indirectly. */
+    private fun invalidateReaching(id: Int) {
+        val seen = HashSet<Int>()
+        val queue = ArrayDeque<Int>()
+        queue.addLast(id)
+        while (queue.isNotEmpty()) {
+            val next = queue.removeFirst()
+            if (!seen.add(next)) continue
+            closures.remove(next)
+            dependents[next]?.let { queue.addAll(it) }
+        }
+        modificationCount.incrementAndGet()
+    }
+
+    private fun readNode(id: Int): Node {
+        val virtualFile = PascalProjectService.getInstance(project).resolveUnit(names.nameOf(id), true)
+        val psiFile = virtualFile?.let { getPsiFile(it) } ?: return Node(null, emptyList(), IntArray(0))
+        val uses = PascalUsesClauseInfo.parse(psiFile).allUses
+        val edges = LinkedHashSet<Int>()
+        for (dep in uses) {
+            val lowerDep = dep.lowercase()
+            edges.add(names.idOf(lowerDep))
+            if (!lowerDep.contains('.')) {
+                for (scope in scopes) edges.add(names.idOf("$scope.$lowerDep"))
+            }
+        }
+        return Node(virtualFile, uses, edges.toIntArray())
+    }
+
+    private fun getPsiFile(virtualFile: VirtualFile): PsiFile? {
+        if (!virtualFile.isValid) return null
+        return ReadAction.compute<PsiFile?, Throwable> {
+            PsiManager.getInstance(project).findFile(virtualFile)
+        }
+    }
+
+    private fun link(id: Int, node: Node) {
+        nodes[id] = node
+        for (edge in node.edges) dependents.computeIfAbsent(edge) { ConcurrentHashMap.newKeySet() }.add(id)
+        node.file?.let { nodesByFile.computeIfAbsent(it) { ConcurrentHashMap.newKeySet() }.add(id) }
+    }
+
+    private fun unlink(id: Int, node: Node) {
+        nodes.remove(id)
+        for (edge in node.edges) dependents[edge]?.remove(id)
+        node.file?.let { nodesByFile[it]?.remove(id) }
+    }
+
+    private fun nodeOf(id: Int, store: Boolean): Node {
+        nodes[id]?.let { return it }
+        val node = readNode(id)
+        if (store) link(id, node)
+        return node
+    }
+
+    private class Frame(val id: Int, val edges: IntArray) {
+        var next = 0
+    }
+
+    /**
+     * Closure of [root], including [root] itself. Components reached for the first time
+     * are condensed with an iterative Tarjan walk; components with a memoized closure
+     * are not entered again.
+     */
+    private fun closureOf(root: Int, store: Boolean): IntArray {
+        closures[root]?.let {
+            stats.hit()
+            return it
+        }
+        stats.miss()
+        val generation = modificationCount.get()
+        val computed = HashMap<Int, IntArray>()
+        val edgesOf = HashMap<Int, IntArray>()
+        val index = HashMap<Int, Int>()
+        val low = HashMap<Int, Int>()
+        val stack = ArrayList<Int>()
+        val onStack = HashSet<Int>()
+        val frames = ArrayList<Frame>()
+
+        fun known(id: Int): IntArray? = computed[id] ?: closures[id]
+
+        fun enter(id: Int) {
+            index[id] = index.size
+            low[id] = index[id]!!
+            stack.add(id)
+            onStack.add(id)
+            val edges = nodeOf(id, store).edges
+            edgesOf[id] = edges
+            frames.add(Frame(id, edges))
+        }
+
+        enter(root)
+        while (frames.isNotEmpty()) {
+            ProgressManager.checkCanceled()
+            val frame = frames.last()
+            if (frame.next < frame.edges.size) {
+                val target = frame.edges[frame.next++]
+                if (known(target) != null) continue
+                val targetIndex = index[target]
+                if (targetIndex == null) {
+                    enter(target)
+                } else if (target in onStack) {
+                    low[frame.id] = minOf(low[frame.id]!!, targetIndex)
+                }
+                continue
+            }
+            frames.removeAt(frames.size - 1)
+            val id = frame.id
+            if (frames.isNotEmpty()) {
+                val parent = frames.last().id
+                low[parent] = minOf(low[parent]!!, low[id]!!)
+            }
+            if (low[id] != index[id]) continue
+
+            // id is the root of a component: pop its members and merge their successors
+            val members = ArrayList<Int>()
+            do {
+                val member = stack.removeAt(stack.size - 1)
+                onStack.remove(member)
+                members.add(member)
+            } while (member != id)
+            val parts = ArrayList<IntArray>()
+            parts.add(members.toIntArray())
+            for (member in members) {
+                for (edge in edgesOf[member]!!) known(edge)?.let { parts.add(it) }
+            }
+            val closure = sortedUnion(parts)
+            for (member in members) computed[member] = closure
+        }
+
+        // An invalidation during the walk may have made part of it stale; keep it local then
+        if (store && modificationCount.get() == generation) closures.putAll(computed)
+        return computed[root] ?: closures[root] ?: IntArray(0)
+    }
+
+    /**
+     * Union of the closures of [unitIds] as a sorted array of distinct [PascalNameTable] ids,
+     * each unit included. Closures are memoized outside of dumb mode only.
+     */
+    fun closureOf(unitIds: IntArray): IntArray {
+        val store = refresh()
+        rereadDirty()
+        return sortedUnion(unitIds.map { closureOf(it, store) })
+    }
+
+    /** Raw uses of [unitName] as last read, or null if it has not been read or does not resolve. */
+    fun usesOf(unitName: String): List<String>? {
+        val node = nodes[names.idOf(unitName)] ?: return null
+        return if (node.file != null) node.uses else null
+    }
+
+    override fun getModificationCount(): Long = modificationCount.get()
+
+    fun clearAll() {
+        nodes.clear()
+        dependents.clear()
+        closures.clear()
+        nodesByFile.clear()
+        dirtyNodes.clear()
+        modificationCount.incrementAndGet()
+    }
+
+    override fun dispose() {}
+
+    companion object {
+        /** Sorted, distinct union of [parts], as a new array. */
+        private fun sortedUnion(parts: List<IntArray>): IntArray {
+            val all = IntArray(parts.sumOf { it.size })
+            var size = 0
+            for (part in parts) {
+                part.copyInto(all, size)
+                size += part.size
+            }
+            all.sort()
+            var distinct = 0
+            for (i in all.indices) {
+                if (distinct == 0 || all[i] != all[distinct - 1]) all[distinct++] = all[i]
+            }
+            return all.copyOf(distinct)
+        }
+
+        @JvmStatic
+        fun getInstance(project: Project): PascalUnitGraph {
+            return project.getService(PascalUnitGraph::class.java)
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package nl.akiar.pascal.resolution
+
+import com.intellij.openapi.project.DumbService
+import com.intellij.openapi.project.Project
+import com.intellij.psi.PsiElement
+import com.intellij.psi.PsiFile
+import nl.akiar.pascal.psi.PascalTypeDefinition
+import nl.akiar.pascal.settings.PascalSourcePathsSettings
+import nl.akiar.pascal.stubs.PascalScopedMemberIndex
+import nl.akiar.pascal.stubs.PascalScopedRoutineIndex
+import nl.akiar.pascal.stubs.PascalScopedTypeIndex
+import nl.akiar.pascal.stubs.PascalTypeIndex
+import nl.akiar.pascal.uses.PascalUsesClauseInfo
+
+/**
+ * Unit-qualified lookups backed by the scoped stub indices: "type X declared in unit U"
+ * (`unit#type`) and "member M of type X declared in unit U" (`unit#owner#member`).
+ *
+ * Each probe is a single index key, so callers can ask about a specific unit without
+ * loading its PSI. Empty during dumb mode.
+ */
+object PascalUnitQualifiedLookup {
+    /** Units every Delphi program sees without listing them; they lose to every used unit. */
+    private val IMPLICIT_UNITS = listOf("system", "system.classes", "classes")
+
+    /** The type named [typeName] declared in [unitName], preferring a full definition over a forward one. */
+    @JvmStatic
+    fun findType(unitName: String, typeName: String, project: Project): PascalTypeDefinition? {
+        if (DumbService.isDumb(project)) return null
+        val candidates = PascalScopedTypeIndex.find(unitName, typeName, project)
+        return candidates.firstOrNull { !it.isForwardDeclaration } ?: candidates.firstOrNull()
+    }
+
+    /**
+     * The routine, property or field named [memberName] of type [ownerName] declared in
+     * [unitName]. Routine declarations are preferred over their implementations.
+     */
+    @JvmStatic
+    fun findMember(unitName: String, ownerName: String, memberName: String, project: Project): PsiElement? {
+        if (DumbService.isDumb(project)) return null
+        val routines = PascalScopedRoutineIndex.find("$unitName#$ownerName#$memberName", project)
+        routines.firstOrNull { !it.isImplementation }?.let { return it }
+        routines.firstOrNull()?.let { return it }
+        PascalScopedMemberIndex.findProperties(unitName, ownerName, memberName, project).firstOrNull()?.let { return it }
+        return PascalScopedMemberIndex.findFields(unitName, ownerName, memberName, project).firstOrNull()
+    }
+
+    /**
+     * [typeName] as declared in a unit available at [offset] in [originFile]: the uses
+     * clauses from last to first (Delphi's "last wins", so implementation before interface),
+     * each also tried with the configured unit scope prefixes, and the implicit System
+     * units last.
+     */
+    @JvmStatic
+    fun findTypeInAvailableUnits(typeName: String, originFile: PsiFile, offset: Int): PascalTypeDefinition? {
+        val project = originFile.project
+        if (DumbService.isDumb(project)) return null
+        val scopes = PascalSourcePathsSettings.getInstance(project).unitScopeNames
+        val units = LinkedHashSet<String>()
+        for (unit in PascalUsesClauseInfo.parse(originFile).getAvailableUnits(offset).asReversed()) {
+            val lowerUnit = unit.lowercase()
+            units.add(lowerUnit)
+            if (!lowerUnit.contains('.')) {
+                for (scope in scopes) units.add("${scope.lowercase()}.$lowerUnit")
+            }
+        }
+        units.addAll(IMPLICIT_UNITS)
+        for (unit in units) {
+            findType(unit, typeName, project)?.let { return it }
+        }
+        return null
+    }
+
+    /**
+     * The type an entry of [type]'s ancestor list (`TBase`, `Base.TBase`, `TList<T>`) refers
+     * to, as Delphi resolves it from the declaration: a unit-qualified entry in that unit,
+     * otherwise [type]'s own unit first, then the units its section uses. [type] itself is
+     * never the answer, so `TButton = class(TButton)` finds the used unit's `TButton`.
+     * Reads stubs and index keys only.
+     */
+    @JvmStatic
+    fun findAncestorType(type: PascalTypeDefinition, ancestorName: String): PascalTypeDefinition? {
+        val project = type.project
+        if (DumbService.isDumb(project)) return null
+        val stripped = ancestorName.substringBefore('<').trim()
+        val dot = stripped.lastIndexOf('.')
+        if (dot > 0) {
+            return findType(stripped.substring(0, dot), stripped.substring(dot + 1), project)?.takeIf { it != type }
+        }
+        val ownUnit = type.unitName
+        if (ownUnit.isNotEmpty()) {
+            val own = PascalScopedTypeIndex.find(ownUnit, stripped, project).filter { it != type }
+            (own.firstOrNull { !it.isForwardDeclaration } ?: own.firstOrNull())?.let { return it }
+        }
+        val file = type.containingFile ?: return null
+        // The interface section sees the interface uses only
+        val offset = if (type.section == "implementation") Int.MAX_VALUE else 0
+        return findTypeInAvailableUnits(stripped, file, offset)?.takeIf { it != type }
+    }
+
+    /**
+     * Member [memberName] of the type named [ownerName], probed in each unit that declares
+     * a type of that name.
+     */
+    @JvmStatic
+    fun findMemberOfOwner(ownerName: String, memberName: String, project: Project): PsiElement? {
+        if (DumbService.isDumb(project)) return null
+        val units = PascalTypeIndex.findTypes(ownerName, project).mapTo(LinkedHashSet()) { it.unitName }
+        for (unit in units) {
+            findMember(unit, ownerName, memberName, project)?.let { return it }
+        }
+        return null
+    }
+}
@@ -1,23 +1,19 @@
 package nl.akiar.pascal.resolution
 
 import com.intellij.openapi.diagnostic.Logger
-import com.intellij.openapi.project.Project
+import com.intellij.openapi.project.DumbService
 import com.intellij.openapi.util.Key
-import com.intellij.openapi.vfs.VirtualFile
 import com.intellij.psi.PsiFile
-import com.intellij.psi.PsiManager
 import com.intellij.psi.util.CachedValue
 import com.intellij.psi.util.CachedValueProvider
 import com.intellij.psi.util.CachedValuesManager
-import com.intellij.psi.util.PsiModificationTracker
-import nl.akiar.pascal.project.PascalProjectService
 import nl.akiar.pascal.settings.PascalSourcePathsSettings
 import nl.akiar.pascal.uses.PascalUsesClauseInfo
 
 /**
  * Resolves transitive dependencies for a Pascal file.
  *
- * Given a PsiFile, this resolver recursively resolves all units in its uses clauses
+ * Given a PsiFile, this resolver collects all units in its uses clauses
  * and builds a complete set of transitively-available units. This is essential for
  * proper member chain resolution where types may be defined in indirectly-used units.
  *
@@ -25,8 +21,9 @@ import nl.akiar.pascal.uses.PascalUsesClauseInfo
  * should be available when resolving member chains in FileA.
  *
  * The resolver:
- * - Tracks visited units to prevent infinite loops
- * - Caches results for performance
+ * - Takes each direct unit's closure from the shared [PascalUnitGraph], so the RTL is
+ *   walked once per project rather than once per file
+ * - Caches the per-file union until the file or a closure it depends on changes
  * - Preserves uses clause order for "last wins" semantics
  */
 object TransitiveDependencyResolver {
@@ -42,11 +39,13 @@ object TransitiveDependencyResolver {
      * @param directUnits Units directly in the uses clause of the origin file
      * @param transitiveUnits All units transitively available (including direct)
      * @param unitGraph Map of unit -> its direct dependencies (for debugging)
+     * @param transitiveUnitIds [PascalNameTable] ids of [transitiveUnits], sorted ascending
      */
     data class TransitiveDependencyResult(
         val directUnits: List<String>,
         val transitiveUnits: Set<String>,
-        val unitGraph: Map<String, List<String>>
+        val unitGraph: Map<String, List<String>>,
+        val transitiveUnitIds: IntArray = IntArray(0)
     ) {
         /**
          * Check if a unit is available (either directly or transitively).
@@ -55,31 +54,53 @@ object TransitiveDependencyResolver {
             return transitiveUnits.contains(unitName.lowercase())
         }
 
+        /**
+         * Check if a unit is available by its [PascalNameTable] id, without building a lowercase name.
+         */
+        fun isUnitAvailable(unitId: Int): Boolean {
+            return java.util.Arrays.binarySearch(transitiveUnitIds, unitId) >= 0
+        }
+
         /**
          * Check if a unit is directly used (in the file's own uses clause).
          */
         fun isDirectDependency(unitName: String): Boolean {
             return directUnits.any { it.equals(unitName, ignoreCase = true) }
         }
+
+        // The generated members would compare transitiveUnitIds by identity
+        override fun equals(other: Any?): Boolean {
+            if (this === other) return true
+            if (other !is TransitiveDependencyResult) return false
+            return directUnits == other.directUnits && transitiveUnits == other.transitiveUnits
+                    && unitGraph == other.unitGraph && transitiveUnitIds.contentEquals(other.transitiveUnitIds)
+        }
+
+        override fun hashCode(): Int {
+            var result = directUnits.hashCode()
+            result = 31 * result + transitiveUnits.hashCode()
+            result = 31 * result + unitGraph.hashCode()
+            result = 31 * result + transitiveUnitIds.contentHashCode()
+            return result
+        }
     }
 
     /**
      * Get all transitively available units for a file.
      *
+     * The result is the complete closure of the file's uses clauses, however deep.
+     *
      * @param file The PsiFile to analyze
-     * @param maxDepth Maximum recursion depth (default 20, to prevent excessive crawling)
      * @return TransitiveDependencyResult containing all available units
      */
     @JvmStatic
-    @JvmOverloads
-    fun getTransitiveDependencies(file: PsiFile, maxDepth: Int = 20): TransitiveDependencyResult {
-        return CachedValuesManager.getManager(file.project).getCachedValue(file, CACHE_KEY, {
-            val result = computeTransitiveDependencies(file, maxDepth)
-            // Invalidate when PSI tree changes or project structure changes
-            CachedValueProvider.Result.create(
-                result,
-                PsiModificationTracker.MODIFICATION_COUNT
-            )
+    fun getTransitiveDependencies(file: PsiFile): TransitiveDependencyResult {
+        val project = file.project
+        if (DumbService.isDumb(project)) return computeTransitiveDependencies(file)
+        return CachedValuesManager.getManager(project).getCachedValue(file, CACHE_KEY, {
+            val result = computeTransitiveDependencies(file)
+            // Own uses clauses live in the file; everything further away is in the unit graph
+            CachedValueProvider.Result.create(result, file, PascalUnitGraph.getInstance(project))
         }, false)
     }
 
@@ -99,11 +120,11 @@ object TransitiveDependencyResolver {
         file.putUserData(CACHE_KEY, null)
     }
 
-    private fun computeTransitiveDependencies(file: PsiFile, maxDepth: Int): TransitiveDependencyResult {
+    private fun computeTransitiveDependencies(file: PsiFile): TransitiveDependencyResult {
         val project = file.project
-        val usesInfo = nl.akiar.pascal.uses.PascalUsesClauseInfo.parse(file)
+        val usesInfo = PascalUsesClauseInfo.parse(file)
         val directUnitsRaw = usesInfo.allUses // both interface and implementation
-        val scopes = nl.akiar.pascal.settings.PascalSourcePathsSettings.getInstance(project).unitScopeNames.map { it.lowercase() }
+        val scopes = PascalSourcePathsSettings.getInstance(project).unitScopeNames.map { it.lowercase() }
 
         // Seed with direct units and scope-expanded variants (e.g., Classes -> System.Classes)
         val directUnits = mutableListOf<String>()
@@ -123,72 +144,33 @@ object TransitiveDependencyResolver {
         seed.add("system.classes")
         seed.add("classes")
 
-        val visited = mutableSetOf<String>()
+        val names = PascalNameTable.getInstance(project)
+        val graph = PascalUnitGraph.getInstance(project)
+        val available = graph.closureOf(seed.map { names.idOf(it) }.toIntArray())
+        // The file's own unit is reachable through cycles but is not a dependency of itself
+        val ownId = extractUnitName(file)?.let { names.idOf(it) }
+        val unitIds = if (ownId == null) available else available.filter { it != ownId }.toIntArray()
+        val transitiveUnits = LinkedHashSet<String>(unitIds.size)
         val unitGraph = mutableMapOf<String, List<String>>()
-
-        val fileUnitName = extractUnitName(file)?.lowercase()
-
-        for (unitName in seed) {
-            resolveTransitive(unitName, visited, unitGraph, project, 0, maxDepth, fileUnitName)
+        for (id in unitIds) {
+            val unit = names.nameOf(id)
+            transitiveUnits.add(unit)
+            graph.usesOf(unit)?.let { unitGraph[unit] = it }
         }
 
         val result = TransitiveDependencyResult(
             directUnits = directUnits,
-            transitiveUnits = visited.toSet(),
-            unitGraph = unitGraph.toMap()
+            transitiveUnits = transitiveUnits,
+            unitGraph = unitGraph,
+            transitiveUnitIds = unitIds
         )
         // Gate the diagnostic log with the unit log filter to avoid spam
         if (nl.akiar.pascal.log.UnitLogFilter.shouldLog(file)) {
-            com.intellij.openapi.diagnostic.Logger.getInstance(TransitiveDependencyResolver::class.java)
-                .info("[MemberTraversal][Diag] Transitive available units for '${file.name}' count=${result.transitiveUnits.size} sample=${result.transitiveUnits.take(10)}")
+            LOG.info("[MemberTraversal][Diag] Transitive available units for '${file.name}' count=${result.transitiveUnits.size} sample=${result.transitiveUnits.take(10)}")
         }
         return result
     }
 
-    private fun resolveTransitive(
-        unitName: String,
-        visited: MutableSet<String>,
-        unitGraph: MutableMap<String, List<String>>,
-        project: Project,
-        currentDepth: Int,
-        maxDepth: Int,
-        originUnitName: String? = null
-    ) {
-        val lowerUnit = unitName.lowercase()
-        if (originUnitName != null && lowerUnit == originUnitName) return
-        if (!visited.add(lowerUnit)) return
-        if (currentDepth >= maxDepth) return
-
-        val projectService = PascalProjectService.getInstance(project)
-        val virtualFile = projectService.resolveUnit(unitName, true)
-        if (virtualFile == null) {
-            return
-        }
-        val psiFile = getPsiFile(virtualFile, project) ?: return
-        val usesInfo = PascalUsesClauseInfo.parse(psiFile)
-        val deps = usesInfo.allUses
-        unitGraph[lowerUnit] = deps
-
-        // Expand dependencies: only prefix scopes for unscoped names
-        val scopes = PascalSourcePathsSettings.getInstance(project).unitScopeNames.map { it.lowercase() }
-        for (dep in deps) {
-            val ldep = dep.lowercase()
-            resolveTransitive(ldep, visited, unitGraph, project, currentDepth + 1, maxDepth, originUnitName)
-            if (!ldep.contains('.')) {
-                for (scope in scopes) {
-                    resolveTransitive("$scope.$ldep", visited, unitGraph, project, currentDepth + 1, maxDepth, originUnitName)
-                }
-            }
-        }
-    }
-
-    private fun getPsiFile(virtualFile: VirtualFile, project: Project): PsiFile? {
-        if (!virtualFile.isValid) return null
-        return com.intellij.openapi.application.ReadAction.compute<PsiFile?, Throwable> {
-            PsiManager.getInstance(project).findFile(virtualFile)
-        }
-    }
-
     private fun extractUnitName(file: PsiFile): String? {
         val fileName = file.name
         val dotIndex = fileName.lastIndexOf('.')
@@ -0,0 +1,36 @@
+package nl.akiar.pascal.dpr;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+
+import java.io.IOException;
+
+public class DprProjectServiceTest extends BasePlatformTestCase {
+
+    public void testScannedLocationsMatchTheStartupScan() throws IOException {
+        VirtualFile base = myFixture.getTempDirFixture().findOrCreateDir("app");
+        String root = base.getPath();
+
+        assertTrue(DprProjectService.isScannedLocation(root + "/App.dpr", base));
+        assertTrue(DprProjectService.isScannedLocation(root + "/tools/gen/Gen.dpr", base));
+        assertFalse(DprProjectService.isScannedLocation(root + "/App.pas", base));
+        assertFalse(DprProjectService.isScannedLocation(root + "/.git/App.dpr", base));
+        assertFalse(DprProjectService.isScannedLocation(root + "/node_modules/x/App.dpr", base));
+        assertFalse(DprProjectService.isScannedLocation(root + "/build/App.dpr", base));
+        assertFalse(DprProjectService.isScannedLocation(root + "/App.dpr", null));
+    }
+
+    public void testScanDepthAndParents() throws IOException {
+        VirtualFile base = myFixture.getTempDirFixture().findOrCreateDir("mono/app");
+        String root = base.getPath();
+
+        // The walk reads ten directory levels, the project directory included
+        assertTrue(DprProjectService.isScannedLocation(root + "/1/2/3/4/5/6/7/8/9/Deep.dpr", base));
+        assertFalse(DprProjectService.isScannedLocation(root + "/1/2/3/4/5/6/7/8/9/10/Deep.dpr", base));
+
+        // Parents are read directly, not walked
+        String parent = base.getParent().getPath();
+        assertTrue(DprProjectService.isScannedLocation(parent + "/Mono.dpr", base));
+        assertFalse(DprProjectService.isScannedLocation(parent + "/other/Other.dpr", base));
+    }
+}
@@ -0,0 +1,150 @@
+package nl.akiar.pascal.project;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+
+public class MsBuildEvaluatorTest extends BasePlatformTestCase {
+
+    private static final String DPROJ =
+            "<Project xmlns=\"http://schemas.microsoft.com/developer/msbuild/2003\">\n" +
+            "  <PropertyGroup>\n" +
+            "    <Config Condition=\"'$(Config)'==''\">Debug</Config>\n" +
+            "    <Platform Condition=\"'$(Platform)'==''\">Win32</Platform>\n" +
+            "  </PropertyGroup>\n" +
+            "  <PropertyGroup Condition=\"'$(Config)'=='Base' or '$(Base)'!=''\">\n" +
+            "    <Base>true</Base>\n" +
+            "  </PropertyGroup>\n" +
+            "  <PropertyGroup Condition=\"'$(Config)'=='Debug' or '$(Cfg_1)'!=''\">\n" +
+            "    <Cfg_1>true</Cfg_1>\n" +
+            "    <Base>true</Base>\n" +
+            "  </PropertyGroup>\n" +
+            "  <PropertyGroup Condition=\"'$(Config)'=='Release' or '$(Cfg_2)'!=''\">\n" +
+            "    <Cfg_2>true</Cfg_2>\n" +
+            "    <Base>true</Base>\n" +
+            "  </PropertyGroup>\n" +
+            "  <PropertyGroup Condition=\"('$(Platform)'=='Win64' and '$(Base)'=='true') or '$(Base_Win64)'!=''\">\n" +
+            "    <Base_Win64>true</Base_Win64>\n" +
+            "  </PropertyGroup>\n" +
+            "  <PropertyGroup Condition=\"'$(Base)'!=''\">\n" +
+            "    <DCC_UnitSearchPath>common;$(BDS)\\source\\rtl;$(DCC_UnitSearchPath)</DCC_UnitSearchPath>\n" +
+            "  </PropertyGroup>\n" +
+            "  <Import Project=\"shared.optset\" Condition=\"'$(Base)'!='' And Exists('shared.optset')\"/>\n" +
+            "  <PropertyGroup Condition=\"'$(Base_Win64)'!=''\">\n" +
+            "    <DCC_UnitSearchPath>lib\\$(Platform);$(DCC_UnitSearchPath)</DCC_UnitSearchPath>\n" +
+            "  </PropertyGroup>\n" +
+            "  <PropertyGroup Condition=\"'$(Cfg_1)'!=''\">\n" +
+            "    <DCC_UnitSearchPath>debug\\$(Config);$(DCC_UnitSearchPath)</DCC_UnitSearchPath>\n" +
+            "  </PropertyGroup>\n" +
+            "  <PropertyGroup Condition=\"'$(Cfg_2)'!=''\">\n" +
+            "    <DCC_UnitSearchPath>release;$(DCC_UnitSearchPath)</DCC_UnitSearchPath>\n" +
+            "  </PropertyGroup>\n" +
+            "  <ItemGroup>\n" +
+            "    <DCCReference Include=\"src\\Main.pas\"/>\n" +
+            "    <DCCReference Include=\"win\\Only.pas\" Condition=\"'$(Platform)'=='Win32'\"/>\n" +
+            "    <BuildConfiguration Include=\"Base\"><Key>Base</Key></BuildConfiguration>\n" +
+            "    <BuildConfiguration Include=\"Debug\"><Key>Cfg_1</Key><CfgParent>Base</CfgParent></BuildConfiguration>\n" +
+            "  </ItemGroup>\n" +
+            "</Project>\n";
+
+    private static final String OPTSET =
+            "<Project xmlns=\"http://schemas.microsoft.com/developer/msbuild/2003\">\n" +
+            "  <PropertyGroup>\n" +
+            "    <DCC_UnitSearchPath>shared;$(DCC_UnitSearchPath)</DCC_UnitSearchPath>\n" +
+            "  </PropertyGroup>\n" +
+            "</Project>\n";
+
+    private Path dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        dir = FileUtil.createTempDirectory("msbuild", null).toPath();
+        MsBuildEvaluator.clearCache();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            MsBuildEvaluator.clearCache();
+            FileUtil.delete(dir.toFile());
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    public void testDefaultConfigurationAndUndefinedMacros() throws IOException {
+        Path dproj = write("App.dproj", DPROJ);
+        write("shared.optset", OPTSET);
+
+        MsBuildEvaluator.Result result = MsBuildEvaluator.evaluate(dproj, Map.of());
+        assertEquals("Debug", result.getProperty("config"));
+        // $(BDS) is undefined, so its entry is dropped rather than read as "\source\rtl"
+        assertEquals(List.of("debug\\Debug", "shared", "common"), result.getList("DCC_UnitSearchPath"));
+        assertEquals(List.of("src\\Main.pas", "win\\Only.pas"), result.getReferences());
+    }
+
+    public void testSelectedConfigPlatformAndVariables() throws IOException {
+        Path dproj = write("App.dproj", DPROJ);
+
+        MsBuildEvaluator.Result result = MsBuildEvaluator.evaluate(dproj,
+                Map.of("Config", "Release", "Platform", "Win64", "BDS", "C:\\Studio"));
+        // Exists('shared.optset') is false, so the import is skipped
+        assertEquals(List.of("release", "lib\\Win64", "common", "C:\\Studio\\source\\rtl"),
+                result.getList("DCC_UnitSearchPath"));
+        assertEquals(List.of("src\\Main.pas"), result.getReferences());
+    }
+
+    public void testResultIsMemoizedUntilAnInputChanges() throws IOException {
+        Path dproj = write("App.dproj", DPROJ);
+        Map<String, String> environment = Map.of("Config", "Debug");
+
+        MsBuildEvaluator.Result first = MsBuildEvaluator.evaluate(dproj, environment);
+        assertSame(first, MsBuildEvaluator.evaluate(dproj, environment));
+        assertFalse(first.getList("DCC_UnitSearchPath").contains("shared"));
+
+        // The probed option set appears: the import now applies
+        Path optset = write("shared.optset", OPTSET);
+        MsBuildEvaluator.Result second = MsBuildEvaluator.evaluate(dproj, environment);
+        assertNotSame(first, second);
+        assertTrue(second.getList("DCC_UnitSearchPath").contains("shared"));
+        assertTrue(second.getInputs().contains(optset.toAbsolutePath().normalize()));
+
+        assertNotSame(second, MsBuildEvaluator.evaluate(dproj, Map.of("Config", "Release")));
+        // Each environment keeps its own result
+        assertSame(second, MsBuildEvaluator.evaluate(dproj, environment));
+    }
+
+    public void testLegacyBuildConfigurationOptsets() throws IOException {
+        write("legacy.optset", OPTSET);
+        Path dproj = write("Legacy.dproj",
+                "<Project>\n" +
+                "  <PropertyGroup><Config Condition=\"'$(Config)'==''\">Debug</Config></PropertyGroup>\n" +
+                "  <ItemGroup>\n" +
+                "    <BuildConfiguration Include=\"Base\"><Key>Base</Key></BuildConfiguration>\n" +
+                "    <BuildConfiguration Include=\"Debug\"><Key>Cfg_1</Key><CfgParent>Base</CfgParent>" +
+                "<DependentOn>legacy.optset</DependentOn></BuildConfiguration>\n" +
+                "    <BuildConfiguration Include=\"Release\"><Key>Cfg_2</Key><CfgParent>Base</CfgParent>" +
+                "<DependentOn>missing.optset</DependentOn></BuildConfiguration>\n" +
+                "  </ItemGroup>\n" +
+                "</Project>\n");
+
+        assertEquals(List.of("shared"), MsBuildEvaluator.evaluate(dproj, Map.of()).getList("DCC_UnitSearchPath"));
+        assertEquals(List.of(), MsBuildEvaluator.evaluate(dproj, Map.of("Config", "Release")).getList("DCC_UnitSearchPath"));
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path file = dir.resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        // Keep stamps distinct from files written earlier in the same millisecond
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 1000));
+        return file;
+    }
+}
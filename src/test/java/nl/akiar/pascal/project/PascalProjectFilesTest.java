@@ -0,0 +1,83 @@
+package nl.akiar.pascal.project;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import com.intellij.util.ThrowableRunnable;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+public class PascalProjectFilesTest extends BasePlatformTestCase {
+
+    private static final Predicate<String> DPROJ = path -> PascalProjectFiles.hasExtension(path, ".dproj");
+    private static final Predicate<String> OPTSET = path -> PascalProjectFiles.hasExtension(path, ".optset");
+
+    public void testRenameReportsOldAndNewPath() throws IOException {
+        VirtualFile root = myFixture.getTempDirFixture().findOrCreateDir("rename");
+        VirtualFile dproj = WriteAction.compute(() -> root.createChildData(this, "App.dproj"));
+
+        List<VFileEvent> events = record(() -> dproj.rename(this, "Other.dproj"));
+        assertEquals(Set.of(root.getPath() + "/App.dproj", root.getPath() + "/Other.dproj"),
+                PascalProjectFiles.changedPaths(events, DPROJ, Set.of()));
+    }
+
+    public void testDeletedDirectoryReportsKnownPathsBelowIt() throws IOException {
+        VirtualFile root = myFixture.getTempDirFixture().findOrCreateDir("delete");
+        VirtualFile gone = myFixture.getTempDirFixture().findOrCreateDir("delete/gone/sub").getParent();
+        String optset = gone.getPath() + "/sub/shared.optset";
+
+        List<VFileEvent> events = record(() -> gone.delete(this));
+        assertEquals(Set.of(optset),
+                PascalProjectFiles.changedPaths(events, OPTSET, Set.of(optset, root.getPath() + "/kept.optset")));
+        assertEmpty(PascalProjectFiles.addedDirectories(events));
+    }
+
+    public void testMovedInDirectoryReportsKnownPathsAtItsNewLocation() throws IOException {
+        VirtualFile root = myFixture.getTempDirFixture().findOrCreateDir("move");
+        VirtualFile target = myFixture.getTempDirFixture().findOrCreateDir("staging/target");
+        WriteAction.run(() -> target.createChildData(this, "shared.optset"));
+        // A .dproj probed for this option set while it did not exist yet
+        String probed = root.getPath() + "/target/shared.optset";
+
+        List<VFileEvent> events = record(() -> target.move(this, root));
+        assertEquals(Set.of(probed), PascalProjectFiles.changedPaths(events, OPTSET, Set.of(probed)));
+        assertEquals(Set.of(root.getPath() + "/target"), PascalProjectFiles.addedDirectories(events));
+    }
+
+    public void testCreatedDirectoryIsAdded() throws IOException {
+        VirtualFile root = myFixture.getTempDirFixture().findOrCreateDir("create");
+
+        List<VFileEvent> events = record(() -> root.createChildDirectory(this, "fresh"));
+        assertEmpty(PascalProjectFiles.changedPaths(events, DPROJ, Set.of()));
+        assertEquals(Set.of(root.getPath() + "/fresh"), PascalProjectFiles.addedDirectories(events));
+    }
+
+    private List<VFileEvent> record(@NotNull ThrowableRunnable<IOException> change) throws IOException {
+        List<VFileEvent> events = new ArrayList<>();
+        Disposable connection = Disposer.newDisposable();
+        try {
+            ApplicationManager.getApplication().getMessageBus().connect(connection)
+                    .subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+                        @Override
+                        public void after(@NotNull List<? extends VFileEvent> batch) {
+                            events.addAll(batch);
+                        }
+                    });
+            WriteAction.run(change);
+        } finally {
+            Disposer.dispose(connection);
+        }
+        return events;
+    }
+}
@@ -5,6 +5,9 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.command.WriteCommandAction;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class PascalProjectServiceTest extends BasePlatformTestCase {
 
@@ -48,4 +51,20 @@ public class PascalProjectServiceTest extends BasePlatformTestCase {
             }
         });
     }
-}
\ No newline at end of file
+
+    public void testOnlyDprojReadingAChangedFileIsReparsed() {
+        Map<String, Set<String>> optsetsByDproj = Map.of(
+                "/p/App.dproj", Set.of("/p/shared.optset"),
+                "/p/Tool.dproj", Set.of("/p/tool.optset", "/p/shared.optset"),
+                "/p/Other.dproj", Set.of("/p/other.optset"));
+
+        assertEquals(Set.of("/p/App.dproj", "/p/Tool.dproj"),
+                PascalProjectService.affectedDprojPaths(List.of("/p/shared.optset"), optsetsByDproj));
+        assertEquals(Set.of("/p/Other.dproj"),
+                PascalProjectService.affectedDprojPaths(List.of("/p/Other.dproj"), optsetsByDproj));
+        // A new .dproj has no entry yet but is parsed all the same
+        assertEquals(Set.of("/p/New.dproj"),
+                PascalProjectService.affectedDprojPaths(List.of("/p/New.dproj"), optsetsByDproj));
+        assertEmpty(PascalProjectService.affectedDprojPaths(List.of("/p/unused.optset"), optsetsByDproj));
+    }
+}
@@ -0,0 +1,118 @@
+package nl.akiar.pascal
+
+import com.intellij.psi.PsiDocumentManager
+import com.intellij.testFramework.fixtures.BasePlatformTestCase
+
+/**
+ * Tests for [PascalFoldingBuilder] in both the PSI pass and the quick lexer pass.
+ */
+class PascalFoldingBuilderTest : BasePlatformTestCase() {
+
+    private val source = """
+        unit Main;
+        interface
+        type
+          TFoo = class
+          public
+            procedure Run;
+          end;
+        implementation
+        {
+          Block comment with begin and try
+        }
+        procedure TFoo.Run;
+        var
+          S: string;
+        begin
+          S := 'try begin case';
+          // repeat begin
+          try
+            S := '';
+          except
+            S := 'end';
+          end;
+        end;
+        end.
+    """.trimIndent()
+
+    private fun foldedTexts(quick: Boolean): List<String> {
+        val document = PsiDocumentManager.getInstance(project).getDocument(myFixture.file)!!
+        return PascalFoldingBuilder().buildFoldRegions(myFixture.file, document, quick)
+            .map { document.getText(it.range) }
+    }
+
+    private fun assertFolds(quick: Boolean) {
+        val texts = foldedTexts(quick)
+        val mode = if (quick) "quick" else "PSI"
+        assertTrue("$mode: class body", texts.any { it.trim().startsWith("public") && it.trimEnd().endsWith("procedure Run;") })
+        assertTrue("$mode: comment", texts.any { it.startsWith("{") && it.endsWith("}") })
+        assertTrue("$mode: try part", texts.any { it.trim() == "S := '';" })
+        assertTrue("$mode: except part", texts.any { it.trim() == "S := 'end';" })
+        assertTrue("$mode: routine body", texts.any { it.contains("S := 'try begin case';") && it.trimEnd().endsWith("end;") })
+        assertTrue("$mode: implementation", texts.any { it.contains("procedure TFoo.Run;") })
+    }
+
+    fun testFoldsFromTree() {
+        myFixture.configureByText("Main.pas", source)
+        assertFolds(quick = false)
+    }
+
+    fun testFoldsFromLexer() {
+        myFixture.configureByText("Main.pas", source)
+        assertFolds(quick = true)
+    }
+
+    fun testKeywordsInStringsAndCommentsOpenNoBlocks() {
+        myFixture.configureByText("Main.pas", source)
+        for (quick in listOf(false, true)) {
+            // Class body, comment, try, except, routine body, interface and implementation sections
+            assertEquals("quick=$quick", 7, foldedTexts(quick).size)
+        }
+    }
+
+    fun testAncestorListBeforeSemicolonOpensNoBlock() {
+        myFixture.configureByText("Errors.pas", """
+            unit Errors;
+            interface
+            type
+              TBar = class(TObject)
+              public
+                procedure Run;
+              end;
+            implementation
+            type
+              EFoo = class(Exception);
+            procedure TBar.Run;
+            begin
+              Run;
+            end;
+            end.
+        """.trimIndent())
+        for (quick in listOf(false, true)) {
+            val texts = foldedTexts(quick)
+            assertTrue("quick=$quick: class body", texts.any { it.trim().startsWith("public") && it.trimEnd().endsWith("procedure Run;") })
+            assertTrue("quick=$quick: routine body", texts.any { it.trim() == "Run;" })
+            // Class body, routine body, interface and implementation sections
+            assertEquals("quick=$quick", 4, texts.size)
+        }
+    }
+
+    fun testLargeUnitFoldsEveryRoutine() {
+        val text = StringBuilder("unit Big;\ninterface\nimplementation\n")
+        for (i in 0 until ROUTINES) {
+            text.append("procedure P$i;\nvar\n  S: string;\nbegin\n  try\n    S := 'begin';\n")
+            text.append("  finally\n    S := '';\n  end;\nend;\n")
+        }
+        text.append("end.\n")
+        myFixture.configureByText("Big.pas", text.toString())
+
+        for (quick in listOf(false, true)) {
+            // Routine body, try part and finally part of each routine
+            assertTrue("quick=$quick should fold every routine", foldedTexts(quick).size >= ROUTINES * 3)
+        }
+    }
+
+    companion object {
+        private const val ROUTINES = 500
+    }
+}
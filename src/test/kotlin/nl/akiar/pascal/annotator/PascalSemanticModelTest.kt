@@ -0,0 +1,112 @@
+package nl.akiar.pascal.annotator
+
+import com.intellij.psi.PsiElement
+import com.intellij.testFramework.fixtures.BasePlatformTestCase
+import nl.akiar.pascal.psi.PascalVariableDefinition
+import nl.akiar.pascal.psi.PsiUtil
+
+/**
+ * Tests for the per-file semantic model shared by the annotators.
+ */
+class PascalSemanticModelTest : BasePlatformTestCase() {
+
+    private val source = """
+        unit Main;
+        interface
+        uses SysUtils;
+        type
+          TFoo = class
+            procedure Run;
+          end;
+        implementation
+        procedure TFoo.Run;
+        var
+          Count: Integer;
+        begin
+          Count := 1;
+        end;
+        end.
+    """.trimIndent()
+
+    private fun at(marker: String, delta: Int = 0): PsiElement =
+        myFixture.file.findElementAt(myFixture.file.text.indexOf(marker) + delta)!!
+
+    fun testSectionsAndBodiesMatchTreeWalk() {
+        myFixture.configureByText("Main.pas", source)
+        val model = PascalSemanticModel.of(myFixture.file)
+
+        for (marker in listOf("TFoo = class", "Run;", "TFoo.Run", "Count := 1", "SysUtils")) {
+            val element = at(marker)
+            assertEquals(marker, PsiUtil.getSection(element), model.getSection(element))
+        }
+        assertTrue(model.isInsideRoutineBody(at("Count := 1")))
+        assertFalse(model.isInsideRoutineBody(at("TFoo = class")))
+        assertTrue(model.isInUnitHeaderOrUses(at("SysUtils")))
+        assertTrue(model.isInUnitHeaderOrUses(at("Main;")))
+        assertFalse(model.isInUnitHeaderOrUses(at("TFoo = class")))
+    }
+
+    fun testStructureFlags() {
+        myFixture.configureByText("Main.pas", source)
+        val model = PascalSemanticModel.of(myFixture.file)
+
+        assertTrue(model.hasUnitDecl)
+        assertTrue(model.hasInterface)
+        assertTrue(model.hasImplementation)
+        assertFalse(model.hasProgramDecl)
+        assertNotNull(model.unitDecl)
+    }
+
+    fun testResolutionIsSharedAndUnresolvedRecorded() {
+        myFixture.configureByText("Main.pas", source)
+        val model = PascalSemanticModel.of(myFixture.file)
+        val usage = at("Count := 1")
+
+        val first = model.resolve(usage)
+        assertTrue(first is PascalVariableDefinition)
+        assertSame(first, model.resolve(usage))
+        assertSame(model, PascalSemanticModel.of(myFixture.file))
+
+        myFixture.configureByText("Other.pas", """
+            unit Other;
+            interface
+            implementation
+            procedure P;
+            begin
+              Missing := 1;
+            end;
+            end.
+        """.trimIndent())
+        val other = PascalSemanticModel.of(myFixture.file)
+        val missing = at("Missing")
+        assertNull(other.resolve(missing))
+        assertTrue(other.isUnresolved(missing))
+    }
+
+    fun testChunksResolveAheadOfAnnotators() {
+        val text = StringBuilder("unit Big;\ninterface\nimplementation\n")
+        var i = 0
+        while (text.length < PascalSemanticModel.CHUNK_SIZE * 2) {
+            text.append("procedure P$i;\nvar\n  Count: Integer;\nbegin\n  Count := $i;\nend;\n")
+            i++
+        }
+        text.append("procedure Last;\nbegin\n  Missing := 1;\nend;\nend.\n")
+        myFixture.configureByText("Big.pas", text.toString())
+        val model = PascalSemanticModel.of(myFixture.file)
+        val missing = at("Missing")
+        val chunk = model.chunkOf(missing.textRange.startOffset)
+        assertEquals(model.chunkCount - 1, chunk)
+
+        model.resolveChunk(chunk)
+        assertTrue(model.isChunkResolved(chunk))
+        assertFalse(model.isChunkResolved(0))
+        // Recorded by the chunk pass without any annotator asking
+        assertTrue(model.isUnresolved(missing))
+    }
+
+    fun testChunkOrderStartsWithVisibleRangeAndAlternatesOutwards() {
+        assertEquals(listOf(2, 3, 4, 1, 5, 0), PascalHighlightPrefetcher.chunkOrder(2, 3, 6).toList())
+        assertEquals(listOf(0, 1, 2), PascalHighlightPrefetcher.chunkOrder(0, 0, 3).toList())
+        assertEquals(listOf(2, 1, 0), PascalHighlightPrefetcher.chunkOrder(2, 2, 3).toList())
+    }
+}
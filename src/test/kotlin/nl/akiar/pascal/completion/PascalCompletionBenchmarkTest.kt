@@ -0,0 +1,101 @@
+package nl.akiar.pascal.completion
+
+import com.intellij.codeInsight.lookup.LookupManager
+import com.intellij.testFramework.fixtures.BasePlatformTestCase
+import java.util.Properties
+
+/**
+ * Completion latency benchmark: runs completion at fixed positions in a synthetic
+ * project and fails when the p95 of a provider's total time (from
+ * [PascalCompletionMetrics]) exceeds its ceiling in completion-latency-baseline.properties.
+ *
+ * Not part of the default test run; enable it with `-Dpascal.completion.benchmark=true`.
+ */
+class PascalCompletionBenchmarkTest : BasePlatformTestCase() {
+
+    private class Scenario(val name: String, val fileName: String, val text: String, val histogram: String)
+
+    private fun generateUnits() {
+        for (i in 0 until UNITS) {
+            val text = StringBuilder()
+            text.append("unit Gen$i;\ninterface\ntype\n")
+            for (j in 0 until 10) {
+                text.append("  TGen${i}Item$j = class\n  public\n    procedure Run$j;\n    function Value$j: Integer;\n  end;\n")
+            }
+            for (j in 0 until 10) text.append("function Gen${i}Func$j: Integer;\n")
+            text.append("var\n")
+            for (j in 0 until 5) text.append("  Gen${i}Var$j: TGen${i}Item$j;\n")
+            text.append("implementation\n")
+            for (j in 0 until 10) {
+                text.append("procedure TGen${i}Item$j.Run$j; begin end;\n")
+                text.append("function TGen${i}Item$j.Value$j: Integer; begin Result := 0; end;\n")
+                text.append("function Gen${i}Func$j: Integer; begin Result := 0; end;\n")
+            }
+            text.append("end.\n")
+            myFixture.addFileToProject("Gen$i.pas", text.toString())
+        }
+    }
+
+    private fun mainUnit(body: String, localType: String = "Integer"): String {
+        val uses = (0 until UNITS).joinToString(", ") { "Gen$it" }
+        return "unit Main;\ninterface\nuses $uses;\nimplementation\n" +
+            "procedure Test;\nvar\n  Local: $localType;\nbegin\n$body\nend;\nend.\n"
+    }
+
+    private fun scenarios() = listOf(
+        Scenario("identifier", "Main.pas", mainUnit("  Gen1<caret>"), "identifier.total"),
+        Scenario("member", "Main.pas", mainUnit("  Gen0Var0.<caret>"), "member.total"),
+        Scenario("unitQualified", "Main.pas", mainUnit("  Gen5.<caret>"), "member.total"),
+        Scenario("type", "Main.pas", mainUnit("  Local := 0;", "TGen2<caret>"), "type.total"),
+        Scenario("uses", "Other.pas", "unit Other;\ninterface\nuses Gen1<caret>;\nimplementation\nend.\n", "uses.total"),
+    )
+
+    private fun loadBaseline(): Properties {
+        val properties = Properties()
+        javaClass.getResourceAsStream("completion-latency-baseline.properties").use {
+            assertNotNull("Missing completion latency baseline", it)
+            properties.load(it)
+        }
+        return properties
+    }
+
+    fun testCompletionLatencyWithinBaseline() {
+        if (!java.lang.Boolean.getBoolean(ENABLED_PROPERTY)) return
+        generateUnits()
+        val baseline = loadBaseline()
+        val tolerance = baseline.getProperty("tolerance", "1.5").toDouble()
+        val failures = mutableListOf<String>()
+
+        for (scenario in scenarios()) {
+            myFixture.configureByText(scenario.fileName, scenario.text)
+            val caret = myFixture.caretOffset
+            repeat(WARMUP_RUNS) { complete(caret) }
+            PascalCompletionMetrics.reset()
+            repeat(MEASURED_RUNS) { complete(caret) }
+
+            val histogram = PascalCompletionMetrics.histogram(scenario.histogram)
+            println("[CompletionBenchmark] ${scenario.name}: $histogram")
+            assertTrue("${scenario.name} should run its provider every time", histogram.count >= MEASURED_RUNS)
+
+            val ceiling = baseline.getProperty(scenario.histogram)?.toDouble() ?: continue
+            val p95 = histogram.percentileMillis(0.95)
+            if (p95 > ceiling * tolerance) {
+                failures.add("${scenario.name}: p95 ${"%.1f".format(p95)}ms exceeds baseline ${ceiling}ms x $tolerance")
+            }
+        }
+        assertTrue(failures.joinToString("\n"), failures.isEmpty())
+    }
+
+    private fun complete(caret: Int) {
+        myFixture.editor.caretModel.moveToOffset(caret)
+        myFixture.completeBasic()
+        LookupManager.getInstance(project).hideActiveLookup()
+    }
+
+    companion object {
+        private const val ENABLED_PROPERTY = "pascal.completion.benchmark"
+        private const val UNITS = 120
+        private const val WARMUP_RUNS = 3
+        private const val MEASURED_RUNS = 20
+    }
+}
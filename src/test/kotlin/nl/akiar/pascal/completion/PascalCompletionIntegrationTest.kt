@@ -340,6 +340,47 @@ class PascalCompletionIntegrationTest : BasePlatformTestCase() {
         assertTrue("Should offer 'MyProc'", names.any { it.equals("MyProc", ignoreCase = true) })
     }
 
+    fun testUnitQualifiedCompletionOffersInterfaceOnly() {
+        myFixture.configureByText("MyUnit.pas", """
+            unit MyUnit;
+            interface
+            var
+              MyCounter: Integer;
+            function MyFunc: string;
+            implementation
+            type
+              TMyHidden = class
+              end;
+            var
+              MyPrivate: Integer;
+            function MyFunc: string; begin Result := ''; end;
+            procedure MyHelper; begin end;
+            end.
+        """.trimIndent())
+
+        myFixture.configureByText("Main.pas", """
+            unit Main;
+            interface
+            uses MyUnit;
+            implementation
+            procedure Test;
+            begin
+              MyUnit.<caret>
+            end;
+            end.
+        """.trimIndent())
+
+        myFixture.complete(CompletionType.BASIC)
+        val names = myFixture.lookupElementStrings
+
+        assertNotNull("Unit-qualified completion should return results", names)
+        assertTrue("Should offer 'MyCounter'", names!!.contains("MyCounter"))
+        assertTrue("Should offer 'MyFunc'", names.contains("MyFunc"))
+        assertFalse("Implementation types are not exported", names.contains("TMyHidden"))
+        assertFalse("Implementation variables are not exported", names.contains("MyPrivate"))
+        assertFalse("Implementation-only routines are not exported", names.contains("MyHelper"))
+    }
+
     // ==================== Identifier Completion ====================
 
     fun testIdentifierCompletionOffersKeywords() {
@@ -0,0 +1,110 @@
+package nl.akiar.pascal.completion
+
+import com.intellij.codeInsight.completion.CompletionType
+import com.intellij.openapi.application.WriteAction
+import com.intellij.testFramework.fixtures.BasePlatformTestCase
+import nl.akiar.pascal.settings.PascalSourcePathsSettings
+import java.io.IOException
+
+/**
+ * Tests for the sorted unit catalogue behind uses-clause completion.
+ */
+class PascalUnitCatalogueTest : BasePlatformTestCase() {
+
+    private fun names(table: PascalUnitCatalogue.Table, prefix: String): List<String> {
+        val result = mutableListOf<String>()
+        table.process(prefix) { result.add(it.name); true }
+        return result
+    }
+
+    fun testScopeStrippedAliases() {
+        val table = PascalUnitCatalogue.Table.build(
+            listOf("System.Classes", "System.SysUtils", "Vcl.Forms", "SysUtils"), listOf("System", "Vcl"))
+
+        assertEquals(listOf("Classes"), names(table, "cla"))
+        assertEquals(listOf("Forms"), names(table, "For"))
+        // A real SysUtils unit is listed once, not shadowed by the alias
+        assertEquals(listOf("System.Classes", "System.SysUtils", "SysUtils"), names(table, "sys"))
+        assertEquals(6, table.size())
+    }
+
+    fun testCamelHumpMatch() {
+        val table = PascalUnitCatalogue.Table.build(
+            listOf("System.Classes", "System.Generics.Collections", "Spring.Collections"), emptyList())
+
+        assertSameElements(names(table, "SyCl"), "System.Classes")
+        assertSameElements(names(table, "SyGeCo"), "System.Generics.Collections")
+        assertEmpty(names(table, "Cl"))
+    }
+
+    fun testProcessingStopsWhenAsked() {
+        val table = PascalUnitCatalogue.Table.build((1..50).map { "Unit$it" }, emptyList())
+        var seen = 0
+        assertFalse(table.process("unit") { ++seen < 10 })
+        assertEquals(10, seen)
+    }
+
+    /** Benchmark: prefix queries against 20k units only examine the first letter's range. */
+    fun testLargeCatalogue() {
+        val units = (0 until 20_000).map { "${"ABCDEFGHIJ"[it % 10]}Unit$it" }
+        val buildStart = System.nanoTime()
+        val table = PascalUnitCatalogue.Table.build(units, listOf("System"))
+        val buildMs = (System.nanoTime() - buildStart) / 1_000_000
+
+        val queryStart = System.nanoTime()
+        var matches = 0
+        repeat(1_000) { i ->
+            table.process("${"ABCDEFGHIJ"[i % 10]}unit1999") { matches++; true }
+        }
+        val queryMs = (System.nanoTime() - queryStart) / 1_000_000
+        println("[PascalUnitCatalogue] 20k units: build ${buildMs}ms, 1000 queries ${queryMs}ms")
+
+        assertEquals(20_000, table.size())
+        // Each letter owns one or two of the xUnit1999* names
+        assertTrue(matches in 1_000..11_000)
+    }
+
+    fun testUsesCompletionOffersAliases() {
+        val settings = PascalSourcePathsSettings.getInstance(project)
+        val oldScopes = settings.unitScopeNames
+        settings.unitScopeNames = listOf("System")
+        try {
+            myFixture.addFileToProject("System.Classes.pas", "unit System.Classes;\ninterface\nimplementation\nend.")
+            myFixture.addFileToProject("System.Character.pas", "unit System.Character;\ninterface\nimplementation\nend.")
+            myFixture.addFileToProject("System.SysUtils.pas", "unit System.SysUtils;\ninterface\nimplementation\nend.")
+            myFixture.configureByText("Main.pas", """
+                unit Main;
+                interface
+                uses System.SysUtils, C<caret>;
+                implementation
+                end.
+            """.trimIndent())
+
+            myFixture.complete(CompletionType.BASIC)
+            val names = myFixture.lookupElementStrings
+
+            assertNotNull("Uses completion should return results", names)
+            assertContainsElements(names!!, "Classes", "Character")
+        } finally {
+            settings.unitScopeNames = oldScopes
+        }
+    }
+
+    fun testOnlyUnitFileEventsMakeTheCatalogueStale() {
+        myFixture.addFileToProject("Alpha.pas", "unit Alpha;\ninterface\nimplementation\nend.")
+        val catalogue = PascalUnitCatalogue.getInstance(project)
+        catalogue.process("alp") { true }
+        assertFalse(catalogue.isStale)
+
+        // Build output and other non-unit directories leave the catalogue alone
+        val output = myFixture.tempDirFixture.findOrCreateDir("out/Win32")
+        WriteAction.run<IOException> {
+            output.createChildData(this, "Alpha.dcu")
+            output.parent.delete(this)
+        }
+        assertFalse(catalogue.isStale)
+
+        myFixture.addFileToProject("lib/Beta.pas", "unit Beta;\ninterface\nimplementation\nend.")
+        assertTrue(catalogue.isStale)
+    }
+}
@@ -0,0 +1,127 @@
+package nl.akiar.pascal.completion
+
+import com.intellij.openapi.command.WriteCommandAction
+import com.intellij.psi.PsiDocumentManager
+import com.intellij.testFramework.fixtures.BasePlatformTestCase
+
+/**
+ * Tests for the per-file table of declarations visible to identifier completion.
+ */
+class PascalVisibleDeclarationsTest : BasePlatformTestCase() {
+
+    private fun names(exports: List<PascalUnitExports>, prefix: String, kind: PascalUnitExports.Kind,
+                      includeImplementation: Boolean = false): List<String> {
+        val result = mutableListOf<String>()
+        for (table in exports) table.processPrefix(prefix, kind, includeImplementation) { result.add(it.name) }
+        return result
+    }
+
+    private fun configureUnits() {
+        myFixture.configureByText("Alpha.pas", """
+            unit Alpha;
+            interface
+            type
+              TAlphaThing = class
+                procedure Method;
+              end;
+              TAlphaLater = class;
+            function AlphaFunc: Integer;
+            var
+              AlphaVar: Integer;
+            implementation
+            type
+              TAlphaLater = class
+              end;
+            function AlphaFunc: Integer; begin Result := 0; end;
+            procedure AlphaHidden; begin end;
+            procedure TAlphaThing.Method; begin end;
+            end.
+        """.trimIndent())
+        myFixture.configureByText("Main.pas", """
+            unit Main;
+            interface
+            implementation
+            uses Alpha;
+            end.
+        """.trimIndent())
+    }
+
+    fun testUnitExportsFromStubs() {
+        configureUnits()
+        val alpha = myFixture.findFileInTempDir("Alpha.pas")
+        val exports = PascalUnitExports.of(psiManager.findFile(alpha)!!)
+
+        assertSameElements(names(listOf(exports), "talpha", PascalUnitExports.Kind.TYPE, true), "TAlphaThing", "TAlphaLater")
+        assertSameElements(names(listOf(exports), "alpha", PascalUnitExports.Kind.ROUTINE, true), "AlphaFunc", "AlphaHidden")
+        // Units using Alpha only see its interface section
+        assertSameElements(names(listOf(exports), "talpha", PascalUnitExports.Kind.TYPE), "TAlphaThing")
+        assertSameElements(names(listOf(exports), "alpha", PascalUnitExports.Kind.ROUTINE), "AlphaFunc")
+        assertSameElements(names(listOf(exports), "", PascalUnitExports.Kind.VARIABLE), "AlphaVar")
+    }
+
+    fun testExportedEntriesCarryTypeText() {
+        configureUnits()
+        val alpha = myFixture.findFileInTempDir("Alpha.pas")
+        val exports = PascalUnitExports.of(psiManager.findFile(alpha)!!)
+        val exported = mutableMapOf<String, String?>()
+        for (kind in PascalUnitExports.Kind.values()) {
+            exports.processExported(kind) { exported[it.name] = it.typeText }
+        }
+
+        assertSameElements(exported.keys, "TAlphaThing", "AlphaFunc", "AlphaVar")
+        assertEquals("class", exported["TAlphaThing"])
+        assertEquals("Integer", exported["AlphaFunc"])
+        assertEquals("Integer", exported["AlphaVar"])
+    }
+
+    fun testSectionsSeeTheirOwnUses() {
+        configureUnits()
+        val main = myFixture.file
+        val inInterface = PascalVisibleDeclarations.visibleAt(main, main.text.indexOf("implementation") - 1)
+        val inImplementation = PascalVisibleDeclarations.visibleAt(main, main.text.indexOf("end."))
+
+        assertEmpty(names(inInterface, "alpha", PascalUnitExports.Kind.ROUTINE))
+        assertSameElements(names(inImplementation, "alpha", PascalUnitExports.Kind.ROUTINE), "AlphaFunc")
+    }
+
+    fun testTableIsKeptUntilUsesChange() {
+        configureUnits()
+        val main = myFixture.file
+        val table = PascalVisibleDeclarations.of(main)
+        assertSame(table, PascalVisibleDeclarations.of(main))
+
+        val document = myFixture.editor.document
+        WriteCommandAction.runWriteCommandAction(project) {
+            val offset = document.text.indexOf("end.")
+            document.insertString(offset, "procedure Local; begin end;\n")
+        }
+        PsiDocumentManager.getInstance(project).commitDocument(document)
+        assertSame(table, PascalVisibleDeclarations.of(main))
+
+        WriteCommandAction.runWriteCommandAction(project) {
+            val offset = document.text.indexOf("uses Alpha;")
+            document.replaceString(offset, offset + "uses Alpha;".length, "")
+        }
+        PsiDocumentManager.getInstance(project).commitDocument(document)
+        val rebuilt = PascalVisibleDeclarations.of(main)
+        assertNotSame(table, rebuilt)
+        assertEmpty(names(PascalVisibleDeclarations.visibleAt(main, main.text.indexOf("end.")), "alpha", PascalUnitExports.Kind.ROUTINE))
+    }
+
+    fun testSectionBoundaryFollowsEditsToAKeptTable() {
+        configureUnits()
+        val main = myFixture.file
+        val table = PascalVisibleDeclarations.of(main)
+
+        // Moves the implementation keyword without touching any uses clause
+        val document = myFixture.editor.document
+        WriteCommandAction.runWriteCommandAction(project) {
+            document.insertString(document.text.indexOf("implementation"), "procedure Extra;\n")
+        }
+        PsiDocumentManager.getInstance(project).commitDocument(document)
+        assertSame(table, PascalVisibleDeclarations.of(main))
+
+        val inInterface = PascalVisibleDeclarations.visibleAt(main, main.text.indexOf("implementation") - 1)
+        assertEmpty(names(inInterface, "alpha", PascalUnitExports.Kind.ROUTINE))
+    }
+}
@@ -0,0 +1,91 @@
+package nl.akiar.pascal.hierarchy
+
+import com.intellij.ide.hierarchy.HierarchyNodeDescriptor
+import com.intellij.ide.hierarchy.HierarchyTreeStructure
+import com.intellij.psi.util.PsiTreeUtil
+import com.intellij.testFramework.fixtures.BasePlatformTestCase
+import nl.akiar.pascal.psi.PascalTypeDefinition
+
+/**
+ * Tests for the Type Hierarchy tree structures.
+ */
+class PascalTypeHierarchyTest : BasePlatformTestCase() {
+
+    private val source = """
+        unit Shapes;
+        interface
+        type
+          IShape = interface
+          end;
+          TShape = class(TObject, IShape)
+          end;
+          TCircle = class(TShape)
+          end;
+          TSquare = class(TShape)
+          end;
+          TRing = class(TCircle)
+          end;
+        implementation
+        end.
+    """.trimIndent()
+
+    private fun type(name: String): PascalTypeDefinition =
+        PsiTreeUtil.findChildrenOfType(myFixture.file, PascalTypeDefinition::class.java).first { it.name == name }
+
+    private fun childNames(structure: HierarchyTreeStructure, descriptor: Any): List<String?> =
+        structure.getChildElements(descriptor).map { ((it as HierarchyNodeDescriptor).psiElement as PascalTypeDefinition).name }
+
+    fun testSubtypesListDirectChildrenPerLevel() {
+        myFixture.configureByText("Shapes.pas", source)
+        val structure = PascalSubtypesHierarchyTreeStructure(project, type("TShape"))
+
+        assertEquals(listOf("TCircle", "TSquare"), childNames(structure, structure.baseDescriptor))
+        val circle = structure.getChildElements(structure.baseDescriptor).first()
+        assertEquals(listOf("TRing"), childNames(structure, circle))
+    }
+
+    fun testSupertypesListSuperclassThenInterfaces() {
+        myFixture.configureByText("Shapes.pas", source)
+        val structure = PascalSupertypesHierarchyTreeStructure(project, type("TShape"))
+
+        assertEquals("IShape", childNames(structure, structure.baseDescriptor).last())
+    }
+
+    fun testSupertypesResolveThroughTheDeclaringUnitsUses() {
+        for (unit in listOf("IntfA", "IntfB")) {
+            myFixture.configureByText("$unit.pas", """
+                unit $unit;
+                interface
+                type
+                  IThing = interface
+                  end;
+                implementation
+                end.
+            """.trimIndent())
+        }
+        myFixture.configureByText("Impl.pas", """
+            unit Impl;
+            interface
+            uses IntfB;
+            type
+              TThing = class(TObject, IThing)
+              end;
+            implementation
+            end.
+        """.trimIndent())
+
+        val supertypes = PascalSupertypesHierarchyTreeStructure.getSupertypes(type("TThing"))
+        val thing = supertypes.single { it.name == "IThing" }
+        assertEquals("IntfB", thing.unitName)
+    }
+
+    fun testTypeHierarchyShowsSuperclassChainAboveBase() {
+        myFixture.configureByText("Shapes.pas", source)
+        val structure = PascalTypeHierarchyTreeStructure(project, type("TCircle"))
+
+        val base = structure.baseDescriptor
+        assertEquals("TCircle", (base.psiElement as PascalTypeDefinition).name)
+        assertEquals("TShape", ((base.parentDescriptor as HierarchyNodeDescriptor).psiElement as PascalTypeDefinition).name)
+        assertEquals(listOf("TRing"), childNames(structure, base))
+    }
+}
@@ -0,0 +1,101 @@
+package nl.akiar.pascal.index
+
+import com.intellij.testFramework.fixtures.BasePlatformTestCase
+
+/**
+ * Tests for the lexer-based identifier occurrence index behind Find Usages.
+ */
+class PascalIdentifierOccurrenceIndexTest : BasePlatformTestCase() {
+
+    private val source = """
+        unit Main;
+        interface
+        type
+          TForward = class;
+          TError = class(Exception);
+          TFoo = class(TObject)
+          private
+            FCount: Integer;
+          public
+            procedure Run;
+            property Count: Integer read FCount;
+          end;
+          TForward = class
+            procedure Run;
+          end;
+        procedure Standalone;
+        implementation
+        procedure TFoo.Run;
+          procedure Inner;
+          begin
+            FCount := 1;
+          end;
+        begin
+          try
+            Inner;
+          finally
+            FCount := 0;
+          end;
+        end;
+        procedure Standalone;
+        var
+          Foo: TFoo;
+        begin
+          Foo.Run;
+          with Foo do
+            Run;
+        end;
+        procedure TForward.Run;
+        begin
+          inherited Run;
+        end;
+        end.
+    """.trimIndent()
+
+    private data class Occurrence(val text: String, val kind: Byte, val owner: String?)
+
+    private fun occurrences(name: String): List<Occurrence> {
+        val found = PascalIdentifierOccurrenceIndex.scan(source)[name] ?: return emptyList()
+        return (0 until found.size()).map { i ->
+            val offset = found.getOffset(i)
+            val line = source.substring(source.lastIndexOf('\n', offset) + 1, source.indexOf('\n', offset)).trim()
+            Occurrence(line, found.getKind(i), found.getOwner(i))
+        }
+    }
+
+    fun testOwnersFromTypeBodiesAndMethodBodies() {
+        val fCount = occurrences("fcount")
+        assertEquals(4, fCount.size)
+        // Field declaration, property specifier, nested routine and method body all belong to TFoo
+        assertTrue(fCount.all { it.owner == "tfoo" && it.kind == PascalIdentifierOccurrences.BARE })
+    }
+
+    fun testShortClassDeclarationsOpenNoBody() {
+        // TError = class(Exception); and the forward TForward = class; must not swallow TFoo's body
+        val count = occurrences("count").single()
+        assertEquals("tfoo", count.owner)
+    }
+
+    fun testKindsOfRunOccurrences() {
+        val run = occurrences("run")
+        val byLine = run.associateBy({ it.text }, { it })
+
+        assertEquals("tfoo", run.first { it.text == "procedure Run;" }.owner)
+        assertEquals(PascalIdentifierOccurrences.QUALIFIED, byLine.getValue("procedure TFoo.Run;").kind)
+        assertEquals(PascalIdentifierOccurrences.QUALIFIED, byLine.getValue("Foo.Run;").kind)
+        assertNull(byLine.getValue("Foo.Run;").owner)
+        assertEquals(PascalIdentifierOccurrences.WITH, byLine.getValue("Run;").kind)
+        val inherited = byLine.getValue("inherited Run;")
+        assertEquals(PascalIdentifierOccurrences.INHERITED, inherited.kind)
+        assertEquals("tforward", inherited.owner)
+    }
+
+    fun testExternalizerRoundTrip() {
+        val original = PascalIdentifierOccurrenceIndex.scan(source).getValue("run")
+        val bytes = java.io.ByteArrayOutputStream()
+        PascalIdentifierOccurrences.Externalizer.INSTANCE.save(java.io.DataOutputStream(bytes), original)
+        val read = PascalIdentifierOccurrences.Externalizer.INSTANCE.read(
+            java.io.DataInputStream(java.io.ByteArrayInputStream(bytes.toByteArray())))
+        assertEquals(original, read)
+    }
+}
@@ -0,0 +1,99 @@
+package nl.akiar.pascal.navigation
+
+import com.intellij.navigation.ChooseByNameContributorEx
+import com.intellij.navigation.NavigationItem
+import com.intellij.psi.search.GlobalSearchScope
+import com.intellij.testFramework.fixtures.BasePlatformTestCase
+import com.intellij.util.indexing.FindSymbolParameters
+
+/**
+ * Tests for the Go to Class and Go to Symbol contributors over the stub indices.
+ */
+class PascalGotoContributorTest : BasePlatformTestCase() {
+
+    private val source = """
+        unit Orders;
+        interface
+        const
+          MaxOrders = 100;
+        type
+          TOrderProcessor = class;
+          TOrderProcessor = class
+          private
+            FCount: Integer;
+          public
+            procedure Run;
+            property Count: Integer read FCount;
+          end;
+        procedure ProcessAll;
+        implementation
+        procedure TOrderProcessor.Run;
+        const
+          LocalLimit = 5;
+        begin
+        end;
+        procedure ProcessAll;
+        begin
+        end;
+        end.
+    """.trimIndent()
+
+    private fun names(contributor: ChooseByNameContributorEx): Set<String> {
+        val names = HashSet<String>()
+        contributor.processNames({ names.add(it) }, GlobalSearchScope.allScope(project), null)
+        return names
+    }
+
+    private fun items(contributor: ChooseByNameContributorEx, name: String): List<NavigationItem> {
+        val items = ArrayList<NavigationItem>()
+        val parameters = FindSymbolParameters.wrap(name, project, true)
+        contributor.processElementsWithName(name, { items.add(it) }, parameters)
+        return items
+    }
+
+    fun testGotoClassListsTypeDefinitionOnce() {
+        myFixture.configureByText("Orders.pas", source)
+        val contributor = PascalGotoClassContributor()
+
+        assertTrue(names(contributor).contains("torderprocessor"))
+        val found = items(contributor, "torderprocessor")
+        assertEquals(1, found.size)
+        assertEquals("Orders.TOrderProcessor", contributor.getQualifiedName(found.single()))
+    }
+
+    fun testGotoSymbolQualifiesMethodsAndProperties() {
+        myFixture.configureByText("Orders.pas", source)
+        val contributor = PascalGotoSymbolContributor()
+
+        val names = names(contributor)
+        assertTrue(names.containsAll(listOf("run", "count", "processall", "maxorders")))
+
+        val run = items(contributor, "run")
+        assertEquals(1, run.size)
+        assertEquals("Orders.TOrderProcessor.Run", contributor.getQualifiedName(run.single()))
+
+        val count = items(contributor, "count")
+        assertEquals(1, count.size)
+        assertEquals("Orders.TOrderProcessor.Count", contributor.getQualifiedName(count.single()))
+
+        val processAll = items(contributor, "ProcessAll")
+        assertEquals(1, processAll.size)
+        assertEquals("Orders.ProcessAll", contributor.getQualifiedName(processAll.single()))
+    }
+
+    fun testGotoSymbolOffersOnlyGlobalConstants() {
+        myFixture.configureByText("Orders.pas", source)
+        val contributor = PascalGotoSymbolContributor()
+
+        assertEquals("Orders.MaxOrders", contributor.getQualifiedName(items(contributor, "maxorders").single()))
+        assertEmpty(items(contributor, "locallimit"))
+        assertEmpty(items(contributor, "fcount"))
+    }
+
+    fun testNameStreamStopsWhenProcessorDeclines() {
+        myFixture.configureByText("Orders.pas", source)
+        var seen = 0
+        PascalGotoSymbolContributor().processNames({ ++seen; false }, GlobalSearchScope.allScope(project), null)
+        assertEquals(1, seen)
+    }
+}
@@ -51,6 +51,39 @@ class PascalImplementationSearcherTest : BasePlatformTestCase() {
         assertTrue("Should find TFoo", classResults.any { it.name.equals("TFoo", ignoreCase = true) })
     }
 
+    @Test
+    fun testInterfaceTypeFindsIndirectImplementors() {
+        val file = myFixture.configureByText("TestUnit.pas", """
+            unit TestUnit;
+            interface
+            type
+              IFoo = interface
+                procedure DoFoo;
+              end;
+              TFoo = class(TInterfacedObject, IFoo)
+              public
+                procedure DoFoo; virtual;
+              end;
+              TBar = class(TFoo)
+              public
+                procedure DoFoo; override;
+              end;
+            implementation
+            procedure TFoo.DoFoo; begin end;
+            procedure TBar.DoFoo; begin end;
+            end.
+        """.trimIndent())
+
+        val types = PsiTreeUtil.findChildrenOfType(file, PascalTypeDefinition::class.java)
+        val iFoo = types.first { it.name.equals("IFoo", ignoreCase = true) }
+        val classNames = findImplementations(iFoo).filterIsInstance<PascalTypeDefinition>().map { it.name }.distinct()
+        assertSameElements(classNames, "TFoo", "TBar")
+
+        val doFoo = iFoo.methods.first()
+        val owners = findImplementations(doFoo).filterIsInstance<PascalRoutine>().map { it.containingClassName }.distinct()
+        assertSameElements(owners, "TFoo", "TBar")
+    }
+
     @Test
     fun testInterfaceTypeMultipleImplementors() {
         val file = myFixture.configureByText("TestUnit.pas", """
@@ -0,0 +1,106 @@
+package nl.akiar.pascal.psi
+
+import com.intellij.openapi.command.WriteCommandAction
+import com.intellij.psi.PsiDocumentManager
+import com.intellij.psi.PsiElement
+import com.intellij.psi.PsiFile
+import com.intellij.psi.tree.IElementType
+import com.intellij.psi.util.PsiTreeUtil
+import com.intellij.testFramework.fixtures.BasePlatformTestCase
+
+/**
+ * Tests for the per-file interval map behind section and "inside X" queries.
+ */
+class PascalSectionMapTest : BasePlatformTestCase() {
+
+    private val source = """
+        unit Main;
+        interface
+        uses SysUtils;
+        type
+          TColor = (clRed, clBlue);
+          TFoo = class
+          private
+            FCount: Integer;
+          public
+            procedure Run(AValue: Integer);
+            property Count: Integer read FCount;
+          end;
+        implementation
+        procedure TFoo.Run(AValue: Integer);
+          procedure Inner;
+          begin
+            FCount := AValue;
+          end;
+        begin
+          Inner;
+        end;
+        procedure Free;
+        begin
+        end;
+        initialization
+          Free;
+        end.
+    """.trimIndent()
+
+    private fun at(marker: String, delta: Int = 0): PsiElement =
+        myFixture.file.findElementAt(myFixture.file.text.indexOf(marker) + delta)!!
+
+    private fun walkHasParent(element: PsiElement, type: IElementType): Boolean {
+        var parent = element.parent
+        while (parent != null) {
+            if (parent.node?.elementType == type) return true
+            parent = parent.parent
+        }
+        return false
+    }
+
+    fun testEnclosingMatchesParentWalk() {
+        myFixture.configureByText("Main.pas", source)
+        val map = PascalSectionMap.of(myFixture.file)
+
+        val elements = PsiTreeUtil.collectElements(myFixture.file) { true }
+        for (element in elements) {
+            if (element is PsiFile) continue
+            for (type in PascalSectionMap.TRACKED) {
+                assertEquals("${element.text} in $type", walkHasParent(element, type), map.enclosing(element, type) != null)
+            }
+        }
+    }
+
+    fun testSectionsAndBodies() {
+        myFixture.configureByText("Main.pas", source)
+        val map = PascalSectionMap.of(myFixture.file)
+
+        assertEquals("interface", map.getSection(at("TFoo = class")))
+        assertEquals("implementation", map.getSection(at("FCount := AValue")))
+        assertNull(map.getSection(at("Main;")))
+        assertTrue(map.isInsideRoutineBody(at("FCount := AValue").textRange.startOffset))
+        assertFalse(map.isInsideRoutineBody(at("procedure Free").textRange.startOffset))
+        assertTrue(map.isInUnitHeaderOrUses(at("SysUtils").textRange.startOffset))
+    }
+
+    fun testContainingClassThroughNestedRoutine() {
+        myFixture.configureByText("Main.pas", source)
+        val map = PascalSectionMap.of(myFixture.file)
+
+        assertEquals("TFoo", map.findContainingClass(at("FCount := AValue"))?.name)
+        assertEquals("TFoo", map.findContainingClass(at("FCount: Integer"))?.name)
+        assertNull(map.findContainingClass(at("procedure Free")))
+    }
+
+    fun testRebuiltOnlyAfterChange() {
+        myFixture.configureByText("Main.pas", source)
+        val map = PascalSectionMap.of(myFixture.file)
+        assertSame(map, PascalSectionMap.of(myFixture.file))
+
+        val document = myFixture.editor.document
+        WriteCommandAction.runWriteCommandAction(project) {
+            document.insertString(document.text.indexOf("initialization"), "procedure Extra; begin end;\n")
+        }
+        PsiDocumentManager.getInstance(project).commitDocument(document)
+        val rebuilt = PascalSectionMap.of(myFixture.file)
+        assertNotSame(map, rebuilt)
+        assertTrue(rebuilt.isInsideRoutineBody(myFixture.file.text.indexOf("begin end;\ninit") + 1))
+    }
+}
@@ -0,0 +1,111 @@
+package nl.akiar.pascal.reference
+
+import com.intellij.openapi.command.WriteCommandAction
+import com.intellij.psi.search.searches.ReferencesSearch
+import com.intellij.psi.util.PsiTreeUtil
+import com.intellij.testFramework.fixtures.BasePlatformTestCase
+import nl.akiar.pascal.psi.PascalRoutine
+
+/**
+ * Tests for the index-backed pre-filter of [PascalReferencesSearcher].
+ */
+class PascalReferencesSearcherTest : BasePlatformTestCase() {
+
+    fun testMethodUsagesAcrossClassesAndFiles() {
+        myFixture.addFileToProject("Other.pas", """
+            unit Other;
+            interface
+            uses Main;
+            type
+              TChild = class(TBase)
+                procedure Run;
+              end;
+              TUnrelated = class
+                procedure Execute;
+                procedure Run;
+              end;
+            implementation
+            procedure TChild.Run;
+            begin
+              inherited Run;
+            end;
+            procedure TUnrelated.Execute;
+            begin
+              Run;
+            end;
+            procedure TUnrelated.Run;
+            begin
+            end;
+            procedure UseIt(B: TBase);
+            begin
+              B.Run;
+            end;
+            end.
+        """.trimIndent())
+        val file = myFixture.configureByText("Main.pas", """
+            unit Main;
+            interface
+            type
+              TBase = class
+                procedure Run; virtual;
+                procedure Start;
+              end;
+            implementation
+            procedure TBase.Run;
+            begin
+            end;
+            procedure TBase.Start;
+            begin
+              Run;
+            end;
+            end.
+        """.trimIndent())
+
+        val declaration = PsiTreeUtil.findChildrenOfType(file, PascalRoutine::class.java)
+            .first { !it.isImplementation && it.name == "Run" }
+        val usages = ReferencesSearch.search(declaration).findAll()
+            .map { "${it.element.containingFile.name}:${lineOf(it.element)}" }
+
+        assertTrue("bare call inside TBase: $usages", usages.any { it.startsWith("Main.pas") && it.endsWith("Run;") })
+        assertTrue("qualified call in Other: $usages", usages.any { it.endsWith("B.Run;") })
+        assertFalse("TUnrelated's own Run is not a usage: $usages", usages.any { it == "Other.pas:Run;" })
+    }
+
+    fun testStaleOffsetsDoNotReportTwice() {
+        val file = myFixture.configureByText("Main.pas", """
+            unit Main;
+            interface
+            procedure Run;
+            implementation
+            procedure Run;
+            begin
+            end;
+            procedure First;
+            begin
+              Run;
+            end;
+            procedure Second;
+            begin
+              Run;
+            end;
+            end.
+        """.trimIndent())
+        val declaration = PsiTreeUtil.findChildrenOfType(file, PascalRoutine::class.java)
+            .first { !it.isImplementation && it.name == "Run" }
+
+        // Shift the second call only, leaving the PSI behind: the first offset still matches, the second does not
+        val document = myFixture.editor.document
+        WriteCommandAction.runWriteCommandAction(project) {
+            document.insertString(document.text.indexOf("procedure Second"), "\n")
+        }
+        val usages = ReferencesSearch.search(declaration).findAll().map { it.element.textRange }
+
+        assertEquals(usages.toString(), usages.size, usages.toSet().size)
+    }
+
+    private fun lineOf(element: com.intellij.psi.PsiElement): String {
+        val text = element.containingFile.text
+        val offset = element.textRange.startOffset
+        return text.substring(text.lastIndexOf('\n', offset) + 1, text.indexOf('\n', offset).let { if (it < 0) text.length else it }).trim()
+    }
+}
@@ -0,0 +1,72 @@
+package nl.akiar.pascal.reference
+
+import com.intellij.psi.PsiElement
+import com.intellij.psi.impl.source.resolve.reference.ReferenceProvidersRegistry
+import com.intellij.testFramework.fixtures.BasePlatformTestCase
+import nl.akiar.pascal.psi.PascalProperty
+import nl.akiar.pascal.psi.PascalVariableDefinition
+
+/**
+ * Verifies that Pascal references resolve through ResolveCache, so fresh reference
+ * instances for the same element share one resolution until the PSI changes.
+ */
+class PascalResolveCacheTest : BasePlatformTestCase() {
+
+    private val source = """
+        unit Test;
+        interface
+        type
+          TMyClass = class
+          private
+            FValue: Integer;
+          public
+            property Value: Integer read FValue;
+          end;
+        implementation
+        procedure TestProc;
+        var
+          Obj: TMyClass;
+          X: Integer;
+        begin
+          X := Obj.Value;
+        end;
+        end.
+    """.trimIndent()
+
+    private fun cachingReference(offset: Int): PascalCachingReference {
+        val element: PsiElement = myFixture.file.findElementAt(offset)!!
+        val ref = ReferenceProvidersRegistry.getReferencesFromProviders(element)
+            .filterIsInstance<PascalCachingReference>()
+            .firstOrNull()
+        assertNotNull("Expected a caching reference on '${element.text}'", ref)
+        return ref!!
+    }
+
+    fun testRepeatedResolveIsAnsweredFromCache() {
+        myFixture.configureByText("Test.pas", source)
+        val offset = myFixture.file.text.indexOf("Obj.Value")
+        val stats = PascalCachingReference.getStats()
+
+        assertTrue(cachingReference(offset).resolve() is PascalVariableDefinition)
+        val hitsBefore = stats.hitCount
+        val missesBefore = stats.missCount
+
+        assertTrue(cachingReference(offset).resolve() is PascalVariableDefinition)
+        assertTrue(cachingReference(offset).multiResolve(false).isNotEmpty())
+
+        assertEquals(hitsBefore + 2, stats.hitCount)
+        assertEquals(missesBefore, stats.missCount)
+    }
+
+    fun testMemberReferenceUsesCache() {
+        myFixture.configureByText("Test.pas", source)
+        val offset = myFixture.file.text.indexOf("Obj.Value") + "Obj.".length
+        val ref = cachingReference(offset)
+        assertTrue(ref is PascalMemberReference)
+
+        assertTrue(ref.resolve() is PascalProperty)
+        val missesBefore = PascalCachingReference.getStats().missCount
+        assertTrue(cachingReference(offset).resolve() is PascalProperty)
+        assertEquals(missesBefore, PascalCachingReference.getStats().missCount)
+    }
+}
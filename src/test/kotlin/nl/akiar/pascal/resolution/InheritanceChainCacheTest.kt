@@ -0,0 +1,62 @@
+package nl.akiar.pascal.resolution
+
+import com.intellij.testFramework.fixtures.BasePlatformTestCase
+import nl.akiar.pascal.psi.PascalTypeDefinition
+import nl.akiar.pascal.stubs.PascalTypeIndex
+
+/**
+ * isDescendantOf decides `protected` access, so it must follow resolved superclasses only.
+ */
+class InheritanceChainCacheTest : BasePlatformTestCase() {
+
+    fun testInterfacesAreNotAncestorsForVisibility() {
+        myFixture.configureByText("Shapes.pas", """
+            unit Shapes;
+            interface
+            type
+              IShape = interface
+              end;
+              TBase = class
+              end;
+              TShape = class(TBase, IShape)
+              end;
+            implementation
+            end.
+        """.trimIndent())
+        val cache = InheritanceChainCache.getInstance(project)
+
+        val shape = type("TShape", "Shapes")
+        assertTrue(cache.isDescendantOf(shape, "TBase"))
+        assertFalse(cache.isDescendantOf(shape, "IShape"))
+    }
+
+    fun testSameNamedTypeInOtherUnitIsNotMerged() {
+        myFixture.configureByText("Base.pas", """
+            unit Base;
+            interface
+            type
+              TAncestor = class
+              end;
+              TFoo = class(TAncestor)
+              end;
+            implementation
+            end.
+        """.trimIndent())
+        myFixture.configureByText("Other.pas", """
+            unit Other;
+            interface
+            type
+              TFoo = class
+              end;
+            implementation
+            end.
+        """.trimIndent())
+        val cache = InheritanceChainCache.getInstance(project)
+
+        assertTrue(cache.isDescendantOf(type("TFoo", "Base"), "TAncestor"))
+        assertFalse(cache.isDescendantOf(type("TFoo", "Other"), "TAncestor"))
+    }
+
+    private fun type(name: String, unit: String): PascalTypeDefinition =
+        PascalTypeIndex.findTypes(name, project).single { it.unitName.equals(unit, ignoreCase = true) }
+}
@@ -0,0 +1,68 @@
+package nl.akiar.pascal.resolution
+
+import com.intellij.openapi.command.WriteCommandAction
+import com.intellij.psi.PsiDocumentManager
+import com.intellij.psi.util.PsiTreeUtil
+import com.intellij.testFramework.fixtures.BasePlatformTestCase
+import nl.akiar.pascal.psi.PascalVariableDefinition
+
+/**
+ * Tests for inferred inline variable types cached per routine.
+ */
+class InlineVarInferenceCacheTest : BasePlatformTestCase() {
+
+    private val source = """
+        unit Test;
+        interface
+        type
+          TOrder = class
+            procedure Ship;
+          end;
+          TInvoice = class
+          end;
+        function MakeOrder: TOrder;
+        function MakeInvoice: TInvoice;
+        implementation
+        function MakeOrder: TOrder; begin Result := nil; end;
+        function MakeInvoice: TInvoice; begin Result := nil; end;
+        procedure TOrder.Ship; begin end;
+        procedure DoTest;
+        begin
+          var LItem := MakeOrder;
+          LItem.Ship;
+          LItem.Ship;
+        end;
+        end.
+    """.trimIndent()
+
+    private fun itemVar(): PascalVariableDefinition =
+        PsiTreeUtil.findChildrenOfType(myFixture.file, PascalVariableDefinition::class.java).first { it.name == "LItem" }
+
+    fun testInferenceRunsOncePerVariable() {
+        myFixture.configureByText("Test.pas", source)
+        val stats = MemberChainResolver.inferenceStats
+
+        assertEquals("TOrder", MemberChainResolver.getInferredTypeName(itemVar(), myFixture.file))
+        val missesBefore = stats.missCount
+        val hitsBefore = stats.hitCount
+        assertEquals("TOrder", MemberChainResolver.getInferredTypeName(itemVar(), myFixture.file))
+        assertEquals("TOrder", MemberChainResolver.getInferredTypeOf(itemVar(), myFixture.file)?.name)
+
+        assertEquals(missesBefore, stats.missCount)
+        assertTrue(stats.hitCount >= hitsBefore + 2)
+    }
+
+    fun testRoutineEditRecomputes() {
+        myFixture.configureByText("Test.pas", source)
+        assertEquals("TOrder", MemberChainResolver.getInferredTypeName(itemVar(), myFixture.file))
+
+        val document = myFixture.editor.document
+        WriteCommandAction.runWriteCommandAction(project) {
+            val offset = document.text.indexOf("LItem := MakeOrder") + "LItem := ".length
+            document.replaceString(offset, offset + "MakeOrder".length, "MakeInvoice")
+        }
+        PsiDocumentManager.getInstance(project).commitDocument(document)
+
+        assertEquals("TInvoice", MemberChainResolver.getInferredTypeName(itemVar(), myFixture.file))
+    }
+}
@@ -0,0 +1,112 @@
+package nl.akiar.pascal.resolution
+
+import com.intellij.openapi.command.WriteCommandAction
+import com.intellij.psi.PsiDocumentManager
+import com.intellij.testFramework.fixtures.BasePlatformTestCase
+import nl.akiar.pascal.PascalTokenTypes
+import nl.akiar.pascal.psi.PascalProperty
+
+/**
+ * Tests for the per-file chain cache shared by resolveChain and resolveElement.
+ */
+class MemberChainCacheTest : BasePlatformTestCase() {
+
+    private val source = """
+        unit Main;
+        interface
+        type
+          TMyClass = class
+          private
+            FValue: Integer;
+          public
+            property Value: Integer read FValue;
+          end;
+        implementation
+        procedure Test;
+        var
+          Obj: TMyClass;
+          X: Integer;
+        begin
+          X := Obj.Value;
+        end;
+        end.
+    """.trimIndent()
+
+    private fun valueIdentifier(): com.intellij.psi.PsiElement {
+        val offset = myFixture.file.text.indexOf("Obj.Value") + "Obj.".length
+        val element = myFixture.file.findElementAt(offset)
+        assertNotNull(element)
+        assertEquals(PascalTokenTypes.IDENTIFIER, element!!.node.elementType)
+        return element
+    }
+
+    fun testResolveChainReusesResolveElementResult() {
+        myFixture.configureByText("Main.pas", source)
+        val value = valueIdentifier()
+
+        assertTrue(MemberChainResolver.resolveElement(value) is PascalProperty)
+        val hitsBefore = MemberChainResolver.chainResultStats.hitCount
+        val resolutionsBefore = MemberChainResolver.chainCacheStats.missCount
+
+        val result = MemberChainResolver.resolveChain(value)
+
+        assertTrue(result.resolvedElements[1] is PascalProperty)
+        assertEquals(hitsBefore + 1, MemberChainResolver.chainResultStats.hitCount)
+        assertEquals(resolutionsBefore, MemberChainResolver.chainCacheStats.missCount)
+    }
+
+    fun testEditInFileDropsCachedChains() {
+        myFixture.configureByText("Main.pas", source)
+        MemberChainResolver.resolveChain(valueIdentifier())
+
+        val document = myFixture.editor.document
+        WriteCommandAction.runWriteCommandAction(project) {
+            document.insertString(document.text.indexOf("X := Obj.Value;"), "X := 1;\n  ")
+        }
+        PsiDocumentManager.getInstance(project).commitDocument(document)
+
+        val missesBefore = MemberChainResolver.chainCacheStats.missCount
+        val result = MemberChainResolver.resolveChain(valueIdentifier())
+
+        assertTrue(result.resolvedElements[1] is PascalProperty)
+        assertEquals(missesBefore + 1, MemberChainResolver.chainCacheStats.missCount)
+    }
+
+    fun testLongChainIsResolvedOnce() {
+        myFixture.configureByText("Chain.pas", """
+            unit Chain;
+            interface
+            type
+              TNode = class
+              public
+                function Next: TNode;
+                property Value: Integer read FValue;
+              end;
+            implementation
+            procedure Test;
+            var
+              N: TNode;
+              X: Integer;
+            begin
+              X := N.Next.Next.Next.Value;
+            end;
+            end.
+        """.trimIndent())
+        val text = myFixture.file.text
+        val chainStart = text.indexOf("N.Next")
+        val parts = generateSequence(chainStart) { offset ->
+            text.indexOf('.', offset).takeIf { it in chainStart until text.indexOf(';', chainStart) }?.plus(1)
+        }.map { myFixture.file.findElementAt(it)!! }.toList()
+        assertEquals(5, parts.size)
+
+        val resolutionsBefore = MemberChainResolver.chainCacheStats.missCount
+        val sharedBefore = MemberChainResolver.chainResultStats.hitCount
+
+        val results = parts.map { MemberChainResolver.resolveChain(it) }
+
+        assertEquals("Chain should be resolved exactly once", resolutionsBefore + 1, MemberChainResolver.chainCacheStats.missCount)
+        assertEquals(sharedBefore + parts.size - 1, MemberChainResolver.chainResultStats.hitCount)
+        assertTrue(results.all { it === results.first() })
+        assertTrue(results.first().resolvedElements.last() is PascalProperty)
+    }
+}
@@ -0,0 +1,60 @@
+package nl.akiar.pascal.resolution
+
+import com.intellij.testFramework.fixtures.BasePlatformTestCase
+import org.junit.Test
+
+/**
+ * Tests for PascalNameTable: case-insensitive interning of unit/type/member names.
+ */
+class PascalNameTableTest : BasePlatformTestCase() {
+
+    @Test
+    fun testIdsAreCaseInsensitive() {
+        val names = PascalNameTable.getInstance(project)
+        val id = names.idOf("System.Classes")
+        assertEquals(id, names.idOf("system.classes"))
+        assertEquals(id, names.idOf("SYSTEM.CLASSES"))
+        assertFalse(id == names.idOf("System.SysUtils"))
+    }
+
+    @Test
+    fun testCanonicalReturnsSharedLowercaseInstance() {
+        val names = PascalNameTable.getInstance(project)
+        val first = names.canonical("TStringList")
+        val second = names.canonical("TSTRINGLIST")
+        assertEquals("tstringlist", first)
+        assertSame(first, second)
+    }
+
+    @Test
+    fun testQualifiedKeyDistinguishesUnits() {
+        val names = PascalNameTable.getInstance(project)
+        val a = names.qualifiedKey("UnitA", "TFoo")
+        val b = names.qualifiedKey("UnitB", "TFoo")
+        assertFalse(a == b)
+        assertEquals(a, names.qualifiedKey("unita", "tfoo"))
+        assertEquals(names.qualifiedKey(null, "TFoo"), names.qualifiedKey(null, "tfoo"))
+    }
+
+    @Test
+    fun testTransitiveUnitIdsMatchUnitNames() {
+        myFixture.configureByText("UnitB.pas", """
+            unit UnitB;
+            interface
+            implementation
+            end.
+        """.trimIndent())
+        val mainFile = myFixture.configureByText("UnitA.pas", """
+            unit UnitA;
+            interface
+            uses UnitB;
+            implementation
+            end.
+        """.trimIndent())
+
+        val result = TransitiveDependencyResolver.getTransitiveDependencies(mainFile)
+        val names = PascalNameTable.getInstance(project)
+        assertTrue(result.isUnitAvailable(names.idOf("UNITB")))
+        assertFalse(result.isUnitAvailable(names.idOf("UnitNotUsed")))
+    }
+}
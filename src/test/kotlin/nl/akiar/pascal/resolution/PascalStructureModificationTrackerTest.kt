@@ -0,0 +1,77 @@
+package nl.akiar.pascal.resolution
+
+import com.intellij.openapi.command.WriteCommandAction
+import com.intellij.psi.PsiDocumentManager
+import com.intellij.psi.util.PsiTreeUtil
+import com.intellij.testFramework.fixtures.BasePlatformTestCase
+import nl.akiar.pascal.psi.PascalTypeDefinition
+
+/**
+ * Tests for PascalStructureModificationTracker and the project-scoped caches using it.
+ */
+class PascalStructureModificationTrackerTest : BasePlatformTestCase() {
+
+    private val source = """
+        unit Test;
+        interface
+        type
+          TBase = class
+          end;
+          TChild = class(TBase)
+          public
+            procedure Run;
+          end;
+        implementation
+        procedure TChild.Run;
+        begin
+          Writeln('a');
+        end;
+        end.
+    """.trimIndent()
+
+    private fun insertAt(marker: String, text: String) {
+        val document = myFixture.editor.document
+        val offset = document.text.indexOf(marker)
+        assertTrue("Marker '$marker' not found", offset >= 0)
+        WriteCommandAction.runWriteCommandAction(project) {
+            document.insertString(offset, text)
+        }
+        PsiDocumentManager.getInstance(project).commitDocument(document)
+    }
+
+    fun testEditInsideRoutineBodyDoesNotCountAsStructural() {
+        myFixture.configureByText("Test.pas", source)
+        val tracker = PascalStructureModificationTracker.getInstance(project)
+        val before = tracker.modificationCount
+
+        insertAt("Writeln('a');", "Writeln('b');\n  ")
+
+        assertEquals(before, tracker.modificationCount)
+    }
+
+    fun testEditInDeclarationCountsAsStructural() {
+        myFixture.configureByText("Test.pas", source)
+        val tracker = PascalStructureModificationTracker.getInstance(project)
+        val before = tracker.modificationCount
+
+        insertAt("procedure Run;", "procedure Stop;\n    ")
+
+        assertTrue(tracker.modificationCount > before)
+    }
+
+    fun testInheritanceChainSurvivesBodyEdit() {
+        val file = myFixture.configureByText("Test.pas", source)
+        val cache = InheritanceChainCache.getInstance(project)
+        val child = PsiTreeUtil.findChildrenOfType(file, PascalTypeDefinition::class.java).first { it.name == "TChild" }
+
+        cache.getInheritanceInfo(child)
+        val hitsBefore = cache.stats.hitCount
+
+        insertAt("Writeln('a');", "Writeln('b');\n  ")
+        val childAfter = PsiTreeUtil.findChildrenOfType(myFixture.file, PascalTypeDefinition::class.java).first { it.name == "TChild" }
+        val info = cache.getInheritanceInfo(childAfter)
+
+        assertEquals("TBase", info.superClassName)
+        assertEquals(hitsBefore + 1, cache.stats.hitCount)
+    }
+}
@@ -0,0 +1,133 @@
+package nl.akiar.pascal.resolution
+
+import com.intellij.openapi.application.WriteAction
+import com.intellij.openapi.command.WriteCommandAction
+import com.intellij.psi.PsiDocumentManager
+import com.intellij.testFramework.fixtures.BasePlatformTestCase
+import java.io.IOException
+
+/**
+ * Tests for the project-wide type graph built from type stubs.
+ */
+class PascalTypeGraphTest : BasePlatformTestCase() {
+
+    private val source = """
+        unit Shapes;
+        interface
+        type
+          IShape = interface
+          end;
+          TShape = class(TInterfacedObject, IShape)
+          end;
+          TCircle = class(TShape)
+          end;
+          TRing = class(TCircle)
+          end;
+        implementation
+        end.
+    """.trimIndent()
+
+    fun testAncestorsIncludeInterfacesAndTransitiveParents() {
+        myFixture.configureByText("Shapes.pas", source)
+        val graph = PascalTypeGraph.getInstance(project)
+
+        assertTrue(graph.isSubtypeOf("TRing", "TShape"))
+        assertTrue(graph.isSubtypeOf("TRing", "IShape"))
+        assertTrue(graph.isSubtypeOf("tring", "Shapes.TCircle"))
+        assertFalse(graph.isSubtypeOf("TShape", "TCircle"))
+        assertFalse(graph.isSubtypeOf("TRing", "TRing"))
+    }
+
+    fun testDescendantsAreTransitive() {
+        myFixture.configureByText("Shapes.pas", source)
+        val graph = PascalTypeGraph.getInstance(project)
+
+        assertSameElements(graph.descendantNames("IShape"), "tshape", "tcircle", "tring")
+        assertSameElements(graph.descendantNames("TCircle"), "tring")
+    }
+
+    fun testDeclarationEditUpdatesGraph() {
+        myFixture.configureByText("Shapes.pas", source)
+        val graph = PascalTypeGraph.getInstance(project)
+        assertTrue(graph.isSubtypeOf("TRing", "TCircle"))
+
+        val document = myFixture.editor.document
+        WriteCommandAction.runWriteCommandAction(project) {
+            val offset = document.text.indexOf("TRing = class(TCircle)") + "TRing = class(".length
+            document.replaceString(offset, offset + "TCircle".length, "TShape")
+        }
+        PsiDocumentManager.getInstance(project).commitDocument(document)
+
+        assertFalse(graph.isSubtypeOf("TRing", "TCircle"))
+        assertTrue(graph.isSubtypeOf("TRing", "IShape"))
+        assertSameElements(graph.descendantNames("TCircle"))
+    }
+
+    fun testUnrelatedDirectoryEventsKeepTheGraph() {
+        myFixture.configureByText("Shapes.pas", source)
+        val graph = PascalTypeGraph.getInstance(project)
+        assertTrue(graph.isSubtypeOf("TRing", "IShape"))
+        val missesBefore = graph.stats.missCount
+
+        val output = myFixture.tempDirFixture.findOrCreateDir("out/Win32")
+        WriteAction.run<IOException> {
+            output.createChildData(this, "Shapes.dcu")
+            output.parent.delete(this)
+        }
+        assertTrue(graph.isSubtypeOf("TRing", "IShape"))
+        assertEquals(missesBefore, graph.stats.missCount)
+    }
+
+    fun testDirectSubtypesCarryUnit() {
+        myFixture.configureByText("Shapes.pas", source)
+        val graph = PascalTypeGraph.getInstance(project)
+
+        val subtypes = graph.directSubtypes("Shapes.TShape")
+        assertEquals(listOf("Shapes.TCircle"), subtypes.map { it.qualifiedName })
+        assertTrue(subtypes.single().element!!.isValid)
+    }
+
+    fun testSubtypesFollowTheDeclaringUnitsUses() {
+        for (unit in listOf("BaseA", "BaseB")) {
+            myFixture.configureByText("$unit.pas", """
+                unit $unit;
+                interface
+                type
+                  TBase = class
+                  end;
+                implementation
+                end.
+            """.trimIndent())
+        }
+        myFixture.configureByText("Child.pas", """
+            unit Child;
+            interface
+            uses BaseB;
+            type
+              TChild = class(TBase)
+              end;
+            implementation
+            end.
+        """.trimIndent())
+        val graph = PascalTypeGraph.getInstance(project)
+
+        assertEquals(listOf("Child.TChild"), graph.directSubtypes("BaseB.TBase").map { it.qualifiedName })
+        assertEmpty(graph.directSubtypes("BaseA.TBase"))
+        val fromA = mutableListOf<String>()
+        assertTrue(graph.processSubtypes("BaseA.TBase") { fromA.add(it.name); true })
+        assertEmpty(fromA)
+    }
+
+    fun testProcessSubtypesStreamsNearestFirstAndStops() {
+        myFixture.configureByText("Shapes.pas", source)
+        val graph = PascalTypeGraph.getInstance(project)
+
+        val all = mutableListOf<String>()
+        assertTrue(graph.processSubtypes("IShape") { all.add(it.name); true })
+        assertEquals(listOf("TShape", "TCircle", "TRing"), all)
+
+        val first = mutableListOf<String>()
+        assertFalse(graph.processSubtypes("IShape") { first.add(it.name); false })
+        assertEquals(listOf("TShape"), first)
+    }
+}
@@ -0,0 +1,75 @@
+package nl.akiar.pascal.resolution
+
+import com.intellij.psi.util.PsiTreeUtil
+import com.intellij.testFramework.fixtures.BasePlatformTestCase
+import nl.akiar.pascal.psi.PascalTypeDefinition
+
+/**
+ * Tests for parsed, interned generic type terms and memoized substitution.
+ */
+class PascalTypeTermTest : BasePlatformTestCase() {
+
+    fun testParseNestedArguments() {
+        val term = PascalTypeTerm.parse("TDictionary<string, TList<TRide>>")
+        assertEquals("TDictionary", term.name)
+        assertEquals(listOf("string", "TList<TRide>"), term.argTexts)
+        assertEquals("TRide", term.args[1].args[0].name)
+        assertFalse(PascalTypeTerm.parse("TRide").isGeneric)
+    }
+
+    fun testTermsAreInterned() {
+        val a = PascalTypeTerm.parse("TList<TRide>")
+        val b = PascalTypeTerm.parse("TDictionary<string, TList<TRide>>").args[1]
+        assertSame(a, b)
+    }
+
+    fun testTermsStayEqualAfterTablesAreTrimmed() {
+        val before = PascalTypeTerm.parse("TDictionary<string, TList<TRide>>")
+        PascalTypeTerm.clearTables()
+        val after = PascalTypeTerm.parse("TDictionary<string, TList<TRide>>")
+
+        assertNotSame(before, after)
+        assertEquals(before, after)
+        assertEquals(before.hashCode(), after.hashCode())
+        assertEquals(mapOf(before to 1)[after], 1)
+    }
+
+    fun testSubstitutionOfUnboundTermIsIdentity() {
+        val term = PascalTypeTerm.parse("TList<TRide>")
+        assertSame(term, term.substitute(mapOf("T" to "TOther")))
+        assertSame(term, PascalTypeTerm.parse("TList<T>").substitute(mapOf("T" to "TRide")))
+    }
+
+    fun testSubstitutionReachesNestedArguments() {
+        val bindings = mapOf("T" to "TRide")
+        assertEquals("TRide", PascalTypeTerm.substitute("T", bindings))
+        assertEquals("TList<TRide>", PascalTypeTerm.substitute("TList<T>", bindings))
+        assertEquals("TDictionary<string, TList<TRide>>", PascalTypeTerm.substitute("TDictionary<string, TList<T>>", bindings))
+        assertEquals("TOther", PascalTypeTerm.substitute("TOther", bindings))
+
+        val term = PascalTypeTerm.parse("TList<T>")
+        assertSame(term.substitute(bindings), term.substitute(bindings))
+    }
+
+    fun testTypeArgMapIsMemoizedPerTypeAndArguments() {
+        val file = myFixture.configureByText("Lists.pas", """
+            unit Lists;
+            interface
+            type
+              TEntityList<T> = class
+              end;
+            implementation
+            end.
+        """.trimIndent())
+        val typeDef = PsiTreeUtil.findChildrenOfType(file, PascalTypeDefinition::class.java).first { it.name == "TEntityList" }
+        val stats = MemberResolutionCache.getInstance(project).typeArgMapStats
+
+        val first = PascalTypeTerm.typeArgMap(typeDef, "TEntityList<TRide>")
+        val hitsBefore = stats.hitCount
+        val second = PascalTypeTerm.typeArgMap(typeDef, "TEntityList<TRide>")
+
+        assertEquals(mapOf("T" to "TRide"), first)
+        assertSame(first, second)
+        assertEquals(hitsBefore + 1, stats.hitCount)
+    }
+}
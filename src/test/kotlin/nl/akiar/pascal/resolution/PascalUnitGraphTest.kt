@@ -0,0 +1,130 @@
+package nl.akiar.pascal.resolution
+
+import com.intellij.openapi.application.WriteAction
+import com.intellij.openapi.command.WriteCommandAction
+import com.intellij.psi.PsiDocumentManager
+import com.intellij.psi.PsiFile
+import com.intellij.testFramework.fixtures.BasePlatformTestCase
+import java.io.IOException
+
+/**
+ * Tests for the shared unit closures behind [TransitiveDependencyResolver].
+ */
+class PascalUnitGraphTest : BasePlatformTestCase() {
+
+    private fun unit(name: String, uses: String = "", body: String = ""): PsiFile =
+        myFixture.configureByText("$name.pas", """
+            unit $name;
+            interface
+            ${if (uses.isEmpty()) "" else "uses $uses;"}
+            implementation
+            $body
+            end.
+        """.trimIndent())
+
+    private fun edit(file: PsiFile, from: String, to: String) {
+        val document = PsiDocumentManager.getInstance(project).getDocument(file)!!
+        WriteCommandAction.runWriteCommandAction(project) {
+            val offset = document.text.indexOf(from)
+            document.replaceString(offset, offset + from.length, to)
+        }
+        PsiDocumentManager.getInstance(project).commitDocument(document)
+    }
+
+    fun testCycleSharesOneClosure() {
+        unit("UnitD")
+        unit("UnitC", "UnitB, UnitD")
+        unit("UnitB", "UnitC")
+        val names = PascalNameTable.getInstance(project)
+        val graph = PascalUnitGraph.getInstance(project)
+
+        val fromB = graph.closureOf(intArrayOf(names.idOf("UnitB")))
+        val fromC = graph.closureOf(intArrayOf(names.idOf("UnitC")))
+
+        assertTrue(fromB.contentEquals(fromC))
+        assertTrue(fromB.binarySearch(names.idOf("UnitD")) >= 0)
+        assertTrue(graph.closureOf(intArrayOf(names.idOf("UnitD"))).binarySearch(names.idOf("UnitB")) < 0)
+    }
+
+    fun testClosureHoldsOnlyItsUnits() {
+        unit("UnitC")
+        unit("UnitB", "UnitC")
+        val names = PascalNameTable.getInstance(project)
+        // Interned names that are not units must not widen closures
+        repeat(1_000) { names.idOf("Unrelated$it") }
+
+        val closure = PascalUnitGraph.getInstance(project).closureOf(intArrayOf(names.idOf("UnitB")))
+        assertTrue(closure.contentEquals(intArrayOf(names.idOf("UnitB"), names.idOf("UnitC")).sortedArray()))
+    }
+
+    fun testUnrelatedDirectoryEventsKeepClosures() {
+        unit("UnitC")
+        unit("UnitB", "UnitC")
+        val graph = PascalUnitGraph.getInstance(project)
+        TransitiveDependencyResolver.getTransitiveDependencies(unit("Main", "UnitB"))
+        val trackerBefore = graph.modificationCount
+
+        val output = myFixture.tempDirFixture.findOrCreateDir("out/Win32")
+        WriteAction.run<IOException> {
+            output.createChildData(this, "Main.dcu")
+            output.parent.delete(this)
+        }
+        assertEquals(trackerBefore, graph.modificationCount)
+
+        // A new unit in the project does change how names resolve
+        val moved = myFixture.tempDirFixture.findOrCreateDir("lib")
+        WriteAction.run<IOException> { moved.createChildData(this, "UnitX.pas") }
+        assertTrue(graph.modificationCount > trackerBefore)
+    }
+
+    fun testExternalUsesChangeIsReadOnTheNextWalk() {
+        unit("UnitD")
+        val unitC = unit("UnitC")
+        val main = unit("Main", "UnitC")
+        val graph = PascalUnitGraph.getInstance(project)
+        assertFalse(TransitiveDependencyResolver.getTransitiveDependencies(main).isUnitAvailable("UnitD"))
+
+        val trackerBefore = graph.modificationCount
+        val text = unitC.text.replace("interface", "interface\nuses UnitD;")
+        WriteAction.run<IOException> { unitC.virtualFile.setBinaryContent(text.toByteArray()) }
+        PsiDocumentManager.getInstance(project).commitAllDocuments()
+        assertTrue(graph.modificationCount > trackerBefore)
+        assertTrue(TransitiveDependencyResolver.getTransitiveDependencies(main).isUnitAvailable("UnitD"))
+    }
+
+    fun testSecondFileReusesClosures() {
+        unit("UnitC")
+        unit("UnitB", "UnitC")
+        val first = unit("First", "UnitB")
+        val second = unit("Second", "UnitB")
+        val stats = PascalUnitGraph.getInstance(project).stats
+
+        TransitiveDependencyResolver.getTransitiveDependencies(first)
+        val missesBefore = stats.missCount
+        val result = TransitiveDependencyResolver.getTransitiveDependencies(second)
+
+        assertTrue(result.isUnitAvailable("UnitC"))
+        assertEquals(missesBefore, stats.missCount)
+    }
+
+    fun testUsesEditInvalidatesOnlyReachingUnits() {
+        unit("UnitE")
+        unit("UnitD")
+        val unitC = unit("UnitC", "", "procedure P; begin end;")
+        unit("UnitB", "UnitC")
+        val main = unit("Main", "UnitB")
+        val graph = PascalUnitGraph.getInstance(project)
+        assertFalse(TransitiveDependencyResolver.getTransitiveDependencies(main).isUnitAvailable("UnitD"))
+
+        // A body edit leaves the uses clauses, and therefore every closure, alone
+        val trackerBefore = graph.modificationCount
+        edit(unitC, "procedure P;", "procedure Q;")
+        assertEquals(trackerBefore, graph.modificationCount)
+
+        // The uses edit is applied by the listener, before anyone walks the graph again
+        edit(unitC, "interface", "interface\nuses UnitD;")
+        assertTrue(graph.modificationCount > trackerBefore)
+        assertTrue(TransitiveDependencyResolver.getTransitiveDependencies(main).isUnitAvailable("UnitD"))
+        assertFalse(TransitiveDependencyResolver.getTransitiveDependencies(main).isUnitAvailable("UnitE"))
+    }
+}
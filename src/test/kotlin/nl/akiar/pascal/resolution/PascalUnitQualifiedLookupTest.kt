@@ -0,0 +1,102 @@
+package nl.akiar.pascal.resolution
+
+import com.intellij.testFramework.fixtures.BasePlatformTestCase
+import nl.akiar.pascal.psi.PascalProperty
+import nl.akiar.pascal.psi.PascalRoutine
+import nl.akiar.pascal.psi.PascalVariableDefinition
+
+/**
+ * Tests for unit-qualified type and member lookups through the scoped indices.
+ */
+class PascalUnitQualifiedLookupTest : BasePlatformTestCase() {
+
+    private fun thingUnit(unit: String) {
+        myFixture.configureByText("$unit.pas", """
+            unit $unit;
+            interface
+            type
+              TThing = class
+              private
+                FCount: Integer;
+              public
+                procedure Run;
+                property Count: Integer read FCount;
+              end;
+            implementation
+            procedure TThing.Run; begin end;
+            end.
+        """.trimIndent())
+    }
+
+    fun testTypeIsFoundInItsUnitOnly() {
+        thingUnit("UnitA")
+        thingUnit("UnitB")
+
+        val inA = PascalUnitQualifiedLookup.findType("UnitA", "tthing", project)
+        assertNotNull(inA)
+        assertEquals("unita", inA!!.unitName)
+        assertEquals("unitb", PascalUnitQualifiedLookup.findType("unitb", "TThing", project)!!.unitName)
+        assertNull(PascalUnitQualifiedLookup.findType("UnitC", "TThing", project))
+    }
+
+    fun testMembersByUnitAndOwner() {
+        thingUnit("UnitA")
+
+        val run = PascalUnitQualifiedLookup.findMember("UnitA", "TThing", "Run", project)
+        assertTrue(run is PascalRoutine)
+        assertFalse((run as PascalRoutine).isImplementation)
+        assertTrue(PascalUnitQualifiedLookup.findMember("UnitA", "TThing", "Count", project) is PascalProperty)
+        assertTrue(PascalUnitQualifiedLookup.findMember("UnitA", "TThing", "FCount", project) is PascalVariableDefinition)
+        assertNull(PascalUnitQualifiedLookup.findMember("UnitA", "TOther", "Run", project))
+        assertTrue(PascalUnitQualifiedLookup.findMemberOfOwner("TThing", "Run", project) is PascalRoutine)
+    }
+
+    fun testAvailableUnitsFollowLastWins() {
+        thingUnit("UnitA")
+        thingUnit("UnitB")
+        val main = myFixture.configureByText("Main.pas", """
+            unit Main;
+            interface
+            uses UnitA, UnitB;
+            implementation
+            end.
+        """.trimIndent())
+
+        val found = PascalUnitQualifiedLookup.findTypeInAvailableUnits("TThing", main, main.textLength - 1)
+        assertEquals("unitb", found?.unitName)
+    }
+
+    fun testUsedUnitShadowsSystemType() {
+        myFixture.configureByText("System.pas", """
+            unit System;
+            interface
+            type
+              TObject = class
+              end;
+            implementation
+            end.
+        """.trimIndent())
+        myFixture.configureByText("MyBase.pas", """
+            unit MyBase;
+            interface
+            type
+              TObject = class
+              end;
+            implementation
+            end.
+        """.trimIndent())
+        val main = myFixture.configureByText("Main.pas", """
+            unit Main;
+            interface
+            implementation
+            uses MyBase;
+            end.
+        """.trimIndent())
+
+        val inImplementation = PascalUnitQualifiedLookup.findTypeInAvailableUnits("TObject", main, main.textLength - 1)
+        assertEquals("mybase", inImplementation?.unitName)
+        // The interface section does not see the implementation uses clause
+        val inInterface = PascalUnitQualifiedLookup.findTypeInAvailableUnits("TObject", main, main.text.indexOf("interface"))
+        assertEquals("system", inInterface?.unitName)
+    }
+}
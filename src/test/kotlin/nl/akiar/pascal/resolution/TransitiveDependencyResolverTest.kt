@@ -350,13 +350,13 @@ class TransitiveDependencyResolverTest : BasePlatformTestCase() {
         assertEquals(2, result.directUnits.size)
     }
 
-    // ==================== Max Depth Tests ====================
+    // ==================== Chain Depth Tests ====================
 
     @Test
-    fun testMaxDepthLimit() {
-        // Create a chain of 15 units (exceeds default max depth of 10)
-        for (i in 15 downTo 2) {
-            val usesClause = if (i < 15) "uses Unit${i + 1};" else ""
+    fun testLongChainsAreComplete() {
+        // Create a chain of 25 units, deeper than the old depth limit of 20
+        for (i in 25 downTo 2) {
+            val usesClause = if (i < 25) "uses Unit${i + 1};" else ""
             myFixture.configureByText("Unit$i.pas", """
                 unit Unit$i;
                 interface
@@ -374,12 +374,10 @@ class TransitiveDependencyResolverTest : BasePlatformTestCase() {
             end.
         """.trimIndent())
 
-        // With default max depth of 10, we should see units up to depth 10
-        val result = TransitiveDependencyResolver.getTransitiveDependencies(mainFile, maxDepth = 10)
+        val result = TransitiveDependencyResolver.getTransitiveDependencies(mainFile)
 
         assertTrue("Unit2 should be available", result.isUnitAvailable("Unit2"))
-        assertTrue("Unit10 should be available (at max depth)", result.isUnitAvailable("Unit10"))
-        // Unit11 might not be available due to depth limit
+        assertTrue("Unit25 should be available at the end of the chain", result.isUnitAvailable("Unit25"))
     }
 
     // ==================== Empty Uses Clause Tests ====================
@@ -459,5 +457,9 @@ class TransitiveDependencyResolverTest : BasePlatformTestCase() {
         // Results should still be equal
         assertEquals(result1.directUnits, result2.directUnits)
         assertEquals(result1.transitiveUnits, result2.transitiveUnits)
+        // A recomputed result holds its own id array but compares by content
+        assertNotSame(result1.transitiveUnitIds, result2.transitiveUnitIds)
+        assertEquals(result1, result2)
+        assertEquals(result1.hashCode(), result2.hashCode())
     }
 }
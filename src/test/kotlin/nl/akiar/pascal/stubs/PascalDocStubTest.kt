@@ -0,0 +1,62 @@
+package nl.akiar.pascal.stubs
+
+import com.intellij.psi.impl.source.PsiFileImpl
+import com.intellij.psi.util.PsiTreeUtil
+import com.intellij.testFramework.fixtures.BasePlatformTestCase
+import nl.akiar.pascal.documentation.PascalDocumentationProvider
+import nl.akiar.pascal.psi.PascalProperty
+
+/**
+ * Verifies that type, routine and property stubs carry the doc comment and
+ * normalized declaration header used by hover and quick-navigate info.
+ */
+class PascalDocStubTest : BasePlatformTestCase() {
+
+    private val source = """
+        unit Test;
+        interface
+        type
+          /// A documented class
+          TFoo = class(TObject)
+          public
+            /// Does the thing
+            function DoThing(A: Integer): string;
+            /// The current value
+            property Value: Integer read FValue write FValue;
+          end;
+        implementation
+        function TFoo.DoThing(A: Integer): string; begin end;
+        end.
+    """.trimIndent()
+
+    fun testStubsStoreDocCommentAndHeader() {
+        val file = myFixture.configureByText("Test.pas", source)
+        val stubs = (file as PsiFileImpl).calcStubTree().plainList
+
+        val type = stubs.filterIsInstance<PascalTypeStub>().first { it.name == "TFoo" }
+        assertEquals("A documented class", type.docComment)
+        assertEquals("TFoo = class(TObject)", type.declarationHeader)
+
+        val routine = stubs.filterIsInstance<PascalRoutineStub>().first { it.name == "DoThing" && !it.isImplementation }
+        assertEquals("Does the thing", routine.docComment)
+        assertEquals("function DoThing(A: Integer): string;", routine.declarationHeader)
+
+        val property = stubs.filterIsInstance<PascalPropertyStub>().first { it.name == "Value" }
+        assertEquals("The current value", property.docComment)
+        assertEquals("property Value: Integer read FValue write FValue", property.declarationHeader)
+    }
+
+    fun testCapTruncatesLongText() {
+        val longDoc = "x".repeat(PascalStubText.MAX_DOC_COMMENT_LENGTH + 10)
+        assertEquals(PascalStubText.MAX_DOC_COMMENT_LENGTH, PascalStubText.cap(longDoc, PascalStubText.MAX_DOC_COMMENT_LENGTH)!!.length)
+        assertNull(PascalStubText.cap("", PascalStubText.MAX_DOC_COMMENT_LENGTH))
+    }
+
+    fun testPropertyDocIncludesComment() {
+        val file = myFixture.configureByText("Test.pas", source)
+        val property = PsiTreeUtil.findChildrenOfType(file, PascalProperty::class.java).first { it.name == "Value" }
+        val doc = PascalDocumentationProvider().generateDoc(property, null)
+        assertNotNull(doc)
+        assertTrue("Property doc should contain its comment", doc!!.contains("The current value"))
+    }
+}
@@ -0,0 +1,64 @@
+package nl.akiar.pascal.stubs
+
+import com.intellij.psi.impl.source.PsiFileImpl
+import com.intellij.psi.util.PsiTreeUtil
+import com.intellij.testFramework.fixtures.BasePlatformTestCase
+import nl.akiar.pascal.psi.PascalProperty
+import nl.akiar.pascal.psi.PascalVariableDefinition
+import nl.akiar.pascal.psi.PsiUtil
+
+/**
+ * Verifies that property, field and routine stubs carry visibility (including the
+ * strict variants) and section, and that the PSI getters agree with the stub data.
+ */
+class PascalMemberVisibilityStubTest : BasePlatformTestCase() {
+
+    private val source = """
+        unit Test;
+        interface
+        type
+          TFoo = class
+          strict private
+            FValue: Integer;
+          strict protected
+            procedure Changed;
+          public
+            property Value: Integer read FValue;
+          end;
+        implementation
+        procedure TFoo.Changed; begin end;
+        end.
+    """.trimIndent()
+
+    fun testMemberStubsStoreVisibilityAndSection() {
+        val file = myFixture.configureByText("Test.pas", source)
+        val stubs = (file as PsiFileImpl).calcStubTree().plainList
+
+        val field = stubs.filterIsInstance<PascalVariableStub>().first { it.name == "FValue" }
+        assertEquals("strict private", field.visibility)
+        assertEquals("interface", field.section)
+
+        val property = stubs.filterIsInstance<PascalPropertyStub>().first { it.name == "Value" }
+        assertEquals("public", property.visibility)
+        assertEquals("interface", property.section)
+
+        val declaration = stubs.filterIsInstance<PascalRoutineStub>().first { it.name == "Changed" && !it.isImplementation }
+        assertEquals("strict protected", declaration.visibility)
+        assertEquals("interface", declaration.section)
+
+        val implementation = stubs.filterIsInstance<PascalRoutineStub>().first { it.name == "Changed" && it.isImplementation }
+        assertEquals("implementation", implementation.section)
+    }
+
+    fun testPsiGettersMatchStubData() {
+        val file = myFixture.configureByText("Test.pas", source)
+        val field = PsiTreeUtil.findChildrenOfType(file, PascalVariableDefinition::class.java).first { it.name == "FValue" }
+        val property = PsiTreeUtil.findChildrenOfType(file, PascalProperty::class.java).first { it.name == "Value" }
+
+        assertEquals("strict private", PsiUtil.getMemberVisibility(field))
+        assertEquals("interface", field.section)
+        assertEquals("TFoo", field.containingClassName)
+        assertEquals("public", PsiUtil.getMemberVisibility(property))
+        assertEquals("interface", property.section)
+    }
+}